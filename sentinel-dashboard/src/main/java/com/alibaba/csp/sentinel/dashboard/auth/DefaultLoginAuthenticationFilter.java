@@ -15,6 +15,7 @@
  */
 package com.alibaba.csp.sentinel.dashboard.auth;
 
+import com.alibaba.csp.sentinel.dashboard.replica.ReplicaManager;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -34,8 +35,9 @@ import java.util.List;
  * <ul>
  * <li>index url: {@code /}</li>
  * <li>authentication request url: {@code /login}, {@code /logout}</li>
- * <li>instance registry: {@code /registry/instance}</li>
+ * <li>instance registry: {@code /registry/instance}, {@code /registry/instances}</li>
  * <li>static resources</li>
+ * <li>metric queries proxied by another dashboard replica, see {@link ReplicaManager}</li>
  * </ul>
  * <p>
  * The excluded urls and urlSuffixes could be configured in {@code application.properties} file.
@@ -66,6 +68,9 @@ public class DefaultLoginAuthenticationFilter implements LoginAuthenticationFilt
      */
     private final AuthService<HttpServletRequest> authService;
 
+    @Autowired(required = false)
+    private ReplicaManager replicaManager;
+
     public DefaultLoginAuthenticationFilter(AuthService<HttpServletRequest> authService) {
         this.authService = authService;
     }
@@ -107,6 +112,12 @@ public class DefaultLoginAuthenticationFilter implements LoginAuthenticationFilt
             }
         }
 
+        // Already authenticated by the replica which proxies the query
+        if (replicaManager != null && replicaManager.isTrustedReplicaRequest(httpRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
         AuthService.AuthUser authUser = authService.getAuthUser(httpRequest);
 
         HttpServletResponse httpResponse = (HttpServletResponse) response;
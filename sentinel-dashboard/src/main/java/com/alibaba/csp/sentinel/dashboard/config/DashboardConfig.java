@@ -15,6 +15,7 @@
  */
 package com.alibaba.csp.sentinel.dashboard.config;
 
+import java.io.File;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -64,6 +65,94 @@ public class DashboardConfig {
      */
     public static final String CONFIG_AUTO_REMOVE_INSTANCE_MILLIS = "sentinel.dashboard.autoRemoveInstanceMillis";
 
+    /**
+     * Deadline in millisecond of loading all series of one metric page.
+     */
+    public static final String CONFIG_METRIC_QUERY_TIMEOUT_MILLIS = "sentinel.dashboard.metric.queryTimeoutMillis";
+
+    /**
+     * Window in second of the cross-app hotspot view.
+     */
+    public static final String CONFIG_HOTSPOT_WINDOW_SECONDS = "sentinel.dashboard.metric.hotspotWindowSeconds";
+
+    /**
+     * Count of resources monitored per metric by the cross-app hotspot view.
+     */
+    public static final String CONFIG_HOTSPOT_CAPACITY = "sentinel.dashboard.metric.hotspotCapacity";
+
+    /**
+     * Minutes of metrics kept by the in-memory metric repository. Sealed windows are compressed,
+     * so an hour costs about as much heap as the 5 minutes kept before compression.
+     */
+    public static final String CONFIG_METRIC_RETENTION_MINUTES = "sentinel.dashboard.metric.retentionMinutes";
+
+    /**
+     * Estimated heap in MB the in-memory metric repository may use in total.
+     */
+    public static final String CONFIG_METRIC_MAX_MEMORY_MB = "sentinel.dashboard.metric.maxMemoryMb";
+
+    /**
+     * Estimated heap in MB the metrics of one app may use.
+     */
+    public static final String CONFIG_METRIC_MAX_APP_MEMORY_MB = "sentinel.dashboard.metric.maxAppMemoryMb";
+
+    /**
+     * Max count of resources with metrics per app.
+     */
+    public static final String CONFIG_METRIC_MAX_RESOURCES_PER_APP = "sentinel.dashboard.metric.maxResourcesPerApp";
+
+    /**
+     * Direct memory in MB for sealed metric blocks, which are kept on heap if not set.
+     */
+    public static final String CONFIG_METRIC_OFF_HEAP_MAX_MB = "sentinel.dashboard.metric.offHeapMaxMb";
+
+    /**
+     * URL to POST fetched metrics to in the Prometheus text format, e.g. the import API of a TSDB.
+     */
+    public static final String CONFIG_METRIC_EXPORT_URL = "sentinel.dashboard.metric.export.url";
+
+    /**
+     * Local file to append fetched metrics to in the Prometheus text format, if no export URL is set.
+     */
+    public static final String CONFIG_METRIC_EXPORT_FILE = "sentinel.dashboard.metric.export.file";
+
+    /**
+     * Max count of metrics waiting to be exported, more are dropped.
+     */
+    public static final String CONFIG_METRIC_EXPORT_BUFFER_SIZE = "sentinel.dashboard.metric.export.bufferSize";
+
+    public static final String CONFIG_METRIC_EXPORT_BATCH_SIZE = "sentinel.dashboard.metric.export.batchSize";
+
+    /**
+     * Retries of a failed export batch before it is dropped.
+     */
+    public static final String CONFIG_METRIC_EXPORT_MAX_RETRIES = "sentinel.dashboard.metric.export.maxRetries";
+
+    /**
+     * Interval in second of writing snapshots of metrics and instances for warm restart, disabled if not set.
+     */
+    public static final String CONFIG_SNAPSHOT_INTERVAL_SECONDS = "sentinel.dashboard.snapshot.intervalSeconds";
+
+    /**
+     * Directory of the warm restart snapshot, {@code ~/.sentinel-dashboard/snapshot} by default.
+     */
+    public static final String CONFIG_SNAPSHOT_DIR = "sentinel.dashboard.snapshot.dir";
+
+    /**
+     * Address {@code host:port} other dashboard replicas reach this one at, the local ip and server port by default.
+     */
+    public static final String CONFIG_REPLICA_ADDRESS = "sentinel.dashboard.replica.address";
+
+    /**
+     * Secret shared by the dashboard replicas to authenticate the metric queries proxied between them.
+     */
+    public static final String CONFIG_REPLICA_SECRET = "sentinel.dashboard.replica.secret";
+
+    /**
+     * Heartbeats per second the dashboard is sized for, clients are asked to slow down beyond it.
+     */
+    public static final String CONFIG_HEARTBEAT_MAX_PER_SECOND = "sentinel.dashboard.heartbeat.maxPerSecond";
+
     private static final ConcurrentMap<String, Object> cacheMap = new ConcurrentHashMap<>();
     
     @NonNull
@@ -134,6 +223,83 @@ public class DashboardConfig {
         return getConfigInt(CONFIG_UNHEALTHY_INSTANCE_MILLIS, DEFAULT_INSTANCE_HEALTHY_TIMEOUT_MS, 30000);
     }
     
+    public static int getMetricQueryTimeoutMillis() {
+        return getConfigInt(CONFIG_METRIC_QUERY_TIMEOUT_MILLIS, 5000, 100);
+    }
+
+    public static int getHotspotWindowSeconds() {
+        return getConfigInt(CONFIG_HOTSPOT_WINDOW_SECONDS, 60, 1);
+    }
+
+    public static int getHotspotCapacity() {
+        return getConfigInt(CONFIG_HOTSPOT_CAPACITY, 200, 10);
+    }
+
+    public static int getSnapshotIntervalSeconds() {
+        return getConfigInt(CONFIG_SNAPSHOT_INTERVAL_SECONDS, 0, 5);
+    }
+
+    public static String getSnapshotDir() {
+        String dir = getConfigStr(CONFIG_SNAPSHOT_DIR);
+        if (StringUtils.isBlank(dir)) {
+            return System.getProperty("user.home") + File.separator + ".sentinel-dashboard" + File.separator
+                + "snapshot";
+        }
+        return dir;
+    }
+
+    public static int getMetricRetentionMinutes() {
+        return getConfigInt(CONFIG_METRIC_RETENTION_MINUTES, 60, 1);
+    }
+
+    public static int getMetricMaxMemoryMb() {
+        return getConfigInt(CONFIG_METRIC_MAX_MEMORY_MB, 512, 16);
+    }
+
+    public static int getMetricMaxAppMemoryMb() {
+        return getConfigInt(CONFIG_METRIC_MAX_APP_MEMORY_MB, 128, 1);
+    }
+
+    public static int getMetricMaxResourcesPerApp() {
+        return getConfigInt(CONFIG_METRIC_MAX_RESOURCES_PER_APP, 20000, 100);
+    }
+
+    public static int getMetricOffHeapMaxMb() {
+        return getConfigInt(CONFIG_METRIC_OFF_HEAP_MAX_MB, 0, 1);
+    }
+
+    public static String getMetricExportUrl() {
+        return getConfigStr(CONFIG_METRIC_EXPORT_URL);
+    }
+
+    public static String getMetricExportFile() {
+        return getConfigStr(CONFIG_METRIC_EXPORT_FILE);
+    }
+
+    public static int getMetricExportBufferSize() {
+        return getConfigInt(CONFIG_METRIC_EXPORT_BUFFER_SIZE, 100000, 1000);
+    }
+
+    public static int getMetricExportBatchSize() {
+        return getConfigInt(CONFIG_METRIC_EXPORT_BATCH_SIZE, 1000, 10);
+    }
+
+    public static int getMetricExportMaxRetries() {
+        return getConfigInt(CONFIG_METRIC_EXPORT_MAX_RETRIES, 3, 1);
+    }
+
+    public static String getReplicaAddress() {
+        return getConfigStr(CONFIG_REPLICA_ADDRESS);
+    }
+
+    public static String getReplicaSecret() {
+        return getConfigStr(CONFIG_REPLICA_SECRET);
+    }
+
+    public static int getHeartbeatMaxPerSecond() {
+        return getConfigInt(CONFIG_HEARTBEAT_MAX_PER_SECOND, 1000, 10);
+    }
+
     public static void clearCache() {
         cacheMap.clear();
     }
@@ -23,6 +23,7 @@ import com.alibaba.csp.sentinel.adapter.servlet.CommonFilter;
 import com.alibaba.csp.sentinel.adapter.servlet.callback.WebCallbackManager;
 import com.alibaba.csp.sentinel.dashboard.auth.AuthorizationInterceptor;
 import com.alibaba.csp.sentinel.dashboard.auth.LoginAuthenticationFilter;
+import com.alibaba.csp.sentinel.dashboard.replica.ReplicaProxyFilter;
 import com.alibaba.csp.sentinel.util.StringUtil;
 
 import org.slf4j.Logger;
@@ -53,6 +54,9 @@ public class WebConfig implements WebMvcConfigurer {
     @Autowired
     private AuthorizationInterceptor authorizationInterceptor;
 
+    @Autowired
+    private ReplicaProxyFilter replicaProxyFilter;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(authorizationInterceptor).addPathPatterns("/**");
@@ -119,4 +123,17 @@ public class WebConfig implements WebMvcConfigurer {
         registration.setOrder(0);
         return registration;
     }
+
+    /**
+     * Proxy metric queries of apps fetched by another dashboard replica, once authenticated.
+     */
+    @Bean
+    public FilterRegistrationBean replicaProxyFilterRegistration() {
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>();
+        registration.setFilter(replicaProxyFilter);
+        registration.addUrlPatterns("/metric/*");
+        registration.setName("replicaProxyFilter");
+        registration.setOrder(2);
+        return registration;
+    }
 }
@@ -24,6 +24,7 @@ import javax.servlet.http.HttpServletRequest;
 
 import com.alibaba.csp.sentinel.dashboard.discovery.AppInfo;
 import com.alibaba.csp.sentinel.dashboard.discovery.AppManagement;
+import com.alibaba.csp.sentinel.dashboard.discovery.HeartbeatIntervalAdvisor;
 import com.alibaba.csp.sentinel.dashboard.discovery.InstanceInfo;
 import com.alibaba.csp.sentinel.dashboard.domain.Result;
 import com.alibaba.csp.sentinel.dashboard.domain.vo.InstanceInfoVo;
@@ -44,6 +45,9 @@ public class AppController {
     @Autowired
     private AppManagement appManagement;
 
+    @Autowired
+    private HeartbeatIntervalAdvisor intervalAdvisor;
+
     @GetMapping("/names.json")
     public Result<List<String>> queryApps(HttpServletRequest request) {
         return Result.ofSuccess(appManagement.getAppNames());
@@ -82,4 +86,28 @@ public class AppController {
             return Result.ofFail(1, "remove failed");
         }
     }
+
+    /**
+     * Ask the instances of the app to heartbeat faster for a while, e.g. during an investigation,
+     * or back to the default interval without {@code intervalMs}.
+     *
+     * @param durationSeconds 600 by default, at most 3600
+     * @return the interval now suggested to the instances of the app
+     */
+    @RequestMapping(value = "/{app}/heartbeatInterval.json")
+    public Result<Long> focusHeartbeatInterval(@PathVariable("app") String app,
+                                               @RequestParam(name = "intervalMs", required = false) Long intervalMs,
+                                               @RequestParam(name = "durationSeconds", required = false,
+                                                   defaultValue = "600") long durationSeconds) {
+        if (intervalMs == null) {
+            intervalAdvisor.unfocus(app);
+        } else {
+            if (intervalMs < HeartbeatIntervalAdvisor.MIN_INTERVAL_MS || durationSeconds <= 0) {
+                return Result.ofFail(-1, "intervalMs must >= " + HeartbeatIntervalAdvisor.MIN_INTERVAL_MS
+                    + " and durationSeconds must > 0");
+            }
+            intervalAdvisor.focus(app, intervalMs, durationSeconds * 1000);
+        }
+        return Result.ofSuccess(intervalAdvisor.suggestIntervalMs(app));
+    }
 }
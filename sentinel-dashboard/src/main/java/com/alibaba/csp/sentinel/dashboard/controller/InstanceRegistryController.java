@@ -16,11 +16,14 @@
 package com.alibaba.csp.sentinel.dashboard.controller;
 
 import com.alibaba.csp.sentinel.dashboard.config.AuthProperties;
+import com.alibaba.csp.sentinel.dashboard.discovery.AppInfo;
 import com.alibaba.csp.sentinel.dashboard.discovery.AppManagement;
+import com.alibaba.csp.sentinel.dashboard.discovery.HeartbeatIntervalAdvisor;
 import com.alibaba.csp.sentinel.util.StringUtil;
 
 import com.alibaba.csp.sentinel.dashboard.discovery.InstanceInfo;
 import com.alibaba.csp.sentinel.dashboard.domain.Result;
+import com.alibaba.csp.sentinel.dashboard.domain.vo.HeartbeatVo;
 
 import org.apache.http.conn.util.InetAddressUtils;
 import org.slf4j.Logger;
@@ -28,16 +31,32 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 @Controller
 @RequestMapping(value = "/registry", produces = MediaType.APPLICATION_JSON_VALUE)
 public class InstanceRegistryController {
 
+    private static final String UNKNOWN_VERSION = "unknown";
+
+    private static final int MAX_BATCH_SIZE = 5000;
+
+    /**
+     * 响应 data 中建议的下次心跳间隔（毫秒），旧客户端忽略即可
+     */
+    public static final String NEXT_INTERVAL_KEY = "nextIntervalMs";
+
     private final Logger logger = LoggerFactory.getLogger(InstanceRegistryController.class);
 
     @Autowired
@@ -53,6 +72,9 @@ public class InstanceRegistryController {
     @Autowired
     private AppManagement appManagement;
 
+    @Autowired
+    private HeartbeatIntervalAdvisor intervalAdvisor;
+
     /**
      * 校验是否为有效的 IP 地址或域名/服务名
      * 支持：IPv4, IPv6, 域名, K8s 服务名
@@ -76,7 +98,67 @@ public class InstanceRegistryController {
                                           Integer appType, Long version, String v, String hostname, String ip,
                                       Integer port,
                                       @RequestParam(value = "app_secret", required = false) String appSecret) {
-        // 验证应用密钥（如果启用鉴权）
+        Result<?> authResult = checkAppSecret(appSecret, app, ip);
+        if (authResult != null) {
+            return authResult;
+        }
+        Result<?> result = register(app, appType, version, v, hostname, ip, port);
+        if (!result.isSuccess()) {
+            return result;
+        }
+        return Result.ofSuccess(Collections.singletonMap(NEXT_INTERVAL_KEY, intervalAdvisor.suggestIntervalMs(app)));
+    }
+
+    /**
+     * 批量心跳：代理、网关或 Token Server 代替其后的多个实例一次上报，鉴权与单条心跳相同。
+     * 单条记录失败不影响其它记录，失败原因按记录下标返回。
+     */
+    @ResponseBody
+    @PostMapping("/instances")
+    public Result<?> receiveHeartBeats(@RequestBody List<HeartbeatVo> heartbeats,
+                                       @RequestParam(value = "app_secret", required = false) String appSecret) {
+        if (heartbeats == null || heartbeats.isEmpty()) {
+            return Result.ofFail(-1, "no instance in batch");
+        }
+        HeartbeatVo first = heartbeats.get(0);
+        Result<?> authResult = checkAppSecret(appSecret, first == null ? null : first.getApp(),
+            (first == null ? null : first.getIp()) + " (batch of " + heartbeats.size() + ")");
+        if (authResult != null) {
+            return authResult;
+        }
+        if (heartbeats.size() > MAX_BATCH_SIZE) {
+            return Result.ofFail(-1, "too many instances in one batch, max: " + MAX_BATCH_SIZE);
+        }
+        int registered = 0;
+        long nextIntervalMs = Long.MAX_VALUE;
+        Map<Integer, String> failures = new LinkedHashMap<>();
+        for (int i = 0; i < heartbeats.size(); i++) {
+            HeartbeatVo heartbeat = heartbeats.get(i);
+            Result<?> result = heartbeat == null ? Result.ofFail(-1, "null instance")
+                : register(heartbeat.getApp(), heartbeat.getAppType() == null ? 0 : heartbeat.getAppType(),
+                    heartbeat.getVersion(), heartbeat.getV(), heartbeat.getHostname(), heartbeat.getIp(),
+                    heartbeat.getPort());
+            if (result.isSuccess()) {
+                registered++;
+                // 整批共用一个间隔，取批内各应用建议的最小值
+                nextIntervalMs = Math.min(nextIntervalMs, intervalAdvisor.suggestIntervalMs(heartbeat.getApp()));
+            } else {
+                failures.put(i, result.getMsg());
+            }
+        }
+        Map<String, Object> data = new HashMap<>(4);
+        data.put("registered", registered);
+        data.put("failures", failures);
+        data.put(NEXT_INTERVAL_KEY, registered > 0 ? nextIntervalMs : intervalAdvisor.suggestIntervalMs(null));
+        return Result.ofSuccess(data);
+    }
+
+    /**
+     * 验证应用密钥（如果启用鉴权）
+     *
+     * @return the failure, or null if passed
+     */
+    private Result<?> checkAppSecret(String appSecret, String app, String ip) {
         if (authProperties.isEnabled() && StringUtil.isNotBlank(authProperties.getAppSecret())) {
             if (StringUtil.isBlank(appSecret)) {
                 logger.warn("[Auth] Client {} attempted to connect without app_secret", ip);
@@ -88,7 +170,21 @@ public class InstanceRegistryController {
             }
             logger.debug("[Auth] Client {} authenticated successfully for app: {}", ip, app);
         }
-        
+        return null;
+    }
+
+    private Result<?> register(String app, Integer appType, Long version, String v, String hostname, String ip,
+                               Integer port) {
+        // 快速路径：已注册实例的心跳只在原记录上更新，不再校验、不创建新对象
+        if (StringUtil.isNotBlank(app) && ip != null && port != null) {
+            AppInfo appInfo = appManagement.getDetailApp(app);
+            long now = System.currentTimeMillis();
+            if (appInfo != null && appInfo.refreshInstance(ip, port, hostname, appType,
+                version == null ? now : version, StringUtil.isBlank(v) ? UNKNOWN_VERSION : v, now)) {
+                return Result.ofSuccessMsg("success");
+            }
+        }
+
         if (StringUtil.isBlank(app) || app.length() > 256) {
             return Result.ofFail(-1, "invalid appName");
         }
@@ -109,7 +205,7 @@ public class InstanceRegistryController {
             logger.warn("Receive heartbeat from " + ip + " but port not set yet");
             return Result.ofFail(-1, "your port not set yet");
         }
-        String sentinelVersion = StringUtil.isBlank(v) ? "unknown" : v;
+        String sentinelVersion = StringUtil.isBlank(v) ? UNKNOWN_VERSION : v;
 
         version = version == null ? System.currentTimeMillis() : version;
         try {
@@ -15,18 +15,47 @@
  */
 package com.alibaba.csp.sentinel.dashboard.controller;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.SortedMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
+
+import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
 
 import com.alibaba.csp.sentinel.dashboard.domain.Result;
+import com.alibaba.csp.sentinel.dashboard.domain.vo.MetricJsonWriter;
+import com.alibaba.csp.sentinel.dashboard.domain.vo.RtPercentileVo;
+import com.alibaba.csp.sentinel.dashboard.metric.export.MetricExporter;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.InMemoryMetricsRepository;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.InstanceSkew;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.InstanceSkewDetector;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MachineMetric;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MachineMetricRepository;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricAccumulator;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricHotspot;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricHotspotTracker;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricHotspotTracker.HotspotMetric;
 import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricsRepository;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.RtSketch;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.RtSketchRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +70,10 @@ import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
 import com.alibaba.csp.sentinel.dashboard.domain.vo.MetricVo;
 
 /**
+ * Metric responses can hold hundreds of thousands of points, so they are streamed
+ * by {@link MetricJsonWriter} in the shape of a {@link Result} of {@link MetricVo}s
+ * instead of being built as an object graph first.
+ *
  * @author leyou
  */
 @Controller
@@ -51,127 +84,338 @@ public class MetricController {
 
     private static final long maxQueryIntervalMs = 1000 * 60 * 60;
 
+    private static final int QUERY_QUEUE_CAPACITY = 256;
+
     @Autowired
     private MetricsRepository<MetricEntity> metricStore;
 
-    @ResponseBody
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MetricHotspotTracker hotspotTracker;
+
+    @Autowired
+    private RtSketchRepository rtSketchStore;
+
+    @Autowired
+    private MachineMetricRepository machineMetricStore;
+
+    @Autowired
+    private InstanceSkewDetector skewDetector;
+
+    @Autowired
+    private InMemoryMetricsRepository metricMemory;
+
+    @Autowired
+    private MetricExporter metricExporter;
+
+    /**
+     * Dedicated to metric page queries, so they neither compete with nor wait for the common
+     * ForkJoin pool used by {@link com.alibaba.csp.sentinel.dashboard.util.AsyncUtils}.
+     * Runs in the request thread when saturated.
+     */
+    private final ExecutorService queryExecutor;
+
+    public MetricController() {
+        this(newQueryExecutor(Runtime.getRuntime().availableProcessors(), QUERY_QUEUE_CAPACITY));
+    }
+
+    MetricController(ExecutorService queryExecutor) {
+        this.queryExecutor = queryExecutor;
+    }
+
+    @SuppressWarnings("PMD.ThreadPoolCreationRule")
+    static ExecutorService newQueryExecutor(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+            new NamedThreadFactory("sentinel-dashboard-metric-query", true), new CallerRunsPolicy());
+    }
+
     @RequestMapping("/queryTopResourceMetric.json")
-    public Result<?> queryTopResourceMetric(final String app,
-                                            Integer pageIndex,
-                                            Integer pageSize,
-                                            Boolean desc,
-                                            Long startTime, Long endTime, String searchKey) {
-        if (StringUtil.isEmpty(app)) {
-            return Result.ofFail(-1, "app can't be null or empty");
-        }
-        if (pageIndex == null || pageIndex <= 0) {
-            pageIndex = 1;
+    public void queryTopResourceMetric(final String app,
+                                       Integer pageIndex,
+                                       Integer pageSize,
+                                       Boolean desc,
+                                       Long startTime, Long endTime, String searchKey,
+                                       HttpServletResponse response) throws IOException {
+        try (MetricJsonWriter writer = newWriter(response)) {
+            if (StringUtil.isEmpty(app)) {
+                writer.writeResult(Result.ofFail(-1, "app can't be null or empty"));
+                return;
+            }
+            if (pageIndex == null || pageIndex <= 0) {
+                pageIndex = 1;
+            }
+            if (pageSize == null) {
+                pageSize = 6;
+            }
+            if (pageSize >= 20) {
+                pageSize = 20;
+            }
+            if (desc == null) {
+                desc = true;
+            }
+            if (endTime == null) {
+                endTime = System.currentTimeMillis();
+            }
+            if (startTime == null) {
+                startTime = endTime - 1000 * 60 * 5;
+            }
+            if (endTime - startTime > maxQueryIntervalMs) {
+                writer.writeResult(Result.ofFail(-1, "time intervalMs is too big, must <= 1h"));
+                return;
+            }
+            List<String> resources = metricStore.listResourcesOfApp(app, searchKey);
+            logger.debug("queryTopResourceMetric(), resources.size()={}", resources.size());
+
+            if (resources == null || resources.isEmpty()) {
+                writer.writeResult(Result.ofSuccess(null));
+                return;
+            }
+            if (!desc) {
+                Collections.reverse(resources);
+            }
+            int totalPage = (resources.size() + pageSize - 1) / pageSize;
+            List<String> topResource = new ArrayList<>();
+            if (pageIndex <= totalPage) {
+                topResource = resources.subList((pageIndex - 1) * pageSize,
+                    Math.min(pageIndex * pageSize, resources.size()));
+            }
+            logger.debug("topResource={}", topResource);
+            long time = System.currentTimeMillis();
+            final long finalStartTime = startTime;
+            final long finalEndTime = endTime;
+            List<List<MetricEntity>> seriesList = queryAll(topResource,
+                resource -> metricStore.queryByAppAndResourceBetween(app, resource, finalStartTime, finalEndTime));
+            if (seriesList == null) {
+                writer.writeResult(queryTimeout());
+                return;
+            }
+            writer.beginPage(resources.size(), totalPage, pageIndex, pageSize, null);
+            // order matters.
+            for (int i = 0; i < topResource.size(); i++) {
+                String resource = topResource.get(i);
+                List<MetricEntity> entities = seriesList.get(i);
+                logger.debug("resource={}, entities.size()={}", resource, entities.size());
+                writer.writeSeries(resource, entities, resource);
+            }
+            writer.endPage();
+            logger.debug("queryTopResourceMetric() total query time={} ms", System.currentTimeMillis() - time);
         }
-        if (pageSize == null) {
-            pageSize = 6;
+    }
+
+    @RequestMapping("/queryByAppAndResource.json")
+    public void queryByAppAndResource(String app, String identity, Long startTime, Long endTime,
+                                      HttpServletResponse response) throws IOException {
+        try (MetricJsonWriter writer = newWriter(response)) {
+            if (StringUtil.isEmpty(app)) {
+                writer.writeResult(Result.ofFail(-1, "app can't be null or empty"));
+                return;
+            }
+            if (StringUtil.isEmpty(identity)) {
+                writer.writeResult(Result.ofFail(-1, "identity can't be null or empty"));
+                return;
+            }
+            if (endTime == null) {
+                endTime = System.currentTimeMillis();
+            }
+            if (startTime == null) {
+                startTime = endTime - 1000 * 60;
+            }
+            if (endTime - startTime > maxQueryIntervalMs) {
+                writer.writeResult(Result.ofFail(-1, "time intervalMs is too big, must <= 1h"));
+                return;
+            }
+            List<MetricEntity> entities = metricStore.queryByAppAndResourceBetween(
+                app, identity, startTime, endTime);
+            writer.writeSeriesResult(entities, identity);
         }
-        if (pageSize >= 20) {
-            pageSize = 20;
+    }
+
+    /**
+     * Rt p50/p90/p99 of a resource, for the whole period and per bucket of {@code step} seconds.
+     *
+     * @param step bucket size in second, 1 by default
+     */
+    @ResponseBody
+    @RequestMapping("/queryRtPercentiles.json")
+    public Result<Map<String, Object>> queryRtPercentiles(String app, String identity, Long startTime,
+                                                          Long endTime, Integer step) {
+        if (StringUtil.isEmpty(app)) {
+            return Result.ofFail(-1, "app can't be null or empty");
         }
-        if (desc == null) {
-            desc = true;
+        if (StringUtil.isEmpty(identity)) {
+            return Result.ofFail(-1, "identity can't be null or empty");
         }
         if (endTime == null) {
             endTime = System.currentTimeMillis();
         }
         if (startTime == null) {
-            startTime = endTime - 1000 * 60 * 5;
+            startTime = endTime - 1000 * 60;
         }
         if (endTime - startTime > maxQueryIntervalMs) {
             return Result.ofFail(-1, "time intervalMs is too big, must <= 1h");
         }
-        List<String> resources = metricStore.listResourcesOfApp(app);
-        logger.debug("queryTopResourceMetric(), resources.size()={}", resources.size());
-
-        if (resources == null || resources.isEmpty()) {
-            return Result.ofSuccess(null);
-        }
-        if (!desc) {
-            Collections.reverse(resources);
-        }
-        if (StringUtil.isNotEmpty(searchKey)) {
-            List<String> searched = new ArrayList<>();
-            for (String resource : resources) {
-                if (resource.contains(searchKey)) {
-                    searched.add(resource);
-                }
-            }
-            resources = searched;
-        }
-        int totalPage = (resources.size() + pageSize - 1) / pageSize;
-        List<String> topResource = new ArrayList<>();
-        if (pageIndex <= totalPage) {
-            topResource = resources.subList((pageIndex - 1) * pageSize,
-                Math.min(pageIndex * pageSize, resources.size()));
-        }
-        final Map<String, Iterable<MetricVo>> map = new ConcurrentHashMap<>();
-        logger.debug("topResource={}", topResource);
-        long time = System.currentTimeMillis();
-        for (final String resource : topResource) {
-            List<MetricEntity> entities = metricStore.queryByAppAndResourceBetween(
-                app, resource, startTime, endTime);
-            logger.debug("resource={}, entities.size()={}", resource, entities == null ? "null" : entities.size());
-            List<MetricVo> vos = MetricVo.fromMetricEntities(entities, resource);
-            Iterable<MetricVo> vosSorted = sortMetricVoAndDistinct(vos);
-            map.put(resource, vosSorted);
-        }
-        logger.debug("queryTopResourceMetric() total query time={} ms", System.currentTimeMillis() - time);
-        Map<String, Object> resultMap = new HashMap<>(16);
-        resultMap.put("totalCount", resources.size());
-        resultMap.put("totalPage", totalPage);
-        resultMap.put("pageIndex", pageIndex);
-        resultMap.put("pageSize", pageSize);
-
-        Map<String, Iterable<MetricVo>> map2 = new LinkedHashMap<>();
-        // order matters.
-        for (String identity : topResource) {
-            map2.put(identity, map.get(identity));
-        }
-        resultMap.put("metric", map2);
-        return Result.ofSuccess(resultMap);
+        if (step == null || step <= 0) {
+            step = 1;
+        }
+        SortedMap<Long, RtSketch> sketches = rtSketchStore.queryByAppAndResourceBetween(
+            app, identity, startTime, endTime, step * 1000L);
+        RtSketch total = new RtSketch();
+        List<RtPercentileVo> series = new ArrayList<>(sketches.size());
+        for (Map.Entry<Long, RtSketch> entry : sketches.entrySet()) {
+            total.merge(entry.getValue());
+            series.add(RtPercentileVo.fromSketch(entry.getKey(), entry.getValue()));
+        }
+        Map<String, Object> data = new HashMap<>(4);
+        data.put("total", RtPercentileVo.fromSketch(startTime, total));
+        data.put("series", series);
+        return Result.ofSuccess(data);
     }
 
+    /**
+     * Total inbound qps, system load and cpu usage of every instance of an app, and of the app
+     * as a whole (qps summed up, max system load and cpu usage), e.g. to tune system rules.
+     */
     @ResponseBody
-    @RequestMapping("/queryByAppAndResource.json")
-    public Result<?> queryByAppAndResource(String app, String identity, Long startTime, Long endTime) {
+    @RequestMapping("/queryMachineMetrics.json")
+    public Result<Map<String, Object>> queryMachineMetrics(String app, Long startTime, Long endTime) {
         if (StringUtil.isEmpty(app)) {
             return Result.ofFail(-1, "app can't be null or empty");
         }
-        if (StringUtil.isEmpty(identity)) {
-            return Result.ofFail(-1, "identity can't be null or empty");
-        }
         if (endTime == null) {
             endTime = System.currentTimeMillis();
         }
         if (startTime == null) {
-            startTime = endTime - 1000 * 60;
+            startTime = endTime - 1000 * 60 * 5;
         }
         if (endTime - startTime > maxQueryIntervalMs) {
             return Result.ofFail(-1, "time intervalMs is too big, must <= 1h");
         }
-        List<MetricEntity> entities = metricStore.queryByAppAndResourceBetween(
-            app, identity, startTime, endTime);
-        List<MetricVo> vos = MetricVo.fromMetricEntities(entities, identity);
-        return Result.ofSuccess(sortMetricVoAndDistinct(vos));
+        Map<String, List<MachineMetric>> instances = machineMetricStore.queryByAppBetween(app, startTime, endTime);
+        Map<String, Object> data = new HashMap<>(4);
+        data.put("app", MachineMetricRepository.summarize(instances));
+        data.put("instances", instances);
+        return Result.ofSuccess(data);
     }
 
-    private Iterable<MetricVo> sortMetricVoAndDistinct(List<MetricVo> vos) {
-        if (vos == null) {
-            return null;
+    /**
+     * Instances of an app taking far more pass or block QPS of a resource than their peers.
+     */
+    @ResponseBody
+    @RequestMapping("/instanceSkew.json")
+    public Result<List<InstanceSkew>> queryInstanceSkew(String app) {
+        if (StringUtil.isEmpty(app)) {
+            return Result.ofFail(-1, "app can't be null or empty");
         }
-        Map<Long, MetricVo> map = new TreeMap<>();
-        for (MetricVo vo : vos) {
-            MetricVo oldVo = map.get(vo.getTimestamp());
-            if (oldVo == null || vo.getGmtCreate() > oldVo.getGmtCreate()) {
-                map.put(vo.getTimestamp(), vo);
+        return Result.ofSuccess(skewDetector.query(app));
+    }
+
+    /**
+     * Resources across all apps with the most block QPS, exception QPS, or the largest rt recently.
+     *
+     * @param metric one of {@code blockQps} (default), {@code exceptionQps}, {@code rt}
+     * @param k      count of resources, 10 by default
+     */
+    @ResponseBody
+    @RequestMapping("/hotspot.json")
+    public Result<List<MetricHotspot>> queryHotspot(String metric, Integer k) {
+        HotspotMetric hotspotMetric;
+        if (StringUtil.isEmpty(metric) || "blockQps".equals(metric)) {
+            hotspotMetric = HotspotMetric.BLOCK_QPS;
+        } else if ("exceptionQps".equals(metric)) {
+            hotspotMetric = HotspotMetric.EXCEPTION_QPS;
+        } else if ("rt".equals(metric)) {
+            hotspotMetric = HotspotMetric.RT;
+        } else {
+            return Result.ofFail(-1, "metric must be one of blockQps, exceptionQps, rt");
+        }
+        if (k == null || k <= 0) {
+            k = 10;
+        }
+        return Result.ofSuccess(hotspotTracker.top(hotspotMetric, k));
+    }
+
+    /**
+     * Estimated memory used by the cached metrics, per app with the count of evicted series.
+     */
+    @ResponseBody
+    @RequestMapping("/memoryUsage.json")
+    public Result<Map<String, Object>> queryMemoryUsage() {
+        Map<String, Object> data = new HashMap<>(4);
+        data.put("usedBytes", metricMemory.getUsedBytes());
+        data.put("apps", metricMemory.getMemoryUsage());
+        data.put("offHeap", metricMemory.getOffHeapUsage());
+        return Result.ofSuccess(data);
+    }
+
+    /**
+     * Counters of the metric exporter, e.g. points dropped because the sink is too slow.
+     */
+    @ResponseBody
+    @RequestMapping("/exportStats.json")
+    public Result<Map<String, Object>> queryExportStats() {
+        return Result.ofSuccess(metricExporter.getStats());
+    }
+
+    /**
+     * Load the series of each resource (or instance) of a page in parallel, so that the page
+     * takes as long as its slowest series rather than the sum of them.
+     *
+     * @return the series in the order of the keys, a failed one being empty; or null if the request
+     * deadline of {@link DashboardConfig#getMetricQueryTimeoutMillis()} passed, in which case the
+     * queries still running are cancelled
+     */
+    <T> List<List<T>> queryAll(List<String> keys, Function<String, List<T>> loader) {
+        long deadline = System.nanoTime()
+            + TimeUnit.MILLISECONDS.toNanos(DashboardConfig.getMetricQueryTimeoutMillis());
+        List<Future<List<T>>> futures = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            futures.add(queryExecutor.submit(() -> loader.apply(key)));
+        }
+        List<List<T>> results = new ArrayList<>(keys.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                List<T> series = futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                results.add(series == null ? Collections.emptyList() : series);
+            } catch (TimeoutException e) {
+                logger.warn("Metric query of <{}> missed the deadline of {} ms, cancelling {} queries", keys.get(i),
+                    DashboardConfig.getMetricQueryTimeoutMillis(), futures.size() - i);
+                cancelFrom(futures, i);
+                return null;
+            } catch (InterruptedException e) {
+                cancelFrom(futures, i);
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                logger.error("Metric query of <" + keys.get(i) + "> failed", e.getCause());
+                results.add(Collections.emptyList());
             }
         }
-        return map.values();
+        return results;
+    }
+
+    private static void cancelFrom(List<? extends Future<?>> futures, int from) {
+        for (int i = from; i < futures.size(); i++) {
+            futures.get(i).cancel(true);
+        }
+    }
+
+    private static <R> Result<R> queryTimeout() {
+        return Result.ofFail(-1, "metric query timed out after "
+            + DashboardConfig.getMetricQueryTimeoutMillis() + " ms");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queryExecutor.shutdownNow();
+    }
+
+    private MetricJsonWriter newWriter(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        return new MetricJsonWriter(
+            objectMapper.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8));
     }
 
     /**
@@ -185,77 +429,74 @@ public class MetricController {
      * @param startTime start timestamp
      * @param endTime end timestamp
      * @param searchKey search keyword
-     * @return metrics grouped by resource or instance
+     * @param response metrics grouped by resource or instance are written to it
      */
-    @ResponseBody
     @RequestMapping("/queryByViewMode.json")
-    public Result<?> queryByViewMode(final String app,
-                                     String viewMode,
-                                     String ip,    // 实例 IP（实例视图使用）
-                                     Integer port, // 实例端口（实例视图使用）
-                                     Integer pageIndex,
-                                     Integer pageSize,
-                                     Boolean desc,
-                                     Long startTime, Long endTime, String searchKey) {
-        if (StringUtil.isEmpty(app)) {
-            return Result.ofFail(-1, "app can't be null or empty");
-        }
-        if (pageIndex == null || pageIndex <= 0) {
-            pageIndex = 1;
-        }
-        if (pageSize == null) {
-            pageSize = 6;
-        }
-        if (pageSize >= 20) {
-            pageSize = 20;
-        }
-        if (desc == null) {
-            desc = true;
-        }
-        if (endTime == null) {
-            endTime = System.currentTimeMillis();
-        }
-        if (startTime == null) {
-            startTime = endTime - 1000 * 60 * 5;
-        }
-        if (endTime - startTime > maxQueryIntervalMs) {
-            return Result.ofFail(-1, "time intervalMs is too big, must <= 1h");
-        }
-        
-        // Default to aggregate view
-        if (viewMode == null || viewMode.isEmpty()) {
-            viewMode = "aggregate";
-        }
-        
-        if ("instance".equals(viewMode)) {
-            return queryByInstanceView(app, ip, port, pageIndex, pageSize, desc, startTime, endTime, searchKey);
-        } else {
-            return queryByAggregateView(app, pageIndex, pageSize, desc, startTime, endTime, searchKey);
+    public void queryByViewMode(final String app,
+                                String viewMode,
+                                String ip,    // 实例 IP（实例视图使用）
+                                Integer port, // 实例端口（实例视图使用）
+                                Integer pageIndex,
+                                Integer pageSize,
+                                Boolean desc,
+                                Long startTime, Long endTime, String searchKey,
+                                HttpServletResponse response) throws IOException {
+        try (MetricJsonWriter writer = newWriter(response)) {
+            if (StringUtil.isEmpty(app)) {
+                writer.writeResult(Result.ofFail(-1, "app can't be null or empty"));
+                return;
+            }
+            if (pageIndex == null || pageIndex <= 0) {
+                pageIndex = 1;
+            }
+            if (pageSize == null) {
+                pageSize = 6;
+            }
+            if (pageSize >= 20) {
+                pageSize = 20;
+            }
+            if (desc == null) {
+                desc = true;
+            }
+            if (endTime == null) {
+                endTime = System.currentTimeMillis();
+            }
+            if (startTime == null) {
+                startTime = endTime - 1000 * 60 * 5;
+            }
+            if (endTime - startTime > maxQueryIntervalMs) {
+                writer.writeResult(Result.ofFail(-1, "time intervalMs is too big, must <= 1h"));
+                return;
+            }
+
+            // Default to aggregate view
+            if (viewMode == null || viewMode.isEmpty()) {
+                viewMode = "aggregate";
+            }
+
+            if ("instance".equals(viewMode)) {
+                queryByInstanceView(writer, app, ip, port, pageIndex, pageSize, desc, startTime, endTime, searchKey);
+            } else {
+                queryByAggregateView(writer, app, pageIndex, pageSize, desc, startTime, endTime, searchKey);
+            }
         }
     }
 
     /**
      * Aggregate view: group by resource, sum metrics across all instances
      */
-    private Result<?> queryByAggregateView(String app, int pageIndex, int pageSize, boolean desc,
-                                          long startTime, long endTime, String searchKey) {
-        List<String> resources = metricStore.listResourcesOfApp(app);
+    private void queryByAggregateView(MetricJsonWriter writer, String app, int pageIndex, int pageSize,
+                                      boolean desc, long startTime, long endTime, String searchKey)
+        throws IOException {
+        List<String> resources = metricStore.listResourcesOfApp(app, searchKey);
         if (resources == null || resources.isEmpty()) {
-            return Result.ofSuccess(null);
+            writer.writeResult(Result.ofSuccess(null));
+            return;
         }
         
         if (!desc) {
             Collections.reverse(resources);
         }
-        if (StringUtil.isNotEmpty(searchKey)) {
-            List<String> searched = new ArrayList<>();
-            for (String resource : resources) {
-                if (resource.contains(searchKey)) {
-                    searched.add(resource);
-                }
-            }
-            resources = searched;
-        }
         
         int totalPage = (resources.size() + pageSize - 1) / pageSize;
         List<String> topResource = new ArrayList<>();
@@ -264,57 +505,19 @@ public class MetricController {
                 Math.min(pageIndex * pageSize, resources.size()));
         }
         
-        final Map<String, Iterable<MetricVo>> map = new ConcurrentHashMap<>();
-        for (final String resource : topResource) {
-            List<MetricEntity> entities = metricStore.queryByAppAndResourceBetween(
-                app, resource, startTime, endTime);
-            
-            // Aggregate metrics by timestamp
-            Map<Long, MetricEntity> aggregated = new HashMap<>();
-            for (MetricEntity entity : entities) {
-                long timestamp = entity.getTimestamp().getTime();
-                MetricEntity existing = aggregated.get(timestamp);
-                if (existing == null) {
-                    existing = new MetricEntity();
-                    existing.setApp(app);
-                    existing.setResource(resource);
-                    existing.setTimestamp(entity.getTimestamp());
-                    existing.setGmtCreate(entity.getTimestamp());
-                    existing.setPassQps(0L);
-                    existing.setBlockQps(0L);
-                    existing.setSuccessQps(0L);
-                    existing.setExceptionQps(0L);
-                    existing.setRt(0.0);
-                    existing.setCount(0);
-                    aggregated.put(timestamp, existing);
-                }
-                existing.addPassQps(entity.getPassQps());
-                existing.addBlockQps(entity.getBlockQps());
-                existing.addExceptionQps(entity.getExceptionQps());
-                existing.addRtAndSuccessQps(
-                    entity.getSuccessQps() > 0 ? entity.getRt() / entity.getSuccessQps() : 0,
-                    entity.getSuccessQps()
-                );
-                existing.addCount(1);
-            }
-            
-            List<MetricVo> vos = MetricVo.fromMetricEntities(new ArrayList<>(aggregated.values()), resource);
-            map.put(resource, sortMetricVoAndDistinct(vos));
-        }
-        
-        Map<String, Object> resultMap = new HashMap<>(16);
-        resultMap.put("totalCount", resources.size());
-        resultMap.put("totalPage", totalPage);
-        resultMap.put("pageIndex", pageIndex);
-        resultMap.put("pageSize", pageSize);
-        resultMap.put("viewMode", "aggregate");
-        
-        Map<String, Iterable<MetricVo>> orderedMap = new LinkedHashMap<>();
-        for (String resource : topResource) {
-            orderedMap.put(resource, map.get(resource));
-        }
-        resultMap.put("metric", orderedMap);
-        return Result.ofSuccess(resultMap);
+        // Aggregate metrics by timestamp
+        List<List<MetricAccumulator>> seriesList = queryAll(topResource,
+            resource -> MetricAccumulator.sumByTimestamp(
+                metricStore.queryByAppAndResourceBetween(app, resource, startTime, endTime), app, resource));
+        if (seriesList == null) {
+            writer.writeResult(queryTimeout());
+            return;
+        }
+        writer.beginPage(resources.size(), totalPage, pageIndex, pageSize, "aggregate");
+        for (int i = 0; i < topResource.size(); i++) {
+            writer.writeSummedSeries(topResource.get(i), seriesList.get(i));
+        }
+        writer.endPage();
     }
 
     /**
@@ -323,32 +526,20 @@ public class MetricController {
      * @param ip   实例 IP（可选，指定则只返回该实例的数据）
      * @param port 实例端口（可选，与 ip 配合使用）
      */
-    private Result<?> queryByInstanceView(String app, String ip, Integer port, int pageIndex, int pageSize, boolean desc,
-                                         long startTime, long endTime, String searchKey) {
-        List<MetricEntity> allEntities = metricStore.queryByAppBetween(app, startTime, endTime);
-        if (allEntities == null || allEntities.isEmpty()) {
-            return Result.ofSuccess(null);
-        }
-        
+    private void queryByInstanceView(MetricJsonWriter writer, String app, String ip, Integer port, int pageIndex,
+                                     int pageSize, boolean desc, long startTime, long endTime, String searchKey)
+        throws IOException {
+        List<String> instances = metricStore.listInstancesOfApp(app);
         // 如果指定了 ip 和 port，只保留该实例的数据
         if (ip != null && !ip.isEmpty() && port != null) {
-            allEntities = allEntities.stream()
-                .filter(e -> ip.equals(e.getIp()) && port.equals(e.getPort()))
-                .collect(Collectors.toList());
+            String target = ip + ":" + port;
+            instances = instances.contains(target) ? Collections.singletonList(target) : Collections.emptyList();
         }
-        
-        if (allEntities.isEmpty()) {
-            return Result.ofSuccess(null);
+        if (instances.isEmpty()) {
+            writer.writeResult(Result.ofSuccess(null));
+            return;
         }
         
-        // Group by instance (ip:port)
-        Map<String, List<MetricEntity>> instanceMap = new HashMap<>();
-        for (MetricEntity entity : allEntities) {
-            String instanceKey = entity.getIp() + ":" + entity.getPort();
-            instanceMap.computeIfAbsent(instanceKey, k -> new ArrayList<>()).add(entity);
-        }
-        
-        List<String> instances = new ArrayList<>(instanceMap.keySet());
         if (!desc) {
             Collections.reverse(instances);
         }
@@ -370,9 +561,17 @@ public class MetricController {
                 Math.min(pageIndex * pageSize, instances.size()));
         }
         
-        final Map<String, Map<String, Iterable<MetricVo>>> result = new LinkedHashMap<>();
-        for (String instance : topInstances) {
-            List<MetricEntity> instanceEntities = instanceMap.get(instance);
+        // Only the instances of this page are read from the store.
+        List<List<MetricEntity>> seriesList = queryAll(topInstances,
+            instance -> metricStore.queryByAppAndInstanceBetween(app, instance, startTime, endTime));
+        if (seriesList == null) {
+            writer.writeResult(queryTimeout());
+            return;
+        }
+        writer.beginPage(instances.size(), totalPage, pageIndex, pageSize, "instance");
+        for (int i = 0; i < topInstances.size(); i++) {
+            String instance = topInstances.get(i);
+            List<MetricEntity> instanceEntities = seriesList.get(i);
             
             // Group by resource for this instance
             Map<String, List<MetricEntity>> resourceMap = new HashMap<>();
@@ -380,21 +579,13 @@ public class MetricController {
                 resourceMap.computeIfAbsent(entity.getResource(), k -> new ArrayList<>()).add(entity);
             }
             
-            Map<String, Iterable<MetricVo>> resourceMetrics = new LinkedHashMap<>();
+            writer.beginGroup(instance);
             for (Map.Entry<String, List<MetricEntity>> entry : resourceMap.entrySet()) {
-                List<MetricVo> vos = MetricVo.fromMetricEntities(entry.getValue(), entry.getKey());
-                resourceMetrics.put(entry.getKey(), sortMetricVoAndDistinct(vos));
+                writer.writeSeries(entry.getKey(), entry.getValue(), entry.getKey());
             }
-            result.put(instance, resourceMetrics);
+            writer.endGroup();
         }
-        
-        Map<String, Object> resultMap = new HashMap<>(16);
-        resultMap.put("totalCount", instances.size());
-        resultMap.put("totalPage", totalPage);
-        resultMap.put("pageIndex", pageIndex);
-        resultMap.put("pageSize", pageSize);
-        resultMap.put("viewMode", "instance");
-        resultMap.put("metric", result);
-        return Result.ofSuccess(resultMap);
+        // Skewed resources of the instances of the page, to highlight them.
+        writer.endPage("skew", skewDetector.queryByInstances(app, topInstances));
     }
 }
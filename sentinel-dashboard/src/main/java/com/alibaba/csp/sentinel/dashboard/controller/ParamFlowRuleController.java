@@ -25,16 +25,15 @@ import com.alibaba.csp.sentinel.dashboard.auth.AuthAction;
 import com.alibaba.csp.sentinel.dashboard.client.CommandNotFoundException;
 import com.alibaba.csp.sentinel.dashboard.client.SentinelApiClient;
 import com.alibaba.csp.sentinel.dashboard.discovery.AppManagement;
+import com.alibaba.csp.sentinel.dashboard.discovery.InstanceCapability;
 import com.alibaba.csp.sentinel.dashboard.discovery.InstanceInfo;
 import com.alibaba.csp.sentinel.dashboard.auth.AuthService;
 import com.alibaba.csp.sentinel.dashboard.auth.AuthService.PrivilegeType;
 import com.alibaba.csp.sentinel.slots.block.RuleConstant;
 import com.alibaba.csp.sentinel.util.StringUtil;
-import com.alibaba.csp.sentinel.dashboard.datasource.entity.SentinelVersion;
 import com.alibaba.csp.sentinel.dashboard.datasource.entity.rule.ParamFlowRuleEntity;
 import com.alibaba.csp.sentinel.dashboard.domain.Result;
 import com.alibaba.csp.sentinel.dashboard.repository.rule.RuleRepository;
-import com.alibaba.csp.sentinel.dashboard.util.VersionUtils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,8 +69,8 @@ public class ParamFlowRuleController {
         try {
             return Optional.ofNullable(appManagement.getDetailApp(app))
                 .flatMap(e -> e.getInstance(ip, port))
-                .flatMap(m -> VersionUtils.parseVersion(m.getVersion())
-                    .map(v -> v.greaterOrEqual(version020)))
+                .map(m -> !m.supports(InstanceCapability.KNOWN_VERSION)
+                    || m.supports(InstanceCapability.PARAM_FLOW))
                 .orElse(true);
             // If error occurred or cannot retrieve instance info, return true.
         } catch (Exception ex) {
@@ -267,6 +266,4 @@ public class ParamFlowRuleController {
         return Result.ofFail(4041,
             "Sentinel client not supported for parameter flow control (unsupported version or dependency absent)");
     }
-
-    private final SentinelVersion version020 = new SentinelVersion().setMinorVersion(2);
 }
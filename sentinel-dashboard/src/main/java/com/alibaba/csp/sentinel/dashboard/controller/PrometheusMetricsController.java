@@ -0,0 +1,121 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.controller;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.alibaba.csp.sentinel.dashboard.metric.export.PrometheusTextEncoder;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.InMemoryMetricsRepository;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.InMemoryMetricsRepository.SeriesLabeler;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.LatestMetric;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricAccumulator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * <p>Prometheus scrape endpoint of the metrics of all apps, resources and instances cached by the
+ * dashboard.</p>
+ * <p>
+ * Each series is rendered once per metric with the average of its points in the last
+ * {@code seconds} seconds (1 by default, the latest point) and the timestamp of its latest point.
+ * Label sets are built once per series and cached in the repository. Series without a point
+ * in the last minute, e.g. of dead instances, are skipped.
+ * </p>
+ */
+@RestController
+public class PrometheusMetricsController {
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final long STALE_MS = 1000 * 60;
+    private static final int MAX_SECONDS = 60;
+
+    private static final SeriesLabeler LABELER = (app, resource, ip, port) -> {
+        StringBuilder labels = new StringBuilder(64);
+        PrometheusTextEncoder.appendLabels(labels, app, resource, ip + ":" + port);
+        return labels.toString();
+    };
+
+    @Autowired
+    private InMemoryMetricsRepository metricsRepository;
+
+    @GetMapping("/metrics")
+    public void scrape(@RequestParam(required = false) Integer seconds, HttpServletResponse response)
+        throws IOException {
+        int window = seconds == null || seconds < 1 ? 1 : Math.min(seconds, MAX_SECONDS);
+        long minTimestamp = System.currentTimeMillis() - STALE_MS;
+        // One read lock per app, the lock is not held while writing the response.
+        List<LatestMetric> metrics = new ArrayList<>();
+        for (String app : metricsRepository.listApps()) {
+            metrics.addAll(metricsRepository.queryLatestOfApp(app, window * 1000L, minTimestamp, LABELER));
+        }
+        response.setContentType(CONTENT_TYPE);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8),
+            64 * 1024);
+        writeMetrics(metrics, writer);
+        writer.flush();
+    }
+
+    /**
+     * Write the metrics grouped by metric name, as the exposition format requires.
+     */
+    static void writeMetrics(List<LatestMetric> metrics, Writer writer) throws IOException {
+        StringBuilder line = new StringBuilder(256);
+        writeFamily(metrics, writer, line, PrometheusTextEncoder.PASS_QPS, "pass qps",
+            sum -> (double)sum.getPassQps() / sum.getCount());
+        writeFamily(metrics, writer, line, PrometheusTextEncoder.BLOCK_QPS, "block qps",
+            sum -> (double)sum.getBlockQps() / sum.getCount());
+        writeFamily(metrics, writer, line, PrometheusTextEncoder.SUCCESS_QPS, "success qps",
+            sum -> (double)sum.getSuccessQps() / sum.getCount());
+        writeFamily(metrics, writer, line, PrometheusTextEncoder.EXCEPTION_QPS, "exception qps",
+            sum -> (double)sum.getExceptionQps() / sum.getCount());
+        writeFamily(metrics, writer, line, PrometheusTextEncoder.RT, "average rt of success qps in ms",
+            MetricAccumulator::getAvgRt);
+    }
+
+    private static void writeFamily(List<LatestMetric> metrics, Writer writer, StringBuilder line, String name,
+                                    String help, ToDoubleFunction<MetricAccumulator> value) throws IOException {
+        writer.write("# HELP " + name + " Sentinel " + help + "\n");
+        writer.write("# TYPE " + name + " gauge\n");
+        for (LatestMetric metric : metrics) {
+            MetricAccumulator sum = metric.getSum();
+            if (sum.getCount() == 0) {
+                continue;
+            }
+            double v = value.applyAsDouble(sum);
+            line.setLength(0);
+            line.append(name).append(metric.getLabels()).append(' ');
+            if (v == (long)v) {
+                line.append((long)v);
+            } else {
+                line.append(v);
+            }
+            line.append(' ').append(sum.getTimestamp()).append('\n');
+            writer.append(line);
+        }
+    }
+}
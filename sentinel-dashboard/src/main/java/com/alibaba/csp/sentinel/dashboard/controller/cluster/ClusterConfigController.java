@@ -22,11 +22,11 @@ import java.util.concurrent.ExecutionException;
 import com.alibaba.csp.sentinel.cluster.ClusterStateManager;
 import com.alibaba.csp.sentinel.dashboard.client.CommandNotFoundException;
 import com.alibaba.csp.sentinel.dashboard.discovery.AppManagement;
+import com.alibaba.csp.sentinel.dashboard.discovery.InstanceCapability;
 import com.alibaba.csp.sentinel.util.StringUtil;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 
-import com.alibaba.csp.sentinel.dashboard.datasource.entity.SentinelVersion;
 import com.alibaba.csp.sentinel.dashboard.domain.cluster.request.ClusterClientModifyRequest;
 import com.alibaba.csp.sentinel.dashboard.domain.cluster.request.ClusterModifyRequest;
 import com.alibaba.csp.sentinel.dashboard.domain.cluster.request.ClusterServerModifyRequest;
@@ -36,7 +36,6 @@ import com.alibaba.csp.sentinel.dashboard.domain.cluster.state.ClusterUniversalS
 import com.alibaba.csp.sentinel.dashboard.domain.cluster.state.ClusterUniversalStateVO;
 import com.alibaba.csp.sentinel.dashboard.service.ClusterConfigService;
 import com.alibaba.csp.sentinel.dashboard.util.ClusterEntityUtils;
-import com.alibaba.csp.sentinel.dashboard.util.VersionUtils;
 import com.alibaba.csp.sentinel.dashboard.domain.Result;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,8 +58,6 @@ public class ClusterConfigController {
 
     private final Logger logger = LoggerFactory.getLogger(ClusterConfigController.class);
 
-    private final SentinelVersion version140 = new SentinelVersion().setMajorVersion(1).setMinorVersion(4);
-
     @Autowired
     private AppManagement appManagement;
 
@@ -209,8 +206,8 @@ public class ClusterConfigController {
         try {
             return Optional.ofNullable(appManagement.getDetailApp(app))
                 .flatMap(e -> e.getInstance(ip, port))
-                .flatMap(m -> VersionUtils.parseVersion(m.getVersion())
-                    .map(v -> v.greaterOrEqual(version140)))
+                .map(m -> !m.supports(InstanceCapability.KNOWN_VERSION)
+                    || m.supports(InstanceCapability.CLUSTER_MODE))
                 .orElse(true);
             // If error occurred or cannot retrieve instance info, return true.
         } catch (Exception ex) {
@@ -15,10 +15,12 @@
  */
 package com.alibaba.csp.sentinel.dashboard.discovery;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -30,7 +32,37 @@ public class AppInfo {
 
     private Integer appType = 0;
 
-    private Set<InstanceInfo> instances = ConcurrentHashMap.newKeySet();
+    /**
+     * {@code address:port -> instance}, keyed like {@link InstanceInfo#equals(Object)}.
+     * Instances are only added or removed under the lock of this object, so that the indexes
+     * below stay consistent with it, reads don't lock.
+     */
+    private final Map<String, InstanceInfo> instances = new ConcurrentHashMap<>();
+
+    /**
+     * {@code ip:port -> instance}
+     */
+    private final Map<String, InstanceInfo> instancesByIpPort = new ConcurrentHashMap<>();
+
+    /**
+     * {@code ip -> port -> instance}
+     */
+    private final Map<String, Map<Integer, InstanceInfo>> instancesByIp = new ConcurrentHashMap<>();
+
+    /**
+     * Immutable view of the instances, rebuilt by the first read after a change.
+     */
+    private volatile Set<InstanceInfo> snapshot = Collections.emptySet();
+
+    /**
+     * Count of changes, so that a snapshot built concurrently with a change is not kept.
+     */
+    private volatile long version;
+
+    /**
+     * Bus of the owning discovery, told of version changes seen by {@link #refreshInstance}, may be null.
+     */
+    volatile InstanceEventBus eventBus;
 
     public AppInfo() {}
 
@@ -62,47 +94,151 @@ public class AppInfo {
     /**
      * Get the current instances.
      *
-     * @return a new copy of the current instances.
+     * @return an immutable snapshot of the current instances, which is not updated by later changes.
      */
     public Set<InstanceInfo> getInstances() {
-        return new HashSet<>(instances);
+        Set<InstanceInfo> snapshot = this.snapshot;
+        if (snapshot == null) {
+            long version = this.version;
+            snapshot = Collections.unmodifiableSet(new HashSet<>(instances.values()));
+            synchronized (this) {
+                if (this.version == version) {
+                    this.snapshot = snapshot;
+                }
+            }
+        }
+        return snapshot;
     }
 
     @Override
     public String toString() {
-        return "AppInfo{" + "app='" + app + ", instances=" + instances + '}';
+        return "AppInfo{" + "app='" + app + ", instances=" + instances.values() + '}';
     }
 
     public boolean addInstance(InstanceInfo instanceInfo) {
-        instances.remove(instanceInfo);
-        return instances.add(instanceInfo);
+        putInstance(instanceInfo);
+        return true;
     }
 
-    public synchronized boolean removeInstance(String ip, int port) {
-        Iterator<InstanceInfo> it = instances.iterator();
-        while (it.hasNext()) {
-            InstanceInfo instance = it.next();
-            if (instance.getIp().equals(ip) && instance.getPort() == port) {
-                it.remove();
-                return true;
-            }
+    /**
+     * @return the replaced instance, or null if none
+     */
+    synchronized InstanceInfo putInstance(InstanceInfo instanceInfo) {
+        InstanceInfo old = instances.put(instanceInfo.toHostPort(), instanceInfo);
+        if (old != null) {
+            unindex(old);
+        }
+        instancesByIpPort.put(ipPort(instanceInfo.getIp(), instanceInfo.getPort()), instanceInfo);
+        instancesByIp.computeIfAbsent(instanceInfo.getIp(), e -> new ConcurrentHashMap<>(2))
+            .put(instanceInfo.getPort(), instanceInfo);
+        version++;
+        snapshot = null;
+        return old;
+    }
+
+    public boolean removeInstance(String ip, int port) {
+        return takeInstance(ip, port) != null;
+    }
+
+    /**
+     * @return the removed instance, or null if none
+     */
+    synchronized InstanceInfo takeInstance(String ip, int port) {
+        InstanceInfo instance = instancesByIpPort.get(ipPort(ip, port));
+        if (instance != null) {
+            remove(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Remove the instance only if it is still registered, not replaced by a new registration.
+     */
+    synchronized boolean removeInstance(InstanceInfo instance) {
+        if (instances.get(instance.toHostPort()) != instance) {
+            return false;
+        }
+        remove(instance);
+        return true;
+    }
+
+    private void remove(InstanceInfo instance) {
+        instances.remove(instance.toHostPort());
+        unindex(instance);
+        version++;
+        snapshot = null;
+    }
+
+    /**
+     * Heartbeat fast path: refresh a registered instance in place, without allocating nor locking.
+     * The identity (app, ip, port) was validated when the instance was added.
+     *
+     * @return false if no instance with the same ip, port, hostname and app type is registered,
+     * in which case the instance should be validated and added
+     */
+    public boolean refreshInstance(String ip, Integer port, String hostname, Integer appType, long heartbeatVersion,
+                                   String version, long now) {
+        Map<Integer, InstanceInfo> ports = instancesByIp.get(ip);
+        InstanceInfo instance = ports == null ? null : ports.get(port);
+        if (instance == null || !Objects.equals(instance.getHostname(), hostname)
+            || !Objects.equals(instance.getAppType(), appType)) {
+            return false;
+        }
+        String previousVersion = instance.getVersion();
+        if (instance.refresh(heartbeatVersion, version, now) && eventBus != null) {
+            eventBus.publish(new InstanceEvent(InstanceEvent.Type.VERSION_CHANGED, instance, previousVersion, now));
+        }
+        return true;
+    }
+
+    /**
+     * Mark a registered instance as alive, whatever its hostname, app type and version, e.g. when
+     * another source than its heartbeats tells it is up.
+     *
+     * @return false if no instance is registered at {@code ip:port}
+     */
+    public boolean touchInstance(String ip, Integer port, long now) {
+        Map<Integer, InstanceInfo> ports = instancesByIp.get(ip);
+        InstanceInfo instance = ports == null ? null : ports.get(port);
+        if (instance == null) {
+            return false;
+        }
+        instance.touch(now);
+        return true;
+    }
+
+    private void unindex(InstanceInfo instance) {
+        instancesByIpPort.remove(ipPort(instance.getIp(), instance.getPort()), instance);
+        Map<Integer, InstanceInfo> ports = instancesByIp.get(instance.getIp());
+        if (ports != null && ports.remove(instance.getPort(), instance) && ports.isEmpty()) {
+            instancesByIp.remove(instance.getIp());
         }
-        return false;
+    }
+
+    private static String ipPort(String ip, int port) {
+        return ip + ":" + port;
     }
 
     public Optional<InstanceInfo> getInstance(String ip, int port) {
-        return instances.stream()
-            .filter(e -> e.getIp().equals(ip) && e.getPort().equals(port))
-            .findFirst();
+        if (ip == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(instancesByIpPort.get(ipPort(ip, port)));
     }
 
     public Optional<InstanceInfo> getInstance(String ip) {
-        return instances.stream()
-            .filter(e -> e.getIp().equals(ip))
-            .findFirst();
+        if (ip == null) {
+            return Optional.empty();
+        }
+        Map<Integer, InstanceInfo> ports = instancesByIp.get(ip);
+        if (ports == null) {
+            return Optional.empty();
+        }
+        return ports.values().stream().findFirst();
     }
 
     private boolean heartbeatJudge(final int threshold) {
+        Set<InstanceInfo> instances = getInstances();
         if (instances.size() == 0) {
             return false;
         }
@@ -21,6 +21,7 @@ import java.util.Set;
 
 import javax.annotation.PostConstruct;
 
+import com.alibaba.csp.sentinel.dashboard.discovery.naming.NamingInstanceDiscovery;
 import com.alibaba.csp.sentinel.util.StringUtil;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,9 +36,15 @@ public class AppManagement implements InstanceDiscovery {
 
     private InstanceDiscovery instanceDiscovery;
 
+    private InstanceEventBus eventBus;
+
     @PostConstruct
     public void init() {
-        instanceDiscovery = context.getBean(SimpleInstanceDiscovery.class);
+        SimpleInstanceDiscovery discovery = context.getBean(SimpleInstanceDiscovery.class);
+        NamingInstanceDiscovery namingDiscovery = context.getBeanProvider(NamingInstanceDiscovery.class)
+            .getIfAvailable();
+        instanceDiscovery = namingDiscovery != null && namingDiscovery.isActive() ? namingDiscovery : discovery;
+        eventBus = discovery.getEventBus();
     }
 
     @Override
@@ -70,6 +77,13 @@ public class AppManagement implements InstanceDiscovery {
         instanceDiscovery.removeApp(app);
     }
 
+    /**
+     * @return bus of the lifecycle events of all instances
+     */
+    public InstanceEventBus getEventBus() {
+        return eventBus;
+    }
+
     public boolean isValidInstanceOfApp(String app, String ip) {
         if (StringUtil.isEmpty(app)) {
             return false;
@@ -0,0 +1,123 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Suggests the next heartbeat interval of the instances, returned in the heartbeat responses.</p>
+ * <p>
+ * By default, instances heartbeat every {@link #DEFAULT_INTERVAL_MS}, slower if the registered instances
+ * would otherwise send more than {@link DashboardConfig#getHeartbeatMaxPerSecond()} heartbeats per second
+ * in total. An app under investigation may be asked to heartbeat faster for a while, see {@link #focus}.
+ * The interval never exceeds a third of the unhealthy timeout, so that missing one heartbeat doesn't
+ * turn an instance unhealthy.
+ * </p>
+ */
+@Component
+public class HeartbeatIntervalAdvisor {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeartbeatIntervalAdvisor.class);
+
+    public static final long DEFAULT_INTERVAL_MS = 10000;
+    public static final long MIN_INTERVAL_MS = 1000;
+    public static final long MAX_FOCUS_DURATION_MS = 60 * 60 * 1000;
+
+    private final IntSupplier instanceCount;
+
+    /**
+     * app -> faster interval asked for the app, until its deadline
+     */
+    private final Map<String, Focus> focused = new ConcurrentHashMap<>();
+
+    private volatile boolean overBudget;
+
+    @Autowired
+    public HeartbeatIntervalAdvisor(SimpleInstanceDiscovery discovery) {
+        this(() -> discovery.getLivenessTracker().size());
+    }
+
+    HeartbeatIntervalAdvisor(IntSupplier instanceCount) {
+        this.instanceCount = instanceCount;
+    }
+
+    /**
+     * @return the interval in millisecond the instances of the app should heartbeat at
+     */
+    public long suggestIntervalMs(String app) {
+        long maxMs = Math.max(MIN_INTERVAL_MS, DashboardConfig.getUnhealthyInstanceMillis() / 3);
+        Focus focus = app == null ? null : focused.get(app);
+        if (focus != null) {
+            if (focus.deadline > System.currentTimeMillis()) {
+                return Math.min(focus.intervalMs, maxMs);
+            }
+            focused.remove(app, focus);
+        }
+        long intervalMs = Math.max(DEFAULT_INTERVAL_MS, getLoadIntervalMs());
+        boolean over = intervalMs > maxMs;
+        if (over != overBudget) {
+            overBudget = over;
+            if (over) {
+                logger.warn("{} instances exceed the budget of {} heartbeats per second even at {} ms intervals",
+                    instanceCount.getAsInt(), DashboardConfig.getHeartbeatMaxPerSecond(), maxMs);
+            }
+        }
+        return Math.min(intervalMs, maxMs);
+    }
+
+    /**
+     * Interval at which all instances together send the budgeted heartbeats per second, rounded up to a second.
+     */
+    private long getLoadIntervalMs() {
+        long ms = instanceCount.getAsInt() * 1000L / DashboardConfig.getHeartbeatMaxPerSecond();
+        return (ms + 999) / 1000 * 1000;
+    }
+
+    /**
+     * Ask the instances of the app to heartbeat at the given interval for a while, regardless of the budget.
+     *
+     * @param intervalMs interval in millisecond, at least {@link #MIN_INTERVAL_MS}
+     * @param durationMs duration in millisecond, at most {@link #MAX_FOCUS_DURATION_MS}
+     */
+    public void focus(String app, long intervalMs, long durationMs) {
+        long deadline = System.currentTimeMillis() + Math.min(durationMs, MAX_FOCUS_DURATION_MS);
+        focused.put(app, new Focus(Math.max(intervalMs, MIN_INTERVAL_MS), deadline));
+    }
+
+    public void unfocus(String app) {
+        focused.remove(app);
+    }
+
+    private static final class Focus {
+
+        private final long intervalMs;
+        private final long deadline;
+
+        private Focus(long intervalMs, long deadline) {
+            this.intervalMs = intervalMs;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.SentinelVersion;
+import com.alibaba.csp.sentinel.dashboard.util.VersionUtils;
+
+/**
+ * <p>Capabilities of an instance, as a bitset derived from its Sentinel version.</p>
+ * <p>
+ * The version is parsed once when it is set on the {@link InstanceInfo} or changes on a heartbeat,
+ * so checking a capability before each command is a field read, see {@link InstanceInfo#supports(int)}.
+ * A new capability gate only needs a bit and its minimal version here.
+ * </p>
+ */
+public final class InstanceCapability {
+
+    /**
+     * The version of the instance could be parsed. Without it, no other bit is set.
+     */
+    public static final int KNOWN_VERSION = 1;
+    /**
+     * Commands sent with HTTP POST (since 1.6.0).
+     */
+    public static final int POST = 1 << 1;
+    /**
+     * The form of "xxxxx; xx=xx" in "Content-Type" header (since 1.7.1).
+     */
+    public static final int ENHANCED_CONTENT_TYPE = 1 << 2;
+    /**
+     * Cluster flow control mode (since 1.4.0).
+     */
+    public static final int CLUSTER_MODE = 1 << 3;
+    /**
+     * Hot parameter flow rules (since 0.2.0).
+     */
+    public static final int PARAM_FLOW = 1 << 4;
+    /**
+     * Gateway API definitions and gateway flow rules (since 1.6.0).
+     */
+    public static final int GATEWAY_API = 1 << 5;
+
+    private static final SentinelVersion VERSION_020 = new SentinelVersion(0, 2, 0);
+    private static final SentinelVersion VERSION_140 = new SentinelVersion(1, 4, 0);
+    private static final SentinelVersion VERSION_160 = new SentinelVersion(1, 6, 0);
+    private static final SentinelVersion VERSION_171 = new SentinelVersion(1, 7, 1);
+
+    /**
+     * @param version raw Sentinel version of an instance
+     * @return the capabilities, 0 if the version cannot be parsed
+     */
+    public static int of(String version) {
+        return VersionUtils.parseVersion(version).map(InstanceCapability::of).orElse(0);
+    }
+
+    static int of(SentinelVersion version) {
+        int capabilities = KNOWN_VERSION;
+        if (version.greaterOrEqual(VERSION_020)) {
+            capabilities |= PARAM_FLOW;
+        }
+        if (version.greaterOrEqual(VERSION_140)) {
+            capabilities |= CLUSTER_MODE;
+        }
+        if (version.greaterOrEqual(VERSION_160)) {
+            capabilities |= POST | GATEWAY_API;
+        }
+        if (version.greaterOrEqual(VERSION_171)) {
+            capabilities |= ENHANCED_CONTENT_TYPE;
+        }
+        return capabilities;
+    }
+
+    private InstanceCapability() {}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery;
+
+/**
+ * A change in the lifecycle of an instance, published by {@link InstanceEventBus}.
+ */
+public class InstanceEvent {
+
+    public enum Type {
+        /**
+         * First heartbeat of the instance, or a registration replacing another one.
+         */
+        REGISTERED,
+        /**
+         * The instance now runs another Sentinel version.
+         */
+        VERSION_CHANGED,
+        /**
+         * No recent heartbeat of the instance.
+         */
+        UNHEALTHY,
+        /**
+         * The instance was removed, either dead or manually.
+         */
+        REMOVED
+    }
+
+    private final Type type;
+    private final InstanceInfo instance;
+    /**
+     * Sentinel version before the change, only set for {@link Type#VERSION_CHANGED}.
+     */
+    private final String previousVersion;
+    private final long timestamp;
+
+    public InstanceEvent(Type type, InstanceInfo instance, String previousVersion, long timestamp) {
+        this.type = type;
+        this.instance = instance;
+        this.previousVersion = previousVersion;
+        this.timestamp = timestamp;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public InstanceInfo getInstance() {
+        return instance;
+    }
+
+    public String getPreviousVersion() {
+        return previousVersion;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "InstanceEvent{" + type + ", " + instance.toLogString() + ", timestamp=" + timestamp + '}';
+    }
+}
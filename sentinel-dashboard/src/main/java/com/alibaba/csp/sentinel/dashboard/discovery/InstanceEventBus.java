@@ -0,0 +1,171 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Delivers {@link InstanceEvent}s to subscribers asynchronously.</p>
+ * <p>
+ * Each subscriber has a bounded queue and its own delivery thread. Publishing never blocks nor locks:
+ * the event is appended to the queue of each subscriber, or dropped for a subscriber whose queue is
+ * full, so a slow subscriber cannot stall heartbeat handling nor the other subscribers.
+ * </p>
+ */
+public class InstanceEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstanceEventBus.class);
+
+    static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong published = new AtomicLong();
+
+    /**
+     * Subscribe with a queue of {@link #DEFAULT_QUEUE_CAPACITY} events.
+     *
+     * @param name name of the subscriber, for its thread and the stats
+     */
+    public void subscribe(String name, InstanceEventListener listener) {
+        subscribe(name, listener, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public void subscribe(String name, InstanceEventListener listener, int queueCapacity) {
+        Subscription subscription = new Subscription(name, listener, queueCapacity);
+        Thread thread = new NamedThreadFactory("sentinel-dashboard-instance-event-" + name, true)
+            .newThread(subscription);
+        subscription.thread = thread;
+        subscriptions.add(subscription);
+        thread.start();
+    }
+
+    public void publish(InstanceEvent event) {
+        published.incrementAndGet();
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Stop all delivery threads, pending events are dropped.
+     */
+    public void shutdown() {
+        List<Subscription> stopped = new ArrayList<>(subscriptions);
+        subscriptions.clear();
+        for (Subscription subscription : stopped) {
+            subscription.running = false;
+            LockSupport.unpark(subscription.thread);
+        }
+    }
+
+    /**
+     * @return published count, then delivered, dropped and pending counts per subscriber
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("published", published.get());
+        Map<String, Object> subscribers = new LinkedHashMap<>();
+        for (Subscription subscription : subscriptions) {
+            Map<String, Long> counters = new LinkedHashMap<>();
+            counters.put("delivered", subscription.delivered.get());
+            counters.put("dropped", subscription.dropped.get());
+            counters.put("pending", (long)subscription.size.get());
+            subscribers.put(subscription.name, counters);
+        }
+        stats.put("subscribers", subscribers);
+        return stats;
+    }
+
+    private static final class Subscription implements Runnable {
+
+        private final String name;
+        private final InstanceEventListener listener;
+        private final int capacity;
+
+        private final Queue<InstanceEvent> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        private volatile Thread thread;
+        private volatile boolean running = true;
+        /**
+         * Set by the delivery thread before it parks on an empty queue, so that publishers unpark it.
+         */
+        private volatile boolean waiting;
+
+        private Subscription(String name, InstanceEventListener listener, int capacity) {
+            this.name = name;
+            this.listener = listener;
+            this.capacity = capacity;
+        }
+
+        private void offer(InstanceEvent event) {
+            if (size.incrementAndGet() > capacity) {
+                size.decrementAndGet();
+                if (dropped.getAndIncrement() % 1000 == 0) {
+                    logger.warn("Instance event queue of {} is full, dropping {}", name, event);
+                }
+                return;
+            }
+            queue.offer(event);
+            if (waiting) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                InstanceEvent event = queue.poll();
+                if (event == null) {
+                    waiting = true;
+                    // Checked again after the flag is set, an event offered meanwhile unparks this thread.
+                    if (queue.isEmpty()) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    waiting = false;
+                    continue;
+                }
+                size.decrementAndGet();
+                try {
+                    listener.onEvent(event);
+                } catch (Throwable e) {
+                    logger.warn("Instance event subscriber " + name + " failed on " + event, e);
+                }
+                delivered.incrementAndGet();
+            }
+        }
+    }
+}
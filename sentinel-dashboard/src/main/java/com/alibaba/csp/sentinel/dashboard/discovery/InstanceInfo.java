@@ -36,13 +36,30 @@ public class InstanceInfo implements Comparable<InstanceInfo> {
      */
     private String name = "";
     private Integer port = -1;
-    private long lastHeartbeat;
-    private long heartbeatVersion;
+    /**
+     * Heartbeat fields are volatile, as they are refreshed in place, see {@link #refresh(long, String, long)}.
+     */
+    private volatile long lastHeartbeat;
+    private volatile long heartbeatVersion;
+    /**
+     * False if restored from a snapshot and no heartbeat has been received since.
+     */
+    private volatile boolean verified = true;
 
     /**
      * Indicates the version of Sentinel client (since 0.2.0).
      */
-    private String version;
+    private volatile String version;
+    /**
+     * {@link InstanceCapability} bits parsed from {@link #version}, updated along with it.
+     */
+    private volatile int capabilities;
+
+    /**
+     * Precomputed by {@link InstanceLivenessTracker} while tracked, otherwise null.
+     */
+    private volatile InstanceLivenessState livenessState;
+    volatile InstanceLivenessTracker.Timeout livenessTimeout;
 
     public static InstanceInfo of(String app, String ip, Integer port) {
         InstanceInfo instanceInfo = new InstanceInfo();
@@ -141,11 +158,42 @@ public class InstanceInfo implements Comparable<InstanceInfo> {
     }
 
     public InstanceInfo setVersion(String version) {
+        this.capabilities = InstanceCapability.of(version);
         this.version = version;
         return this;
     }
+
+    /**
+     * @return the {@link InstanceCapability} bits of the instance
+     */
+    public int getCapabilities() {
+        return capabilities;
+    }
+
+    /**
+     * @param capability {@link InstanceCapability} bits
+     * @return true if the instance has all of them
+     */
+    public boolean supports(int capability) {
+        return (capabilities & capability) == capability;
+    }
     
+    public boolean isVerified() {
+        return verified;
+    }
+
+    public void setVerified(boolean verified) {
+        this.verified = verified;
+    }
+
     public boolean isHealthy() {
+        InstanceLivenessState state = livenessState;
+        if (state != null) {
+            return state == InstanceLivenessState.HEALTHY;
+        }
+        if (!verified) {
+            return false;
+        }
         long delta = System.currentTimeMillis() - lastHeartbeat;
         return delta < DashboardConfig.getUnhealthyInstanceMillis();
     }
@@ -156,6 +204,10 @@ public class InstanceInfo implements Comparable<InstanceInfo> {
      * @return
      */
     public boolean isDead() {
+        InstanceLivenessState state = livenessState;
+        if (state != null) {
+            return state == InstanceLivenessState.DEAD;
+        }
         if (DashboardConfig.getAutoRemoveInstanceMillis() > 0) {
             long delta = System.currentTimeMillis() - lastHeartbeat;
             return delta > DashboardConfig.getAutoRemoveInstanceMillis();
@@ -163,6 +215,17 @@ public class InstanceInfo implements Comparable<InstanceInfo> {
         return false;
     }
     
+    /**
+     * @return the precomputed liveness, or null if the instance is not tracked
+     */
+    public InstanceLivenessState getLivenessState() {
+        return livenessState;
+    }
+
+    void setLivenessState(InstanceLivenessState livenessState) {
+        this.livenessState = livenessState;
+    }
+
     public long getLastHeartbeat() {
         return lastHeartbeat;
     }
@@ -171,6 +234,38 @@ public class InstanceInfo implements Comparable<InstanceInfo> {
         this.lastHeartbeat = lastHeartbeat;
     }
 
+    /**
+     * Apply a heartbeat of this registered instance in place.
+     *
+     * @return true if the Sentinel version of the instance changed
+     */
+    boolean refresh(long heartbeatVersion, String version, long now) {
+        this.heartbeatVersion = heartbeatVersion;
+        boolean versionChanged = !version.equals(this.version);
+        if (versionChanged) {
+            this.capabilities = InstanceCapability.of(version);
+            this.version = version;
+        }
+        touch(now);
+        return versionChanged;
+    }
+
+    /**
+     * Mark this registered instance as alive at {@code now}, keeping its other fields.
+     */
+    void touch(long now) {
+        this.lastHeartbeat = now;
+        if (!verified) {
+            this.verified = true;
+        }
+        // Back to healthy right away, listeners are told on the next tick of the tracker.
+        InstanceLivenessTracker.Timeout timeout = livenessTimeout;
+        if (timeout != null && livenessState != InstanceLivenessState.HEALTHY) {
+            this.livenessState = InstanceLivenessState.HEALTHY;
+            timeout.tracker.recover(timeout, now);
+        }
+    }
+
     @Override
     public int compareTo(InstanceInfo o) {
         if (this == o) {
@@ -197,6 +292,7 @@ public class InstanceInfo implements Comparable<InstanceInfo> {
             .append(", port=").append(port)
             .append(", heartbeatVersion=").append(heartbeatVersion)
             .append(", lastHeartbeat=").append(lastHeartbeat)
+            .append(", verified=").append(verified)
             .append(", version='").append(version).append('\'')
             .append(", healthy=").append(isHealthy())
             .append('}').toString();
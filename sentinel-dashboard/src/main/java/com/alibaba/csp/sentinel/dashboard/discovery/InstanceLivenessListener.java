@@ -0,0 +1,31 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery;
+
+/**
+ * Listener of liveness changes of instances, called on the thread of {@link InstanceLivenessTracker},
+ * so it should return quickly.
+ */
+@FunctionalInterface
+public interface InstanceLivenessListener {
+
+    /**
+     * @param instance the instance, whose state is already {@code to}
+     * @param from     previous state
+     * @param to       new state
+     */
+    void onStateChanged(InstanceInfo instance, InstanceLivenessState from, InstanceLivenessState to);
+}
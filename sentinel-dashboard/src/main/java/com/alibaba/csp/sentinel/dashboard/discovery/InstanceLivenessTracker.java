@@ -0,0 +1,331 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Precomputes the {@link InstanceLivenessState} of instances with a hashed timer wheel.</p>
+ * <p>
+ * Each tracked instance has one timeout in the wheel, due when its state may next change, e.g. when it
+ * becomes unhealthy if no heartbeat arrives meanwhile. Heartbeats don't touch the wheel: a due timeout
+ * re-evaluates the instance from its last heartbeat and is rescheduled if the instance is still alive.
+ * Only a heartbeat of an instance which is not healthy replaces its timeout, see {@link #recover}.
+ * </p>
+ * <p>
+ * Timeouts may be added or cancelled from any thread, the wheel itself is only touched by the tick thread.
+ * </p>
+ */
+public class InstanceLivenessTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstanceLivenessTracker.class);
+
+    static final long DEFAULT_TICK_MS = 500;
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final long tickMs;
+    private final int mask;
+    private final Queue<Timeout>[] wheel;
+
+    /**
+     * Timeouts added by other threads, moved into the wheel on the next tick.
+     */
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+    private final List<InstanceLivenessListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger tracked = new AtomicInteger();
+
+    /**
+     * Last processed tick, only accessed by the tick thread.
+     */
+    private long tick = -1;
+
+    private ScheduledExecutorService tickService;
+
+    public InstanceLivenessTracker() {
+        this(DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * @param wheelSize count of buckets, rounded up to a power of 2
+     */
+    @SuppressWarnings("unchecked")
+    InstanceLivenessTracker(long tickMs, int wheelSize) {
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.tickMs = tickMs;
+        this.mask = size - 1;
+        this.wheel = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+    }
+
+    public void addListener(InstanceLivenessListener listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized void start() {
+        if (tickService != null) {
+            return;
+        }
+        tickService = Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("sentinel-dashboard-instance-liveness", true));
+        tickService.scheduleAtFixedRate(() -> {
+            try {
+                advance(System.currentTimeMillis());
+            } catch (Throwable e) {
+                logger.error("Failed to check instance liveness", e);
+            }
+        }, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (tickService != null) {
+            tickService.shutdownNow();
+            tickService = null;
+        }
+    }
+
+    public synchronized boolean isStarted() {
+        return tickService != null;
+    }
+
+    /**
+     * Start tracking the instance, replacing its previous timeout if already tracked.
+     * Its state is computed right away.
+     */
+    public void track(InstanceInfo instance, long now) {
+        synchronized (instance) {
+            untrack(instance);
+            Timeout timeout = new Timeout(this, instance);
+            timeout.reported = evaluate(timeout, now, DashboardConfig.getUnhealthyInstanceMillis(),
+                DashboardConfig.getAutoRemoveInstanceMillis());
+            if (timeout.reported == InstanceLivenessState.DEAD) {
+                // Already dead, e.g. restored from an old snapshot, reported on the next tick.
+                timeout.reported = InstanceLivenessState.UNHEALTHY;
+                timeout.deadline = now;
+            }
+            instance.livenessTimeout = timeout;
+            tracked.incrementAndGet();
+            pending.add(timeout);
+        }
+    }
+
+    /**
+     * Stop tracking the instance, whose state is then computed on each read again.
+     */
+    public void untrack(InstanceInfo instance) {
+        synchronized (instance) {
+            Timeout timeout = instance.livenessTimeout;
+            if (timeout != null) {
+                instance.livenessTimeout = null;
+                if (timeout.cancel()) {
+                    tracked.decrementAndGet();
+                }
+                instance.setLivenessState(null);
+            }
+        }
+    }
+
+    /**
+     * Called on a heartbeat of an instance which is not healthy, after it was marked healthy.
+     * Its timeout may be far away, e.g. when it would be dead, so it is replaced by one due now,
+     * which also reports the recovery.
+     */
+    void recover(Timeout timeout, long now) {
+        InstanceInfo instance = timeout.instance;
+        synchronized (instance) {
+            if (instance.livenessTimeout != timeout || !timeout.cancel()) {
+                return;
+            }
+            Timeout recovered = new Timeout(this, instance);
+            recovered.reported = timeout.reported;
+            recovered.deadline = now;
+            instance.livenessTimeout = recovered;
+            pending.add(recovered);
+        }
+    }
+
+    /**
+     * @return count of tracked instances
+     */
+    public int size() {
+        return tracked.get();
+    }
+
+    /**
+     * Process the timeouts due until {@code now}. Only called by the tick thread, or by tests.
+     */
+    void advance(long now) {
+        long target = now / tickMs;
+        if (tick < 0) {
+            tick = target - 1;
+        }
+        transferPending();
+        // Past a whole round, each bucket is processed once.
+        long from = Math.max(tick + 1, target - mask);
+        if (from > target) {
+            return;
+        }
+        long unhealthyMillis = DashboardConfig.getUnhealthyInstanceMillis();
+        long deadMillis = DashboardConfig.getAutoRemoveInstanceMillis();
+        List<Timeout> rescheduled = new ArrayList<>();
+        for (long t = from; t <= target; t++) {
+            Iterator<Timeout> it = wheel[(int)(t & mask)].iterator();
+            while (it.hasNext()) {
+                Timeout timeout = it.next();
+                if (timeout.cancelled) {
+                    it.remove();
+                } else if (timeout.deadline <= now) {
+                    it.remove();
+                    if (expire(timeout, now, unhealthyMillis, deadMillis)) {
+                        rescheduled.add(timeout);
+                    }
+                }
+            }
+        }
+        tick = target;
+        for (Timeout timeout : rescheduled) {
+            schedule(timeout);
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (!timeout.cancelled) {
+                schedule(timeout);
+            }
+        }
+    }
+
+    private void schedule(Timeout timeout) {
+        long deadlineTick = Math.max((timeout.deadline + tickMs - 1) / tickMs, tick + 1);
+        wheel[(int)(deadlineTick & mask)].add(timeout);
+    }
+
+    /**
+     * @return true if the timeout should be rescheduled
+     */
+    private boolean expire(Timeout timeout, long now, long unhealthyMillis, long deadMillis) {
+        InstanceInfo instance = timeout.instance;
+        InstanceLivenessState state = evaluate(timeout, now, unhealthyMillis, deadMillis);
+        if (timeout.cancelled) {
+            // Untracked meanwhile.
+            instance.setLivenessState(null);
+            return false;
+        }
+        InstanceLivenessState from = timeout.reported;
+        timeout.reported = state;
+        if (state != from) {
+            for (InstanceLivenessListener listener : listeners) {
+                try {
+                    listener.onStateChanged(instance, from, state);
+                } catch (Throwable e) {
+                    logger.warn("Instance liveness listener failed", e);
+                }
+            }
+        }
+        if (state == InstanceLivenessState.DEAD) {
+            synchronized (instance) {
+                if (timeout.cancel()) {
+                    tracked.decrementAndGet();
+                }
+            }
+            return false;
+        }
+        return !timeout.cancelled;
+    }
+
+    /**
+     * Compute and set the state of the instance, and the deadline of its next check.
+     */
+    private static InstanceLivenessState evaluate(Timeout timeout, long now, long unhealthyMillis,
+                                                  long deadMillis) {
+        InstanceInfo instance = timeout.instance;
+        long lastHeartbeat = instance.getLastHeartbeat();
+        InstanceLivenessState state = evaluate(timeout, instance, lastHeartbeat, now, unhealthyMillis, deadMillis);
+        instance.setLivenessState(state);
+        // A heartbeat refreshes the heartbeat then the state, so a racing refresh is seen here.
+        long refreshed = instance.getLastHeartbeat();
+        if (refreshed != lastHeartbeat) {
+            state = evaluate(timeout, instance, refreshed, now, unhealthyMillis, deadMillis);
+            instance.setLivenessState(state);
+        }
+        return state;
+    }
+
+    private static InstanceLivenessState evaluate(Timeout timeout, InstanceInfo instance, long lastHeartbeat,
+                                                  long now, long unhealthyMillis, long deadMillis) {
+        if (deadMillis > 0 && now - lastHeartbeat > deadMillis) {
+            return InstanceLivenessState.DEAD;
+        }
+        if (instance.isVerified() && now - lastHeartbeat < unhealthyMillis) {
+            timeout.deadline = lastHeartbeat + unhealthyMillis;
+            return InstanceLivenessState.HEALTHY;
+        }
+        // Without auto removal, check again later in case the instance was refreshed.
+        timeout.deadline = deadMillis > 0 ? lastHeartbeat + deadMillis + 1 : now + unhealthyMillis;
+        return InstanceLivenessState.UNHEALTHY;
+    }
+
+    static final class Timeout {
+
+        final InstanceLivenessTracker tracker;
+        private final InstanceInfo instance;
+
+        /**
+         * Written before the timeout is published, then only by the tick thread.
+         */
+        private long deadline;
+        private volatile InstanceLivenessState reported;
+
+        private volatile boolean cancelled;
+
+        private Timeout(InstanceLivenessTracker tracker, InstanceInfo instance) {
+            this.tracker = tracker;
+            this.instance = instance;
+        }
+
+        /**
+         * @return false if already cancelled
+         */
+        private synchronized boolean cancel() {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            return true;
+        }
+    }
+}
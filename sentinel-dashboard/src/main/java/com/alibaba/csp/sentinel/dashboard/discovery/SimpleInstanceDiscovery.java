@@ -18,12 +18,18 @@ package com.alibaba.csp.sentinel.dashboard.discovery;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import com.alibaba.csp.sentinel.util.AssertUtil;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 /**
@@ -32,13 +38,55 @@ import org.springframework.stereotype.Component;
 @Component
 public class SimpleInstanceDiscovery implements InstanceDiscovery {
 
+    private static final Logger logger = LoggerFactory.getLogger(SimpleInstanceDiscovery.class);
+
     private final ConcurrentMap<String, AppInfo> apps = new ConcurrentHashMap<>();
 
+    /**
+     * Keeps the liveness of instances up to date once started, and removes the dead ones.
+     */
+    private final InstanceLivenessTracker livenessTracker = new InstanceLivenessTracker();
+
+    /**
+     * Lifecycle events of the instances: registered, version changed, unhealthy and removed.
+     */
+    private final InstanceEventBus eventBus = new InstanceEventBus();
+
+    @PostConstruct
+    public void init() {
+        livenessTracker.addListener(this::onLivenessChanged);
+        livenessTracker.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        livenessTracker.stop();
+        eventBus.shutdown();
+    }
+
     @Override
     public long addInstance(InstanceInfo instanceInfo) {
         AssertUtil.notNull(instanceInfo, "instanceInfo cannot be null");
-        AppInfo appInfo = apps.computeIfAbsent(instanceInfo.getApp(), o -> new AppInfo(instanceInfo.getApp(), instanceInfo.getAppType()));
-        appInfo.addInstance(instanceInfo);
+        AppInfo appInfo = apps.computeIfAbsent(instanceInfo.getApp(), o -> {
+            AppInfo created = new AppInfo(instanceInfo.getApp(), instanceInfo.getAppType());
+            created.eventBus = eventBus;
+            return created;
+        });
+        InstanceInfo old = appInfo.putInstance(instanceInfo);
+        long now = System.currentTimeMillis();
+        if (old != null && old != instanceInfo) {
+            livenessTracker.untrack(old);
+        }
+        if (livenessTracker.isStarted()) {
+            livenessTracker.track(instanceInfo, now);
+        }
+        if (old == null || !Objects.equals(old.getHostname(), instanceInfo.getHostname())
+            || !Objects.equals(old.getAppType(), instanceInfo.getAppType())) {
+            eventBus.publish(new InstanceEvent(InstanceEvent.Type.REGISTERED, instanceInfo, null, now));
+        } else if (!Objects.equals(old.getVersion(), instanceInfo.getVersion())) {
+            eventBus.publish(new InstanceEvent(InstanceEvent.Type.VERSION_CHANGED, instanceInfo, old.getVersion(),
+                now));
+        }
         return 1;
     }
 
@@ -47,11 +95,45 @@ public class SimpleInstanceDiscovery implements InstanceDiscovery {
         AssertUtil.assertNotBlank(app, "app name cannot be blank");
         AppInfo appInfo = apps.get(app);
         if (appInfo != null) {
-            return appInfo.removeInstance(ip, port);
+            InstanceInfo removed = appInfo.takeInstance(ip, port);
+            if (removed != null) {
+                livenessTracker.untrack(removed);
+                publishRemoved(removed);
+                return true;
+            }
         }
         return false;
     }
 
+    private void onLivenessChanged(InstanceInfo instance, InstanceLivenessState from, InstanceLivenessState to) {
+        if (to == InstanceLivenessState.UNHEALTHY) {
+            eventBus.publish(new InstanceEvent(InstanceEvent.Type.UNHEALTHY, instance, null,
+                System.currentTimeMillis()));
+            return;
+        }
+        if (to != InstanceLivenessState.DEAD) {
+            return;
+        }
+        AppInfo appInfo = apps.get(instance.getApp());
+        if (appInfo != null && appInfo.removeInstance(instance)) {
+            livenessTracker.untrack(instance);
+            publishRemoved(instance);
+            logger.info("Dead instance removed: {}:{} of {}", instance.getIp(), instance.getPort(), instance.getApp());
+        }
+    }
+
+    private void publishRemoved(InstanceInfo instance) {
+        eventBus.publish(new InstanceEvent(InstanceEvent.Type.REMOVED, instance, null, System.currentTimeMillis()));
+    }
+
+    public InstanceLivenessTracker getLivenessTracker() {
+        return livenessTracker;
+    }
+
+    public InstanceEventBus getEventBus() {
+        return eventBus;
+    }
+
     @Override
     public List<String> getAppNames() {
         return new ArrayList<>(apps.keySet());
@@ -71,7 +153,13 @@ public class SimpleInstanceDiscovery implements InstanceDiscovery {
     @Override
     public void removeApp(String app) {
         AssertUtil.assertNotBlank(app, "app name cannot be blank");
-        apps.remove(app);
+        AppInfo appInfo = apps.remove(app);
+        if (appInfo != null) {
+            for (InstanceInfo instance : appInfo.getInstances()) {
+                livenessTracker.untrack(instance);
+                publishRemoved(instance);
+            }
+        }
     }
 
 }
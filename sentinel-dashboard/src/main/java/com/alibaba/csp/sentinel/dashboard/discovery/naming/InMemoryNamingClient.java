@@ -0,0 +1,79 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery.naming;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in of a naming service, for tests and local runs without a Nacos server.
+ * Listeners are called synchronously by the registering thread.
+ */
+public class InMemoryNamingClient implements NamingClient {
+
+    private final Map<String, Map<String, NamingInstance>> services = new ConcurrentHashMap<>();
+    private final Map<String, Consumer<List<NamingInstance>>> listeners = new ConcurrentHashMap<>();
+
+    private volatile boolean available = true;
+
+    public void register(String service, NamingInstance instance) {
+        services.computeIfAbsent(service, s -> new ConcurrentHashMap<>())
+            .put(instance.getIp() + ":" + instance.getPort(), instance);
+        notify(service);
+    }
+
+    public void deregister(String service, String ip, int port) {
+        Map<String, NamingInstance> instances = services.get(service);
+        if (instances != null && instances.remove(ip + ":" + port) != null) {
+            notify(service);
+        }
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    @Override
+    public void subscribe(String service, Consumer<List<NamingInstance>> listener) {
+        listeners.put(service, listener);
+        listener.accept(getInstances(service));
+    }
+
+    @Override
+    public void unsubscribe(String service) {
+        listeners.remove(service);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return available;
+    }
+
+    private void notify(String service) {
+        Consumer<List<NamingInstance>> listener = listeners.get(service);
+        if (listener != null) {
+            listener.accept(getInstances(service));
+        }
+    }
+
+    private List<NamingInstance> getInstances(String service) {
+        Map<String, NamingInstance> instances = services.get(service);
+        return instances == null ? new ArrayList<>() : new ArrayList<>(instances.values());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery.naming;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+
+/**
+ * {@link NamingClient} backed by the Nacos {@link NamingService}.
+ */
+public class NacosNamingClient implements NamingClient {
+
+    private static final String SERVER_STATUS_UP = "UP";
+
+    private final NamingService namingService;
+    private final String group;
+
+    private final Map<String, EventListener> listeners = new ConcurrentHashMap<>();
+
+    public NacosNamingClient(NamingService namingService, String group) {
+        this.namingService = namingService;
+        this.group = group;
+    }
+
+    @Override
+    public void subscribe(String service, Consumer<List<NamingInstance>> listener) throws Exception {
+        EventListener eventListener = event -> {
+            if (event instanceof NamingEvent) {
+                listener.accept(toNamingInstances(((NamingEvent)event).getInstances()));
+            }
+        };
+        EventListener previous = listeners.put(service, eventListener);
+        if (previous != null) {
+            namingService.unsubscribe(service, group, previous);
+        }
+        namingService.subscribe(service, group, eventListener);
+    }
+
+    @Override
+    public void unsubscribe(String service) throws Exception {
+        EventListener eventListener = listeners.remove(service);
+        if (eventListener != null) {
+            namingService.unsubscribe(service, group, eventListener);
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return SERVER_STATUS_UP.equals(namingService.getServerStatus());
+    }
+
+    @Override
+    public void close() throws Exception {
+        namingService.shutDown();
+    }
+
+    private static List<NamingInstance> toNamingInstances(List<Instance> instances) {
+        List<NamingInstance> list = new ArrayList<>();
+        if (instances != null) {
+            for (Instance instance : instances) {
+                list.add(new NamingInstance(instance.getIp(), instance.getPort(), instance.isHealthy(),
+                    instance.isEnabled(), instance.getMetadata()));
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery.naming;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Minimal view of a naming service (e.g. Nacos naming) used by {@link NamingInstanceDiscovery}.
+ */
+public interface NamingClient {
+
+    /**
+     * Subscribe to the instances of a service. The listener is called with the full instance list
+     * of the service on each change, possibly on a thread of the client.
+     */
+    void subscribe(String service, Consumer<List<NamingInstance>> listener) throws Exception;
+
+    void unsubscribe(String service) throws Exception;
+
+    /**
+     * @return false if the naming server is unreachable, so the known instances may be stale
+     */
+    boolean isAvailable();
+
+    default void close() throws Exception {}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery.naming;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An instance of a service as registered in the naming service.
+ */
+public class NamingInstance {
+
+    private final String ip;
+    private final int port;
+    private final boolean healthy;
+    private final boolean enabled;
+    private final Map<String, String> metadata;
+
+    public NamingInstance(String ip, int port, boolean healthy, boolean enabled, Map<String, String> metadata) {
+        this.ip = ip;
+        this.port = port;
+        this.healthy = healthy;
+        this.enabled = enabled;
+        this.metadata = metadata == null ? Collections.emptyMap() : metadata;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    /**
+     * @return port of the service itself, not the Sentinel command port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Map<String, String> getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public String toString() {
+        return "NamingInstance{" + ip + ":" + port + ", healthy=" + healthy + ", enabled=" + enabled
+            + ", metadata=" + metadata + '}';
+    }
+}
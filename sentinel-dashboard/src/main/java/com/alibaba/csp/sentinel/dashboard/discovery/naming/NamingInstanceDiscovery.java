@@ -0,0 +1,272 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery.naming;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
+import com.alibaba.csp.sentinel.dashboard.discovery.AppInfo;
+import com.alibaba.csp.sentinel.dashboard.discovery.InstanceDiscovery;
+import com.alibaba.csp.sentinel.dashboard.discovery.InstanceInfo;
+import com.alibaba.csp.sentinel.dashboard.discovery.SimpleInstanceDiscovery;
+import com.alibaba.csp.sentinel.util.StringUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>{@link InstanceDiscovery} fed by a naming service (e.g. Nacos naming) for the configured services.</p>
+ * <p>
+ * Each healthy, enabled instance of a service is registered as an instance of the app named after the
+ * service, with the Sentinel command port taken from its metadata ({@code nacos.discovery.port-metadata-key},
+ * {@code sentinel.port} by default). Instances without it are skipped. While the naming server is available,
+ * the registered instances are refreshed in place every {@link #KEEP_ALIVE_MS}, so they need no HTTP heartbeat.
+ * Without {@code hostname} or {@code sentinel.version} metadata, the IP and {@code unknown} are used until
+ * the first heartbeat of the instance replaces them; refreshes keep the hostname and version of an instance.
+ * </p>
+ * <p>
+ * Registrations are kept in the {@link SimpleInstanceDiscovery}, which also still receives the heartbeats:
+ * instances of other apps keep working as before, and if the naming server is down, named instances stay
+ * alive as long as they heartbeat.
+ * </p>
+ */
+@Component
+public class NamingInstanceDiscovery implements InstanceDiscovery {
+
+    private static final Logger logger = LoggerFactory.getLogger(NamingInstanceDiscovery.class);
+
+    static final long KEEP_ALIVE_MS = 5000;
+
+    public static final String DEFAULT_PORT_METADATA_KEY = "sentinel.port";
+    public static final String HOSTNAME_METADATA_KEY = "hostname";
+    public static final String VERSION_METADATA_KEY = "sentinel.version";
+
+    private static final String UNKNOWN_VERSION = "unknown";
+
+    @Autowired
+    private SimpleInstanceDiscovery delegate;
+
+    @Autowired(required = false)
+    private NamingClient namingClient;
+
+    @Value("#{'${nacos.discovery.services:}'.split(',')}")
+    private List<String> services;
+
+    @Value("${nacos.discovery.port-metadata-key:" + DEFAULT_PORT_METADATA_KEY + "}")
+    private String portMetadataKey;
+
+    /**
+     * {@code service -> ip:port -> instance} registered from the naming service, used as templates
+     * to refresh or register again.
+     */
+    private final Map<String, Map<String, InstanceInfo>> namedInstances = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService keepAliveService;
+
+    public NamingInstanceDiscovery() {}
+
+    NamingInstanceDiscovery(SimpleInstanceDiscovery delegate, NamingClient namingClient, List<String> services,
+                            String portMetadataKey) {
+        this.delegate = delegate;
+        this.namingClient = namingClient;
+        this.services = services;
+        this.portMetadataKey = portMetadataKey;
+    }
+
+    /**
+     * @return true if a naming client and some services are configured
+     */
+    public boolean isActive() {
+        return namingClient != null && !getServices().isEmpty();
+    }
+
+    @PostConstruct
+    public void start() throws Exception {
+        if (!isActive()) {
+            return;
+        }
+        for (String service : getServices()) {
+            namingClient.subscribe(service, instances -> onInstancesChanged(service, instances));
+        }
+        logger.info("Discovering instances of {} from the naming service", getServices());
+        keepAliveService = Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("sentinel-dashboard-naming-keep-alive", true));
+        keepAliveService.scheduleAtFixedRate(() -> {
+            try {
+                keepAlive(System.currentTimeMillis());
+            } catch (Throwable e) {
+                logger.warn("Failed to refresh instances from the naming service", e);
+            }
+        }, KEEP_ALIVE_MS, KEEP_ALIVE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (keepAliveService != null) {
+            keepAliveService.shutdownNow();
+            keepAliveService = null;
+        }
+        if (!isActive()) {
+            return;
+        }
+        for (String service : getServices()) {
+            try {
+                namingClient.unsubscribe(service);
+            } catch (Exception e) {
+                logger.warn("Failed to unsubscribe " + service + " from the naming service", e);
+            }
+        }
+    }
+
+    private List<String> getServices() {
+        if (services == null) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>();
+        for (String service : services) {
+            if (StringUtil.isNotBlank(service)) {
+                names.add(service.trim());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Apply the full instance list of a service: register new instances, refresh known ones and
+     * remove the ones which left the service.
+     */
+    synchronized void onInstancesChanged(String service, List<NamingInstance> instances) {
+        long now = System.currentTimeMillis();
+        Map<String, InstanceInfo> current = new HashMap<>();
+        for (NamingInstance namingInstance : instances) {
+            if (!namingInstance.isEnabled() || !namingInstance.isHealthy()) {
+                continue;
+            }
+            InstanceInfo instance = toInstanceInfo(service, namingInstance);
+            if (instance != null) {
+                current.put(instance.getIp() + ":" + instance.getPort(), instance);
+                register(instance, now);
+            }
+        }
+        Map<String, InstanceInfo> previous = namedInstances.put(service, current);
+        if (previous != null) {
+            for (Map.Entry<String, InstanceInfo> entry : previous.entrySet()) {
+                if (!current.containsKey(entry.getKey())) {
+                    InstanceInfo instance = entry.getValue();
+                    delegate.removeInstance(service, instance.getIp(), instance.getPort());
+                    logger.info("Instance {} left service {} in the naming service", entry.getKey(), service);
+                }
+            }
+        }
+    }
+
+    /**
+     * Refresh the named instances, like their heartbeats would.
+     */
+    void keepAlive(long now) {
+        if (!namingClient.isAvailable()) {
+            // Left to heartbeats until the naming server is back.
+            return;
+        }
+        for (Map<String, InstanceInfo> instances : namedInstances.values()) {
+            for (InstanceInfo instance : instances.values()) {
+                register(instance, now);
+            }
+        }
+    }
+
+    private void register(InstanceInfo template, long now) {
+        AppInfo appInfo = delegate.getDetailApp(template.getApp());
+        // An instance already registered, e.g. by its heartbeats, is only kept alive: the hostname and
+        // version of the template may be placeholders which must not replace the reported ones.
+        if (appInfo != null && appInfo.touchInstance(template.getIp(), template.getPort(), now)) {
+            return;
+        }
+        InstanceInfo instance = InstanceInfo.of(template.getApp(), template.getIp(), template.getPort());
+        instance.setAppType(template.getAppType());
+        instance.setHostname(template.getHostname());
+        instance.setVersion(template.getVersion());
+        instance.setHeartbeatVersion(now);
+        instance.setLastHeartbeat(now);
+        delegate.addInstance(instance);
+    }
+
+    private InstanceInfo toInstanceInfo(String service, NamingInstance namingInstance) {
+        String portValue = namingInstance.getMetadata().get(portMetadataKey);
+        int port;
+        try {
+            port = Integer.parseInt(portValue.trim());
+        } catch (Exception e) {
+            logger.debug("Skipping instance {} of {} without a valid {} in metadata", namingInstance, service,
+                portMetadataKey);
+            return null;
+        }
+        if (port <= 0 || port > 65535) {
+            return null;
+        }
+        String hostname = namingInstance.getMetadata().get(HOSTNAME_METADATA_KEY);
+        String version = namingInstance.getMetadata().get(VERSION_METADATA_KEY);
+        InstanceInfo instance = InstanceInfo.of(service, namingInstance.getIp(), port);
+        instance.setHostname(StringUtil.isBlank(hostname) ? namingInstance.getIp() : hostname);
+        instance.setVersion(StringUtil.isBlank(version) ? UNKNOWN_VERSION : version);
+        return instance;
+    }
+
+    @Override
+    public List<String> getAppNames() {
+        return delegate.getAppNames();
+    }
+
+    @Override
+    public Set<AppInfo> getBriefApps() {
+        return delegate.getBriefApps();
+    }
+
+    @Override
+    public AppInfo getDetailApp(String app) {
+        return delegate.getDetailApp(app);
+    }
+
+    @Override
+    public void removeApp(String app) {
+        delegate.removeApp(app);
+    }
+
+    @Override
+    public long addInstance(InstanceInfo instanceInfo) {
+        return delegate.addInstance(instanceInfo);
+    }
+
+    @Override
+    public boolean removeInstance(String app, String ip, int port) {
+        return delegate.removeInstance(app, ip, port);
+    }
+}
@@ -87,17 +87,19 @@ public class ResourceTreeNode {
     }
 
     public void searchIgnoreCase(String searchKey) {
-        search(this, searchKey);
+        search(this, searchKey == null ? null : searchKey.toLowerCase());
     }
 
     /**
      * This node is visible only when searchKey matches this.resource or at least
      * one of this's children is visible
+     *
+     * @param lowerSearchKey lower-cased search key
      */
-    private boolean search(ResourceTreeNode node, String searchKey) {
+    private boolean search(ResourceTreeNode node, String lowerSearchKey) {
         // empty matches all
-        if (searchKey == null || searchKey.isEmpty() ||
-            node.resource.toLowerCase().contains(searchKey.toLowerCase())) {
+        if (lowerSearchKey == null || lowerSearchKey.isEmpty() ||
+            node.resource.toLowerCase().contains(lowerSearchKey)) {
             node.visible = true;
         } else {
             node.visible = false;
@@ -105,7 +107,7 @@ public class ResourceTreeNode {
 
         boolean found = false;
         for (ResourceTreeNode c : node.children) {
-            found |= search(c, searchKey);
+            found |= search(c, lowerSearchKey);
         }
         node.visible |= found;
         return node.visible;
@@ -0,0 +1,217 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.domain.vo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.dashboard.domain.Result;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricAccumulator;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * <p>Streams metric query results as JSON directly from the stored {@link MetricEntity} lists.</p>
+ * <p>
+ * The output has the same shape as serializing a {@link Result} whose data holds
+ * {@link MetricVo} lists, but no intermediate {@link MetricVo} or map is built per point.
+ * Each series is sorted by timestamp and distinct by timestamp (the latest {@code gmtCreate} wins).
+ * </p>
+ */
+public class MetricJsonWriter implements Closeable {
+
+    private static final Comparator<MetricEntity> TIMESTAMP_ORDER =
+        Comparator.comparingLong(e -> e.getTimestamp().getTime());
+
+    private final JsonGenerator generator;
+
+    public MetricJsonWriter(JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * Write a whole {@link Result} with the generator's codec, e.g. a failure.
+     */
+    public void writeResult(Result<?> result) throws IOException {
+        generator.writeObject(result);
+    }
+
+    /**
+     * Write a successful {@link Result} whose data is one metric series.
+     *
+     * @param entities entities of the series, will be sorted in place
+     * @param identity resource name to keep
+     */
+    public void writeSeriesResult(List<MetricEntity> entities, String identity) throws IOException {
+        writeSuccessHead();
+        writeSeries(entities, identity);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Open a successful {@link Result} whose data is a page of metric series,
+     * then the {@code metric} object which holds the series by name.
+     *
+     * @param viewMode view mode of the page, omitted if null
+     */
+    public void beginPage(int totalCount, int totalPage, int pageIndex, int pageSize, String viewMode)
+        throws IOException {
+        writeSuccessHead();
+        generator.writeStartObject();
+        generator.writeNumberField("totalCount", totalCount);
+        generator.writeNumberField("totalPage", totalPage);
+        generator.writeNumberField("pageIndex", pageIndex);
+        generator.writeNumberField("pageSize", pageSize);
+        if (viewMode != null) {
+            generator.writeStringField("viewMode", viewMode);
+        }
+        generator.writeObjectFieldStart("metric");
+    }
+
+    public void endPage() throws IOException {
+        // metric, data, result
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Close the page like {@link #endPage()}, with one more field in its data after {@code metric}.
+     *
+     * @param value written with the generator's codec
+     */
+    public void endPage(String name, Object value) throws IOException {
+        generator.writeEndObject();
+        generator.writeObjectField(name, value);
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Open a nested object of series, e.g. all resources of one instance.
+     */
+    public void beginGroup(String name) throws IOException {
+        generator.writeObjectFieldStart(name);
+    }
+
+    public void endGroup() throws IOException {
+        generator.writeEndObject();
+    }
+
+    /**
+     * Write a named metric series.
+     *
+     * @param name     field name of the series
+     * @param entities entities of the series, will be sorted in place
+     * @param identity resource name to keep
+     */
+    public void writeSeries(String name, List<MetricEntity> entities, String identity) throws IOException {
+        generator.writeFieldName(name);
+        writeSeries(entities, identity);
+    }
+
+    /**
+     * Write a named series of metrics summed across instances, whose {@code gmtCreate}
+     * is reported as the timestamp.
+     *
+     * @param accumulators one accumulator per timestamp, ordered by timestamp
+     */
+    public void writeSummedSeries(String name, List<MetricAccumulator> accumulators) throws IOException {
+        generator.writeFieldName(name);
+        generator.writeStartArray();
+        for (MetricAccumulator accumulator : accumulators) {
+            generator.writeStartObject();
+            generator.writeNullField("id");
+            generator.writeStringField("app", accumulator.getApp());
+            generator.writeNumberField("timestamp", accumulator.getTimestamp());
+            generator.writeNumberField("gmtCreate", accumulator.getTimestamp());
+            generator.writeStringField("resource", accumulator.getResource());
+            generator.writeNumberField("passQps", accumulator.getPassQps());
+            generator.writeNumberField("blockQps", accumulator.getBlockQps());
+            generator.writeNumberField("successQps", accumulator.getSuccessQps());
+            generator.writeNumberField("exceptionQps", accumulator.getExceptionQps());
+            generator.writeNumberField("rt", accumulator.getAvgRt());
+            generator.writeNumberField("count", accumulator.getCount());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private void writeSuccessHead() throws IOException {
+        generator.writeStartObject();
+        generator.writeBooleanField("success", true);
+        generator.writeNumberField("code", 0);
+        generator.writeStringField("msg", "success");
+        generator.writeFieldName("data");
+    }
+
+    private void writeSeries(List<MetricEntity> entities, String identity) throws IOException {
+        if (entities == null) {
+            generator.writeNull();
+            return;
+        }
+        entities.sort(TIMESTAMP_ORDER);
+        generator.writeStartArray();
+        MetricEntity pending = null;
+        for (MetricEntity entity : entities) {
+            if (!entity.getResource().equals(identity)) {
+                continue;
+            }
+            if (pending == null) {
+                pending = entity;
+            } else if (pending.getTimestamp().getTime() != entity.getTimestamp().getTime()) {
+                writeMetric(pending);
+                pending = entity;
+            } else if (entity.getGmtCreate().getTime() > pending.getGmtCreate().getTime()) {
+                pending = entity;
+            }
+        }
+        if (pending != null) {
+            writeMetric(pending);
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Same fields and order as {@link MetricVo#fromMetricEntity(MetricEntity)}.
+     */
+    private void writeMetric(MetricEntity entity) throws IOException {
+        generator.writeStartObject();
+        if (entity.getId() == null) {
+            generator.writeNullField("id");
+        } else {
+            generator.writeNumberField("id", entity.getId());
+        }
+        generator.writeStringField("app", entity.getApp());
+        generator.writeNumberField("timestamp", entity.getTimestamp().getTime());
+        generator.writeNumberField("gmtCreate", entity.getGmtCreate().getTime());
+        generator.writeStringField("resource", entity.getResource());
+        generator.writeNumberField("passQps", entity.getPassQps());
+        generator.writeNumberField("blockQps", entity.getBlockQps());
+        generator.writeNumberField("successQps", entity.getSuccessQps());
+        generator.writeNumberField("exceptionQps", entity.getExceptionQps());
+        generator.writeNumberField("rt", entity.getSuccessQps() != 0 ? entity.getRt() / entity.getSuccessQps() : 0D);
+        generator.writeNumberField("count", entity.getCount());
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
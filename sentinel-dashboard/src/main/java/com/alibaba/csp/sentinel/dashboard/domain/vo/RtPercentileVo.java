@@ -0,0 +1,83 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.domain.vo;
+
+import com.alibaba.csp.sentinel.dashboard.repository.metric.RtSketch;
+
+/**
+ * Rt percentiles of a resource in one time bucket.
+ */
+public class RtPercentileVo {
+
+    private Long timestamp;
+    /**
+     * count of success requests in the bucket
+     */
+    private Long count;
+    private Double p50;
+    private Double p90;
+    private Double p99;
+
+    public static RtPercentileVo fromSketch(Long timestamp, RtSketch sketch) {
+        RtPercentileVo vo = new RtPercentileVo();
+        vo.timestamp = timestamp;
+        vo.count = sketch.getTotalCount();
+        vo.p50 = sketch.quantile(0.5);
+        vo.p90 = sketch.quantile(0.9);
+        vo.p99 = sketch.quantile(0.99);
+        return vo;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+
+    public void setCount(Long count) {
+        this.count = count;
+    }
+
+    public Double getP50() {
+        return p50;
+    }
+
+    public void setP50(Double p50) {
+        this.p50 = p50;
+    }
+
+    public Double getP90() {
+        return p90;
+    }
+
+    public void setP90(Double p90) {
+        this.p90 = p90;
+    }
+
+    public Double getP99() {
+        return p99;
+    }
+
+    public void setP99(Double p99) {
+        this.p99 = p99;
+    }
+}
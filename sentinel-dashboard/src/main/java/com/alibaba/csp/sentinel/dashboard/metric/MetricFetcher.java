@@ -18,8 +18,10 @@ package com.alibaba.csp.sentinel.dashboard.metric;
 import java.net.ConnectException;
 import java.net.SocketTimeoutException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -35,17 +37,25 @@ import java.util.concurrent.ThreadPoolExecutor.DiscardPolicy;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
-import com.alibaba.csp.sentinel.Constants;
 import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
 import com.alibaba.csp.sentinel.config.SentinelConfig;
 import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
 import com.alibaba.csp.sentinel.dashboard.discovery.AppInfo;
 import com.alibaba.csp.sentinel.dashboard.discovery.AppManagement;
+import com.alibaba.csp.sentinel.dashboard.discovery.InstanceEvent;
+import com.alibaba.csp.sentinel.dashboard.discovery.InstanceEventBus;
 import com.alibaba.csp.sentinel.dashboard.discovery.InstanceInfo;
 import com.alibaba.csp.sentinel.node.metric.MetricNode;
 import com.alibaba.csp.sentinel.util.StringUtil;
 
+import com.alibaba.csp.sentinel.dashboard.metric.export.MetricExporter;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.InstanceSkewDetector;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MachineMetricRepository;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricAccumulator;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricHotspotTracker;
 import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricsRepository;
+import com.alibaba.csp.sentinel.dashboard.replica.ReplicaManager;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.RtSketchRepository;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.concurrent.FutureCallback;
@@ -58,7 +68,10 @@ import org.apache.http.protocol.HTTP;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import javax.annotation.PostConstruct;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
 /**
@@ -67,6 +80,7 @@ import org.springframework.stereotype.Component;
  * @author leyou
  */
 @Component
+@DependsOn("dashboardSnapshotManager")
 public class MetricFetcher {
 
     public static final String NO_METRICS = "No metrics";
@@ -84,6 +98,18 @@ public class MetricFetcher {
     private MetricsRepository<MetricEntity> metricStore;
     @Autowired
     private AppManagement appManagement;
+    @Autowired
+    private MetricHotspotTracker hotspotTracker;
+    @Autowired
+    private RtSketchRepository rtSketchStore;
+    @Autowired
+    private MetricExporter metricExporter;
+    @Autowired
+    private MachineMetricRepository machineMetricStore;
+    @Autowired
+    private InstanceSkewDetector skewDetector;
+    @Autowired
+    private ReplicaManager replicaManager;
 
     private CloseableHttpAsyncClient httpclient;
 
@@ -134,20 +160,88 @@ public class MetricFetcher {
         }, 10, intervalSecond, TimeUnit.SECONDS);
     }
 
-    private void writeMetric(Map<String, MetricEntity> map) {
+    @PostConstruct
+    public void subscribeInstanceEvents() {
+        InstanceEventBus eventBus = appManagement.getEventBus();
+        if (eventBus != null) {
+            eventBus.subscribe("metric-fetcher", this::onInstanceEvent);
+        }
+    }
+
+    private void onInstanceEvent(InstanceEvent event) {
+        String app = event.getInstance().getApp();
+        switch (event.getType()) {
+            case REGISTERED:
+                fetchRegisteredInstance(app, event.getInstance());
+                break;
+            case REMOVED:
+                if (appManagement.getDetailApp(app) == null) {
+                    appLastFetchTime.remove(app);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 新注册的实例不等下一次调度：新应用立即开始拉取；已有应用补拉该实例在已拉取窗口内的指标，
+     * 否则这些窗口在拉取时还没有该实例，其指标会缺失。
+     */
+    private void fetchRegisteredInstance(String app, InstanceInfo instance) {
+        if (!replicaManager.isLocal(app)) {
+            return;
+        }
+        AtomicLong lastFetchTime = appLastFetchTime.get(app);
+        if (lastFetchTime == null) {
+            fetchService.submit(() -> doFetchAppMetric(app));
+            return;
+        }
+        long endTime = lastFetchTime.get();
+        long startTime = (System.currentTimeMillis() - MAX_LAST_FETCH_INTERVAL_MS) / 1000 * 1000;
+        if (startTime > endTime) {
+            return;
+        }
+        fetchWorker.submit(() -> {
+            try {
+                fetchInstances(app, Collections.singleton(instance), startTime, endTime, 5, false);
+            } catch (Exception e) {
+                logger.info("fetch registered instance " + instance.toLogString() + " error", e);
+            }
+        });
+    }
+
+    /**
+     * @param fullCycle whether the metrics come from all instances of the app; a backfill of a single
+     *                  instance would make the skew detector decay every other instance
+     */
+    void writeMetric(Map<String, MetricAccumulator> map, boolean fullCycle) {
         if (map.isEmpty()) {
             return;
         }
         Date date = new Date();
-        for (MetricEntity entity : map.values()) {
-            entity.setGmtCreate(date);
-            entity.setGmtModified(date);
+        List<MetricEntity> entities = new ArrayList<>(map.size());
+        List<MetricEntity> machineEntities = new ArrayList<>();
+        for (MetricAccumulator accumulator : map.values()) {
+            // System resources go to their own store, apart from resource lists and rankings.
+            if (MachineMetricRepository.isMachineResource(accumulator.getResource())) {
+                machineEntities.add(accumulator.toMetricEntity(date));
+            } else {
+                entities.add(accumulator.toMetricEntity(date));
+            }
+        }
+        machineMetricStore.saveAll(machineEntities);
+        metricStore.saveAll(entities);
+        hotspotTracker.record(entities);
+        rtSketchStore.saveAll(entities);
+        if (fullCycle) {
+            skewDetector.record(entities);
         }
-        metricStore.saveAll(map.values());
+        metricExporter.export(entities);
     }
 
     /**
-     * Traverse each APP, and then pull the metric of all instances for that APP.
+     * Traverse each APP of this replica, and then pull the metric of all instances for that APP.
      */
     private void fetchAllApp() {
         List<String> apps = appManagement.getAppNames();
@@ -155,6 +249,12 @@ public class MetricFetcher {
             return;
         }
         for (final String app : apps) {
+            if (!replicaManager.isLocal(app)) {
+                // Fetched by another replica. Forget the progress, so that the app starts over
+                // from the recent window if it moves back.
+                appLastFetchTime.remove(app);
+                continue;
+            }
             fetchService.submit(() -> {
                 try {
                     doFetchAppMetric(app);
@@ -182,6 +282,14 @@ public class MetricFetcher {
         Set<InstanceInfo> instances = appInfo.getInstances();
         logger.debug("enter fetchOnce(" + app + "), instances.size()=" + instances.size()
             + ", time intervalMs [" + startTime + ", " + endTime + "]");
+        fetchInstances(app, instances, startTime, endTime, maxWaitSeconds, true);
+    }
+
+    /**
+     * fetch metric of the given instances between [startTime, endTime], both side inclusive
+     */
+    private void fetchInstances(String app, Collection<InstanceInfo> instances, long startTime, long endTime,
+                                int maxWaitSeconds, boolean fullCycle) {
         if (instances.isEmpty()) {
             return;
         }
@@ -191,14 +299,14 @@ public class MetricFetcher {
         final AtomicLong fail = new AtomicLong();
 
         long start = System.currentTimeMillis();
-        /** app_resource_timeSecond -> metric */
-        final Map<String, MetricEntity> metricMap = new ConcurrentHashMap<>(16);
+        /** app_ip_port_resource_timeSecond -> metric */
+        final Map<String, MetricAccumulator> metricMap = new ConcurrentHashMap<>(16);
         final CountDownLatch latch = new CountDownLatch(instances.size());
         for (final InstanceInfo instance : instances) {
             // auto remove
             if (instance.isDead()) {
                 latch.countDown();
-                appManagement.getDetailApp(app).removeInstance(instance.getIp(), instance.getPort());
+                appManagement.removeInstance(app, instance.getIp(), instance.getPort());
                 logger.info("Dead instance removed: {}:{} of {}", instance.getIp(), instance.getPort(), app);
                 continue;
             }
@@ -255,7 +363,7 @@ public class MetricFetcher {
         //logger.info("finished " + msg + " metric for " + app + ", time intervalMs [" + startTime + ", " + endTime
         //    + "], total instances=" + instances.size() + ", dead=" + dead + ", fetch success="
         //    + success + ", fetch fail=" + fail + ", time cost=" + cost + " ms");
-        writeMetric(metricMap);
+        writeMetric(metricMap, fullCycle);
     }
 
     private void doFetchAppMetric(final String app) {
@@ -290,7 +398,7 @@ public class MetricFetcher {
     }
 
     private void handleResponse(final HttpResponse response, InstanceInfo instance,
-                                Map<String, MetricEntity> metricMap) throws Exception {
+                                Map<String, MetricAccumulator> metricMap) throws Exception {
         int code = response.getStatusLine().getStatusCode();
         if (code != HTTP_OK) {
             return;
@@ -315,7 +423,11 @@ public class MetricFetcher {
         handleBody(lines, instance, metricMap);
     }
 
-    private void handleBody(String[] lines, InstanceInfo instance, Map<String, MetricEntity> map) {
+    /**
+     * Accumulate the metric lines of one instance. Keys contain the instance address, so each
+     * accumulator is only written by the callback thread of its own instance.
+     */
+    static void handleBody(String[] lines, InstanceInfo instance, Map<String, MetricAccumulator> map) {
         //logger.info("handleBody() lines=" + lines.length + ", instance=" + instance);
         if (lines.length < 1) {
             return;
@@ -324,52 +436,24 @@ public class MetricFetcher {
         for (String line : lines) {
             try {
                 MetricNode node = MetricNode.fromThinString(line);
-                if (shouldFilterOut(node.getResource())) {
-                    continue;
-                }
                 /*
                  * Store metrics by app_ip_port_resource_timeSecond to support multi-instance monitoring (K8s pods).
                  */
                 String key = buildMetricKey(instance.getApp(), instance.getIp(), instance.getPort(), 
                                           node.getResource(), node.getTimestamp());
 
-                MetricEntity metricEntity = map.computeIfAbsent(key, s -> {
-                    MetricEntity initMetricEntity = new MetricEntity();
-                    initMetricEntity.setApp(instance.getApp());
-                    initMetricEntity.setIp(instance.getIp());
-                    initMetricEntity.setPort(instance.getPort());
-                    initMetricEntity.setTimestamp(new Date(node.getTimestamp()));
-                    initMetricEntity.setPassQps(0L);
-                    initMetricEntity.setBlockQps(0L);
-                    initMetricEntity.setRtAndSuccessQps(0, 0L);
-                    initMetricEntity.setExceptionQps(0L);
-                    initMetricEntity.setCount(0);
-                    initMetricEntity.setResource(node.getResource());
-                    return initMetricEntity;
-                });
-                metricEntity.addPassQps(node.getPassQps());
-                metricEntity.addBlockQps(node.getBlockQps());
-                metricEntity.addRtAndSuccessQps(node.getRt(), node.getSuccessQps());
-                metricEntity.addExceptionQps(node.getExceptionQps());
-                metricEntity.addCount(1);
+                MetricAccumulator accumulator = map.computeIfAbsent(key, s -> new MetricAccumulator(
+                    instance.getApp(), instance.getIp(), instance.getPort(), node.getResource(), node.getTimestamp()));
+                accumulator.add(node.getPassQps(), node.getBlockQps(), node.getSuccessQps(), node.getExceptionQps(),
+                    node.getRt());
             } catch (Exception e) {
                 logger.warn("handleBody line exception, instance: {}, line: {}", instance.toLogString(), line);
             }
         }
     }
 
-    private String buildMetricKey(String app, String ip, int port, String resource, long timestamp) {
+    private static String buildMetricKey(String app, String ip, int port, String resource, long timestamp) {
         return app + "__" + ip + "__" + port + "__" + resource + "__" + (timestamp / 1000);
     }
 
-    private boolean shouldFilterOut(String resource) {
-        return RES_EXCLUSION_SET.contains(resource);
-    }
-
-    private static final Set<String> RES_EXCLUSION_SET = new HashSet<String>() {{
-       add(Constants.TOTAL_IN_RESOURCE_NAME);
-       add(Constants.SYSTEM_LOAD_RESOURCE_NAME);
-       add(Constants.CPU_USAGE_RESOURCE_NAME);
-    }};
-
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.metric.export;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+
+/**
+ * Appends the encoded metrics to a local file, e.g. for tests or to be shipped by a log agent.
+ */
+public class FileMetricSink implements MetricSink {
+
+    private final File file;
+    private final MetricEncoder encoder;
+    private final StringBuilder buffer = new StringBuilder(64 * 1024);
+
+    public FileMetricSink(File file, MetricEncoder encoder) {
+        this.file = file;
+        this.encoder = encoder;
+    }
+
+    @Override
+    public void write(List<MetricEntity> metrics) throws IOException {
+        buffer.setLength(0);
+        encoder.encode(metrics, buffer);
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create metric export directory " + dir);
+        }
+        try (OutputStream out = new FileOutputStream(file, true)) {
+            out.write(buffer.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public String toString() {
+        return "FileMetricSink{" + file + '}';
+    }
+}
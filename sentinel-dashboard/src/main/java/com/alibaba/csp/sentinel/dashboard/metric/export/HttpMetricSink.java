@@ -0,0 +1,72 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.metric.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+
+/**
+ * POSTs the encoded metrics to the import API of an external TSDB, any non-2xx status fails the batch.
+ */
+public class HttpMetricSink implements MetricSink {
+
+    private static final int TIMEOUT_MS = 5000;
+
+    private final URL url;
+    private final MetricEncoder encoder;
+    private final StringBuilder buffer = new StringBuilder(64 * 1024);
+
+    public HttpMetricSink(String url, MetricEncoder encoder) throws IOException {
+        this.url = new URL(url);
+        this.encoder = encoder;
+    }
+
+    @Override
+    public void write(List<MetricEntity> metrics) throws IOException {
+        buffer.setLength(0);
+        encoder.encode(metrics, buffer);
+        byte[] body = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", encoder.contentType());
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            if (status < 200 || status >= 300) {
+                throw new IOException("Metric export to " + url + " failed with status " + status);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HttpMetricSink{" + url + '}';
+    }
+}
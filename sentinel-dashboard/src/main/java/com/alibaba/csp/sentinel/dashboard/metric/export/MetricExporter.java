@@ -0,0 +1,210 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.metric.export;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.util.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Exports the metrics written by {@link com.alibaba.csp.sentinel.dashboard.metric.MetricFetcher}
+ * to a {@link MetricSink} asynchronously, for retention beyond the in-memory repository.</p>
+ * <p>
+ * Metrics are offered to a bounded buffer without blocking, so ingest never waits for the sink:
+ * when the buffer is full the metrics are dropped and counted. One background thread drains the
+ * buffer in batches and retries a failing batch with exponential backoff before dropping it.
+ * </p>
+ * <p>
+ * Disabled unless a {@link MetricSink} bean is declared or {@link DashboardConfig#CONFIG_METRIC_EXPORT_URL}
+ * or {@link DashboardConfig#CONFIG_METRIC_EXPORT_FILE} is set.
+ * </p>
+ */
+@Component
+public class MetricExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricExporter.class);
+
+    private static final long RETRY_BACKOFF_MS = 200;
+    private static final long MAX_RETRY_BACKOFF_MS = 10_000;
+
+    @Autowired(required = false)
+    private MetricSink sink;
+
+    private final int bufferSize;
+    private final int batchSize;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+
+    private BlockingQueue<MetricEntity> buffer;
+    private Thread exportThread;
+    private volatile boolean running;
+
+    private final AtomicLong exportedPoints = new AtomicLong();
+    /**
+     * points dropped because the buffer was full
+     */
+    private final AtomicLong droppedPoints = new AtomicLong();
+    /**
+     * points dropped because the sink still failed after all retries
+     */
+    private final AtomicLong failedPoints = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    public MetricExporter() {
+        this(null, DashboardConfig.getMetricExportBufferSize(), DashboardConfig.getMetricExportBatchSize(),
+            DashboardConfig.getMetricExportMaxRetries(), RETRY_BACKOFF_MS);
+    }
+
+    MetricExporter(MetricSink sink, int bufferSize, int batchSize, int maxRetries, long retryBackoffMs) {
+        this.sink = sink;
+        this.bufferSize = bufferSize;
+        this.batchSize = batchSize;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    @PostConstruct
+    public void start() throws Exception {
+        if (sink == null) {
+            sink = sinkFromConfig();
+        }
+        if (sink == null) {
+            return;
+        }
+        buffer = new ArrayBlockingQueue<>(bufferSize);
+        running = true;
+        exportThread = new NamedThreadFactory("sentinel-dashboard-metric-export", true).newThread(this::exportLoop);
+        exportThread.start();
+        logger.info("Exporting metrics to {}", sink);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (exportThread == null) {
+            return;
+        }
+        running = false;
+        try {
+            exportThread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sink.close();
+    }
+
+    public boolean isEnabled() {
+        return buffer != null;
+    }
+
+    /**
+     * Offer metrics to be exported, without blocking.
+     */
+    public void export(List<MetricEntity> metrics) {
+        BlockingQueue<MetricEntity> buffer = this.buffer;
+        if (buffer == null || !running) {
+            return;
+        }
+        for (int i = 0; i < metrics.size(); i++) {
+            if (!buffer.offer(metrics.get(i))) {
+                droppedPoints.addAndGet(metrics.size() - i);
+                return;
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(8);
+        stats.put("enabled", isEnabled());
+        stats.put("pendingPoints", buffer == null ? 0 : buffer.size());
+        stats.put("exportedPoints", exportedPoints.get());
+        stats.put("droppedPoints", droppedPoints.get());
+        stats.put("failedPoints", failedPoints.get());
+        stats.put("retries", retries.get());
+        return stats;
+    }
+
+    private void exportLoop() {
+        List<MetricEntity> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                MetricEntity first = buffer.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                writeWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeWithRetry(List<MetricEntity> batch) throws InterruptedException {
+        long backoff = retryBackoffMs;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                sink.write(batch);
+                exportedPoints.addAndGet(batch.size());
+                return;
+            } catch (Exception e) {
+                // Give up at once when stopping, so that shutdown is not delayed by a dead sink.
+                if (attempt >= maxRetries || !running) {
+                    failedPoints.addAndGet(batch.size());
+                    logger.warn("Failed to export {} metrics to {} after {} attempts", batch.size(), sink,
+                        attempt + 1, e);
+                    return;
+                }
+                retries.incrementAndGet();
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+            }
+        }
+    }
+
+    private static MetricSink sinkFromConfig() throws Exception {
+        String url = DashboardConfig.getMetricExportUrl();
+        if (StringUtil.isNotBlank(url)) {
+            return new HttpMetricSink(url, new PrometheusTextEncoder());
+        }
+        String file = DashboardConfig.getMetricExportFile();
+        if (StringUtil.isNotBlank(file)) {
+            return new FileMetricSink(new File(file), new PrometheusTextEncoder());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.metric.export;
+
+import java.util.List;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+
+/**
+ * <p>Destination of the metrics exported by {@link MetricExporter}, e.g. an external TSDB.</p>
+ * <p>
+ * A sink is only called from the exporter thread. Declare a bean of this type to replace the
+ * sink configured by {@code sentinel.dashboard.metric.export.*}.
+ * </p>
+ */
+public interface MetricSink {
+
+    /**
+     * Write one batch of metrics, throwing if the batch should be retried.
+     *
+     * @param metrics metrics fetched from clients, whose rt is the rt summary of success qps
+     */
+    void write(List<MetricEntity> metrics) throws Exception;
+
+    default void close() {}
+}
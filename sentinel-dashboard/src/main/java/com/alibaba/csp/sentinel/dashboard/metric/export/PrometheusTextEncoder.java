@@ -0,0 +1,108 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.metric.export;
+
+import java.util.List;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+
+/**
+ * <p>Encodes metrics in the Prometheus text exposition format, one sample per line with an explicit
+ * timestamp in milliseconds, e.g.</p>
+ * <pre>
+ * sentinel_pass_qps{app="order",resource="GET:/orders",instance="10.0.0.1:8719"} 12 1600000000000
+ * </pre>
+ * <p>
+ * The format is accepted by the import APIs of Prometheus compatible stores (e.g. VictoriaMetrics'
+ * {@code /api/v1/import/prometheus}). The rt is the average rt of success qps.
+ * </p>
+ */
+public class PrometheusTextEncoder implements MetricEncoder {
+
+    public static final String PASS_QPS = "sentinel_pass_qps";
+    public static final String BLOCK_QPS = "sentinel_block_qps";
+    public static final String SUCCESS_QPS = "sentinel_success_qps";
+    public static final String EXCEPTION_QPS = "sentinel_exception_qps";
+    public static final String RT = "sentinel_rt";
+
+    @Override
+    public void encode(List<MetricEntity> metrics, StringBuilder out) {
+        StringBuilder labels = new StringBuilder(128);
+        for (MetricEntity entity : metrics) {
+            labels.setLength(0);
+            appendLabels(labels, entity.getApp(), entity.getResource(), entity.getIp() + ":" + entity.getPort());
+            long timestamp = entity.getTimestamp().getTime();
+            long successQps = entity.getSuccessQps();
+            appendSample(out, PASS_QPS, labels, entity.getPassQps(), timestamp);
+            appendSample(out, BLOCK_QPS, labels, entity.getBlockQps(), timestamp);
+            appendSample(out, SUCCESS_QPS, labels, successQps, timestamp);
+            appendSample(out, EXCEPTION_QPS, labels, entity.getExceptionQps(), timestamp);
+            appendSample(out, RT, labels, successQps != 0 ? entity.getRt() / successQps : 0D, timestamp);
+        }
+    }
+
+    @Override
+    public String contentType() {
+        return "text/plain; version=0.0.4; charset=utf-8";
+    }
+
+    /**
+     * Append {@code {app="..",resource="..",instance=".."}}, instance omitted if null.
+     */
+    public static void appendLabels(StringBuilder out, String app, String resource, String instance) {
+        out.append("{app=\"");
+        appendLabelValue(out, app);
+        out.append("\",resource=\"");
+        appendLabelValue(out, resource);
+        if (instance != null) {
+            out.append("\",instance=\"");
+            appendLabelValue(out, instance);
+        }
+        out.append("\"}");
+    }
+
+    /**
+     * Append a label value, escaping backslash, double quote and line feed.
+     */
+    public static void appendLabelValue(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                out.append("\\\\");
+            } else if (c == '"') {
+                out.append("\\\"");
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static void appendSample(StringBuilder out, String name, CharSequence labels, double value,
+                                     long timestamp) {
+        out.append(name).append(labels).append(' ');
+        if (value == (long)value) {
+            out.append((long)value);
+        } else {
+            out.append(value);
+        }
+        out.append(' ').append(timestamp).append('\n');
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.replica;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Immutable consistent hash ring of the replicas, which assigns each app to one replica.</p>
+ * <p>
+ * Each replica is placed {@link #VIRTUAL_NODES} times on the ring, and an app belongs to the first replica
+ * point at or after the hash of its name. Adding or removing a replica thus only moves the apps of the ring
+ * segments it takes or releases, about {@code 1/N} of the apps.
+ * </p>
+ */
+public class ConsistentHashRing {
+
+    static final int VIRTUAL_NODES = 160;
+
+    private final TreeMap<Long, ReplicaMember> ring = new TreeMap<>();
+    private final Set<ReplicaMember> members;
+
+    /**
+     * Owners already looked up, the ring never changes.
+     */
+    private final Map<String, ReplicaMember> owners = new ConcurrentHashMap<>();
+
+    public ConsistentHashRing(Collection<ReplicaMember> members) {
+        this.members = Collections.unmodifiableSet(new LinkedHashSet<>(members));
+        for (ReplicaMember member : this.members) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(member.getAddress() + "#" + i), member);
+            }
+        }
+    }
+
+    public Set<ReplicaMember> getMembers() {
+        return members;
+    }
+
+    /**
+     * @return the replica owning the app, or null if the ring is empty
+     */
+    public ReplicaMember getOwner(String app) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        return owners.computeIfAbsent(app, a -> {
+            SortedMap<Long, ReplicaMember> tail = ring.tailMap(hash(a));
+            return tail.isEmpty() ? ring.firstEntry().getValue() : tail.get(tail.firstKey());
+        });
+    }
+
+    /**
+     * First 8 bytes of the MD5 digest, spread evenly unlike {@link String#hashCode()}.
+     */
+    static long hash(String key) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        long h = 0;
+        for (int i = 0; i < 8; i++) {
+            h = (h << 8) | (digest[i] & 0xFF);
+        }
+        return h;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.replica;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process stand-in of a coordinator, shared by the replicas of one JVM, e.g. in tests.
+ * Members expire if not renewed within the ttl.
+ */
+public class InMemoryReplicaCoordinator implements ReplicaCoordinator {
+
+    static final long DEFAULT_TTL_MS = 15000;
+
+    private final long ttlMs;
+
+    /**
+     * member -> time of the last renewal
+     */
+    private final Map<ReplicaMember, Long> members = new ConcurrentHashMap<>();
+
+    public InMemoryReplicaCoordinator() {
+        this(DEFAULT_TTL_MS);
+    }
+
+    public InMemoryReplicaCoordinator(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    @Override
+    public void join(ReplicaMember self) {
+        members.put(self, System.currentTimeMillis());
+    }
+
+    @Override
+    public void leave(ReplicaMember self) {
+        members.remove(self);
+    }
+
+    @Override
+    public List<ReplicaMember> getMembers() {
+        long expiredBefore = System.currentTimeMillis() - ttlMs;
+        members.values().removeIf(lastRenewal -> lastRenewal < expiredBefore);
+        return new ArrayList<>(members.keySet());
+    }
+}
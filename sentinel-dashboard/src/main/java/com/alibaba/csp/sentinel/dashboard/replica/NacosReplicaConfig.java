@@ -0,0 +1,67 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.replica;
+
+import java.util.Properties;
+
+import com.alibaba.csp.sentinel.util.StringUtil;
+import com.alibaba.nacos.api.PropertyKeyConst;
+import com.alibaba.nacos.api.naming.NamingFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Turns the replica mode on with Nacos as coordinator when {@code nacos.replica.enabled=true}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "nacos.replica.enabled", havingValue = "true")
+public class NacosReplicaConfig {
+
+    @Value("${nacos.server-addr:localhost:8848}")
+    private String nacosServerAddr;
+
+    @Value("${nacos.namespace:}")
+    private String nacosNamespace;
+
+    @Value("${nacos.replica.service:sentinel-dashboard}")
+    private String serviceName;
+
+    @Value("${nacos.replica.group:DEFAULT_GROUP}")
+    private String group;
+
+    @Value("${nacos.username:}")
+    private String nacosUsername;
+
+    @Value("${nacos.password:}")
+    private String nacosPassword;
+
+    @Bean(destroyMethod = "close")
+    public ReplicaCoordinator nacosReplicaCoordinator() throws Exception {
+        Properties properties = new Properties();
+        properties.put(PropertyKeyConst.SERVER_ADDR, nacosServerAddr);
+        if (StringUtil.isNotBlank(nacosNamespace)) {
+            properties.put(PropertyKeyConst.NAMESPACE, nacosNamespace);
+        }
+        if (StringUtil.isNotBlank(nacosUsername)) {
+            properties.put(PropertyKeyConst.USERNAME, nacosUsername);
+            properties.put(PropertyKeyConst.PASSWORD, nacosPassword);
+        }
+        return new NacosReplicaCoordinator(NamingFactory.createNamingService(properties), serviceName, group);
+    }
+}
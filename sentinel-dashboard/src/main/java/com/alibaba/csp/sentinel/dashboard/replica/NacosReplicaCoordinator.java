@@ -0,0 +1,78 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.replica;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+
+/**
+ * {@link ReplicaCoordinator} registering the replicas as ephemeral instances of a Nacos service.
+ * The Nacos client keeps the registration alive, and removes it when the replica is gone.
+ */
+public class NacosReplicaCoordinator implements ReplicaCoordinator {
+
+    private final NamingService namingService;
+    private final String serviceName;
+    private final String group;
+
+    private volatile boolean registered;
+
+    public NacosReplicaCoordinator(NamingService namingService, String serviceName, String group) {
+        this.namingService = namingService;
+        this.serviceName = serviceName;
+        this.group = group;
+    }
+
+    @Override
+    public void join(ReplicaMember self) throws Exception {
+        if (!registered) {
+            namingService.registerInstance(serviceName, group, getIp(self), getPort(self));
+            registered = true;
+        }
+    }
+
+    @Override
+    public void leave(ReplicaMember self) throws Exception {
+        namingService.deregisterInstance(serviceName, group, getIp(self), getPort(self));
+        registered = false;
+    }
+
+    @Override
+    public List<ReplicaMember> getMembers() throws Exception {
+        List<ReplicaMember> members = new ArrayList<>();
+        for (Instance instance : namingService.selectInstances(serviceName, group, true)) {
+            members.add(new ReplicaMember(instance.getIp() + ":" + instance.getPort()));
+        }
+        return members;
+    }
+
+    public void close() throws Exception {
+        namingService.shutDown();
+    }
+
+    private static String getIp(ReplicaMember member) {
+        String address = member.getAddress();
+        return address.substring(0, address.lastIndexOf(':'));
+    }
+
+    private static int getPort(ReplicaMember member) {
+        String address = member.getAddress();
+        return Integer.parseInt(address.substring(address.lastIndexOf(':') + 1));
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.replica;
+
+import java.util.List;
+
+/**
+ * Membership of the dashboard replicas which share the metric fetching.
+ * A member which stops renewing its membership is expected to leave the list after a while.
+ */
+public interface ReplicaCoordinator {
+
+    /**
+     * Join the replicas, or renew the membership. Called periodically.
+     */
+    void join(ReplicaMember self) throws Exception;
+
+    void leave(ReplicaMember self) throws Exception;
+
+    /**
+     * @return live members, in any order
+     */
+    List<ReplicaMember> getMembers() throws Exception;
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.replica;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+
+import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
+import com.alibaba.csp.sentinel.util.HostNameUtil;
+import com.alibaba.csp.sentinel.util.StringUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Splits the apps between the dashboard replicas, so that each app is fetched by one replica only.</p>
+ * <p>
+ * Replica mode is on when a {@link ReplicaCoordinator} is configured. Each replica then renews its
+ * membership every {@link #REFRESH_INTERVAL_MS} and assigns the apps with a {@link ConsistentHashRing}
+ * of the live members. Every replica still needs the full instance registry, e.g. from Nacos naming
+ * discovery, since an app may move to it at any time.
+ * </p>
+ * <p>
+ * Metric queries of an app owned by another replica are proxied to it by {@link ReplicaProxyFilter},
+ * authenticated by the {@link DashboardConfig#CONFIG_REPLICA_SECRET} shared secret.
+ * </p>
+ */
+@Component
+public class ReplicaManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaManager.class);
+
+    static final long REFRESH_INTERVAL_MS = 5000;
+
+    public static final String REPLICA_TOKEN_HEADER = "X-Sentinel-Replica-Token";
+
+    /**
+     * Paths which may be queried by another replica without a login session.
+     */
+    static final String METRIC_PATH_PREFIX = "/metric/";
+
+    @Autowired(required = false)
+    private ReplicaCoordinator coordinator;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    private ReplicaMember self;
+    private String secret;
+
+    private volatile ConsistentHashRing ring;
+
+    private ScheduledExecutorService refreshService;
+
+    public ReplicaManager() {}
+
+    ReplicaManager(ReplicaCoordinator coordinator, String address, String secret) {
+        this.coordinator = coordinator;
+        this.self = new ReplicaMember(address);
+        this.secret = secret;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (coordinator == null) {
+            return;
+        }
+        if (self == null) {
+            String address = DashboardConfig.getReplicaAddress();
+            self = new ReplicaMember(StringUtil.isBlank(address) ? HostNameUtil.getIp() + ":" + serverPort
+                : address.trim());
+            secret = DashboardConfig.getReplicaSecret();
+        }
+        if (StringUtil.isBlank(secret)) {
+            logger.warn("No {} set, metric queries proxied to other replicas will fail if login is required",
+                DashboardConfig.CONFIG_REPLICA_SECRET);
+        }
+        refresh();
+        refreshService = Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("sentinel-dashboard-replica-refresh", true));
+        refreshService.scheduleAtFixedRate(this::refresh, REFRESH_INTERVAL_MS, REFRESH_INTERVAL_MS,
+            TimeUnit.MILLISECONDS);
+        logger.info("Dashboard replica {} started", self);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refreshService != null) {
+            refreshService.shutdownNow();
+            refreshService = null;
+        }
+        if (coordinator != null && self != null) {
+            try {
+                coordinator.leave(self);
+            } catch (Exception e) {
+                logger.warn("Failed to leave the dashboard replicas", e);
+            }
+        }
+    }
+
+    /**
+     * Renew the membership and rebuild the ring if the members changed. On failure the
+     * current ring is kept.
+     */
+    void refresh() {
+        Set<ReplicaMember> members;
+        try {
+            coordinator.join(self);
+            members = new LinkedHashSet<>(coordinator.getMembers());
+        } catch (Exception e) {
+            logger.warn("Failed to refresh the dashboard replicas", e);
+            if (ring != null) {
+                return;
+            }
+            members = new LinkedHashSet<>();
+        }
+        // Not listed yet right after joining, e.g. with an eventually consistent coordinator.
+        members.add(self);
+        ConsistentHashRing current = ring;
+        if (current == null || !current.getMembers().equals(members)) {
+            ring = new ConsistentHashRing(members);
+            logger.info("Dashboard replicas changed: {}", members);
+        }
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    /**
+     * @return true if the app is fetched and queried by this replica, always true out of replica mode
+     */
+    public boolean isLocal(String app) {
+        ConsistentHashRing current = ring;
+        return current == null || self.equals(current.getOwner(app));
+    }
+
+    /**
+     * @return the replica owning the app, or null out of replica mode
+     */
+    public ReplicaMember getOwner(String app) {
+        ConsistentHashRing current = ring;
+        return current == null ? null : current.getOwner(app);
+    }
+
+    public Set<ReplicaMember> getMembers() {
+        ConsistentHashRing current = ring;
+        return current == null ? Collections.emptySet() : current.getMembers();
+    }
+
+    String getSecret() {
+        return secret;
+    }
+
+    /**
+     * @return true for a metric query proxied by another replica with the shared secret
+     */
+    public boolean isTrustedReplicaRequest(HttpServletRequest request) {
+        if (!isEnabled() || StringUtil.isBlank(secret)) {
+            return false;
+        }
+        String servletPath = request.getServletPath();
+        if (servletPath == null || !servletPath.startsWith(METRIC_PATH_PREFIX)) {
+            return false;
+        }
+        String token = request.getHeader(REPLICA_TOKEN_HEADER);
+        return token != null && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+            secret.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.replica;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
+import com.alibaba.csp.sentinel.util.StringUtil;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Proxies the metric queries of an app to the replica which fetches it, see {@link ReplicaManager}.</p>
+ * <p>
+ * Queries without an {@code app} parameter, e.g. the hotspots, and queries proxied by another replica
+ * are served locally. If the owner can't be reached, the query is served locally as well, with whatever
+ * metrics this replica holds for the app.
+ * </p>
+ */
+@Component
+public class ReplicaProxyFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaProxyFilter.class);
+
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+
+    @Autowired
+    private ReplicaManager replicaManager;
+
+    private final CloseableHttpClient httpClient = HttpClients.custom()
+        .setMaxConnTotal(200)
+        .setMaxConnPerRoute(50)
+        .disableRedirectHandling()
+        .build();
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest)request;
+        ReplicaMember owner = getRemoteOwner(httpRequest);
+        if (owner == null || !proxy(owner, httpRequest, (HttpServletResponse)response)) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private ReplicaMember getRemoteOwner(HttpServletRequest request) {
+        if (!replicaManager.isEnabled() || !"GET".equals(request.getMethod())
+            || request.getHeader(ReplicaManager.REPLICA_TOKEN_HEADER) != null) {
+            return null;
+        }
+        String app = request.getParameter("app");
+        if (StringUtil.isBlank(app) || replicaManager.isLocal(app)) {
+            return null;
+        }
+        return replicaManager.getOwner(app);
+    }
+
+    /**
+     * @return false if the owner could not be reached, nothing was written then
+     */
+    private boolean proxy(ReplicaMember owner, HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+        String query = request.getQueryString();
+        String url = "http://" + owner.getAddress() + request.getRequestURI() + (query == null ? "" : "?" + query);
+        HttpGet httpGet = new HttpGet(url);
+        httpGet.setConfig(RequestConfig.custom()
+            .setConnectTimeout(CONNECT_TIMEOUT_MS)
+            .setConnectionRequestTimeout(CONNECT_TIMEOUT_MS)
+            .setSocketTimeout(DashboardConfig.getMetricQueryTimeoutMillis() + CONNECT_TIMEOUT_MS)
+            .build());
+        String secret = replicaManager.getSecret();
+        httpGet.setHeader(ReplicaManager.REPLICA_TOKEN_HEADER, secret == null ? "" : secret);
+        CloseableHttpResponse ownerResponse;
+        try {
+            ownerResponse = httpClient.execute(httpGet);
+        } catch (IOException e) {
+            logger.warn("Failed to proxy metric query to replica {}, served locally: {}", owner, e.toString());
+            return false;
+        }
+        try {
+            response.setStatus(ownerResponse.getStatusLine().getStatusCode());
+            Header contentType = ownerResponse.getFirstHeader("Content-Type");
+            if (contentType != null) {
+                response.setHeader("Content-Type", contentType.getValue());
+            }
+            HttpEntity entity = ownerResponse.getEntity();
+            if (entity != null) {
+                entity.writeTo(response.getOutputStream());
+            }
+        } finally {
+            ownerResponse.close();
+        }
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close the replica proxy client", e);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+
+/**
+ * <p>Immutable, compressed run of metrics of one series (app, resource, ip, port), in the spirit
+ * of Facebook Gorilla but byte aligned:</p>
+ * <ul>
+ * <li>timestamps are delta-of-delta encoded, so regular seconds cost one byte;</li>
+ * <li>{@code gmtCreate} is a zigzag varint delta from the previous one (from the timestamp for the
+ * first point), which is 0 within a fetch;</li>
+ * <li>QPS and count are zigzag varint deltas from the previous point, so runs of zeros or
+ * slowly varying values cost one byte each;</li>
+ * <li>rt is XORed with the previous rt and only the non-zero middle bytes are kept.</li>
+ * </ul>
+ * <p>
+ * Points are decoded sequentially and decoding stops at the end of the requested range.
+ * Null QPS values are stored as 0, a null {@code gmtCreate} as the timestamp.
+ * </p>
+ * <p>
+ * The encoded bytes live on heap, or off heap once moved to an {@link OffHeapArenaPool}, in which
+ * case the block reads as empty after its arena is released.
+ * </p>
+ */
+final class CompressedMetricBlock {
+
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final int size;
+    /**
+     * Encoded points from position 0 to the limit, only read with absolute gets.
+     */
+    private final ByteBuffer data;
+    /**
+     * Off-heap chunk holding {@link #data} and its generation when stored, null if on heap.
+     */
+    private final OffHeapArenaPool.Chunk chunk;
+    private final int generation;
+
+    private CompressedMetricBlock(long minTimestamp, long maxTimestamp, int size, ByteBuffer data,
+                                  OffHeapArenaPool.Chunk chunk, int generation) {
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        this.size = size;
+        this.data = data;
+        this.chunk = chunk;
+        this.generation = generation;
+    }
+
+    private CompressedMetricBlock(long minTimestamp, long maxTimestamp, int size, byte[] data) {
+        this(minTimestamp, maxTimestamp, size, ByteBuffer.wrap(data), null, 0);
+    }
+
+    /**
+     * @param points metrics of one series ordered by timestamp, must not be empty
+     */
+    static CompressedMetricBlock encode(Collection<MetricEntity> points) {
+        ByteSink out = new ByteSink(points.size() * 12);
+        long prevTimestamp = 0;
+        long prevDelta = 0;
+        long prevGmtCreate = 0;
+        long prevPass = 0;
+        long prevBlock = 0;
+        long prevSuccess = 0;
+        long prevException = 0;
+        long prevRtBits = 0;
+        long prevCount = 0;
+        long minTimestamp = 0;
+        boolean first = true;
+        for (MetricEntity entity : points) {
+            long timestamp = entity.getTimestamp().getTime();
+            if (first) {
+                minTimestamp = timestamp;
+                prevGmtCreate = timestamp;
+                out.writeVarLong(zigzag(timestamp));
+                first = false;
+            } else {
+                long delta = timestamp - prevTimestamp;
+                out.writeVarLong(zigzag(delta - prevDelta));
+                prevDelta = delta;
+            }
+            prevTimestamp = timestamp;
+
+            long gmtCreate = entity.getGmtCreate() == null ? timestamp : entity.getGmtCreate().getTime();
+            out.writeVarLong(zigzag(gmtCreate - prevGmtCreate));
+            prevGmtCreate = gmtCreate;
+
+            long pass = valueOf(entity.getPassQps());
+            out.writeVarLong(zigzag(pass - prevPass));
+            prevPass = pass;
+            long block = valueOf(entity.getBlockQps());
+            out.writeVarLong(zigzag(block - prevBlock));
+            prevBlock = block;
+            long success = valueOf(entity.getSuccessQps());
+            out.writeVarLong(zigzag(success - prevSuccess));
+            prevSuccess = success;
+            long exception = valueOf(entity.getExceptionQps());
+            out.writeVarLong(zigzag(exception - prevException));
+            prevException = exception;
+
+            long rtBits = Double.doubleToRawLongBits(entity.getRt());
+            out.writeXor(rtBits ^ prevRtBits);
+            prevRtBits = rtBits;
+
+            out.writeVarLong(zigzag(entity.getCount() - prevCount));
+            prevCount = entity.getCount();
+        }
+        return new CompressedMetricBlock(minTimestamp, prevTimestamp, points.size(), out.toByteArray());
+    }
+
+    /**
+     * Decode the points between {@code startTime} and {@code endTime} (both inclusive) into {@code results}.
+     */
+    void decodeBetween(long startTime, long endTime, String app, String resource, String ip, int port,
+                       List<MetricEntity> results) {
+        if (startTime > maxTimestamp || endTime < minTimestamp || isReleased()) {
+            return;
+        }
+        ByteSource in = new ByteSource(data);
+        long timestamp = 0;
+        long delta = 0;
+        long gmtCreate = 0;
+        long pass = 0;
+        long block = 0;
+        long success = 0;
+        long exception = 0;
+        long rtBits = 0;
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0) {
+                timestamp = unzigzag(in.readVarLong());
+                gmtCreate = timestamp;
+            } else {
+                delta += unzigzag(in.readVarLong());
+                timestamp += delta;
+            }
+            if (timestamp > endTime) {
+                return;
+            }
+            gmtCreate += unzigzag(in.readVarLong());
+            pass += unzigzag(in.readVarLong());
+            block += unzigzag(in.readVarLong());
+            success += unzigzag(in.readVarLong());
+            exception += unzigzag(in.readVarLong());
+            rtBits ^= in.readXor();
+            count += unzigzag(in.readVarLong());
+            if (timestamp < startTime) {
+                continue;
+            }
+            MetricEntity entity = new MetricEntity();
+            entity.setApp(app);
+            entity.setResource(resource);
+            entity.setIp(ip);
+            entity.setPort(port);
+            entity.setTimestamp(new Date(timestamp));
+            Date gmtCreateDate = new Date(gmtCreate);
+            entity.setGmtCreate(gmtCreateDate);
+            entity.setGmtModified(gmtCreateDate);
+            entity.setPassQps(pass);
+            entity.setBlockQps(block);
+            entity.setSuccessQps(success);
+            entity.setExceptionQps(exception);
+            entity.setRt(Double.longBitsToDouble(rtBits));
+            entity.setCount((int)count);
+            results.add(entity);
+        }
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(minTimestamp);
+        out.writeLong(maxTimestamp);
+        out.writeInt(size);
+        byte[] bytes = new byte[data.limit()];
+        copyTo(ByteBuffer.wrap(bytes));
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static CompressedMetricBlock readFrom(DataInput in) throws IOException {
+        long minTimestamp = in.readLong();
+        long maxTimestamp = in.readLong();
+        int size = in.readInt();
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new CompressedMetricBlock(minTimestamp, maxTimestamp, size, data);
+    }
+
+    long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int sizeInBytes() {
+        return data.limit();
+    }
+
+    /**
+     * @return bytes held on heap by the encoded points
+     */
+    int heapBytes() {
+        return chunk == null ? data.limit() : 0;
+    }
+
+    boolean isOffHeap() {
+        return chunk != null;
+    }
+
+    /**
+     * @return true if stored off heap and its arena was released since
+     */
+    boolean isReleased() {
+        return chunk != null && chunk.getGeneration() != generation;
+    }
+
+    void copyTo(ByteBuffer target) {
+        ByteBuffer source = data.duplicate();
+        source.position(0);
+        target.put(source);
+    }
+
+    /**
+     * @return this block if on heap, otherwise a heap copy which stays readable once its arena is released
+     */
+    CompressedMetricBlock toHeap() {
+        if (chunk == null) {
+            return this;
+        }
+        byte[] bytes = new byte[data.limit()];
+        copyTo(ByteBuffer.wrap(bytes));
+        return new CompressedMetricBlock(minTimestamp, maxTimestamp, size, bytes);
+    }
+
+    CompressedMetricBlock withData(ByteBuffer data, OffHeapArenaPool.Chunk chunk, int generation) {
+        return new CompressedMetricBlock(minTimestamp, maxTimestamp, size, data, chunk, generation);
+    }
+
+    private static long valueOf(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class ByteSink {
+        private byte[] buf;
+        private int pos;
+
+        ByteSink(int initialCapacity) {
+            buf = new byte[Math.max(16, initialCapacity)];
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte)((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte)value;
+        }
+
+        /**
+         * One header byte {@code leadingZeroBytes * 8 + trailingZeroBytes + 1} (0 if the xor is 0),
+         * then the remaining middle bytes, most significant first.
+         */
+        void writeXor(long xor) {
+            ensure(9);
+            if (xor == 0) {
+                buf[pos++] = 0;
+                return;
+            }
+            int leading = Long.numberOfLeadingZeros(xor) >>> 3;
+            int trailing = Long.numberOfTrailingZeros(xor) >>> 3;
+            buf[pos++] = (byte)(leading * 8 + trailing + 1);
+            for (int shift = (7 - leading) * 8; shift >= trailing * 8; shift -= 8) {
+                buf[pos++] = (byte)(xor >>> shift);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+
+        private void ensure(int bytes) {
+            if (pos + bytes > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + bytes));
+            }
+        }
+    }
+
+    private static final class ByteSource {
+        private final ByteBuffer buf;
+        private int pos;
+
+        ByteSource(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buf.get(pos++);
+                value |= (long)(b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        long readXor() {
+            int header = buf.get(pos++);
+            if (header == 0) {
+                return 0;
+            }
+            int leading = (header - 1) >>> 3;
+            int trailing = (header - 1) & 7;
+            long xor = 0;
+            for (int shift = (7 - leading) * 8; shift >= trailing * 8; shift -= 8) {
+                xor |= (buf.get(pos++) & 0xFFL) << shift;
+            }
+            return xor;
+        }
+    }
+}
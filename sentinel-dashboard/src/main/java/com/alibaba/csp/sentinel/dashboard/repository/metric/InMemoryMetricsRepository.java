@@ -15,23 +15,51 @@
  */
 package com.alibaba.csp.sentinel.dashboard.repository.metric;
 
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
 import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
 import com.alibaba.csp.sentinel.util.StringUtil;
 import com.alibaba.csp.sentinel.util.TimeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 /**
- * Caches metrics data in a period of time in memory.
+ * <p>Caches metrics data in a period of time in memory, an hour by default
+ * (see {@link DashboardConfig#CONFIG_METRIC_RETENTION_MINUTES}).</p>
+ * <p>
+ * The estimated heap of the cache is bounded by a global budget, a quota per app and a max count
+ * of resources per app (see {@link DashboardConfig}), enforced at ingest. When a limit is exceeded,
+ * the least recently written or queried series of the offending app (the largest app for the global
+ * budget) are evicted until usage is 10% below the limit.
+ * </p>
+ * <p>
+ * If {@link DashboardConfig#CONFIG_METRIC_OFF_HEAP_MAX_MB} is set, sealed blocks are moved to an
+ * {@link OffHeapArenaPool} with one arena per minute, released as a whole once the minute expires.
+ * The hot points and query results stay on heap, and blocks fall back to heap when the pool is full.
+ * </p>
  *
  * @author Carpenter Lee
  * @author Eric Zhao
@@ -39,15 +67,77 @@ import java.util.stream.Collectors;
 @Component
 public class InMemoryMetricsRepository implements MetricsRepository<MetricEntity> {
 
-    private static final long MAX_METRIC_LIVE_TIME_MS = 1000 * 60 * 5;
+    private static final long MINUTE_MS = 1000 * 60;
+
+    private static final long SWEEP_INTERVAL_MS = 1000 * 30;
+
+    private static final long MB = 1024 * 1024;
+
+    private static Logger logger = LoggerFactory.getLogger(InMemoryMetricsRepository.class);
 
     /**
-     * {@code app -> resource -> timestamp -> metric}
+     * {@code app -> metrics of the app}
      */
-    private Map<String, Map<String, LinkedHashMap<Long, MetricEntity>>> allMetrics = new ConcurrentHashMap<>();
+    private Map<String, AppMetrics> allMetrics = new ConcurrentHashMap<>();
 
     private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
 
+    private final long maxBytes;
+    private final long maxAppBytes;
+    private final int maxResourcesPerApp;
+
+    /**
+     * Metrics older than this are dropped, see {@link DashboardConfig#CONFIG_METRIC_RETENTION_MINUTES}.
+     */
+    private final long retentionMs;
+
+    /**
+     * Source of the current time for writes, queries and eviction, replaced by tests.
+     */
+    private LongSupplier clock = TimeUtil::currentTimeMillis;
+
+    /**
+     * Off-heap storage of sealed blocks, null if disabled.
+     */
+    private final OffHeapArenaPool offHeapPool;
+
+    /**
+     * Estimated heap of all series, guarded by {@link #readWriteLock}.
+     */
+    private long usedBytes;
+
+    /**
+     * {@code app -> count of series evicted}, kept after the app is gone.
+     */
+    private final Map<String, AtomicLong> evictedSeries = new ConcurrentHashMap<>();
+
+    public InMemoryMetricsRepository() {
+        this(DashboardConfig.getMetricMaxMemoryMb() * MB, DashboardConfig.getMetricMaxAppMemoryMb() * MB,
+            DashboardConfig.getMetricMaxResourcesPerApp(), DashboardConfig.getMetricOffHeapMaxMb() * MB);
+    }
+
+    InMemoryMetricsRepository(long maxBytes, long maxAppBytes, int maxResourcesPerApp) {
+        this(maxBytes, maxAppBytes, maxResourcesPerApp, 0);
+    }
+
+    InMemoryMetricsRepository(long maxBytes, long maxAppBytes, int maxResourcesPerApp, long offHeapMaxBytes) {
+        this(maxBytes, maxAppBytes, maxResourcesPerApp, offHeapMaxBytes,
+            DashboardConfig.getMetricRetentionMinutes() * MINUTE_MS);
+    }
+
+    InMemoryMetricsRepository(long maxBytes, long maxAppBytes, int maxResourcesPerApp, long offHeapMaxBytes,
+                              long retentionMs) {
+        this.retentionMs = retentionMs;
+        this.maxBytes = maxBytes;
+        this.maxAppBytes = maxAppBytes;
+        this.maxResourcesPerApp = maxResourcesPerApp;
+        this.offHeapPool = offHeapMaxBytes > 0 ? new OffHeapArenaPool(offHeapMaxBytes,
+            OffHeapArenaPool.DEFAULT_CHUNK_SIZE, MetricSeries.BLOCK_SPAN_MS) : null;
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
 
     @Override
     public void save(MetricEntity entity) {
@@ -56,14 +146,29 @@ public class InMemoryMetricsRepository implements MetricsRepository<MetricEntity
         }
         readWriteLock.writeLock().lock();
         try {
-            allMetrics.computeIfAbsent(entity.getApp(), e -> new HashMap<>(16))
-                    .computeIfAbsent(entity.getResource(), e -> new LinkedHashMap<Long, MetricEntity>() {
-                        @Override
-                        protected boolean removeEldestEntry(Entry<Long, MetricEntity> eldest) {
-                            // Metric older than {@link #MAX_METRIC_LIVE_TIME_MS} will be removed.
-                            return eldest.getKey() < TimeUtil.currentTimeMillis() - MAX_METRIC_LIVE_TIME_MS;
-                        }
-                    }).put(entity.getTimestamp().getTime(), entity);
+            String app = entity.getApp();
+            long now = clock.getAsLong();
+            AppMetrics appMetrics = allMetrics.computeIfAbsent(app, e -> new AppMetrics(now));
+            if (appMetrics.resources.size() >= maxResourcesPerApp
+                && !appMetrics.resources.containsKey(entity.getResource())) {
+                evictResources(app, appMetrics, Math.max(1, maxResourcesPerApp / 10));
+            }
+            MetricSeries series = appMetrics.get(entity);
+            long before = 0;
+            if (series == null) {
+                series = appMetrics.create(entity);
+            } else {
+                before = series.estimatedBytes();
+            }
+            series.put(entity, now);
+            series.expire(now - retentionMs);
+            series.seal(now, offHeapPool);
+            addUsedBytes(appMetrics, series.estimatedBytes() - before);
+            if (offHeapPool != null) {
+                offHeapPool.releaseBefore(now - retentionMs);
+            }
+            sweepExpired(appMetrics, now);
+            enforceBudget(app, appMetrics);
         } finally {
             readWriteLock.writeLock().unlock();
         }
@@ -90,20 +195,20 @@ public class InMemoryMetricsRepository implements MetricsRepository<MetricEntity
         if (StringUtil.isBlank(app)) {
             return results;
         }
-        Map<String, LinkedHashMap<Long, MetricEntity>> resourceMap = allMetrics.get(app);
-        if (resourceMap == null) {
-            return results;
-        }
-        LinkedHashMap<Long, MetricEntity> metricsMap = resourceMap.get(resource);
-        if (metricsMap == null) {
-            return results;
-        }
         readWriteLock.readLock().lock();
         try {
-            for (Entry<Long, MetricEntity> entry : metricsMap.entrySet()) {
-                if (entry.getKey() >= startTime && entry.getKey() <= endTime) {
-                    results.add(entry.getValue());
-                }
+            AppMetrics appMetrics = allMetrics.get(app);
+            if (appMetrics == null) {
+                return results;
+            }
+            Map<String, MetricSeries> instanceMap = appMetrics.resources.get(resource);
+            if (instanceMap == null) {
+                return results;
+            }
+            long now = clock.getAsLong();
+            for (MetricSeries series : instanceMap.values()) {
+                series.touch(now);
+                series.collectBetween(startTime, endTime, results);
             }
             return results;
         } finally {
@@ -113,49 +218,54 @@ public class InMemoryMetricsRepository implements MetricsRepository<MetricEntity
 
     @Override
     public List<String> listResourcesOfApp(String app) {
+        return listResourcesOfApp(app, null);
+    }
+
+    @Override
+    public List<String> listResourcesOfApp(String app, String searchKey) {
         List<String> results = new ArrayList<>();
         if (StringUtil.isBlank(app)) {
             return results;
         }
-        // resource -> timestamp -> metric
-        Map<String, LinkedHashMap<Long, MetricEntity>> resourceMap = allMetrics.get(app);
-        if (resourceMap == null) {
-            return results;
-        }
-        final long minTimeMs = System.currentTimeMillis() - 1000 * 60;
-        Map<String, MetricEntity> resourceCount = new ConcurrentHashMap<>(32);
+        final long minTimeMs = clock.getAsLong() - 1000 * 60;
+        Map<String, MetricAccumulator> resourceCount = new HashMap<>(32);
+        List<MetricEntity> recent = new ArrayList<>();
 
         readWriteLock.readLock().lock();
         try {
-            for (Entry<String, LinkedHashMap<Long, MetricEntity>> resourceMetrics : resourceMap.entrySet()) {
-                for (Entry<Long, MetricEntity> metrics : resourceMetrics.getValue().entrySet()) {
-                    if (metrics.getKey() < minTimeMs) {
-                        continue;
-                    }
-                    MetricEntity newEntity = metrics.getValue();
-                    if (resourceCount.containsKey(resourceMetrics.getKey())) {
-                        MetricEntity oldEntity = resourceCount.get(resourceMetrics.getKey());
-                        oldEntity.addPassQps(newEntity.getPassQps());
-                        oldEntity.addRtAndSuccessQps(newEntity.getRt(), newEntity.getSuccessQps());
-                        oldEntity.addBlockQps(newEntity.getBlockQps());
-                        oldEntity.addExceptionQps(newEntity.getExceptionQps());
-                        oldEntity.addCount(1);
-                    } else {
-                        resourceCount.put(resourceMetrics.getKey(), MetricEntity.copyOf(newEntity));
-                    }
+            AppMetrics appMetrics = allMetrics.get(app);
+            if (appMetrics == null) {
+                return results;
+            }
+            Collection<String> candidates = appMetrics.resources.keySet();
+            if (StringUtil.isNotEmpty(searchKey)) {
+                candidates = appMetrics.resourceIndex.search(searchKey, false);
+            }
+            for (String resource : candidates) {
+                Map<String, MetricSeries> instanceMap = appMetrics.resources.get(resource);
+                if (instanceMap == null) {
+                    continue;
+                }
+                recent.clear();
+                for (MetricSeries series : instanceMap.values()) {
+                    series.collectBetween(minTimeMs, Long.MAX_VALUE, recent);
+                }
+                for (MetricEntity metrics : recent) {
+                    resourceCount.computeIfAbsent(resource, e -> new MetricAccumulator(app, null, 0, resource, 0))
+                        .add(metrics);
                 }
             }
             // Order by last minute b_qps DESC.
             return resourceCount.entrySet()
                     .stream()
                     .sorted((o1, o2) -> {
-                        MetricEntity e1 = o1.getValue();
-                        MetricEntity e2 = o2.getValue();
-                        int t = e2.getBlockQps().compareTo(e1.getBlockQps());
+                        MetricAccumulator e1 = o1.getValue();
+                        MetricAccumulator e2 = o2.getValue();
+                        int t = Long.compare(e2.getBlockQps(), e1.getBlockQps());
                         if (t != 0) {
                             return t;
                         }
-                        return e2.getPassQps().compareTo(e1.getPassQps());
+                        return Long.compare(e2.getPassQps(), e1.getPassQps());
                     })
                     .map(Entry::getKey)
                     .collect(Collectors.toList());
@@ -170,22 +280,470 @@ public class InMemoryMetricsRepository implements MetricsRepository<MetricEntity
         if (StringUtil.isBlank(app)) {
             return results;
         }
-        Map<String, LinkedHashMap<Long, MetricEntity>> resourceMap = allMetrics.get(app);
-        if (resourceMap == null) {
+        readWriteLock.readLock().lock();
+        try {
+            AppMetrics appMetrics = allMetrics.get(app);
+            if (appMetrics == null) {
+                return results;
+            }
+            for (Map<String, MetricSeries> instanceMap : appMetrics.resources.values()) {
+                for (MetricSeries series : instanceMap.values()) {
+                    series.collectBetween(startTime, endTime, results);
+                }
+            }
             return results;
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> listInstancesOfApp(String app) {
+        if (StringUtil.isBlank(app)) {
+            return new ArrayList<>();
         }
         readWriteLock.readLock().lock();
         try {
-            for (LinkedHashMap<Long, MetricEntity> metricsMap : resourceMap.values()) {
-                for (Entry<Long, MetricEntity> entry : metricsMap.entrySet()) {
-                    if (entry.getKey() >= startTime && entry.getKey() <= endTime) {
-                        results.add(entry.getValue());
-                    }
+            AppMetrics appMetrics = allMetrics.get(app);
+            if (appMetrics == null) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(new TreeSet<>(appMetrics.instances.keySet()));
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<MetricEntity> queryByAppAndInstanceBetween(String app, String instance, long startTime,
+                                                           long endTime) {
+        List<MetricEntity> results = new ArrayList<>();
+        if (StringUtil.isBlank(app)) {
+            return results;
+        }
+        readWriteLock.readLock().lock();
+        try {
+            AppMetrics appMetrics = allMetrics.get(app);
+            if (appMetrics == null) {
+                return results;
+            }
+            Set<String> resources = appMetrics.instances.get(instance);
+            if (resources == null) {
+                return results;
+            }
+            long now = clock.getAsLong();
+            for (String resource : resources) {
+                MetricSeries series = appMetrics.resources.get(resource).get(instance);
+                series.touch(now);
+                series.collectBetween(startTime, endTime, results);
+            }
+            return results;
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return estimated memory usage of every app, ordered by bytes desc
+     */
+    public List<MetricMemoryUsage> getMemoryUsage() {
+        List<MetricMemoryUsage> results = new ArrayList<>();
+        readWriteLock.readLock().lock();
+        try {
+            for (Entry<String, AppMetrics> entry : allMetrics.entrySet()) {
+                AppMetrics appMetrics = entry.getValue();
+                int series = 0;
+                for (Map<String, MetricSeries> instanceMap : appMetrics.resources.values()) {
+                    series += instanceMap.size();
                 }
+                AtomicLong evicted = evictedSeries.get(entry.getKey());
+                results.add(new MetricMemoryUsage(entry.getKey(), appMetrics.bytes, appMetrics.resources.size(),
+                    series, evicted == null ? 0 : evicted.get()));
             }
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+        results.sort(Comparator.comparingLong(MetricMemoryUsage::getBytes).reversed());
+        return results;
+    }
+
+    /**
+     * @return apps with cached metrics
+     */
+    public List<String> listApps() {
+        return new ArrayList<>(allMetrics.keySet());
+    }
+
+    /**
+     * Sum up the latest points of every series of the app, e.g. for a scrape of all metrics.
+     *
+     * @param windowMs     points within this window before the latest point of a series are summed up
+     * @param minTimestamp series whose latest point is before this timestamp are skipped
+     * @param labeler      computes the label set of a series, which is cached with the series, so the
+     *                     same labeler should be used for all calls
+     * @return one sum per series, with the timestamp of its latest point
+     */
+    public List<LatestMetric> queryLatestOfApp(String app, long windowMs, long minTimestamp,
+                                               SeriesLabeler labeler) {
+        List<LatestMetric> results = new ArrayList<>();
+        if (StringUtil.isBlank(app)) {
             return results;
+        }
+        List<MetricEntity> points = new ArrayList<>();
+        readWriteLock.readLock().lock();
+        try {
+            AppMetrics appMetrics = allMetrics.get(app);
+            if (appMetrics == null) {
+                return results;
+            }
+            for (Map<String, MetricSeries> instanceMap : appMetrics.resources.values()) {
+                for (MetricSeries series : instanceMap.values()) {
+                    long latest = series.latestTimestamp();
+                    if (latest < minTimestamp) {
+                        continue;
+                    }
+                    points.clear();
+                    series.collectBetween(latest - windowMs + 1, latest, points);
+                    MetricAccumulator sum = new MetricAccumulator(app, series.getIp(), series.getPort(),
+                        series.getResource(), latest);
+                    for (MetricEntity point : points) {
+                        sum.add(point);
+                    }
+                    results.add(new LatestMetric(series.getLabels(labeler), sum));
+                }
+            }
         } finally {
             readWriteLock.readLock().unlock();
         }
+        return results;
+    }
+
+    /**
+     * @return usage of the off-heap pool of sealed blocks, or null if off-heap storage is disabled
+     */
+    public Map<String, Long> getOffHeapUsage() {
+        if (offHeapPool == null) {
+            return null;
+        }
+        Map<String, Long> usage = new LinkedHashMap<>(8);
+        readWriteLock.readLock().lock();
+        try {
+            usage.put("usedBytes", offHeapPool.getUsedBytes());
+            usage.put("allocatedBytes", offHeapPool.getAllocatedBytes());
+            usage.put("maxBytes", offHeapPool.getMaxBytes());
+            usage.put("arenas", (long)offHeapPool.getArenaCount());
+            usage.put("storedBlocks", offHeapPool.getStoredBlocks());
+            usage.put("rejectedBlocks", offHeapPool.getRejectedBlocks());
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+        return usage;
+    }
+
+    /**
+     * @return estimated heap of all cached metrics
+     */
+    public long getUsedBytes() {
+        readWriteLock.readLock().lock();
+        try {
+            return usedBytes;
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Serialize the metrics of each app into its own section, which {@link #restoreApp(byte[])}
+     * can restore independently. Sealed blocks are copied as is, hot points are encoded as one
+     * more block.
+     */
+    public List<byte[]> snapshotApps() throws IOException {
+        List<String> apps = new ArrayList<>(allMetrics.keySet());
+        List<byte[]> sections = new ArrayList<>(apps.size());
+        for (String app : apps) {
+            List<MetricSeries> seriesList = new ArrayList<>();
+            List<List<CompressedMetricBlock>> blocksList = new ArrayList<>();
+            readWriteLock.readLock().lock();
+            try {
+                AppMetrics appMetrics = allMetrics.get(app);
+                if (appMetrics == null) {
+                    continue;
+                }
+                for (Map<String, MetricSeries> instanceMap : appMetrics.resources.values()) {
+                    for (MetricSeries series : instanceMap.values()) {
+                        seriesList.add(series);
+                        blocksList.add(series.toBlocks());
+                    }
+                }
+            } finally {
+                readWriteLock.readLock().unlock();
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(app);
+            out.writeInt(seriesList.size());
+            for (int i = 0; i < seriesList.size(); i++) {
+                MetricSeries series = seriesList.get(i);
+                out.writeUTF(series.getResource());
+                out.writeBoolean(series.getIp() != null);
+                if (series.getIp() != null) {
+                    out.writeUTF(series.getIp());
+                }
+                out.writeInt(series.getPort());
+                List<CompressedMetricBlock> blocks = blocksList.get(i);
+                out.writeInt(blocks.size());
+                for (CompressedMetricBlock block : blocks) {
+                    block.writeTo(out);
+                }
+            }
+            out.flush();
+            sections.add(bytes.toByteArray());
+        }
+        return sections;
+    }
+
+    /**
+     * Restore one section written by {@link #snapshotApps()}. Sections may be restored concurrently,
+     * they are parsed without holding the lock. Expired metrics are dropped and limits apply.
+     */
+    public void restoreApp(byte[] section) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(section));
+        String app = in.readUTF();
+        int seriesCount = in.readInt();
+        List<MetricEntity> keys = new ArrayList<>(seriesCount);
+        List<List<CompressedMetricBlock>> blocksList = new ArrayList<>(seriesCount);
+        for (int i = 0; i < seriesCount; i++) {
+            MetricEntity key = new MetricEntity();
+            key.setApp(app);
+            key.setResource(in.readUTF());
+            if (in.readBoolean()) {
+                key.setIp(in.readUTF());
+            }
+            key.setPort(in.readInt());
+            int blockCount = in.readInt();
+            List<CompressedMetricBlock> blocks = new ArrayList<>(blockCount);
+            for (int j = 0; j < blockCount; j++) {
+                blocks.add(CompressedMetricBlock.readFrom(in));
+            }
+            keys.add(key);
+            blocksList.add(blocks);
+        }
+        readWriteLock.writeLock().lock();
+        try {
+            long now = clock.getAsLong();
+            AppMetrics appMetrics = allMetrics.computeIfAbsent(app, e -> new AppMetrics(now));
+            for (int i = 0; i < keys.size(); i++) {
+                MetricSeries series = appMetrics.get(keys.get(i));
+                long before = 0;
+                if (series == null) {
+                    series = appMetrics.create(keys.get(i));
+                } else {
+                    before = series.estimatedBytes();
+                }
+                series.restore(blocksList.get(i), offHeapPool);
+                series.expire(now - retentionMs);
+                addUsedBytes(appMetrics, series.estimatedBytes() - before);
+                if (series.isEmpty()) {
+                    addUsedBytes(appMetrics, -appMetrics.remove(series));
+                }
+            }
+            enforceBudget(app, appMetrics);
+        } finally {
+            readWriteLock.writeLock().unlock();
+        }
+    }
+
+    private void addUsedBytes(AppMetrics appMetrics, long delta) {
+        appMetrics.bytes += delta;
+        usedBytes += delta;
+    }
+
+    /**
+     * Drop expired metrics and forget the series that have none left, so that resources and
+     * instances which stopped reporting also leave the indexes. Series which are no longer
+     * written also get their complete windows sealed here.
+     */
+    private void sweepExpired(AppMetrics appMetrics, long now) {
+        if (now - appMetrics.lastSweepTime < SWEEP_INTERVAL_MS) {
+            return;
+        }
+        appMetrics.lastSweepTime = now;
+        final long minTimeMs = now - retentionMs;
+        List<MetricSeries> empty = new ArrayList<>();
+        for (Map<String, MetricSeries> instanceMap : appMetrics.resources.values()) {
+            for (MetricSeries series : instanceMap.values()) {
+                long before = series.estimatedBytes();
+                series.expire(minTimeMs);
+                series.seal(now, offHeapPool);
+                addUsedBytes(appMetrics, series.estimatedBytes() - before);
+                if (series.isEmpty()) {
+                    empty.add(series);
+                }
+            }
+        }
+        for (MetricSeries series : empty) {
+            addUsedBytes(appMetrics, -appMetrics.remove(series));
+        }
+    }
+
+    private void enforceBudget(String app, AppMetrics appMetrics) {
+        if (appMetrics.bytes > maxAppBytes) {
+            evictSeries(app, appMetrics, appMetrics.bytes - maxAppBytes * 9 / 10, "app quota");
+        }
+        while (usedBytes > maxBytes) {
+            // The largest app pays for the global budget.
+            Entry<String, AppMetrics> largest = null;
+            for (Entry<String, AppMetrics> entry : allMetrics.entrySet()) {
+                if (largest == null || entry.getValue().bytes > largest.getValue().bytes) {
+                    largest = entry;
+                }
+            }
+            if (largest == null || largest.getValue().resources.isEmpty()) {
+                return;
+            }
+            evictSeries(largest.getKey(), largest.getValue(), usedBytes - maxBytes * 9 / 10, "global budget");
+        }
+    }
+
+    /**
+     * Evict the least recently accessed series of the app until {@code bytesToFree} is freed.
+     */
+    private void evictSeries(String app, AppMetrics appMetrics, long bytesToFree, String reason) {
+        List<MetricSeries> candidates = new ArrayList<>();
+        for (Map<String, MetricSeries> instanceMap : appMetrics.resources.values()) {
+            candidates.addAll(instanceMap.values());
+        }
+        candidates.sort(Comparator.comparingLong(MetricSeries::getLastAccessTime));
+        long freed = 0;
+        int count = 0;
+        for (MetricSeries series : candidates) {
+            if (freed >= bytesToFree) {
+                break;
+            }
+            long bytes = appMetrics.remove(series);
+            addUsedBytes(appMetrics, -bytes);
+            freed += bytes;
+            count++;
+        }
+        onEvicted(app, appMetrics, count, freed, reason);
+    }
+
+    /**
+     * Evict the {@code count} least recently accessed resources of the app, with all their series.
+     */
+    private void evictResources(String app, AppMetrics appMetrics, int count) {
+        List<Entry<String, Long>> candidates = new ArrayList<>(appMetrics.resources.size());
+        for (Entry<String, Map<String, MetricSeries>> entry : appMetrics.resources.entrySet()) {
+            long lastAccessTime = 0;
+            for (MetricSeries series : entry.getValue().values()) {
+                lastAccessTime = Math.max(lastAccessTime, series.getLastAccessTime());
+            }
+            candidates.add(new SimpleEntry<>(entry.getKey(), lastAccessTime));
+        }
+        candidates.sort(Entry.comparingByValue());
+        long freed = 0;
+        int evicted = 0;
+        for (Entry<String, Long> candidate : candidates.subList(0, Math.min(count, candidates.size()))) {
+            for (MetricSeries series : new ArrayList<>(appMetrics.resources.get(candidate.getKey()).values())) {
+                long bytes = appMetrics.remove(series);
+                addUsedBytes(appMetrics, -bytes);
+                freed += bytes;
+                evicted++;
+            }
+        }
+        onEvicted(app, appMetrics, evicted, freed, "resource count cap");
+    }
+
+    private void onEvicted(String app, AppMetrics appMetrics, int count, long freed, String reason) {
+        if (count == 0) {
+            return;
+        }
+        evictedSeries.computeIfAbsent(app, e -> new AtomicLong()).addAndGet(count);
+        logger.warn("Evicted {} metric series ({} bytes) of app <{}> over the {}, app now uses {} bytes "
+                + "in {} resources, total {} bytes", count, freed, app, reason, appMetrics.bytes,
+            appMetrics.resources.size(), usedBytes);
+    }
+
+    private static String instanceKey(MetricEntity entity) {
+        return entity.getIp() + ":" + entity.getPort();
+    }
+
+    /**
+     * Computes the label set of a series for export.
+     */
+    @FunctionalInterface
+    public interface SeriesLabeler {
+        String labels(String app, String resource, String ip, int port);
+    }
+
+    /**
+     * Metrics of one app, guarded by {@link #readWriteLock}.
+     */
+    private static class AppMetrics {
+
+        /**
+         * {@code resource -> ip:port -> series}
+         */
+        private final Map<String, Map<String, MetricSeries>> resources = new HashMap<>(16);
+
+        /**
+         * {@code ip:port -> resources reported by the instance}
+         */
+        private final Map<String, Set<String>> instances = new HashMap<>();
+
+        private final ResourceNameIndex resourceIndex = new ResourceNameIndex();
+
+        private long lastSweepTime;
+
+        /**
+         * Estimated heap of the series of the app.
+         */
+        private long bytes;
+
+        AppMetrics(long now) {
+            this.lastSweepTime = now;
+        }
+
+        MetricSeries get(MetricEntity entity) {
+            Map<String, MetricSeries> instanceMap = resources.get(entity.getResource());
+            return instanceMap == null ? null : instanceMap.get(instanceKey(entity));
+        }
+
+        MetricSeries create(MetricEntity entity) {
+            String resource = entity.getResource();
+            String instance = instanceKey(entity);
+            Map<String, MetricSeries> instanceMap = resources.get(resource);
+            if (instanceMap == null) {
+                instanceMap = new HashMap<>(4);
+                resources.put(resource, instanceMap);
+                resourceIndex.add(resource);
+            }
+            MetricSeries series = new MetricSeries(entity.getApp(), resource, entity.getIp(), entity.getPort());
+            instanceMap.put(instance, series);
+            instances.computeIfAbsent(instance, e -> new HashSet<>()).add(resource);
+            return series;
+        }
+
+        /**
+         * Remove the series and its index entries.
+         *
+         * @return estimated heap of the removed series
+         */
+        long remove(MetricSeries series) {
+            String resource = series.getResource();
+            String instance = series.getInstance();
+            Map<String, MetricSeries> instanceMap = resources.get(resource);
+            instanceMap.remove(instance);
+            if (instanceMap.isEmpty()) {
+                resources.remove(resource);
+                resourceIndex.remove(resource);
+            }
+            Set<String> instanceResources = instances.get(instance);
+            instanceResources.remove(resource);
+            if (instanceResources.isEmpty()) {
+                instances.remove(instance);
+            }
+            return series.estimatedBytes();
+        }
     }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+/**
+ * An instance taking far more pass or block qps of a resource than its peers, see {@link InstanceSkewDetector}.
+ */
+public class InstanceSkew {
+
+    public static final String PASS_QPS = "passQps";
+    public static final String BLOCK_QPS = "blockQps";
+
+    private final String app;
+    private final String resource;
+    private final String instance;
+    /**
+     * {@link #PASS_QPS} or {@link #BLOCK_QPS}
+     */
+    private final String metric;
+    /**
+     * smoothed qps of the instance
+     */
+    private final double value;
+    /**
+     * median of the smoothed qps of all instances
+     */
+    private final double median;
+    /**
+     * share of the instance in the qps of all instances
+     */
+    private final double share;
+
+    public InstanceSkew(String app, String resource, String instance, String metric, double value, double median,
+                        double share) {
+        this.app = app;
+        this.resource = resource;
+        this.instance = instance;
+        this.metric = metric;
+        this.value = value;
+        this.median = median;
+        this.share = share;
+    }
+
+    public String getApp() {
+        return app;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public String getInstance() {
+        return instance;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public double getMedian() {
+        return median;
+    }
+
+    public double getShare() {
+        return share;
+    }
+
+    /**
+     * @return value divided by the median, the median counting as 1 qps at least
+     */
+    public double getRatio() {
+        return value / Math.max(median, 1D);
+    }
+}
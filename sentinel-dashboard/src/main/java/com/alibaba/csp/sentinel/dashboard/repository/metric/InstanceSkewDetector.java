@@ -0,0 +1,272 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Detects instances taking far more traffic of a resource than their peers, e.g. one pod getting
+ * 3 times its share, or blocking far more than the others.</p>
+ * <p>
+ * Each fetch cycle of an app updates an exponentially weighted moving average of the pass and block
+ * qps of every (resource, instance), then compares each instance with the median of its resource.
+ * An instance is flagged when it is at least {@link #RATIO_THRESHOLD} times the median and above
+ * {@link #MIN_QPS}. The work per cycle is linear in the metrics fetched, queries only read the
+ * flags of the last cycle.
+ * </p>
+ */
+@Component
+public class InstanceSkewDetector {
+
+    static final double ALPHA = 0.3;
+    static final double RATIO_THRESHOLD = 3;
+    static final double MIN_QPS = 5;
+    /**
+     * The median of fewer instances says little about skew.
+     */
+    static final int MIN_INSTANCES = 3;
+
+    private static final long INSTANCE_IDLE_MS = 1000 * 60;
+    private static final long RESOURCE_IDLE_MS = 1000 * 60 * 5;
+    private static final long SWEEP_INTERVAL_MS = 1000 * 30;
+
+    private final Map<String, AppStats> allStats = new ConcurrentHashMap<>();
+
+    /**
+     * Update the statistics with the metrics of one fetch cycle.
+     */
+    public void record(List<MetricEntity> metrics) {
+        // app -> resource -> instance -> sums of the cycle
+        Map<String, Map<String, Map<String, double[]>>> cycle = new HashMap<>();
+        for (MetricEntity entity : metrics) {
+            double[] sums = cycle.computeIfAbsent(entity.getApp(), e -> new HashMap<>())
+                .computeIfAbsent(entity.getResource(), e -> new HashMap<>())
+                .computeIfAbsent(entity.getIp() + ":" + entity.getPort(), e -> new double[3]);
+            sums[0] += entity.getPassQps();
+            sums[1] += entity.getBlockQps();
+            sums[2]++;
+        }
+        long now = TimeUtil.currentTimeMillis();
+        for (Entry<String, Map<String, Map<String, double[]>>> appEntry : cycle.entrySet()) {
+            AppStats appStats = allStats.computeIfAbsent(appEntry.getKey(), AppStats::new);
+            synchronized (appStats) {
+                for (Entry<String, Map<String, double[]>> resourceEntry : appEntry.getValue().entrySet()) {
+                    appStats.resources.computeIfAbsent(resourceEntry.getKey(), ResourceStats::new)
+                        .update(appStats.app, resourceEntry.getValue(), now);
+                }
+                appStats.sweep(now);
+            }
+        }
+    }
+
+    /**
+     * @return the skewed instances of the app, by ratio desc
+     */
+    public List<InstanceSkew> query(String app) {
+        AppStats appStats = allStats.get(app);
+        if (appStats == null) {
+            return Collections.emptyList();
+        }
+        List<InstanceSkew> results = new ArrayList<>();
+        synchronized (appStats) {
+            for (ResourceStats resourceStats : appStats.resources.values()) {
+                results.addAll(resourceStats.skews);
+            }
+        }
+        results.sort(Comparator.comparingDouble(InstanceSkew::getRatio).reversed());
+        return results;
+    }
+
+    /**
+     * @return {@code ip:port -> skews} of the given instances which are skewed
+     */
+    public Map<String, List<InstanceSkew>> queryByInstances(String app, Collection<String> instances) {
+        Map<String, List<InstanceSkew>> results = new HashMap<>();
+        for (InstanceSkew skew : query(app)) {
+            if (instances.contains(skew.getInstance())) {
+                results.computeIfAbsent(skew.getInstance(), e -> new ArrayList<>()).add(skew);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Median of the first {@code n} values, which are reordered.
+     */
+    static double median(double[] values, int n) {
+        double upper = select(values, n, n / 2);
+        if (n % 2 == 1) {
+            return upper;
+        }
+        // The lower half is now before n / 2, its max is the lower middle.
+        double lower = values[0];
+        for (int i = 1; i < n / 2; i++) {
+            lower = Math.max(lower, values[i]);
+        }
+        return (lower + upper) / 2;
+    }
+
+    /**
+     * Quickselect: the k-th smallest of the first {@code n} values, in linear time on average.
+     */
+    private static double select(double[] values, int n, int k) {
+        int left = 0;
+        int right = n - 1;
+        while (left < right) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double tmp = values[i];
+                    values[i] = values[j];
+                    values[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return values[k];
+    }
+
+    private static final class AppStats {
+        private final String app;
+        private final Map<String, ResourceStats> resources = new HashMap<>();
+        private long lastSweepTime;
+
+        private AppStats(String app) {
+            this.app = app;
+        }
+
+        private void sweep(long now) {
+            if (now - lastSweepTime < SWEEP_INTERVAL_MS) {
+                return;
+            }
+            lastSweepTime = now;
+            resources.values().removeIf(stats -> now - stats.lastUpdateTime > RESOURCE_IDLE_MS);
+        }
+    }
+
+    private static final class ResourceStats {
+        private final String resource;
+        private final Map<String, InstanceStats> instances = new HashMap<>();
+        private List<InstanceSkew> skews = Collections.emptyList();
+        private long lastUpdateTime;
+        private double[] scratch = new double[8];
+
+        private ResourceStats(String resource) {
+            this.resource = resource;
+        }
+
+        private void update(String app, Map<String, double[]> cycle, long now) {
+            lastUpdateTime = now;
+            for (Entry<String, double[]> entry : cycle.entrySet()) {
+                double[] sums = entry.getValue();
+                instances.computeIfAbsent(entry.getKey(), e -> new InstanceStats())
+                    .update(sums[0] / sums[2], sums[1] / sums[2], now);
+            }
+            // Clients don't report resources without traffic, so missing instances decay to 0,
+            // and are dropped once gone for a while.
+            for (Iterator<InstanceStats> it = instances.values().iterator(); it.hasNext(); ) {
+                InstanceStats stats = it.next();
+                if (now - stats.lastUpdateTime > INSTANCE_IDLE_MS) {
+                    it.remove();
+                } else if (stats.lastUpdateTime != now) {
+                    stats.decay();
+                }
+            }
+            if (instances.size() < MIN_INSTANCES) {
+                skews = Collections.emptyList();
+                return;
+            }
+            List<InstanceSkew> results = new ArrayList<>(0);
+            detect(app, InstanceSkew.PASS_QPS, true, results);
+            detect(app, InstanceSkew.BLOCK_QPS, false, results);
+            skews = results;
+        }
+
+        private void detect(String app, String metric, boolean pass, List<InstanceSkew> results) {
+            int n = instances.size();
+            if (scratch.length < n) {
+                scratch = new double[n * 2];
+            }
+            double total = 0;
+            int i = 0;
+            for (InstanceStats stats : instances.values()) {
+                double value = pass ? stats.passQps : stats.blockQps;
+                scratch[i++] = value;
+                total += value;
+            }
+            double median = median(scratch, n);
+            double threshold = Math.max(Math.max(median, 1D) * RATIO_THRESHOLD, MIN_QPS);
+            for (Entry<String, InstanceStats> entry : instances.entrySet()) {
+                double value = pass ? entry.getValue().passQps : entry.getValue().blockQps;
+                if (value >= threshold) {
+                    results.add(new InstanceSkew(app, resource, entry.getKey(), metric, value, median,
+                        value / total));
+                }
+            }
+        }
+    }
+
+    private static final class InstanceStats {
+        private double passQps;
+        private double blockQps;
+        private long lastUpdateTime;
+
+        private void update(double passQps, double blockQps, long now) {
+            if (lastUpdateTime == 0) {
+                this.passQps = passQps;
+                this.blockQps = blockQps;
+            } else {
+                this.passQps += ALPHA * (passQps - this.passQps);
+                this.blockQps += ALPHA * (blockQps - this.blockQps);
+            }
+            lastUpdateTime = now;
+        }
+
+        private void decay() {
+            passQps -= ALPHA * passQps;
+            blockQps -= ALPHA * blockQps;
+        }
+    }
+}
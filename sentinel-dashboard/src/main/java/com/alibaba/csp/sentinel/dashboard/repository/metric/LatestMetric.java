@@ -0,0 +1,42 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+/**
+ * The latest points of one series (app, resource and instance) summed up, with the cached label set
+ * of the series.
+ */
+public class LatestMetric {
+
+    private final String labels;
+    private final MetricAccumulator sum;
+
+    public LatestMetric(String labels, MetricAccumulator sum) {
+        this.labels = labels;
+        this.sum = sum;
+    }
+
+    public String getLabels() {
+        return labels;
+    }
+
+    /**
+     * @return sum of the points, whose timestamp is the one of the latest point
+     */
+    public MetricAccumulator getSum() {
+        return sum;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+/**
+ * <p>Machine level metrics of one instance (or all instances of an app) in one second: the total
+ * inbound traffic, system load and cpu usage, as used by system rules.</p>
+ * <p>
+ * For an app, qps are summed up, rt is averaged by success qps, and system load and cpu usage
+ * are the max across instances, since system rules compare them per instance.
+ * </p>
+ */
+public class MachineMetric {
+
+    /**
+     * Clients report system load and cpu usage as the pass qps of a system resource, multiplied by this.
+     */
+    static final double SYSTEM_VALUE_SCALE = 10000;
+
+    private final long timestamp;
+    private long passQps;
+    private long blockQps;
+    private long successQps;
+    private long exceptionQps;
+    /**
+     * summary rt of all success qps.
+     */
+    private double rtSum;
+    /**
+     * null if not reported
+     */
+    private Double systemLoad;
+    private Double cpuUsage;
+    private int instanceCount;
+
+    public MachineMetric(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Add the metrics of one more instance, for the summary of an app.
+     */
+    void merge(MachineMetric other) {
+        passQps += other.passQps;
+        blockQps += other.blockQps;
+        successQps += other.successQps;
+        exceptionQps += other.exceptionQps;
+        rtSum += other.rtSum;
+        systemLoad = max(systemLoad, other.systemLoad);
+        cpuUsage = max(cpuUsage, other.cpuUsage);
+        instanceCount += other.instanceCount;
+    }
+
+    void setTotalInbound(long passQps, long blockQps, long successQps, long exceptionQps, double rtSum) {
+        this.passQps = passQps;
+        this.blockQps = blockQps;
+        this.successQps = successQps;
+        this.exceptionQps = exceptionQps;
+        this.rtSum = rtSum;
+    }
+
+    void setSystemLoad(Double systemLoad) {
+        this.systemLoad = systemLoad;
+    }
+
+    void setCpuUsage(Double cpuUsage) {
+        this.cpuUsage = cpuUsage;
+    }
+
+    void setInstanceCount(int instanceCount) {
+        this.instanceCount = instanceCount;
+    }
+
+    private static Double max(Double a, Double b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : Math.max(a, b);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getPassQps() {
+        return passQps;
+    }
+
+    public long getBlockQps() {
+        return blockQps;
+    }
+
+    public long getSuccessQps() {
+        return successQps;
+    }
+
+    public long getExceptionQps() {
+        return exceptionQps;
+    }
+
+    /**
+     * @return average rt of success qps
+     */
+    public double getRt() {
+        return successQps != 0 ? rtSum / successQps : 0D;
+    }
+
+    public Double getSystemLoad() {
+        return systemLoad;
+    }
+
+    /**
+     * @return cpu usage in [0, 1]
+     */
+    public Double getCpuUsage() {
+        return cpuUsage;
+    }
+
+    public int getInstanceCount() {
+        return instanceCount;
+    }
+}
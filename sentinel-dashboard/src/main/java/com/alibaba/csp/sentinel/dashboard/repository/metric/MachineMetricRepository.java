@@ -0,0 +1,169 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.alibaba.csp.sentinel.Constants;
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.util.StringUtil;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Keeps the machine level metrics of each instance in memory, for the same period as
+ * {@link InMemoryMetricsRepository}.</p>
+ * <p>
+ * They come from the system resources reported by clients ({@link Constants#TOTAL_IN_RESOURCE_NAME},
+ * {@link Constants#SYSTEM_LOAD_RESOURCE_NAME} and {@link Constants#CPU_USAGE_RESOURCE_NAME}), which are
+ * kept apart from the resources so that they don't show up in resource lists and rankings.
+ * </p>
+ */
+@Component
+public class MachineMetricRepository {
+
+    private static final long MINUTE_MS = 1000 * 60;
+
+    private static final long SWEEP_INTERVAL_MS = 1000 * 30;
+
+    /**
+     * Metrics older than this are dropped, see {@link DashboardConfig#CONFIG_METRIC_RETENTION_MINUTES}.
+     */
+    private final long retentionMs;
+
+    /**
+     * {@code app -> ip:port -> timestamp -> metric}
+     */
+    private final Map<String, Map<String, TreeMap<Long, MachineMetric>>> allMetrics = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> lastSweepTimes = new HashMap<>();
+
+    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+
+    public MachineMetricRepository() {
+        this(DashboardConfig.getMetricRetentionMinutes() * MINUTE_MS);
+    }
+
+    MachineMetricRepository(long retentionMs) {
+        this.retentionMs = retentionMs;
+    }
+
+    public static boolean isMachineResource(String resource) {
+        return Constants.TOTAL_IN_RESOURCE_NAME.equals(resource)
+            || Constants.SYSTEM_LOAD_RESOURCE_NAME.equals(resource)
+            || Constants.CPU_USAGE_RESOURCE_NAME.equals(resource);
+    }
+
+    /**
+     * Save the metrics of system resources, other resources are ignored.
+     */
+    public void saveAll(Iterable<MetricEntity> metrics) {
+        if (metrics == null) {
+            return;
+        }
+        readWriteLock.writeLock().lock();
+        try {
+            long minTimeMs = TimeUtil.currentTimeMillis() - retentionMs;
+            for (MetricEntity entity : metrics) {
+                if (StringUtil.isBlank(entity.getApp()) || !isMachineResource(entity.getResource())
+                    || entity.getTimestamp().getTime() < minTimeMs) {
+                    continue;
+                }
+                Map<String, TreeMap<Long, MachineMetric>> instanceMap = allMetrics.computeIfAbsent(
+                    entity.getApp(), e -> new HashMap<>(16));
+                MachineMetric metric = instanceMap.computeIfAbsent(entity.getIp() + ":" + entity.getPort(),
+                    e -> new TreeMap<>()).computeIfAbsent(entity.getTimestamp().getTime(), MachineMetric::new);
+                metric.setInstanceCount(1);
+                if (Constants.TOTAL_IN_RESOURCE_NAME.equals(entity.getResource())) {
+                    metric.setTotalInbound(entity.getPassQps(), entity.getBlockQps(), entity.getSuccessQps(),
+                        entity.getExceptionQps(), entity.getRt());
+                } else if (Constants.SYSTEM_LOAD_RESOURCE_NAME.equals(entity.getResource())) {
+                    metric.setSystemLoad(entity.getPassQps() / MachineMetric.SYSTEM_VALUE_SCALE);
+                } else {
+                    metric.setCpuUsage(entity.getPassQps() / MachineMetric.SYSTEM_VALUE_SCALE);
+                }
+                sweepExpired(entity.getApp(), instanceMap);
+            }
+        } finally {
+            readWriteLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return {@code ip:port -> metrics ordered by timestamp} of every instance of the app
+     */
+    public Map<String, List<MachineMetric>> queryByAppBetween(String app, long startTime, long endTime) {
+        Map<String, List<MachineMetric>> results = new TreeMap<>();
+        if (StringUtil.isBlank(app)) {
+            return results;
+        }
+        readWriteLock.readLock().lock();
+        try {
+            Map<String, TreeMap<Long, MachineMetric>> instanceMap = allMetrics.get(app);
+            if (instanceMap == null) {
+                return results;
+            }
+            for (Entry<String, TreeMap<Long, MachineMetric>> entry : instanceMap.entrySet()) {
+                List<MachineMetric> metrics = new ArrayList<>(
+                    entry.getValue().subMap(startTime, true, endTime, true).values());
+                if (!metrics.isEmpty()) {
+                    results.put(entry.getKey(), metrics);
+                }
+            }
+            return results;
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sum up the metrics of all instances of an app per second.
+     *
+     * @param instanceMetrics result of {@link #queryByAppBetween(String, long, long)}
+     * @return one metric per timestamp, ordered by timestamp
+     */
+    public static List<MachineMetric> summarize(Map<String, List<MachineMetric>> instanceMetrics) {
+        TreeMap<Long, MachineMetric> summary = new TreeMap<>();
+        for (List<MachineMetric> metrics : instanceMetrics.values()) {
+            for (MachineMetric metric : metrics) {
+                summary.computeIfAbsent(metric.getTimestamp(), MachineMetric::new).merge(metric);
+            }
+        }
+        return new ArrayList<>(summary.values());
+    }
+
+    private void sweepExpired(String app, Map<String, TreeMap<Long, MachineMetric>> instanceMap) {
+        long now = TimeUtil.currentTimeMillis();
+        Long lastSweepTime = lastSweepTimes.get(app);
+        if (lastSweepTime != null && now - lastSweepTime < SWEEP_INTERVAL_MS) {
+            return;
+        }
+        lastSweepTimes.put(app, now);
+        final long minTimeMs = now - retentionMs;
+        instanceMap.values().removeIf(metrics -> {
+            metrics.headMap(minTimeMs).clear();
+            return metrics.isEmpty();
+        });
+    }
+}
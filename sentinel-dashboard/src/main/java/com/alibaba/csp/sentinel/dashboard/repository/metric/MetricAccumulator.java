@@ -0,0 +1,178 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+
+/**
+ * <p>Primitive, unsynchronized counterpart of {@link MetricEntity} for the hot paths.</p>
+ * <p>
+ * Ingest and query code accumulate into this type without boxing or taking a monitor per
+ * step, and only convert to {@link MetricEntity} at the storage/API boundary. An instance
+ * must only be written by one thread at a time.
+ * </p>
+ */
+public class MetricAccumulator {
+
+    private final String app;
+    private final String ip;
+    private final int port;
+    private final String resource;
+    private final long timestamp;
+
+    private long passQps;
+    private long successQps;
+    private long blockQps;
+    private long exceptionQps;
+    /**
+     * summary rt of all success exit qps.
+     */
+    private double rt;
+    private int count;
+
+    public MetricAccumulator(String app, String ip, int port, String resource, long timestamp) {
+        this.app = app;
+        this.ip = ip;
+        this.port = port;
+        this.resource = resource;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Add one raw sample reported by a client.
+     *
+     * @param avgRt average rt of {@code successQps}
+     */
+    public void add(long passQps, long blockQps, long successQps, long exceptionQps, double avgRt) {
+        this.passQps += passQps;
+        this.blockQps += blockQps;
+        this.successQps += successQps;
+        this.exceptionQps += exceptionQps;
+        this.rt += avgRt * successQps;
+        this.count++;
+    }
+
+    /**
+     * Add a stored metric, whose {@link MetricEntity#getRt()} is already the rt summary.
+     */
+    public void add(MetricEntity entity) {
+        this.passQps += entity.getPassQps();
+        this.blockQps += entity.getBlockQps();
+        this.successQps += entity.getSuccessQps();
+        this.exceptionQps += entity.getExceptionQps();
+        this.rt += entity.getRt();
+        this.count++;
+    }
+
+    public MetricEntity toMetricEntity(Date gmtCreate) {
+        MetricEntity entity = new MetricEntity();
+        entity.setApp(app);
+        entity.setIp(ip);
+        entity.setPort(port);
+        entity.setResource(resource);
+        entity.setTimestamp(new Date(timestamp));
+        entity.setGmtCreate(gmtCreate);
+        entity.setGmtModified(gmtCreate);
+        entity.setPassQps(passQps);
+        entity.setBlockQps(blockQps);
+        entity.setSuccessQps(successQps);
+        entity.setExceptionQps(exceptionQps);
+        entity.setRt(rt);
+        entity.setCount(count);
+        return entity;
+    }
+
+    /**
+     * Sum metrics of all instances per timestamp.
+     *
+     * @param entities metrics of one resource, will be sorted in place by timestamp
+     * @return one accumulator per distinct timestamp, ordered by timestamp
+     */
+    public static List<MetricAccumulator> sumByTimestamp(List<MetricEntity> entities, String app,
+                                                         String resource) {
+        List<MetricAccumulator> results = new ArrayList<>();
+        if (entities == null || entities.isEmpty()) {
+            return results;
+        }
+        entities.sort(Comparator.comparingLong(e -> e.getTimestamp().getTime()));
+        MetricAccumulator current = null;
+        for (MetricEntity entity : entities) {
+            long timestamp = entity.getTimestamp().getTime();
+            if (current == null || current.timestamp != timestamp) {
+                current = new MetricAccumulator(app, null, 0, resource, timestamp);
+                results.add(current);
+            }
+            current.add(entity);
+        }
+        return results;
+    }
+
+    public String getApp() {
+        return app;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getPassQps() {
+        return passQps;
+    }
+
+    public long getSuccessQps() {
+        return successQps;
+    }
+
+    public long getBlockQps() {
+        return blockQps;
+    }
+
+    public long getExceptionQps() {
+        return exceptionQps;
+    }
+
+    public double getRt() {
+        return rt;
+    }
+
+    /**
+     * @return average rt of success qps
+     */
+    public double getAvgRt() {
+        return successQps != 0 ? rt / successQps : 0D;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+/**
+ * One resource of the cross-app hotspot view.
+ */
+public class MetricHotspot {
+
+    private final String app;
+    private final String resource;
+    private double value;
+    /**
+     * Upper bound of the over-estimation of {@link #value}, 0 if exact.
+     */
+    private double error;
+
+    public MetricHotspot(String app, String resource, double value, double error) {
+        this.app = app;
+        this.resource = resource;
+        this.value = value;
+        this.error = error;
+    }
+
+    public String getApp() {
+        return app;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public void setValue(double value) {
+        this.value = value;
+    }
+
+    public double getError() {
+        return error;
+    }
+
+    public void setError(double error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricHotspot{" +
+            "app='" + app + '\'' +
+            ", resource='" + resource + '\'' +
+            ", value=" + value +
+            ", error=" + error +
+            '}';
+    }
+}
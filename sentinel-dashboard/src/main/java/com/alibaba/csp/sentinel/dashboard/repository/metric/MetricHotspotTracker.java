@@ -0,0 +1,118 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Cross-app hotspot view: the resources with the most block QPS, exception QPS, or the largest rt
+ * across all apps, maintained incrementally as metrics are ingested.</p>
+ * <p>
+ * Each metric keeps one {@link TopKSketch} for the current window and one for the previous window,
+ * so a query covers between one and two windows of
+ * {@link DashboardConfig#getHotspotWindowSeconds()} and costs the same whatever the fleet size.
+ * </p>
+ */
+@Component
+public class MetricHotspotTracker {
+
+    public enum HotspotMetric {
+        BLOCK_QPS(TopKSketch.Mode.SUM),
+        EXCEPTION_QPS(TopKSketch.Mode.SUM),
+        RT(TopKSketch.Mode.MAX);
+
+        private final TopKSketch.Mode mode;
+
+        HotspotMetric(TopKSketch.Mode mode) {
+            this.mode = mode;
+        }
+    }
+
+    private final int capacity = DashboardConfig.getHotspotCapacity();
+    private final long windowMs = DashboardConfig.getHotspotWindowSeconds() * 1000L;
+
+    /**
+     * Source of the current time for window rotation, replaced by tests.
+     */
+    private LongSupplier clock = TimeUtil::currentTimeMillis;
+
+    private TopKSketch[] current = newSketches();
+    private TopKSketch[] previous = newSketches();
+    private long windowStart = clock.getAsLong();
+
+    synchronized void setClock(LongSupplier clock) {
+        this.clock = clock;
+        this.windowStart = clock.getAsLong();
+    }
+
+    public synchronized void record(Iterable<MetricEntity> metrics) {
+        rotate(clock.getAsLong());
+        for (MetricEntity entity : metrics) {
+            String app = entity.getApp();
+            String resource = entity.getResource();
+            current[HotspotMetric.BLOCK_QPS.ordinal()].offer(app, resource, entity.getBlockQps());
+            current[HotspotMetric.EXCEPTION_QPS.ordinal()].offer(app, resource, entity.getExceptionQps());
+            if (entity.getSuccessQps() > 0) {
+                current[HotspotMetric.RT.ordinal()].offer(app, resource, entity.getRt() / entity.getSuccessQps());
+            }
+        }
+    }
+
+    /**
+     * @param k max count of resources to return, bounded by the sketch capacity
+     * @return the hotspots ordered by value desc
+     */
+    public synchronized List<MetricHotspot> top(HotspotMetric metric, int k) {
+        rotate(clock.getAsLong());
+        int i = metric.ordinal();
+        return TopKSketch.top(metric.mode, Math.min(k, capacity), Arrays.asList(previous[i], current[i]));
+    }
+
+    private void rotate(long now) {
+        if (now - windowStart < windowMs) {
+            return;
+        }
+        TopKSketch[] recycled = previous;
+        for (TopKSketch sketch : recycled) {
+            sketch.clear();
+        }
+        if (now - windowStart >= windowMs * 2) {
+            // The current window is already older than one window as well.
+            for (TopKSketch sketch : current) {
+                sketch.clear();
+            }
+        }
+        previous = current;
+        current = recycled;
+        windowStart = now - (now - windowStart) % windowMs;
+    }
+
+    private TopKSketch[] newSketches() {
+        HotspotMetric[] metrics = HotspotMetric.values();
+        TopKSketch[] sketches = new TopKSketch[metrics.length];
+        for (HotspotMetric metric : metrics) {
+            sketches[metric.ordinal()] = new TopKSketch(metric.mode, capacity);
+        }
+        return sketches;
+    }
+}
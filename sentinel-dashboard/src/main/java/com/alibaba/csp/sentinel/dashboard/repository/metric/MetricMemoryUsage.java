@@ -0,0 +1,59 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+/**
+ * Estimated memory usage of the metrics of one app in {@link InMemoryMetricsRepository}.
+ */
+public class MetricMemoryUsage {
+
+    private final String app;
+    private final long bytes;
+    private final int resources;
+    private final int series;
+    /**
+     * count of series evicted since startup
+     */
+    private final long evictedSeries;
+
+    public MetricMemoryUsage(String app, long bytes, int resources, int series, long evictedSeries) {
+        this.app = app;
+        this.bytes = bytes;
+        this.resources = resources;
+        this.series = series;
+        this.evictedSeries = evictedSeries;
+    }
+
+    public String getApp() {
+        return app;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getResources() {
+        return resources;
+    }
+
+    public int getSeries() {
+        return series;
+    }
+
+    public long getEvictedSeries() {
+        return evictedSeries;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+
+/**
+ * <p>Metrics of one (app, resource, ip, port), used by {@link InMemoryMetricsRepository}.</p>
+ * <p>
+ * Recent points stay uncompressed in a hot map, since they may still be written. Once a window of
+ * {@link #BLOCK_SPAN_MS} is older than {@link #SEAL_GRACE_MS}, its points are sealed into a
+ * {@link CompressedMetricBlock}, which is only decoded for the queried range.
+ * </p>
+ * <p>Not thread-safe.</p>
+ */
+final class MetricSeries {
+
+    static final long BLOCK_SPAN_MS = 1000 * 60;
+
+    /**
+     * Longer than the delay of {@link com.alibaba.csp.sentinel.dashboard.metric.MetricFetcher},
+     * so that points of a window are all written before it is sealed.
+     */
+    static final long SEAL_GRACE_MS = 1000 * 30;
+
+    /**
+     * Estimated heap of an uncompressed point: the {@link MetricEntity} with its dates and boxed
+     * counters, and its map entry.
+     */
+    static final int HOT_POINT_BYTES = 256;
+
+    /**
+     * Estimated heap of an empty series with its entries in the repository maps.
+     */
+    static final int SERIES_OVERHEAD_BYTES = 320;
+
+    private static final int BLOCK_OVERHEAD_BYTES = 48;
+
+    private final String app;
+    private final String resource;
+    private final String ip;
+    private final int port;
+
+    private final TreeMap<Long, MetricEntity> hot = new TreeMap<>();
+    private final ArrayDeque<CompressedMetricBlock> sealed = new ArrayDeque<>();
+
+    /**
+     * Points before this timestamp are expired, even if still in a partially expired block.
+     */
+    private long minTimestamp = Long.MIN_VALUE;
+
+    private long sealedBytes;
+
+    /**
+     * Last time the series was written or queried. Queries update it under the read lock,
+     * racing writes are fine as it is only an eviction hint.
+     */
+    private volatile long lastAccessTime;
+
+    /**
+     * Label set of the series for export, computed on first use.
+     */
+    private volatile String labels;
+
+    MetricSeries(String app, String resource, String ip, int port) {
+        this.app = app;
+        this.resource = resource;
+        this.ip = ip;
+        this.port = port;
+    }
+
+    void put(MetricEntity entity, long now) {
+        hot.put(entity.getTimestamp().getTime(), entity);
+        lastAccessTime = now;
+    }
+
+    /**
+     * Add blocks restored from a snapshot, keeping all blocks ordered by time.
+     *
+     * @param pool off-heap pool to move the blocks to, or null to keep them on heap
+     */
+    void restore(List<CompressedMetricBlock> blocks, OffHeapArenaPool pool) {
+        List<CompressedMetricBlock> all = new ArrayList<>(sealed);
+        for (CompressedMetricBlock block : blocks) {
+            block = store(block, pool);
+            all.add(block);
+            sealedBytes += block.heapBytes() + BLOCK_OVERHEAD_BYTES;
+        }
+        all.sort(Comparator.comparingLong(CompressedMetricBlock::getMinTimestamp));
+        sealed.clear();
+        sealed.addAll(all);
+    }
+
+    /**
+     * Called under the lock of the repository. Off-heap blocks are copied to heap, so that the returned
+     * blocks may be read after the lock is released, when their chunks may already be reused.
+     *
+     * @return the sealed blocks, followed by the hot points encoded as one more block
+     */
+    List<CompressedMetricBlock> toBlocks() {
+        List<CompressedMetricBlock> blocks = new ArrayList<>(sealed.size() + 1);
+        for (CompressedMetricBlock block : sealed) {
+            if (!block.isReleased()) {
+                blocks.add(block.toHeap());
+            }
+        }
+        if (!hot.isEmpty()) {
+            blocks.add(CompressedMetricBlock.encode(hot.values()));
+        }
+        return blocks;
+    }
+
+    /**
+     * Seal the hot windows which are complete.
+     *
+     * @param pool off-heap pool to move the sealed blocks to, or null to keep them on heap
+     */
+    void seal(long now, OffHeapArenaPool pool) {
+        long sealBefore = (now - SEAL_GRACE_MS) / BLOCK_SPAN_MS * BLOCK_SPAN_MS;
+        while (!hot.isEmpty() && hot.firstKey() < sealBefore) {
+            long windowStart = hot.firstKey() / BLOCK_SPAN_MS * BLOCK_SPAN_MS;
+            NavigableMap<Long, MetricEntity> window = hot.headMap(windowStart + BLOCK_SPAN_MS, false);
+            CompressedMetricBlock block = store(CompressedMetricBlock.encode(window.values()), pool);
+            sealed.addLast(block);
+            sealedBytes += block.heapBytes() + BLOCK_OVERHEAD_BYTES;
+            window.clear();
+        }
+    }
+
+    /**
+     * Drop the points before {@code minTimestamp}.
+     */
+    void expire(long minTimestamp) {
+        this.minTimestamp = minTimestamp;
+        while (!sealed.isEmpty() && sealed.peekFirst().getMaxTimestamp() < minTimestamp) {
+            sealedBytes -= sealed.pollFirst().heapBytes() + BLOCK_OVERHEAD_BYTES;
+        }
+        if (!hot.isEmpty() && hot.firstKey() < minTimestamp) {
+            hot.headMap(minTimestamp, false).clear();
+        }
+    }
+
+    private static CompressedMetricBlock store(CompressedMetricBlock block, OffHeapArenaPool pool) {
+        return pool == null ? block : pool.store(block);
+    }
+
+    boolean isEmpty() {
+        return hot.isEmpty() && sealed.isEmpty();
+    }
+
+    void collectBetween(long startTime, long endTime, List<MetricEntity> results) {
+        startTime = Math.max(startTime, minTimestamp);
+        if (startTime > endTime) {
+            return;
+        }
+        for (CompressedMetricBlock block : sealed) {
+            block.decodeBetween(startTime, endTime, app, resource, ip, port, results);
+        }
+        for (Entry<Long, MetricEntity> entry : hot.subMap(startTime, true, endTime, true).entrySet()) {
+            results.add(entry.getValue());
+        }
+    }
+
+    /**
+     * @return timestamp of the latest point, or -1 if none
+     */
+    long latestTimestamp() {
+        if (!hot.isEmpty()) {
+            return hot.lastKey();
+        }
+        for (Iterator<CompressedMetricBlock> it = sealed.descendingIterator(); it.hasNext(); ) {
+            CompressedMetricBlock block = it.next();
+            if (!block.isReleased()) {
+                return block.getMaxTimestamp();
+            }
+        }
+        return -1;
+    }
+
+    String getLabels(InMemoryMetricsRepository.SeriesLabeler labeler) {
+        String labels = this.labels;
+        if (labels == null) {
+            labels = labeler.labels(app, resource, ip, port);
+            this.labels = labels;
+        }
+        return labels;
+    }
+
+    /**
+     * @return count of points, including expired ones not dropped yet
+     */
+    int size() {
+        int size = hot.size();
+        for (CompressedMetricBlock block : sealed) {
+            size += block.size();
+        }
+        return size;
+    }
+
+    long sealedBytes() {
+        return sealedBytes;
+    }
+
+    /**
+     * @return estimated heap used by the series
+     */
+    long estimatedBytes() {
+        return SERIES_OVERHEAD_BYTES + (long)hot.size() * HOT_POINT_BYTES + sealedBytes;
+    }
+
+    String getApp() {
+        return app;
+    }
+
+    String getIp() {
+        return ip;
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    String getResource() {
+        return resource;
+    }
+
+    /**
+     * @return {@code ip:port} of the series
+     */
+    String getInstance() {
+        return ip + ":" + port;
+    }
+
+    void touch(long now) {
+        lastAccessTime = now;
+    }
+
+    long getLastAccessTime() {
+        return lastAccessTime;
+    }
+}
@@ -58,6 +58,16 @@ public interface MetricsRepository<T> {
      */
     List<String> listResourcesOfApp(String app);
 
+    /**
+     * List resource name of provided application name which contains {@code searchKey},
+     * in the same order as {@link #listResourcesOfApp(String)}.
+     *
+     * @param app       application name
+     * @param searchKey substring of the resource name, empty matches all
+     * @return list of matched resources
+     */
+    List<String> listResourcesOfApp(String app, String searchKey);
+
     /**
      * Get all metrics by application name between a period of time.
      * Used for instance view to get metrics from all instances.
@@ -68,4 +78,23 @@ public interface MetricsRepository<T> {
      * @return all metrics in query conditions
      */
     List<T> queryByAppBetween(String app, long startTime, long endTime);
+
+    /**
+     * List instances of provided application name which have metrics, each identified as {@code ip:port}.
+     *
+     * @param app application name
+     * @return list of instances in a stable order
+     */
+    List<String> listInstancesOfApp(String app);
+
+    /**
+     * Get all metrics of one instance of the application between a period of time.
+     *
+     * @param app       application name for Sentinel
+     * @param instance  instance identified as {@code ip:port}
+     * @param startTime start timestamp
+     * @param endTime   end timestamp
+     * @return all metrics of the instance in query conditions
+     */
+    List<T> queryByAppAndInstanceBetween(String app, String instance, long startTime, long endTime);
 }
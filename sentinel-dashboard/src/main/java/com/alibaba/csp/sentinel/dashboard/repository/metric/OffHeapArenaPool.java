@@ -0,0 +1,182 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * <p>Off-heap storage of sealed {@link CompressedMetricBlock}s, in direct {@link ByteBuffer} chunks
+ * grouped into one arena per time window.</p>
+ * <p>
+ * A block is bump-allocated in the arena of the window of its last timestamp, so a whole arena
+ * expires at once: {@link #releaseBefore(long)} returns its chunks to a free list, to be reused by
+ * later windows. Chunks are allocated lazily up to the configured cap and are never handed back to
+ * the JVM, so direct memory does not depend on GC. A released chunk bumps its generation, which
+ * makes the blocks still pointing to it read as expired.
+ * </p>
+ * <p>Not thread-safe, guarded by the lock of {@link InMemoryMetricsRepository}.</p>
+ */
+final class OffHeapArenaPool {
+
+    static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+    private final int chunkSize;
+    private final int maxChunks;
+    private final long windowMs;
+
+    private final ArrayDeque<Chunk> freeChunks = new ArrayDeque<>();
+    private int allocatedChunks;
+
+    /**
+     * {@code window start -> arena}
+     */
+    private final TreeMap<Long, Arena> arenas = new TreeMap<>();
+
+    private long usedBytes;
+    private long storedBlocks;
+    private long rejectedBlocks;
+
+    OffHeapArenaPool(long maxBytes, int chunkSize, long windowMs) {
+        this.chunkSize = chunkSize;
+        this.maxChunks = (int)Math.max(1, maxBytes / chunkSize);
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * Copy the block off-heap.
+     *
+     * @return the off-heap block, or the given block if the cap is reached
+     */
+    CompressedMetricBlock store(CompressedMetricBlock block) {
+        if (block.isOffHeap()) {
+            return block;
+        }
+        int length = block.sizeInBytes();
+        long windowStart = block.getMaxTimestamp() - Math.floorMod(block.getMaxTimestamp(), windowMs);
+        Arena arena = arenas.computeIfAbsent(windowStart, e -> new Arena());
+        Chunk chunk = arena.current;
+        if (chunk == null || chunkSize - arena.offset < length) {
+            chunk = length <= chunkSize ? takeChunk() : null;
+            if (chunk == null) {
+                rejectedBlocks++;
+                if (arena.chunks.isEmpty()) {
+                    arenas.remove(windowStart);
+                }
+                return block;
+            }
+            arena.chunks.add(chunk);
+            arena.current = chunk;
+            arena.offset = 0;
+        }
+        ByteBuffer slice = chunk.buffer.duplicate();
+        slice.position(arena.offset);
+        slice.limit(arena.offset + length);
+        slice = slice.slice();
+        block.copyTo(slice.duplicate());
+        arena.offset += length;
+        arena.bytes += length;
+        usedBytes += length;
+        storedBlocks++;
+        return block.withData(slice, chunk, chunk.generation);
+    }
+
+    /**
+     * Release the arenas of windows which end before {@code timestamp}.
+     */
+    void releaseBefore(long timestamp) {
+        Iterator<Entry<Long, Arena>> it = arenas.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<Long, Arena> entry = it.next();
+            if (entry.getKey() + windowMs > timestamp) {
+                return;
+            }
+            for (Chunk chunk : entry.getValue().chunks) {
+                chunk.generation++;
+                freeChunks.push(chunk);
+            }
+            usedBytes -= entry.getValue().bytes;
+            it.remove();
+        }
+    }
+
+    /**
+     * @return count of blocks kept on heap because the cap was reached, since startup
+     */
+    long getRejectedBlocks() {
+        return rejectedBlocks;
+    }
+
+    long getStoredBlocks() {
+        return storedBlocks;
+    }
+
+    /**
+     * @return bytes of blocks stored in live arenas
+     */
+    long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return direct memory allocated, including free chunks
+     */
+    long getAllocatedBytes() {
+        return (long)allocatedChunks * chunkSize;
+    }
+
+    long getMaxBytes() {
+        return (long)maxChunks * chunkSize;
+    }
+
+    int getArenaCount() {
+        return arenas.size();
+    }
+
+    private Chunk takeChunk() {
+        Chunk chunk = freeChunks.poll();
+        if (chunk == null && allocatedChunks < maxChunks) {
+            chunk = new Chunk(ByteBuffer.allocateDirect(chunkSize));
+            allocatedChunks++;
+        }
+        return chunk;
+    }
+
+    static final class Chunk {
+        private final ByteBuffer buffer;
+        private int generation;
+
+        private Chunk(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        int getGeneration() {
+            return generation;
+        }
+    }
+
+    private static final class Arena {
+        private final List<Chunk> chunks = new ArrayList<>(1);
+        private Chunk current;
+        private int offset;
+        private long bytes;
+    }
+}
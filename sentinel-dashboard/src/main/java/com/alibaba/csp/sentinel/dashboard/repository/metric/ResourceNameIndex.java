@@ -0,0 +1,141 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Trigram index over the resource names of one application.</p>
+ * <p>
+ * A substring query only verifies the names in the shortest posting list among the query's
+ * trigrams instead of scanning every resource name. Keys shorter than a trigram match almost
+ * everything anyway, so they fall back to verifying all indexed names.
+ * </p>
+ * <p>Not thread-safe, callers must guard the access (see {@link InMemoryMetricsRepository}).</p>
+ */
+public class ResourceNameIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    /**
+     * {@code resource -> lower-cased resource}
+     */
+    private final Map<String, String> names = new HashMap<>();
+
+    /**
+     * {@code lower-cased trigram -> resources containing it}
+     */
+    private final Map<String, Set<String>> postings = new HashMap<>();
+
+    /**
+     * Add a resource name to the index.
+     *
+     * @param name resource name
+     * @return true if the name was not indexed before
+     */
+    public boolean add(String name) {
+        if (name == null || names.containsKey(name)) {
+            return false;
+        }
+        String lowerName = name.toLowerCase();
+        names.put(name, lowerName);
+        for (String gram : gramsOf(lowerName)) {
+            postings.computeIfAbsent(gram, k -> new HashSet<>(4)).add(name);
+        }
+        return true;
+    }
+
+    /**
+     * Remove a resource name from the index.
+     *
+     * @param name resource name
+     * @return true if the name was indexed
+     */
+    public boolean remove(String name) {
+        String lowerName = name == null ? null : names.remove(name);
+        if (lowerName == null) {
+            return false;
+        }
+        for (String gram : gramsOf(lowerName)) {
+            Set<String> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(name);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(String name) {
+        return names.containsKey(name);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public boolean isEmpty() {
+        return names.isEmpty();
+    }
+
+    /**
+     * Find all indexed resource names containing {@code key}.
+     *
+     * @param key        substring to search, empty matches all
+     * @param ignoreCase whether to match case-insensitively
+     * @return a new set of matched resource names
+     */
+    public Set<String> search(String key, boolean ignoreCase) {
+        if (key == null || key.isEmpty()) {
+            return new HashSet<>(names.keySet());
+        }
+        String lowerKey = key.toLowerCase();
+        Collection<String> candidates = names.keySet();
+        if (lowerKey.length() >= GRAM_LENGTH) {
+            for (String gram : gramsOf(lowerKey)) {
+                Set<String> posting = postings.get(gram);
+                if (posting == null) {
+                    return new HashSet<>();
+                }
+                if (posting.size() < candidates.size()) {
+                    candidates = posting;
+                }
+            }
+        }
+        Set<String> results = new HashSet<>();
+        for (String name : candidates) {
+            boolean matched = ignoreCase ? names.get(name).contains(lowerKey) : name.contains(key);
+            if (matched) {
+                results.add(name);
+            }
+        }
+        return results;
+    }
+
+    private static Set<String> gramsOf(String lowerName) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= lowerName.length(); i++) {
+            grams.add(lowerName.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+}
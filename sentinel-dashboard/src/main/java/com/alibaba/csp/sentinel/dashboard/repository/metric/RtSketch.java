@@ -0,0 +1,135 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.Arrays;
+
+/**
+ * <p>Mergeable rt quantile sketch with log-scaled buckets.</p>
+ * <p>
+ * A value {@code v} falls in bucket {@code ceil(log(v) / log(GAMMA))}, so every quantile is
+ * reported within {@link #RELATIVE_ACCURACY} of the true value. Only non-empty buckets are kept,
+ * in sorted parallel arrays, and at most {@link #MAX_BUCKETS} of them: beyond that the lowest
+ * buckets are collapsed, which only degrades the accuracy of the lowest quantiles.
+ * Merging two sketches gives the sketch of the union of their values, so sketches of instances
+ * and of seconds can be rolled up into any coarser bucket.
+ * </p>
+ * <p>Not thread-safe.</p>
+ */
+public class RtSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.02;
+
+    static final int MAX_BUCKETS = 128;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    /**
+     * Values below 1 ms (including 0) are counted together.
+     */
+    private long zeroCount;
+    private int[] indexes = new int[4];
+    private long[] counts = new long[4];
+    private int size;
+    private long totalCount;
+
+    /**
+     * @param rt     rt in millisecond
+     * @param weight how many requests had this rt
+     */
+    public void add(double rt, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        totalCount += weight;
+        if (rt < 1) {
+            zeroCount += weight;
+            return;
+        }
+        addToBucket((int)Math.ceil(Math.log(rt) / LOG_GAMMA), weight);
+    }
+
+    public void merge(RtSketch other) {
+        if (other == null || other.totalCount == 0) {
+            return;
+        }
+        totalCount += other.totalCount;
+        zeroCount += other.zeroCount;
+        for (int i = 0; i < other.size; i++) {
+            addToBucket(other.indexes[i], other.counts[i]);
+        }
+    }
+
+    /**
+     * @param quantile in {@code [0, 1]}
+     * @return estimated rt in millisecond, or 0 if empty
+     */
+    public double quantile(double quantile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = (long)Math.ceil(quantile * totalCount);
+        long seen = zeroCount;
+        if (rank <= seen) {
+            return 0;
+        }
+        for (int i = 0; i < size; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return 2 * Math.pow(GAMMA, indexes[i]) / (GAMMA + 1);
+            }
+        }
+        return 2 * Math.pow(GAMMA, indexes[size - 1]) / (GAMMA + 1);
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return count of non-empty buckets
+     */
+    int bucketCount() {
+        return size;
+    }
+
+    private void addToBucket(int index, long count) {
+        int pos = Arrays.binarySearch(indexes, 0, size, index);
+        if (pos >= 0) {
+            counts[pos] += count;
+            return;
+        }
+        pos = -pos - 1;
+        if (size == indexes.length) {
+            int capacity = Math.min(size * 2, MAX_BUCKETS + 1);
+            indexes = Arrays.copyOf(indexes, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        System.arraycopy(indexes, pos, indexes, pos + 1, size - pos);
+        System.arraycopy(counts, pos, counts, pos + 1, size - pos);
+        indexes[pos] = index;
+        counts[pos] = count;
+        size++;
+        if (size > MAX_BUCKETS) {
+            // Collapse the two lowest buckets.
+            counts[1] += counts[0];
+            System.arraycopy(indexes, 1, indexes, 0, size - 1);
+            System.arraycopy(counts, 1, counts, 0, size - 1);
+            size--;
+        }
+    }
+}
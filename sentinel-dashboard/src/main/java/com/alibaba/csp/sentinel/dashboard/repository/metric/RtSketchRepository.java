@@ -0,0 +1,145 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.util.StringUtil;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Keeps one {@link RtSketch} per (app, resource, second) in memory, for the same period as
+ * {@link InMemoryMetricsRepository}.</p>
+ * <p>
+ * Clients only report the average rt of each second, so the sketch of a second is built from the
+ * average rt of every instance, weighted by its success QPS. It shows how rt is spread across
+ * instances and seconds, which averaging averages hides.
+ * </p>
+ */
+@Component
+public class RtSketchRepository {
+
+    private static final long MINUTE_MS = 1000 * 60;
+
+    private static final long SWEEP_INTERVAL_MS = 1000 * 30;
+
+    /**
+     * Metrics older than this are dropped, see {@link DashboardConfig#CONFIG_METRIC_RETENTION_MINUTES}.
+     */
+    private final long retentionMs;
+
+    /**
+     * {@code app -> resource -> timestamp -> sketch}
+     */
+    private final Map<String, Map<String, LinkedHashMap<Long, RtSketch>>> allSketches = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> lastSweepTimes = new HashMap<>();
+
+    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+
+    public RtSketchRepository() {
+        this(DashboardConfig.getMetricRetentionMinutes() * MINUTE_MS);
+    }
+
+    RtSketchRepository(long retentionMs) {
+        this.retentionMs = retentionMs;
+    }
+
+    public void saveAll(Iterable<MetricEntity> metrics) {
+        if (metrics == null) {
+            return;
+        }
+        readWriteLock.writeLock().lock();
+        try {
+            for (MetricEntity entity : metrics) {
+                if (StringUtil.isBlank(entity.getApp()) || entity.getSuccessQps() == null
+                    || entity.getSuccessQps() <= 0) {
+                    continue;
+                }
+                Map<String, LinkedHashMap<Long, RtSketch>> resourceMap = allSketches.computeIfAbsent(
+                    entity.getApp(), e -> new HashMap<>(16));
+                resourceMap.computeIfAbsent(entity.getResource(), e -> new LinkedHashMap<Long, RtSketch>() {
+                    @Override
+                    protected boolean removeEldestEntry(Entry<Long, RtSketch> eldest) {
+                        return eldest.getKey() < TimeUtil.currentTimeMillis() - retentionMs;
+                    }
+                }).computeIfAbsent(entity.getTimestamp().getTime(), e -> new RtSketch())
+                    .add(entity.getRt() / entity.getSuccessQps(), entity.getSuccessQps());
+                sweepExpired(entity.getApp(), resourceMap);
+            }
+        } finally {
+            readWriteLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merge the sketches of a resource between a period of time into buckets of {@code stepMs}.
+     *
+     * @return {@code bucket start timestamp -> merged sketch}, owned by the caller
+     */
+    public SortedMap<Long, RtSketch> queryByAppAndResourceBetween(String app, String resource, long startTime,
+                                                                  long endTime, long stepMs) {
+        SortedMap<Long, RtSketch> results = new TreeMap<>();
+        if (StringUtil.isBlank(app)) {
+            return results;
+        }
+        readWriteLock.readLock().lock();
+        try {
+            Map<String, LinkedHashMap<Long, RtSketch>> resourceMap = allSketches.get(app);
+            if (resourceMap == null) {
+                return results;
+            }
+            LinkedHashMap<Long, RtSketch> sketches = resourceMap.get(resource);
+            if (sketches == null) {
+                return results;
+            }
+            for (Entry<Long, RtSketch> entry : sketches.entrySet()) {
+                long timestamp = entry.getKey();
+                if (timestamp >= startTime && timestamp <= endTime) {
+                    results.computeIfAbsent(timestamp - timestamp % stepMs, e -> new RtSketch())
+                        .merge(entry.getValue());
+                }
+            }
+            return results;
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
+    private void sweepExpired(String app, Map<String, LinkedHashMap<Long, RtSketch>> resourceMap) {
+        long now = TimeUtil.currentTimeMillis();
+        Long lastSweepTime = lastSweepTimes.get(app);
+        if (lastSweepTime != null && now - lastSweepTime < SWEEP_INTERVAL_MS) {
+            return;
+        }
+        lastSweepTimes.put(app, now);
+        final long minTimeMs = now - retentionMs;
+        resourceMap.values().removeIf(sketches -> {
+            sketches.keySet().removeIf(timestamp -> timestamp < minTimeMs);
+            return sketches.isEmpty();
+        });
+    }
+}
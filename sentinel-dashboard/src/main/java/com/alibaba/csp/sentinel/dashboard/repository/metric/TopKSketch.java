@@ -0,0 +1,145 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * <p>Bounded top-K of {@code (app, resource)} keys, following the space-saving algorithm.</p>
+ * <p>
+ * At most {@code capacity} keys are monitored. When a new key arrives and the sketch is full,
+ * it replaces the key with the smallest value: in {@link Mode#SUM} mode it inherits that value
+ * as its over-estimation error, in {@link Mode#MAX} mode it is only admitted if larger.
+ * Every update is {@code O(log capacity)}, whatever the number of distinct keys.
+ * </p>
+ * <p>Not thread-safe.</p>
+ */
+public class TopKSketch {
+
+    public enum Mode {
+        /**
+         * Sum of the offered values per key, e.g. block QPS.
+         */
+        SUM,
+        /**
+         * Largest offered value per key, e.g. rt.
+         */
+        MAX
+    }
+
+    private static final Comparator<Counter> VALUE_ORDER = Comparator.<Counter>comparingDouble(c -> c.value)
+        .thenComparing(c -> c.app)
+        .thenComparing(c -> c.resource);
+
+    private final Mode mode;
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    private final TreeSet<Counter> ordered = new TreeSet<>(VALUE_ORDER);
+
+    public TopKSketch(Mode mode, int capacity) {
+        this.mode = mode;
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void offer(String app, String resource, double value) {
+        if (value <= 0) {
+            return;
+        }
+        String key = app + '\u0000' + resource;
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            double updated = mode == Mode.SUM ? counter.value + value : Math.max(counter.value, value);
+            if (updated != counter.value) {
+                ordered.remove(counter);
+                counter.value = updated;
+                ordered.add(counter);
+            }
+            return;
+        }
+        double error = 0;
+        if (counters.size() >= capacity) {
+            Counter min = ordered.first();
+            if (mode == Mode.MAX && value <= min.value) {
+                return;
+            }
+            ordered.pollFirst();
+            counters.remove(min.key);
+            if (mode == Mode.SUM) {
+                error = min.value;
+                value += min.value;
+            }
+        }
+        counter = new Counter(key, app, resource, value, error);
+        counters.put(key, counter);
+        ordered.add(counter);
+    }
+
+    public boolean isEmpty() {
+        return counters.isEmpty();
+    }
+
+    public void clear() {
+        counters.clear();
+        ordered.clear();
+    }
+
+    /**
+     * Merge sketches of consecutive windows (sum or max by mode) and keep the {@code k} largest keys.
+     * Costs {@code O(capacity)} per sketch, independent of the number of apps and resources.
+     */
+    public static List<MetricHotspot> top(Mode mode, int k, Collection<TopKSketch> sketches) {
+        Map<String, MetricHotspot> merged = new HashMap<>();
+        for (TopKSketch sketch : sketches) {
+            for (Counter c : sketch.counters.values()) {
+                MetricHotspot hotspot = merged.get(c.key);
+                if (hotspot == null) {
+                    merged.put(c.key, new MetricHotspot(c.app, c.resource, c.value, c.error));
+                } else if (mode == Mode.SUM) {
+                    hotspot.setValue(hotspot.getValue() + c.value);
+                    hotspot.setError(hotspot.getError() + c.error);
+                } else if (c.value > hotspot.getValue()) {
+                    hotspot.setValue(c.value);
+                }
+            }
+        }
+        List<MetricHotspot> results = new ArrayList<>(merged.values());
+        results.sort(Comparator.comparingDouble(MetricHotspot::getValue).reversed());
+        return results.size() > k ? new ArrayList<>(results.subList(0, k)) : results;
+    }
+
+    private static final class Counter {
+        private final String key;
+        private final String app;
+        private final String resource;
+        private final double error;
+        private double value;
+
+        private Counter(String key, String app, String resource, double value, double error) {
+            this.key = key;
+            this.app = app;
+            this.resource = resource;
+            this.value = value;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
+import com.alibaba.csp.sentinel.dashboard.discovery.AppInfo;
+import com.alibaba.csp.sentinel.dashboard.discovery.InstanceInfo;
+import com.alibaba.csp.sentinel.dashboard.discovery.SimpleInstanceDiscovery;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.InMemoryMetricsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Warm restart of the dashboard: periodically writes the cached metrics and the discovered
+ * instances to a local binary snapshot, and restores it on startup, before
+ * {@link com.alibaba.csp.sentinel.dashboard.metric.MetricFetcher} is scheduled.</p>
+ * <p>
+ * Disabled unless {@link DashboardConfig#CONFIG_SNAPSHOT_INTERVAL_SECONDS} is set. Snapshots are
+ * written by a background thread to a temporary file which then replaces the previous one, and
+ * once more on shutdown. Restored instances are unverified, so not healthy, until their next
+ * heartbeat.
+ * </p>
+ */
+@Component
+public class DashboardSnapshotManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardSnapshotManager.class);
+
+    private static final int MAGIC = 0x53444253;
+    private static final int VERSION = 1;
+    private static final String SNAPSHOT_FILE_NAME = "dashboard.snapshot";
+
+    @Autowired
+    private InMemoryMetricsRepository metricsRepository;
+    @Autowired
+    private SimpleInstanceDiscovery instanceDiscovery;
+
+    private ScheduledExecutorService snapshotService;
+
+    public DashboardSnapshotManager() {}
+
+    DashboardSnapshotManager(InMemoryMetricsRepository metricsRepository, SimpleInstanceDiscovery instanceDiscovery) {
+        this.metricsRepository = metricsRepository;
+        this.instanceDiscovery = instanceDiscovery;
+    }
+
+    @PostConstruct
+    public void init() {
+        int intervalSeconds = DashboardConfig.getSnapshotIntervalSeconds();
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        File file = snapshotFile();
+        if (file.exists()) {
+            long start = System.currentTimeMillis();
+            try {
+                restore(file);
+                logger.info("Restored dashboard snapshot {} in {} ms", file, System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.warn("Failed to restore dashboard snapshot " + file + ", starting empty", e);
+            }
+        }
+        snapshotService = Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("sentinel-dashboard-snapshot", true));
+        snapshotService.scheduleWithFixedDelay(this::writeSnapshotQuietly, intervalSeconds, intervalSeconds,
+            TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (snapshotService == null) {
+            return;
+        }
+        snapshotService.shutdown();
+        try {
+            snapshotService.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeSnapshotQuietly();
+    }
+
+    private void writeSnapshotQuietly() {
+        try {
+            writeSnapshot(snapshotFile());
+        } catch (Throwable e) {
+            logger.warn("Failed to write dashboard snapshot", e);
+        }
+    }
+
+    void writeSnapshot(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create snapshot directory " + dir);
+        }
+        byte[] discovery = snapshotDiscovery();
+        List<byte[]> apps = metricsRepository.snapshotApps();
+
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            writeSection(out, discovery);
+            out.writeInt(apps.size());
+            for (byte[] app : apps) {
+                writeSection(out, app);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read all sections, then restore the discovery section and each app section in parallel.
+     */
+    void restore(File file) throws IOException, InterruptedException {
+        byte[] discovery;
+        List<byte[]> apps = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("Ignored dashboard snapshot {} of unknown format", file);
+                return;
+            }
+            in.readLong();
+            discovery = readSection(in);
+            int appCount = in.readInt();
+            for (int i = 0; i < appCount; i++) {
+                apps.add(readSection(in));
+            }
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<>(apps.size() + 1);
+        tasks.add(() -> {
+            restoreDiscovery(discovery);
+            return null;
+        });
+        for (byte[] app : apps) {
+            tasks.add(() -> {
+                metricsRepository.restoreApp(app);
+                return null;
+            });
+        }
+        int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+        @SuppressWarnings("PMD.ThreadPoolCreationRule")
+        ExecutorService restoreService = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(tasks.size()), new NamedThreadFactory("sentinel-dashboard-snapshot-restore"));
+        try {
+            for (Future<Object> future : restoreService.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    logger.warn("Failed to restore part of dashboard snapshot", e.getCause());
+                }
+            }
+        } finally {
+            restoreService.shutdownNow();
+        }
+    }
+
+    private byte[] snapshotDiscovery() throws IOException {
+        List<InstanceInfo> instances = new ArrayList<>();
+        for (AppInfo appInfo : instanceDiscovery.getBriefApps()) {
+            instances.addAll(appInfo.getInstances());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(instances.size());
+        for (InstanceInfo instance : instances) {
+            out.writeUTF(instance.getApp());
+            out.writeInt(instance.getAppType() == null ? 0 : instance.getAppType());
+            writeNullableUTF(out, instance.getHostname());
+            writeNullableUTF(out, instance.getIp());
+            writeNullableUTF(out, instance.getDomain());
+            writeNullableUTF(out, instance.getName());
+            out.writeInt(instance.getPort());
+            out.writeLong(instance.getLastHeartbeat());
+            out.writeLong(instance.getHeartbeatVersion());
+            writeNullableUTF(out, instance.getVersion());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void restoreDiscovery(byte[] section) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(section));
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            InstanceInfo instance = new InstanceInfo();
+            instance.setApp(in.readUTF());
+            instance.setAppType(in.readInt());
+            instance.setHostname(readNullableUTF(in));
+            instance.setIp(readNullableUTF(in));
+            instance.setDomain(readNullableUTF(in));
+            instance.setName(readNullableUTF(in));
+            instance.setPort(in.readInt());
+            instance.setLastHeartbeat(in.readLong());
+            instance.setHeartbeatVersion(in.readLong());
+            instance.setVersion(readNullableUTF(in));
+            instance.setVerified(false);
+            AppInfo appInfo = instanceDiscovery.getDetailApp(instance.getApp());
+            // A heartbeat received meanwhile is more recent.
+            if (appInfo == null || !appInfo.getInstance(instance.getIp(), instance.getPort()).isPresent()) {
+                instanceDiscovery.addInstance(instance);
+            }
+        }
+    }
+
+    private static File snapshotFile() {
+        return new File(DashboardConfig.getSnapshotDir(), SNAPSHOT_FILE_NAME);
+    }
+
+    private static void writeSection(DataOutputStream out, byte[] section) throws IOException {
+        out.writeInt(section.length);
+        out.write(section);
+    }
+
+    private static byte[] readSection(DataInputStream in) throws IOException {
+        byte[] section = new byte[in.readInt()];
+        in.readFully(section);
+        return section;
+    }
+
+    private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.controller;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import com.alibaba.csp.sentinel.dashboard.config.AuthProperties;
+import com.alibaba.csp.sentinel.dashboard.discovery.AppManagement;
+import com.alibaba.csp.sentinel.dashboard.discovery.InstanceInfo;
+import com.alibaba.csp.sentinel.dashboard.discovery.SimpleInstanceDiscovery;
+import com.alibaba.csp.sentinel.dashboard.domain.Result;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of heartbeats of registered instances ({@link InstanceRegistryController#receiveHeartBeat}),
+ * comparing the in-place refresh with the legacy validate, new {@link InstanceInfo}, remove and add path.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.alibaba.csp.sentinel.dashboard.controller.HeartbeatBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class HeartbeatBenchmark {
+
+    private static final String APP = "benchmark-app";
+    private static final String SECRET = "secret";
+    private static final Pattern HOSTNAME_PATTERN = Pattern.compile(
+        "^[a-zA-Z0-9]([a-zA-Z0-9\\-]{0,61}[a-zA-Z0-9])?(\\.[a-zA-Z0-9]([a-zA-Z0-9\\-]{0,61}[a-zA-Z0-9])?)*$"
+    );
+
+    @Param({"10000"})
+    private int instances;
+
+    private String[] ips;
+    private String[] hostnames;
+    private InstanceRegistryController controller;
+    private AppManagement appManagement;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        SimpleInstanceDiscovery discovery = new SimpleInstanceDiscovery();
+        appManagement = new AppManagement();
+        setField(appManagement, "instanceDiscovery", discovery);
+        AuthProperties authProperties = new AuthProperties();
+        // Same app_secret check on both paths, left out.
+        authProperties.setEnabled(false);
+        controller = new InstanceRegistryController();
+        setField(controller, "appManagement", appManagement);
+        setField(controller, "authProperties", authProperties);
+
+        ips = new String[instances];
+        hostnames = new String[instances];
+        for (int i = 0; i < instances; i++) {
+            ips[i] = "10." + (i >> 16 & 0xFF) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF);
+            hostnames[i] = "pod-" + i;
+            controller.receiveHeartBeat(APP, 0, 1L, "1.8.9", hostnames[i], ips[i], 8719, SECRET);
+        }
+    }
+
+    @Benchmark
+    public Result<?> heartbeat(Cursor cursor) {
+        int i = cursor.next++ % instances;
+        return controller.receiveHeartBeat(APP, 0, System.currentTimeMillis(), "1.8.9", hostnames[i], ips[i], 8719,
+            SECRET);
+    }
+
+    @Benchmark
+    public Result<?> heartbeatLegacy(Cursor cursor) {
+        int i = cursor.next++ % instances;
+        String ip = ips[i];
+        if (!HOSTNAME_PATTERN.matcher(ip).matches()) {
+            return Result.ofFail(-1, "invalid ip or hostname: " + ip);
+        }
+        InstanceInfo instanceInfo = new InstanceInfo();
+        instanceInfo.setApp(APP);
+        instanceInfo.setAppType(0);
+        instanceInfo.setHostname(hostnames[i]);
+        instanceInfo.setIp(ip);
+        instanceInfo.setPort(8719);
+        instanceInfo.setHeartbeatVersion(System.currentTimeMillis());
+        instanceInfo.setLastHeartbeat(System.currentTimeMillis());
+        instanceInfo.setVersion("1.8.9");
+        appManagement.addInstance(instanceInfo);
+        return Result.ofSuccessMsg("success");
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(HeartbeatBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.controller;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.csp.sentinel.dashboard.config.AuthProperties;
+import com.alibaba.csp.sentinel.dashboard.discovery.AppManagement;
+import com.alibaba.csp.sentinel.dashboard.discovery.HeartbeatIntervalAdvisor;
+import com.alibaba.csp.sentinel.dashboard.discovery.InstanceInfo;
+import com.alibaba.csp.sentinel.dashboard.discovery.SimpleInstanceDiscovery;
+import com.alibaba.csp.sentinel.dashboard.domain.Result;
+import com.alibaba.csp.sentinel.dashboard.domain.vo.HeartbeatVo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InstanceRegistryControllerTest {
+
+    private InstanceRegistryController controller;
+    private AppManagement appManagement;
+    private AuthProperties authProperties;
+
+    @Before
+    public void setUp() throws Exception {
+        appManagement = new AppManagement();
+        SimpleInstanceDiscovery discovery = new SimpleInstanceDiscovery();
+        setField(appManagement, "instanceDiscovery", discovery);
+        authProperties = new AuthProperties();
+        authProperties.setEnabled(true);
+        authProperties.setAppSecret("secret");
+        controller = new InstanceRegistryController();
+        setField(controller, "appManagement", appManagement);
+        setField(controller, "authProperties", authProperties);
+        setField(controller, "intervalAdvisor", new HeartbeatIntervalAdvisor(discovery));
+    }
+
+    @Test
+    public void testBatchHeartbeat() {
+        List<HeartbeatVo> heartbeats = Arrays.asList(
+            heartbeat("app-a", "10.0.0.1", 8719),
+            heartbeat("app-a", "10.0.0.2", 8719),
+            heartbeat("app-b", "10.0.0.1", 8720),
+            heartbeat("app-b", "not a host!", 8720),
+            heartbeat("app-b", "10.0.0.3", null));
+
+        Result<?> result = controller.receiveHeartBeats(heartbeats, "secret");
+        assertTrue(result.isSuccess());
+        Map<?, ?> data = (Map<?, ?>)result.getData();
+        assertEquals(3, data.get("registered"));
+        Map<?, ?> failures = (Map<?, ?>)data.get("failures");
+        assertEquals(2, failures.size());
+        assertTrue(failures.containsKey(3));
+        assertTrue(failures.containsKey(4));
+
+        assertEquals(2, appManagement.getDetailApp("app-a").getInstances().size());
+        InstanceInfo instance = appManagement.getDetailApp("app-b").getInstance("10.0.0.1", 8720).get();
+        assertEquals("1.8.9", instance.getVersion());
+
+        // Heartbeats of registered instances only refresh them.
+        heartbeats.get(2).setV("1.8.10");
+        heartbeats.get(2).setVersion(2L);
+        controller.receiveHeartBeats(heartbeats.subList(0, 3), "secret");
+        assertSame(instance, appManagement.getDetailApp("app-b").getInstance("10.0.0.1", 8720).get());
+        assertEquals("1.8.10", instance.getVersion());
+        assertEquals(2L, instance.getHeartbeatVersion());
+    }
+
+    @Test
+    public void testHeartbeatSuggestsNextInterval() throws Exception {
+        Result<?> result = controller.receiveHeartBeat("app-a", 0, 1L, "1.8.9", "host-a", "10.0.0.1", 8719,
+            "secret");
+        assertTrue(result.isSuccess());
+        assertEquals(HeartbeatIntervalAdvisor.DEFAULT_INTERVAL_MS,
+            ((Map<?, ?>)result.getData()).get(InstanceRegistryController.NEXT_INTERVAL_KEY));
+
+        HeartbeatIntervalAdvisor advisor = new HeartbeatIntervalAdvisor(new SimpleInstanceDiscovery());
+        advisor.focus("app-b", 2000, 60_000);
+        setField(controller, "intervalAdvisor", advisor);
+        result = controller.receiveHeartBeats(Arrays.asList(heartbeat("app-a", "10.0.0.1", 8719),
+            heartbeat("app-b", "10.0.0.2", 8719)), "secret");
+        assertEquals(2000L, ((Map<?, ?>)result.getData()).get(InstanceRegistryController.NEXT_INTERVAL_KEY));
+
+        // Failed heartbeats don't get an interval.
+        assertNull(controller.receiveHeartBeat("app-a", 0, 1L, "1.8.9", "host-a", "10.0.0.1", null, "secret")
+            .getData());
+    }
+
+    @Test
+    public void testBatchHeartbeatChecksAppSecret() {
+        List<HeartbeatVo> heartbeats = new ArrayList<>();
+        heartbeats.add(heartbeat("app-a", "10.0.0.1", 8719));
+
+        assertFalse(controller.receiveHeartBeats(heartbeats, null).isSuccess());
+        assertFalse(controller.receiveHeartBeats(heartbeats, "wrong").isSuccess());
+        assertNull(appManagement.getDetailApp("app-a"));
+
+        authProperties.setEnabled(false);
+        assertTrue(controller.receiveHeartBeats(heartbeats, null).isSuccess());
+        assertNotNull(appManagement.getDetailApp("app-a"));
+        assertFalse(controller.receiveHeartBeats(new ArrayList<>(), null).isSuccess());
+    }
+
+    private static HeartbeatVo heartbeat(String app, String ip, Integer port) {
+        HeartbeatVo heartbeat = new HeartbeatVo();
+        heartbeat.setApp(app);
+        heartbeat.setIp(ip);
+        heartbeat.setPort(port);
+        heartbeat.setHostname("host-" + ip);
+        heartbeat.setVersion(1L);
+        heartbeat.setV("1.8.9");
+        return heartbeat;
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.controller;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the parallel series queries of {@link MetricController}.
+ */
+public class MetricControllerTest {
+
+    private ExecutorService executor;
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        System.clearProperty(DashboardConfig.CONFIG_METRIC_QUERY_TIMEOUT_MILLIS);
+        DashboardConfig.clearCache();
+    }
+
+    @Test
+    public void testQueryAllKeepsOrder() {
+        MetricController controller = newController(4, 16);
+        List<List<String>> results = controller.queryAll(Arrays.asList("a", "b", "c", "failed", "d"), key -> {
+            if ("failed".equals(key)) {
+                throw new IllegalStateException("broken series");
+            }
+            // Later keys complete first.
+            sleep(('e' - key.charAt(0)) * 20L);
+            return Collections.singletonList(key);
+        });
+        assertEquals(Arrays.asList(Collections.singletonList("a"), Collections.singletonList("b"),
+            Collections.singletonList("c"), Collections.emptyList(), Collections.singletonList("d")), results);
+    }
+
+    @Test
+    public void testRunsInCallerWhenSaturated() {
+        // One worker and a queue of one: the third query runs in the request thread.
+        MetricController controller = newController(1, 1);
+        CountDownLatch callerRan = new CountDownLatch(1);
+        Thread caller = Thread.currentThread();
+        List<List<Thread>> results = controller.queryAll(Arrays.asList("a", "b", "c"), key -> {
+            if ("a".equals(key)) {
+                await(callerRan);
+            } else if (Thread.currentThread() == caller) {
+                callerRan.countDown();
+            }
+            return Collections.singletonList(Thread.currentThread());
+        });
+        assertNotNull(results);
+        assertNotSame(caller, results.get(0).get(0));
+        assertSame(caller, results.get(2).get(0));
+    }
+
+    @Test
+    public void testTimeoutCancelsRemainingQueries() {
+        System.setProperty(DashboardConfig.CONFIG_METRIC_QUERY_TIMEOUT_MILLIS, "100");
+        DashboardConfig.clearCache();
+        MetricController controller = newController(2, 16);
+        CountDownLatch never = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(2);
+
+        long start = System.nanoTime();
+        List<List<String>> results = controller.queryAll(Arrays.asList("a", "b", "c"), key -> {
+            if (!"a".equals(key)) {
+                try {
+                    never.await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+            return Collections.singletonList(key);
+        });
+        assertNull(results);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        // Both slow queries are cancelled rather than left running.
+        assertTrue(awaitQuietly(interrupted));
+    }
+
+    private MetricController newController(int threads, int queueCapacity) {
+        executor = MetricController.newQueryExecutor(threads, queueCapacity);
+        return new MetricController(executor);
+    }
+
+    private static void await(CountDownLatch latch) {
+        assertTrue(awaitQuietly(latch));
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
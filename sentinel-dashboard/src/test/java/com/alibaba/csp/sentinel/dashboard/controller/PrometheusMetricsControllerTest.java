@@ -0,0 +1,85 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.controller;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.InMemoryMetricsRepository;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.LatestMetric;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link PrometheusMetricsController}.
+ */
+public class PrometheusMetricsControllerTest {
+
+    @Test
+    public void testWriteLatestMetrics() throws Exception {
+        InMemoryMetricsRepository repository = new InMemoryMetricsRepository();
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        for (int i = 0; i < 10; i++) {
+            repository.save(newEntity("GET:/orders", 8719, now - i * 1000L, 10 + i));
+        }
+        repository.save(newEntity("GET:/users", 8720, now - 5000, 4));
+        // Stale series are skipped.
+        repository.save(newEntity("GET:/stale", 8719, now - 120_000, 1));
+
+        int[] calls = new int[1];
+        InMemoryMetricsRepository.SeriesLabeler labeler = (app, resource, ip, port) -> {
+            calls[0]++;
+            return "{resource=\"" + resource + "\",port=\"" + port + "\"}";
+        };
+        List<LatestMetric> latest = repository.queryLatestOfApp("app", 2000, now - 60_000, labeler);
+        assertEquals(2, latest.size());
+        repository.queryLatestOfApp("app", 2000, now - 60_000, labeler);
+        // Label sets are cached with the series, and not built for stale ones.
+        assertEquals(2, calls[0]);
+
+        StringWriter out = new StringWriter();
+        PrometheusMetricsController.writeMetrics(latest, out);
+        List<String> lines = Arrays.asList(out.toString().split("\n"));
+        // Average of the last 2 seconds: (10 + 11) / 2.
+        assertTrue(lines.contains("sentinel_pass_qps{resource=\"GET:/orders\",port=\"8719\"} 10.5 " + now));
+        assertTrue(lines.contains("sentinel_pass_qps{resource=\"GET:/users\",port=\"8720\"} 4 " + (now - 5000)));
+        assertTrue(lines.contains("sentinel_rt{resource=\"GET:/users\",port=\"8720\"} 20 " + (now - 5000)));
+        assertTrue(lines.contains("# TYPE sentinel_block_qps gauge"));
+        // Grouped by metric name.
+        assertTrue(lines.indexOf("# TYPE sentinel_block_qps gauge")
+            > lines.indexOf("sentinel_pass_qps{resource=\"GET:/users\",port=\"8720\"} 4 " + (now - 5000)));
+    }
+
+    private static MetricEntity newEntity(String resource, int port, long timestamp, long passQps) {
+        MetricEntity entity = new MetricEntity();
+        entity.setApp("app");
+        entity.setResource(resource);
+        entity.setIp("10.0.0.1");
+        entity.setPort(port);
+        entity.setTimestamp(new Date(timestamp));
+        entity.setGmtCreate(new Date(timestamp));
+        entity.setPassQps(passQps);
+        entity.setBlockQps(0L);
+        entity.setExceptionQps(0L);
+        entity.setRtAndSuccessQps(20, passQps);
+        entity.setCount(1);
+        return entity;
+    }
+}
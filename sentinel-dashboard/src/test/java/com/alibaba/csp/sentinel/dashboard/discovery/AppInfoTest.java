@@ -117,6 +117,67 @@ public class AppInfoTest {
         assertEquals(0, appInfo.getInstances().size());
     }
 
+    @Test
+    public void testInstanceIndexesAndSnapshot() {
+        AppInfo appInfo = new AppInfo("default");
+        InstanceInfo first = InstanceInfo.of("default", "127.0.0.1", 8719);
+        appInfo.addInstance(first);
+        appInfo.addInstance(InstanceInfo.of("default", "127.0.0.1", 8720));
+        appInfo.addInstance(InstanceInfo.of("default", "127.0.0.2", 8719));
+
+        assertSame(first, appInfo.getInstance("127.0.0.1", 8719).get());
+        assertFalse(appInfo.getInstance("127.0.0.1", 8721).isPresent());
+        assertTrue(appInfo.getInstance("127.0.0.2").isPresent());
+        assertFalse(appInfo.getInstance("127.0.0.3").isPresent());
+
+        Set<InstanceInfo> snapshot = appInfo.getInstances();
+        assertEquals(3, snapshot.size());
+        // Unchanged, the same snapshot is shared by readers.
+        assertSame(snapshot, appInfo.getInstances());
+        try {
+            snapshot.clear();
+            fail("snapshot should be immutable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // Replacing an instance updates the indexes, the old snapshot is left unchanged.
+        InstanceInfo replaced = InstanceInfo.of("default", "127.0.0.1", 8719);
+        appInfo.addInstance(replaced);
+        assertSame(replaced, appInfo.getInstance("127.0.0.1", 8719).get());
+        assertTrue(snapshot.contains(first));
+        assertEquals(3, appInfo.getInstances().size());
+
+        appInfo.removeInstance("127.0.0.2", 8719);
+        assertFalse(appInfo.getInstance("127.0.0.2").isPresent());
+        assertEquals(2, appInfo.getInstances().size());
+        assertEquals(3, snapshot.size());
+    }
+
+    @Test
+    public void testRefreshInstanceInPlace() {
+        AppInfo appInfo = new AppInfo("default");
+        InstanceInfo instance = InstanceInfo.of("default", "127.0.0.1", 8719);
+        instance.setHostname("pod-0");
+        instance.setVersion("1.8.0");
+        instance.setVerified(false);
+        appInfo.addInstance(instance);
+        Set<InstanceInfo> snapshot = appInfo.getInstances();
+
+        assertTrue(appInfo.refreshInstance("127.0.0.1", 8719, "pod-0", 0, 2, "1.8.9", 12345L));
+        assertEquals(12345L, instance.getLastHeartbeat());
+        assertEquals(2, instance.getHeartbeatVersion());
+        assertEquals("1.8.9", instance.getVersion());
+        assertTrue(instance.isVerified());
+        // Not a change of the instance set.
+        assertSame(snapshot, appInfo.getInstances());
+
+        // Unknown or changed identities take the full registration path.
+        assertFalse(appInfo.refreshInstance("127.0.0.1", 8720, "pod-0", 0, 2, "1.8.9", 12345L));
+        assertFalse(appInfo.refreshInstance("127.0.0.1", 8719, "pod-1", 0, 2, "1.8.9", 12345L));
+        assertFalse(appInfo.refreshInstance("127.0.0.1", 8719, "pod-0", 1, 2, "1.8.9", 12345L));
+    }
+
     @Test
     public void testHealthyAndDead() {
         System.setProperty(DashboardConfig.CONFIG_HIDE_APP_NO_INSTANCE_MILLIS, "60000");
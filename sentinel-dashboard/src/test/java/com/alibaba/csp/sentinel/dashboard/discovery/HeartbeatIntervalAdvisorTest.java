@@ -0,0 +1,75 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HeartbeatIntervalAdvisorTest {
+
+    private final AtomicInteger instances = new AtomicInteger();
+    private HeartbeatIntervalAdvisor advisor;
+
+    @Before
+    public void setUp() {
+        System.setProperty(DashboardConfig.CONFIG_HEARTBEAT_MAX_PER_SECOND, "100");
+        System.setProperty(DashboardConfig.CONFIG_UNHEALTHY_INSTANCE_MILLIS, "60000");
+        DashboardConfig.clearCache();
+        advisor = new HeartbeatIntervalAdvisor(instances::get);
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(DashboardConfig.CONFIG_HEARTBEAT_MAX_PER_SECOND);
+        System.clearProperty(DashboardConfig.CONFIG_UNHEALTHY_INSTANCE_MILLIS);
+        DashboardConfig.clearCache();
+    }
+
+    @Test
+    public void testSlowDownWithLoad() {
+        instances.set(500);
+        assertEquals(HeartbeatIntervalAdvisor.DEFAULT_INTERVAL_MS, advisor.suggestIntervalMs("app"));
+        // 1500 instances at 100 heartbeats per second.
+        instances.set(1500);
+        assertEquals(15000, advisor.suggestIntervalMs("app"));
+        instances.set(1501);
+        assertEquals(16000, advisor.suggestIntervalMs("app"));
+        // Capped to a third of the unhealthy timeout.
+        instances.set(100000);
+        assertEquals(20000, advisor.suggestIntervalMs("app"));
+    }
+
+    @Test
+    public void testFocus() {
+        instances.set(1500);
+        advisor.focus("app", 2000, 60_000);
+        assertEquals(2000, advisor.suggestIntervalMs("app"));
+        assertEquals(15000, advisor.suggestIntervalMs("other"));
+
+        advisor.focus("app", 10, 60_000);
+        assertEquals(HeartbeatIntervalAdvisor.MIN_INTERVAL_MS, advisor.suggestIntervalMs("app"));
+
+        advisor.focus("app", 2000, -1);
+        assertEquals(15000, advisor.suggestIntervalMs("app"));
+    }
+}
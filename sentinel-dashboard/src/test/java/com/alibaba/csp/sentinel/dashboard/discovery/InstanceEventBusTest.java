@@ -0,0 +1,126 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InstanceEventBusTest {
+
+    private final InstanceEventBus eventBus = new InstanceEventBus();
+
+    @After
+    public void tearDown() {
+        eventBus.shutdown();
+    }
+
+    @Test
+    public void testSlowSubscriberDoesNotBlockPublisher() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        eventBus.subscribe("slow", event -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 10);
+        List<InstanceEvent> received = new CopyOnWriteArrayList<>();
+        eventBus.subscribe("fast", received::add);
+
+        InstanceInfo instance = InstanceInfo.of("app", "127.0.0.1", 8719);
+        eventBus.publish(new InstanceEvent(InstanceEvent.Type.REGISTERED, instance, null, 0));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        for (int i = 1; i < 100; i++) {
+            eventBus.publish(new InstanceEvent(InstanceEvent.Type.REGISTERED, instance, null, i));
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        waitFor(() -> received.size() == 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, received.get(i).getTimestamp());
+        }
+
+        // One being delivered, 10 queued.
+        assertEquals(89L, slow(eventBus).get("dropped"));
+        release.countDown();
+        waitFor(() -> Long.valueOf(11).equals(slow(eventBus).get("delivered")));
+        assertEquals(100L, eventBus.getStats().get("published"));
+    }
+
+    @Test
+    public void testDiscoveryPublishesLifecycle() throws Exception {
+        SimpleInstanceDiscovery discovery = new SimpleInstanceDiscovery();
+        BlockingQueue<InstanceEvent> events = new LinkedBlockingQueue<>();
+        discovery.getEventBus().subscribe("test", events::add);
+        try {
+            InstanceInfo instance = InstanceInfo.of("app", "127.0.0.1", 8719);
+            instance.setHostname("host");
+            instance.setVersion("1.8.8");
+            discovery.addInstance(instance);
+            assertEvent(events.poll(5, TimeUnit.SECONDS), InstanceEvent.Type.REGISTERED, null);
+
+            // Heartbeat fast path.
+            assertTrue(discovery.getDetailApp("app").refreshInstance("127.0.0.1", 8719, "host", 0, 2, "1.8.9",
+                System.currentTimeMillis()));
+            assertEvent(events.poll(5, TimeUnit.SECONDS), InstanceEvent.Type.VERSION_CHANGED, "1.8.8");
+            // Same version, no event.
+            discovery.getDetailApp("app").refreshInstance("127.0.0.1", 8719, "host", 0, 3, "1.8.9",
+                System.currentTimeMillis());
+
+            InstanceInfo moved = InstanceInfo.of("app", "127.0.0.1", 8719);
+            moved.setHostname("other-host");
+            moved.setVersion("1.8.9");
+            discovery.addInstance(moved);
+            assertEvent(events.poll(5, TimeUnit.SECONDS), InstanceEvent.Type.REGISTERED, null);
+
+            assertTrue(discovery.removeInstance("app", "127.0.0.1", 8719));
+            assertEvent(events.poll(5, TimeUnit.SECONDS), InstanceEvent.Type.REMOVED, null);
+            assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            discovery.destroy();
+        }
+    }
+
+    private static void assertEvent(InstanceEvent event, InstanceEvent.Type type, String previousVersion) {
+        assertNotNull(event);
+        assertEquals(type, event.getType());
+        assertEquals(previousVersion, event.getPreviousVersion());
+    }
+
+    private static Map<?, ?> slow(InstanceEventBus eventBus) {
+        return (Map<?, ?>)((Map<?, ?>)eventBus.getStats().get("subscribers")).get("slow");
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
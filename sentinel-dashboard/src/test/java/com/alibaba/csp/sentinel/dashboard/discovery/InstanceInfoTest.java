@@ -45,4 +45,37 @@ public class InstanceInfoTest {
         assertFalse(instanceInfo.isHealthy());
         assertTrue(instanceInfo.isDead());
     }
+
+    @Test
+    public void testCapabilitiesFromVersion() {
+        InstanceInfo instanceInfo = InstanceInfo.of("app", "127.0.0.1", 8719);
+        assertEquals(0, instanceInfo.getCapabilities());
+
+        instanceInfo.setVersion("1.5.2");
+        assertTrue(instanceInfo.supports(InstanceCapability.KNOWN_VERSION));
+        assertTrue(instanceInfo.supports(InstanceCapability.CLUSTER_MODE | InstanceCapability.PARAM_FLOW));
+        assertFalse(instanceInfo.supports(InstanceCapability.POST));
+        assertFalse(instanceInfo.supports(InstanceCapability.GATEWAY_API));
+
+        instanceInfo.setVersion("1.7.1-SNAPSHOT");
+        assertTrue(instanceInfo.supports(InstanceCapability.POST | InstanceCapability.GATEWAY_API));
+        assertTrue(instanceInfo.supports(InstanceCapability.ENHANCED_CONTENT_TYPE));
+
+        instanceInfo.setVersion("unknown");
+        assertEquals(0, instanceInfo.getCapabilities());
+        assertFalse(instanceInfo.supports(InstanceCapability.KNOWN_VERSION));
+    }
+
+    @Test
+    public void testCapabilitiesUpdatedOnVersionChange() {
+        InstanceInfo instanceInfo = InstanceInfo.of("app", "127.0.0.1", 8719);
+        instanceInfo.setVersion("1.6.0");
+        assertFalse(instanceInfo.supports(InstanceCapability.ENHANCED_CONTENT_TYPE));
+
+        assertFalse(instanceInfo.refresh(2, "1.6.0", System.currentTimeMillis()));
+        assertTrue(instanceInfo.supports(InstanceCapability.POST));
+
+        assertTrue(instanceInfo.refresh(3, "1.8.6", System.currentTimeMillis()));
+        assertTrue(instanceInfo.supports(InstanceCapability.POST | InstanceCapability.ENHANCED_CONTENT_TYPE));
+    }
 }
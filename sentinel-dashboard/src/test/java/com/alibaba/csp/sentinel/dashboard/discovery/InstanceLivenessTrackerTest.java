@@ -0,0 +1,142 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InstanceLivenessTrackerTest {
+
+    private static final long START = 1_600_000_000_000L;
+
+    private final List<String> events = new ArrayList<>();
+    private InstanceLivenessTracker tracker;
+
+    @Before
+    public void setUp() {
+        System.setProperty(DashboardConfig.CONFIG_UNHEALTHY_INSTANCE_MILLIS, "60000");
+        System.setProperty(DashboardConfig.CONFIG_AUTO_REMOVE_INSTANCE_MILLIS, "600000");
+        DashboardConfig.clearCache();
+        tracker = new InstanceLivenessTracker(500, 64);
+        tracker.addListener((instance, from, to) -> events.add(instance.getPort() + ":" + from + "->" + to));
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(DashboardConfig.CONFIG_UNHEALTHY_INSTANCE_MILLIS);
+        System.clearProperty(DashboardConfig.CONFIG_AUTO_REMOVE_INSTANCE_MILLIS);
+        DashboardConfig.clearCache();
+    }
+
+    @Test
+    public void testHealthyUnhealthyDead() {
+        InstanceInfo instance = newInstance(8719, START);
+        tracker.track(instance, START);
+        tracker.advance(START);
+        assertEquals(InstanceLivenessState.HEALTHY, instance.getLivenessState());
+        assertTrue(instance.isHealthy());
+
+        tracker.advance(START + 59_000);
+        assertTrue(instance.isHealthy());
+        assertTrue(events.isEmpty());
+
+        tracker.advance(START + 60_500);
+        assertEquals(InstanceLivenessState.UNHEALTHY, instance.getLivenessState());
+        assertFalse(instance.isHealthy());
+        assertFalse(instance.isDead());
+        assertEquals("8719:HEALTHY->UNHEALTHY", events.get(0));
+
+        // Jumping over several rounds of the wheel.
+        tracker.advance(START + 601_000);
+        assertTrue(instance.isDead());
+        assertEquals("8719:UNHEALTHY->DEAD", events.get(1));
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void testHeartbeatKeepsInstanceHealthy() {
+        InstanceInfo instance = newInstance(8719, START);
+        tracker.track(instance, START);
+        tracker.advance(START);
+        for (long now = START + 10_000; now < START + 300_000; now += 10_000) {
+            instance.refresh(now, "1.8.9", now);
+            tracker.advance(now);
+            assertTrue(instance.isHealthy());
+        }
+        assertTrue(events.isEmpty());
+
+        tracker.advance(START + 400_000);
+        assertFalse(instance.isHealthy());
+        // Marked healthy by the heartbeat right away, reported on the next tick.
+        instance.refresh(START + 400_000, "1.8.9", START + 400_000);
+        assertTrue(instance.isHealthy());
+        tracker.advance(START + 400_500);
+        assertEquals("8719:UNHEALTHY->HEALTHY", events.get(1));
+        assertEquals(1, tracker.size());
+        // Unhealthy again after 60s, not only once dead.
+        tracker.advance(START + 461_000);
+        assertFalse(instance.isHealthy());
+        assertEquals("8719:HEALTHY->UNHEALTHY", events.get(2));
+        tracker.advance(START + 1_001_000);
+        assertEquals(InstanceLivenessState.DEAD, instance.getLivenessState());
+        assertEquals(4, events.size());
+    }
+
+    @Test
+    public void testUntrackAndUnverified() {
+        InstanceInfo instance = newInstance(8719, START);
+        tracker.track(instance, START);
+        InstanceInfo restored = newInstance(8720, START);
+        restored.setVerified(false);
+        tracker.track(restored, START);
+        InstanceInfo old = newInstance(8721, START - 700_000);
+        tracker.track(old, START);
+        assertEquals(3, tracker.size());
+        assertFalse(restored.isHealthy());
+        // Dead ones are reported on the next tick, so that listeners remove them.
+        assertTrue(old.isDead());
+        assertTrue(events.isEmpty());
+
+        tracker.untrack(instance);
+        assertNull(instance.getLivenessState());
+        assertEquals(2, tracker.size());
+        tracker.advance(START + 1000);
+        assertEquals(1, events.size());
+        assertEquals("8721:UNHEALTHY->DEAD", events.get(0));
+        assertTrue(old.isDead());
+        assertEquals(1, tracker.size());
+
+        tracker.advance(START + 700_000);
+        assertEquals("8720:UNHEALTHY->DEAD", events.get(1));
+        // Untracked ones are not reported.
+        assertEquals(2, events.size());
+    }
+
+    private static InstanceInfo newInstance(int port, long lastHeartbeat) {
+        InstanceInfo instance = InstanceInfo.of("app", "127.0.0.1", port);
+        instance.setLastHeartbeat(lastHeartbeat);
+        instance.setVersion("1.8.9");
+        return instance;
+    }
+}
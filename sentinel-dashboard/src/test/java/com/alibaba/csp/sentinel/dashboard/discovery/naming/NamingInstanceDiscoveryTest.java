@@ -0,0 +1,167 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.discovery.naming;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.alibaba.csp.sentinel.dashboard.discovery.AppInfo;
+import com.alibaba.csp.sentinel.dashboard.discovery.InstanceInfo;
+import com.alibaba.csp.sentinel.dashboard.discovery.SimpleInstanceDiscovery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NamingInstanceDiscoveryTest {
+
+    private SimpleInstanceDiscovery delegate;
+    private InMemoryNamingClient client;
+    private NamingInstanceDiscovery discovery;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = new SimpleInstanceDiscovery();
+        client = new InMemoryNamingClient();
+        discovery = new NamingInstanceDiscovery(delegate, client, Arrays.asList("order-service", " "),
+            NamingInstanceDiscovery.DEFAULT_PORT_METADATA_KEY);
+        discovery.start();
+    }
+
+    @After
+    public void tearDown() {
+        discovery.stop();
+        delegate.destroy();
+    }
+
+    @Test
+    public void testRegisterAndDeregister() {
+        assertTrue(discovery.isActive());
+        client.register("order-service", instance("10.0.0.1", 8080, "8719", true));
+        client.register("order-service", instance("10.0.0.2", 8080, "8719", false));
+        client.register("order-service", instance("10.0.0.3", 8080, null, true));
+        client.register("user-service", instance("10.0.0.4", 8080, "8719", true));
+
+        AppInfo app = discovery.getDetailApp("order-service");
+        assertNotNull(app);
+        assertEquals(1, app.getInstances().size());
+        InstanceInfo instance = app.getInstance("10.0.0.1", 8719).orElse(null);
+        assertNotNull(instance);
+        assertEquals("host-10.0.0.1", instance.getHostname());
+        assertEquals("1.8.6", instance.getVersion());
+        assertNull(discovery.getDetailApp("user-service"));
+
+        client.deregister("order-service", "10.0.0.1", 8080);
+        assertFalse(app.getInstance("10.0.0.1", 8719).isPresent());
+    }
+
+    @Test
+    public void testKeepAliveOnlyWhileNamingAvailable() {
+        client.register("order-service", instance("10.0.0.1", 8080, "8719", true));
+        InstanceInfo instance = discovery.getDetailApp("order-service").getInstance("10.0.0.1", 8719).orElse(null);
+        assertNotNull(instance);
+
+        long now = System.currentTimeMillis() + 60_000;
+        discovery.keepAlive(now);
+        assertEquals(now, instance.getLastHeartbeat());
+
+        client.setAvailable(false);
+        discovery.keepAlive(now + 5000);
+        assertEquals(now, instance.getLastHeartbeat());
+
+        // Registered again if removed meanwhile, e.g. as dead.
+        client.setAvailable(true);
+        delegate.removeInstance("order-service", "10.0.0.1", 8719);
+        discovery.keepAlive(now + 10_000);
+        assertTrue(discovery.getDetailApp("order-service").getInstance("10.0.0.1", 8719).isPresent());
+    }
+
+    @Test
+    public void testKeepAliveKeepsHeartbeatRegisteredInstance() {
+        long now = System.currentTimeMillis();
+        InstanceInfo registered = heartbeat("10.0.0.1", 8719, "order-host-1", "1.8.6", now);
+        client.register("order-service", new NamingInstance("10.0.0.1", 8080, true, true,
+            Collections.singletonMap(NamingInstanceDiscovery.DEFAULT_PORT_METADATA_KEY, "8719")));
+
+        AppInfo app = discovery.getDetailApp("order-service");
+        discovery.keepAlive(now + 5000);
+        discovery.keepAlive(now + 10_000);
+        assertSame(registered, app.getInstance("10.0.0.1", 8719).orElse(null));
+        assertEquals(now + 10_000, registered.getLastHeartbeat());
+        assertEquals("order-host-1", registered.getHostname());
+        assertEquals("1.8.6", registered.getVersion());
+
+        // Heartbeats still refresh the same instance.
+        assertSame(registered, heartbeat("10.0.0.1", 8719, "order-host-1", "1.8.6", now + 12_000));
+        assertEquals(1, app.getInstances().size());
+    }
+
+    @Test
+    public void testHeartbeatReplacesPlaceholders() {
+        long now = System.currentTimeMillis();
+        client.register("order-service", new NamingInstance("10.0.0.1", 8080, true, true,
+            Collections.singletonMap(NamingInstanceDiscovery.DEFAULT_PORT_METADATA_KEY, "8719")));
+        AppInfo app = discovery.getDetailApp("order-service");
+        InstanceInfo named = app.getInstance("10.0.0.1", 8719).orElse(null);
+        assertNotNull(named);
+        assertEquals("10.0.0.1", named.getHostname());
+        assertEquals("unknown", named.getVersion());
+
+        InstanceInfo registered = heartbeat("10.0.0.1", 8719, "order-host-1", "1.8.6", now);
+        discovery.keepAlive(now + 5000);
+        assertSame(registered, app.getInstance("10.0.0.1", 8719).orElse(null));
+        assertEquals("1.8.6", registered.getVersion());
+        assertEquals(now + 5000, registered.getLastHeartbeat());
+    }
+
+    @Test
+    public void testInactiveWithoutServices() {
+        NamingInstanceDiscovery inactive = new NamingInstanceDiscovery(delegate, client,
+            Collections.singletonList(""), NamingInstanceDiscovery.DEFAULT_PORT_METADATA_KEY);
+        assertFalse(inactive.isActive());
+    }
+
+    /**
+     * Apply a heartbeat the way the registry controller does.
+     */
+    private InstanceInfo heartbeat(String ip, int port, String hostname, String version, long now) {
+        AppInfo app = delegate.getDetailApp("order-service");
+        if (app == null || !app.refreshInstance(ip, port, hostname, 0, now, version, now)) {
+            InstanceInfo instance = InstanceInfo.of("order-service", ip, port);
+            instance.setHostname(hostname);
+            instance.setAppType(0);
+            instance.setVersion(version);
+            instance.setHeartbeatVersion(now);
+            instance.setLastHeartbeat(now);
+            delegate.addInstance(instance);
+        }
+        return delegate.getDetailApp("order-service").getInstance(ip, port).orElse(null);
+    }
+
+    private static NamingInstance instance(String ip, int port, String sentinelPort, boolean healthy) {
+        Map<String, String> metadata = new HashMap<>();
+        if (sentinelPort != null) {
+            metadata.put(NamingInstanceDiscovery.DEFAULT_PORT_METADATA_KEY, sentinelPort);
+        }
+        metadata.put(NamingInstanceDiscovery.HOSTNAME_METADATA_KEY, "host-" + ip);
+        metadata.put(NamingInstanceDiscovery.VERSION_METADATA_KEY, "1.8.6");
+        return new NamingInstance(ip, port, healthy, true, metadata);
+    }
+}
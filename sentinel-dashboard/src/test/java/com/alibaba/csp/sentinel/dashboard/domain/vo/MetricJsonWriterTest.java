@@ -0,0 +1,103 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.domain.vo;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.dashboard.domain.Result;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link MetricJsonWriter}.
+ */
+public class MetricJsonWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testSameShapeAsMetricVoResult() throws Exception {
+        List<MetricEntity> entities = new ArrayList<>(Arrays.asList(
+            newEntity(2000, 1, 5),
+            newEntity(1000, 1, 3),
+            // Same timestamp but created later, should win.
+            newEntity(1000, 2, 4),
+            newEntity(3000, 1, 0)));
+
+        Map<Long, MetricVo> expectedSeries = new TreeMap<>();
+        for (MetricEntity entity : entities) {
+            MetricVo vo = MetricVo.fromMetricEntity(entity);
+            MetricVo old = expectedSeries.get(vo.getTimestamp());
+            if (old == null || vo.getGmtCreate() > old.getGmtCreate()) {
+                expectedSeries.put(vo.getTimestamp(), vo);
+            }
+        }
+        Map<String, Object> expectedData = new HashMap<>();
+        expectedData.put("totalCount", 1);
+        expectedData.put("totalPage", 1);
+        expectedData.put("pageIndex", 1);
+        expectedData.put("pageSize", 6);
+        expectedData.put("viewMode", "aggregate");
+        Map<String, Object> expectedMetric = new LinkedHashMap<>();
+        expectedMetric.put("res", expectedSeries.values());
+        expectedData.put("metric", expectedMetric);
+        String expected = objectMapper.writeValueAsString(Result.ofSuccess(expectedData));
+
+        StringWriter out = new StringWriter();
+        try (MetricJsonWriter writer = new MetricJsonWriter(objectMapper.getFactory().createGenerator(out))) {
+            writer.beginPage(1, 1, 1, 6, "aggregate");
+            writer.writeSeries("res", entities, "res");
+            writer.endPage();
+        }
+
+        assertEquals(objectMapper.readTree(expected), objectMapper.readTree(out.toString()));
+    }
+
+    @Test
+    public void testWriteResult() throws Exception {
+        StringWriter out = new StringWriter();
+        try (MetricJsonWriter writer = new MetricJsonWriter(objectMapper.getFactory().createGenerator(out))) {
+            writer.writeResult(Result.ofFail(-1, "app can't be null or empty"));
+        }
+        String expected = objectMapper.writeValueAsString(Result.ofFail(-1, "app can't be null or empty"));
+        assertEquals(objectMapper.readTree(expected), objectMapper.readTree(out.toString()));
+    }
+
+    private MetricEntity newEntity(long timestamp, long gmtCreate, long successQps) {
+        MetricEntity entity = new MetricEntity();
+        entity.setApp("app");
+        entity.setResource("res");
+        entity.setTimestamp(new Date(timestamp));
+        entity.setGmtCreate(new Date(gmtCreate));
+        entity.setPassQps(successQps + 1);
+        entity.setBlockQps(1L);
+        entity.setExceptionQps(0L);
+        entity.setRtAndSuccessQps(12.5, successQps);
+        entity.setCount(1);
+        return entity;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.metric;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.dashboard.discovery.InstanceInfo;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricAccumulator;
+import com.alibaba.csp.sentinel.node.metric.MetricNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of metric ingest ({@link MetricFetcher#handleBody}) and aggregate-view summing,
+ * comparing the boxed, synchronized {@link MetricEntity} accumulation (legacy) with
+ * {@link MetricAccumulator}.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.alibaba.csp.sentinel.dashboard.metric.MetricAggregationBenchmark}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricAggregationBenchmark {
+
+    @Param({"50"})
+    private int resources;
+
+    @Param({"10"})
+    private int instances;
+
+    private String[] lines;
+    private InstanceInfo instance;
+    private List<MetricEntity> stored;
+
+    @Setup
+    public void setUp() {
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        // 6 seconds per fetch, like MetricFetcher does.
+        List<String> body = new ArrayList<>();
+        for (int second = 0; second < 6; second++) {
+            for (int r = 0; r < resources; r++) {
+                MetricNode node = new MetricNode();
+                node.setTimestamp(now + second * 1000);
+                node.setResource("/api/resource/" + r);
+                node.setPassQps(100 + r);
+                node.setBlockQps(r % 3);
+                node.setSuccessQps(100 + r);
+                node.setExceptionQps(r % 5);
+                node.setRt(12 + r % 7);
+                body.add(node.toThinString());
+            }
+        }
+        lines = body.toArray(new String[0]);
+        instance = InstanceInfo.of("benchmark-app", "10.0.0.1", 8719);
+
+        // 5 minutes of one resource from every instance, as queried by the aggregate view.
+        stored = new ArrayList<>();
+        for (int second = 0; second < 300; second++) {
+            for (int i = 0; i < instances; i++) {
+                MetricEntity entity = new MetricEntity();
+                entity.setApp("benchmark-app");
+                entity.setIp("10.0.0." + i);
+                entity.setPort(8719);
+                entity.setResource("/api/resource/0");
+                entity.setTimestamp(new Date(now - second * 1000L));
+                entity.setGmtCreate(new Date(now));
+                entity.setPassQps(100L);
+                entity.setBlockQps(1L);
+                entity.setExceptionQps(0L);
+                entity.setRtAndSuccessQps(12, 100L);
+                entity.setCount(1);
+                stored.add(entity);
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<String, MetricEntity> handleBodyLegacy() {
+        Map<String, MetricEntity> map = new ConcurrentHashMap<>(16);
+        for (String line : lines) {
+            MetricNode node = MetricNode.fromThinString(line);
+            String key = instance.getApp() + "__" + instance.getIp() + "__" + instance.getPort() + "__"
+                + node.getResource() + "__" + (node.getTimestamp() / 1000);
+            MetricEntity metricEntity = map.computeIfAbsent(key, s -> {
+                MetricEntity initMetricEntity = new MetricEntity();
+                initMetricEntity.setApp(instance.getApp());
+                initMetricEntity.setIp(instance.getIp());
+                initMetricEntity.setPort(instance.getPort());
+                initMetricEntity.setTimestamp(new Date(node.getTimestamp()));
+                initMetricEntity.setPassQps(0L);
+                initMetricEntity.setBlockQps(0L);
+                initMetricEntity.setRtAndSuccessQps(0, 0L);
+                initMetricEntity.setExceptionQps(0L);
+                initMetricEntity.setCount(0);
+                initMetricEntity.setResource(node.getResource());
+                return initMetricEntity;
+            });
+            metricEntity.addPassQps(node.getPassQps());
+            metricEntity.addBlockQps(node.getBlockQps());
+            metricEntity.addRtAndSuccessQps(node.getRt(), node.getSuccessQps());
+            metricEntity.addExceptionQps(node.getExceptionQps());
+            metricEntity.addCount(1);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public Map<String, MetricAccumulator> handleBody() {
+        Map<String, MetricAccumulator> map = new ConcurrentHashMap<>(16);
+        MetricFetcher.handleBody(lines, instance, map);
+        return map;
+    }
+
+    @Benchmark
+    public Map<Long, MetricEntity> aggregateViewLegacy() {
+        Map<Long, MetricEntity> aggregated = new HashMap<>();
+        for (MetricEntity entity : stored) {
+            long timestamp = entity.getTimestamp().getTime();
+            MetricEntity existing = aggregated.get(timestamp);
+            if (existing == null) {
+                existing = new MetricEntity();
+                existing.setApp(entity.getApp());
+                existing.setResource(entity.getResource());
+                existing.setTimestamp(entity.getTimestamp());
+                existing.setGmtCreate(entity.getTimestamp());
+                existing.setPassQps(0L);
+                existing.setBlockQps(0L);
+                existing.setSuccessQps(0L);
+                existing.setExceptionQps(0L);
+                existing.setRt(0.0);
+                existing.setCount(0);
+                aggregated.put(timestamp, existing);
+            }
+            existing.addPassQps(entity.getPassQps());
+            existing.addBlockQps(entity.getBlockQps());
+            existing.addExceptionQps(entity.getExceptionQps());
+            existing.addRtAndSuccessQps(
+                entity.getSuccessQps() > 0 ? entity.getRt() / entity.getSuccessQps() : 0,
+                entity.getSuccessQps()
+            );
+            existing.addCount(1);
+        }
+        return aggregated;
+    }
+
+    @Benchmark
+    public List<MetricAccumulator> aggregateView() {
+        return MetricAccumulator.sumByTimestamp(new ArrayList<>(stored), "benchmark-app", "/api/resource/0");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(MetricAggregationBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.metric;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.dashboard.metric.export.MetricExporter;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.InstanceSkewDetector;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MachineMetricRepository;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricAccumulator;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricHotspotTracker;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricsRepository;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.RtSketchRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test cases for how {@link MetricFetcher} writes fetched metrics.
+ */
+public class MetricFetcherTest {
+
+    @Mock
+    private MetricsRepository<MetricEntity> metricStore;
+    @Mock
+    private MetricHotspotTracker hotspotTracker;
+    @Mock
+    private RtSketchRepository rtSketchStore;
+    @Mock
+    private MetricExporter metricExporter;
+    @Mock
+    private MachineMetricRepository machineMetricStore;
+    @Mock
+    private InstanceSkewDetector skewDetector;
+
+    @InjectMocks
+    private MetricFetcher fetcher;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void testFullCycleUpdatesSkewDetector() {
+        fetcher.writeMetric(metrics("10.0.0.1", "10.0.0.2", "10.0.0.3"), true);
+
+        verify(metricStore).saveAll(anyList());
+        verify(skewDetector).record(anyList());
+    }
+
+    @Test
+    public void testBackfillSkipsSkewDetector() {
+        // A single registered instance must not count as a cycle, or every other instance would decay.
+        fetcher.writeMetric(metrics("10.0.0.4"), false);
+
+        verify(metricStore).saveAll(anyList());
+        verify(hotspotTracker).record(anyList());
+        verify(rtSketchStore).saveAll(anyList());
+        verify(skewDetector, never()).record(anyList());
+
+        fetcher.writeMetric(metrics("10.0.0.1", "10.0.0.2", "10.0.0.3", "10.0.0.4"), true);
+        verify(metricStore, times(2)).saveAll(anyList());
+        verify(skewDetector, times(1)).record(anyList());
+    }
+
+    private static Map<String, MetricAccumulator> metrics(String... ips) {
+        Map<String, MetricAccumulator> map = new HashMap<>();
+        for (String ip : ips) {
+            MetricAccumulator accumulator = new MetricAccumulator("app", ip, 8719, "/hello", 1000);
+            accumulator.add(10, 0, 10, 0, 5);
+            map.put(ip, accumulator);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.metric.export;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link MetricExporter}.
+ */
+public class MetricExporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testExportToFile() throws Exception {
+        File file = new File(folder.getRoot(), "export/metrics.prom");
+        MetricExporter exporter = new MetricExporter(new FileMetricSink(file, new PrometheusTextEncoder()),
+            1000, 100, 3, 10);
+        exporter.start();
+        exporter.export(newEntities(3));
+        exporter.export(newEntities(2));
+        exporter.stop();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        // 5 samples per metric.
+        assertEquals(25, lines.size());
+        assertEquals("sentinel_pass_qps{app=\"app\",resource=\"res\\\"0\",instance=\"10.0.0.1:8719\"} 12 1600000000000",
+            lines.get(0));
+        assertTrue(lines.contains(
+            "sentinel_rt{app=\"app\",resource=\"res\\\"0\",instance=\"10.0.0.1:8719\"} 12.5 1600000000000"));
+        assertEquals(5L, exporter.getStats().get("exportedPoints"));
+    }
+
+    @Test
+    public void testSlowSinkDropsWithoutBlocking() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        MetricExporter exporter = new MetricExporter(metrics -> release.await(), 100, 10, 3, 10);
+        exporter.start();
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            exporter.export(newEntities(10));
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        // At most the buffer and the batch being written are kept.
+        assertTrue((Long)exporter.getStats().get("droppedPoints") >= 1000 - 100 - 10);
+        release.countDown();
+        exporter.stop();
+    }
+
+    @Test
+    public void testRetryThenDrop() throws Exception {
+        List<Integer> attempts = Collections.synchronizedList(new ArrayList<>());
+        MetricExporter exporter = new MetricExporter(metrics -> {
+            attempts.add(metrics.size());
+            throw new IllegalStateException("TSDB unavailable");
+        }, 100, 10, 2, 1);
+        exporter.start();
+        exporter.export(newEntities(1));
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((Long)exporter.getStats().get("failedPoints") == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        exporter.stop();
+        assertEquals(1L, exporter.getStats().get("failedPoints"));
+        assertEquals(2L, exporter.getStats().get("retries"));
+        assertEquals(3, attempts.size());
+    }
+
+    private static List<MetricEntity> newEntities(int count) {
+        List<MetricEntity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            MetricEntity entity = new MetricEntity();
+            entity.setApp("app");
+            entity.setResource("res\"" + i);
+            entity.setIp("10.0.0.1");
+            entity.setPort(8719);
+            entity.setTimestamp(new Date(1_600_000_000_000L + i * 1000L));
+            entity.setGmtCreate(new Date());
+            entity.setPassQps(12L);
+            entity.setBlockQps(2L);
+            entity.setExceptionQps(0L);
+            entity.setRtAndSuccessQps(12.5, 10L);
+            entity.setCount(1);
+            entities.add(entity);
+        }
+        return entities;
+    }
+}
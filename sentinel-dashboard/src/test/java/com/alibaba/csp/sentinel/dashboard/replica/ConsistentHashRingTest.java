@@ -0,0 +1,66 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.replica;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConsistentHashRingTest {
+
+    private static final int APPS = 10000;
+
+    @Test
+    public void testAddingReplicaMovesAboutOneNth() {
+        List<ReplicaMember> members = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            members.add(new ReplicaMember("10.0.0." + i + ":8080"));
+        }
+        ConsistentHashRing before = new ConsistentHashRing(members);
+        ReplicaMember added = new ReplicaMember("10.0.0.4:8080");
+        members.add(added);
+        ConsistentHashRing after = new ConsistentHashRing(members);
+
+        Map<ReplicaMember, Integer> counts = new HashMap<>();
+        int moved = 0;
+        for (int i = 0; i < APPS; i++) {
+            String app = "app-" + i;
+            ReplicaMember owner = after.getOwner(app);
+            counts.merge(owner, 1, Integer::sum);
+            if (!owner.equals(before.getOwner(app))) {
+                moved++;
+                // Apps only move to the new replica.
+                assertEquals(added, owner);
+            }
+        }
+        // 1/5 of the apps, give or take.
+        assertTrue("moved " + moved, moved > APPS * 0.12 && moved < APPS * 0.28);
+        for (ReplicaMember member : members) {
+            int count = counts.get(member);
+            assertTrue(member + " owns " + count, count > APPS * 0.12 && count < APPS * 0.28);
+        }
+    }
+
+    @Test
+    public void testEmptyRing() {
+        assertNull(new ConsistentHashRing(new ArrayList<>()).getOwner("app"));
+    }
+}
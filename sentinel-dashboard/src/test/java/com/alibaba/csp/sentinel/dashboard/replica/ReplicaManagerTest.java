@@ -0,0 +1,95 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.replica;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReplicaManagerTest {
+
+    private InMemoryReplicaCoordinator coordinator;
+    private ReplicaManager first;
+    private ReplicaManager second;
+
+    @Before
+    public void setUp() {
+        coordinator = new InMemoryReplicaCoordinator();
+        first = new ReplicaManager(coordinator, "10.0.0.1:8080", "secret");
+        second = new ReplicaManager(coordinator, "10.0.0.2:8080", "secret");
+    }
+
+    @After
+    public void tearDown() {
+        first.stop();
+        second.stop();
+    }
+
+    @Test
+    public void testEachAppOwnedByOneReplica() {
+        ReplicaManager standalone = new ReplicaManager();
+        assertFalse(standalone.isEnabled());
+        assertTrue(standalone.isLocal("app"));
+
+        first.start();
+        second.start();
+        // The first one joined alone, until its next refresh.
+        first.refresh();
+        assertEquals(2, first.getMembers().size());
+        assertEquals(first.getMembers(), second.getMembers());
+
+        int local = 0;
+        for (int i = 0; i < 1000; i++) {
+            String app = "app-" + i;
+            assertNotEquals(first.isLocal(app), second.isLocal(app));
+            assertEquals(first.getOwner(app), second.getOwner(app));
+            if (first.isLocal(app)) {
+                local++;
+            }
+        }
+        assertTrue(local > 300 && local < 700);
+
+        // Leaving hands its apps over on the next refresh of the others.
+        second.stop();
+        first.refresh();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(first.isLocal("app-" + i));
+        }
+    }
+
+    @Test
+    public void testTrustedReplicaRequest() {
+        first.start();
+        assertFalse(first.isTrustedReplicaRequest(request("/metric/queryTopResourceMetric.json", null)));
+        assertFalse(first.isTrustedReplicaRequest(request("/metric/queryTopResourceMetric.json", "wrong")));
+        assertTrue(first.isTrustedReplicaRequest(request("/metric/queryTopResourceMetric.json", "secret")));
+        // Only metric queries.
+        assertFalse(first.isTrustedReplicaRequest(request("/v1/flow/rules", "secret")));
+    }
+
+    private static HttpServletRequest request(String servletPath, String token) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getServletPath()).thenReturn(servletPath);
+        when(request.getHeader(ReplicaManager.REPLICA_TOKEN_HEADER)).thenReturn(token);
+        return request;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.replica;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test cases for {@link ReplicaProxyFilter}, with the owner replica served by a local HTTP server.
+ */
+public class ReplicaProxyFilterTest {
+
+    private static final String PATH = "/metric/queryTopResourceMetric.json";
+    private static final String BODY = "{\"success\":true,\"data\":{}}";
+
+    @Mock
+    private ReplicaManager replicaManager;
+
+    @InjectMocks
+    private ReplicaProxyFilter filter;
+
+    private HttpServer owner;
+    private final AtomicInteger ownerRequests = new AtomicInteger();
+    private final AtomicReference<String> ownerQuery = new AtomicReference<>();
+    private final AtomicReference<String> ownerToken = new AtomicReference<>();
+    private volatile int ownerStatus = 200;
+
+    @Before
+    public void setUp() throws IOException {
+        MockitoAnnotations.initMocks(this);
+        owner = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        owner.createContext(PATH, exchange -> {
+            ownerRequests.incrementAndGet();
+            ownerQuery.set(exchange.getRequestURI().getQuery());
+            ownerToken.set(exchange.getRequestHeaders().getFirst(ReplicaManager.REPLICA_TOKEN_HEADER));
+            byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+            exchange.sendResponseHeaders(ownerStatus, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        owner.start();
+
+        when(replicaManager.isEnabled()).thenReturn(true);
+        when(replicaManager.isLocal("remote")).thenReturn(false);
+        when(replicaManager.isLocal("local")).thenReturn(true);
+        when(replicaManager.getOwner("remote")).thenReturn(
+            new ReplicaMember("127.0.0.1:" + owner.getAddress().getPort()));
+        when(replicaManager.getSecret()).thenReturn("secret");
+    }
+
+    @After
+    public void tearDown() {
+        owner.stop(0);
+        filter.destroy();
+    }
+
+    @Test
+    public void testProxiesToOwner() throws Exception {
+        HttpServletRequest request = request("GET", "remote", null);
+        CapturingResponse response = new CapturingResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, response.mock, chain);
+
+        verify(chain, never()).doFilter(any(), any());
+        assertEquals(1, ownerRequests.get());
+        assertEquals("app=remote&startTime=1000", ownerQuery.get());
+        assertEquals("secret", ownerToken.get());
+        verify(response.mock).setStatus(200);
+        verify(response.mock).setHeader("Content-Type", "application/json;charset=UTF-8");
+        assertEquals(BODY, response.body());
+    }
+
+    @Test
+    public void testRelaysOwnerErrorStatus() throws Exception {
+        ownerStatus = 500;
+        CapturingResponse response = new CapturingResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request("GET", "remote", null), response.mock, chain);
+
+        verify(chain, never()).doFilter(any(), any());
+        verify(response.mock).setStatus(500);
+    }
+
+    @Test
+    public void testServesLocally() throws Exception {
+        // Owned by this replica, no app, already proxied by another replica, or not a query.
+        HttpServletRequest[] requests = new HttpServletRequest[] {
+            request("GET", "local", null),
+            request("GET", null, null),
+            request("GET", "remote", "secret"),
+            request("POST", "remote", null)
+        };
+        for (HttpServletRequest request : requests) {
+            HttpServletResponse response = mock(HttpServletResponse.class);
+            FilterChain chain = mock(FilterChain.class);
+            filter.doFilter(request, response, chain);
+            verify(chain).doFilter(request, response);
+        }
+        assertEquals(0, ownerRequests.get());
+    }
+
+    @Test
+    public void testServesLocallyWhenDisabled() throws Exception {
+        when(replicaManager.isEnabled()).thenReturn(false);
+        HttpServletRequest request = request("GET", "remote", null);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertEquals(0, ownerRequests.get());
+    }
+
+    @Test
+    public void testServesLocallyWhenOwnerUnreachable() throws Exception {
+        int deadPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            deadPort = socket.getLocalPort();
+        }
+        when(replicaManager.getOwner("remote")).thenReturn(new ReplicaMember("127.0.0.1:" + deadPort));
+        HttpServletRequest request = request("GET", "remote", null);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        verify(response, never()).setStatus(any(Integer.class));
+    }
+
+    private static HttpServletRequest request(String method, String app, String token) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn(method);
+        when(request.getRequestURI()).thenReturn(PATH);
+        when(request.getParameter("app")).thenReturn(app);
+        when(request.getQueryString()).thenReturn(app == null ? "startTime=1000" : "app=" + app + "&startTime=1000");
+        when(request.getHeader(ReplicaManager.REPLICA_TOKEN_HEADER)).thenReturn(token);
+        return request;
+    }
+
+    private static final class CapturingResponse {
+
+        private final HttpServletResponse mock = mock(HttpServletResponse.class);
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        private CapturingResponse() {
+            try {
+                when(mock.getOutputStream()).thenReturn(new ServletOutputStream() {
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                    }
+
+                    @Override
+                    public void write(int b) {
+                        out.write(b);
+                    }
+                });
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private String body() {
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
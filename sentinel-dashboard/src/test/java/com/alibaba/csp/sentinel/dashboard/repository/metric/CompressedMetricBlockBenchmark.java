@@ -0,0 +1,117 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Size (printed as bytes/point at setup) and decode throughput of {@link CompressedMetricBlock},
+ * against reading the same points from an uncompressed map as the hot window does.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.alibaba.csp.sentinel.dashboard.repository.metric.CompressedMetricBlockBenchmark}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressedMetricBlockBenchmark {
+
+    /**
+     * Fraction of seconds in which the resource got no traffic.
+     */
+    @Param({"0.0", "0.9"})
+    private double idleRatio;
+
+    private CompressedMetricBlock block;
+    private TreeMap<Long, MetricEntity> uncompressed;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        long start = System.currentTimeMillis() / 60_000 * 60_000;
+        long qps = 200;
+        List<MetricEntity> points = new ArrayList<>();
+        uncompressed = new TreeMap<>();
+        for (int second = 0; second < 60; second++) {
+            long timestamp = start + second * 1000L;
+            boolean idle = random.nextDouble() < idleRatio;
+            qps = Math.max(0, qps + random.nextInt(11) - 5);
+            MetricEntity entity = new MetricEntity();
+            entity.setApp("benchmark-app");
+            entity.setResource("/api/resource");
+            entity.setIp("10.0.0.1");
+            entity.setPort(8719);
+            entity.setTimestamp(new Date(timestamp));
+            // Written by MetricFetcher in batches of 6 seconds.
+            entity.setGmtCreate(new Date(start + (second / 6 + 1) * 6000L + 2000));
+            entity.setPassQps(idle ? 0L : qps);
+            entity.setBlockQps(idle ? 0L : qps / 50);
+            entity.setExceptionQps(0L);
+            entity.setRtAndSuccessQps(idle ? 0 : 10 + random.nextInt(3), idle ? 0L : qps);
+            entity.setCount(idle ? 0 : 1);
+            points.add(entity);
+            uncompressed.put(timestamp, entity);
+        }
+        block = CompressedMetricBlock.encode(points);
+        System.out.printf("%nidleRatio=%.1f: %.2f bytes/point%n", idleRatio,
+            (double)block.sizeInBytes() / block.size());
+    }
+
+    @Benchmark
+    public List<MetricEntity> decodeBlock() {
+        List<MetricEntity> results = new ArrayList<>(60);
+        block.decodeBetween(Long.MIN_VALUE, Long.MAX_VALUE, "benchmark-app", "/api/resource", "10.0.0.1", 8719,
+            results);
+        return results;
+    }
+
+    @Benchmark
+    public List<MetricEntity> readUncompressed() {
+        return new ArrayList<>(uncompressed.values());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(CompressedMetricBlockBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link CompressedMetricBlock} and {@link MetricSeries}.
+ */
+public class CompressedMetricBlockTest {
+
+    private static final long START = 1_600_000_000_000L;
+
+    @Test
+    public void testRoundTrip() {
+        List<MetricEntity> points = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            // Irregular gaps, negative deltas and varying rt.
+            long timestamp = START + i * 1000L + (i % 7 == 0 ? 3000 : 0);
+            points.add(newEntity(timestamp, timestamp + 2500 + (i % 3) * 6000, i % 5 == 0 ? 0 : 100 - i,
+                i * 37.125));
+        }
+        CompressedMetricBlock block = CompressedMetricBlock.encode(points);
+        assertEquals(60, block.size());
+
+        List<MetricEntity> decoded = new ArrayList<>();
+        block.decodeBetween(Long.MIN_VALUE, Long.MAX_VALUE, "app", "res", "10.0.0.1", 8719, decoded);
+        assertEquals(points.size(), decoded.size());
+        for (int i = 0; i < points.size(); i++) {
+            MetricEntity expected = points.get(i);
+            MetricEntity actual = decoded.get(i);
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+            assertEquals(expected.getGmtCreate(), actual.getGmtCreate());
+            assertEquals(expected.getPassQps(), actual.getPassQps());
+            assertEquals(expected.getBlockQps(), actual.getBlockQps());
+            assertEquals(expected.getSuccessQps(), actual.getSuccessQps());
+            assertEquals(expected.getExceptionQps(), actual.getExceptionQps());
+            assertEquals(expected.getRt(), actual.getRt(), 0);
+            assertEquals(expected.getCount(), actual.getCount());
+            assertEquals("10.0.0.1", actual.getIp());
+            assertEquals("res", actual.getResource());
+        }
+
+        decoded.clear();
+        block.decodeBetween(START + 10_000, START + 20_000, "app", "res", "10.0.0.1", 8719, decoded);
+        for (MetricEntity entity : decoded) {
+            long timestamp = entity.getTimestamp().getTime();
+            assertTrue(timestamp >= START + 10_000 && timestamp <= START + 20_000);
+        }
+        assertFalse(decoded.isEmpty());
+    }
+
+    @Test
+    public void testConstantSeriesIsSmall() {
+        List<MetricEntity> points = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            points.add(newEntity(START + i * 1000L, START + 6000, 0, 0));
+        }
+        // 8 one-byte fields per point, apart from the first one.
+        assertTrue(CompressedMetricBlock.encode(points).sizeInBytes() <= 60 * 8 + 16);
+    }
+
+    @Test
+    public void testSeriesSealsOldWindows() {
+        MetricSeries series = new MetricSeries("app", "res", "10.0.0.1", 8719);
+        for (int i = 0; i < 180; i++) {
+            series.put(newEntity(START + i * 1000L, START + i * 1000L, 10, 5), START + i * 1000L);
+        }
+        long now = START + 180_000;
+        series.seal(now, null);
+        assertTrue(series.sealedBytes() > 0);
+        assertEquals(180, series.size());
+
+        List<MetricEntity> results = new ArrayList<>();
+        series.collectBetween(START + 59_000, START + 61_000, results);
+        assertEquals(3, results.size());
+
+        series.expire(START + 120_000);
+        results.clear();
+        series.collectBetween(START, now, results);
+        assertEquals(60, results.size());
+    }
+
+    private static MetricEntity newEntity(long timestamp, long gmtCreate, long successQps, double avgRt) {
+        MetricEntity entity = new MetricEntity();
+        entity.setApp("app");
+        entity.setResource("res");
+        entity.setIp("10.0.0.1");
+        entity.setPort(8719);
+        entity.setTimestamp(new Date(timestamp));
+        entity.setGmtCreate(new Date(gmtCreate));
+        entity.setPassQps(successQps + 2);
+        entity.setBlockQps(2L);
+        entity.setExceptionQps(successQps / 10);
+        entity.setRtAndSuccessQps(avgRt, successQps);
+        entity.setCount(1);
+        return entity;
+    }
+}
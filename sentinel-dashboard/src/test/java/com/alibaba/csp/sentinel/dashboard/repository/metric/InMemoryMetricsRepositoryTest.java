@@ -15,6 +15,7 @@
  */
 package com.alibaba.csp.sentinel.dashboard.repository.metric;
 
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
 import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
 import org.junit.After;
 import org.junit.Assert;
@@ -23,6 +24,8 @@ import org.junit.Test;
 import org.springframework.util.CollectionUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Date;
 import java.util.List;
@@ -34,6 +37,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.*;
 
@@ -46,7 +50,7 @@ public class InMemoryMetricsRepositoryTest {
 
     private final static String DEFAULT_APP = "defaultApp";
     private final static String DEFAULT_RESOURCE = "defaultResource";
-    private static final long EXPIRE_TIME = 1000 * 60 * 5L;
+    private static final long EXPIRE_TIME = DashboardConfig.getMetricRetentionMinutes() * 60_000L;
 
     private InMemoryMetricsRepository inMemoryMetricsRepository;
     private ExecutorService executorService;
@@ -99,6 +103,125 @@ public class InMemoryMetricsRepositoryTest {
     }
 
 
+    @Test
+    public void testListResourcesOfAppWithSearchKey() {
+        long now = System.currentTimeMillis();
+        for (String resource : new String[] {"GET:/api/users", "GET:/api/orders", "POST:/api/users"}) {
+            MetricEntity entry = new MetricEntity();
+            entry.setApp(DEFAULT_APP);
+            entry.setResource(resource);
+            entry.setTimestamp(new Date(now));
+            entry.setPassQps(1L);
+            entry.setExceptionQps(0L);
+            entry.setBlockQps(resource.startsWith("POST") ? 5L : 0L);
+            entry.setSuccessQps(1L);
+            inMemoryMetricsRepository.save(entry);
+        }
+
+        List<String> result = inMemoryMetricsRepository.listResourcesOfApp(DEFAULT_APP, "users");
+        assertEquals(2, result.size());
+        // Still ordered by block QPS.
+        assertEquals("POST:/api/users", result.get(0));
+        assertTrue(inMemoryMetricsRepository.listResourcesOfApp(DEFAULT_APP, "payments").isEmpty());
+        assertEquals(3, inMemoryMetricsRepository.listResourcesOfApp(DEFAULT_APP, "").size());
+    }
+
+
+    @Test
+    public void testQueryByAppAndInstanceBetween() {
+        long now = System.currentTimeMillis();
+        for (int port : new int[] {8720, 8719}) {
+            for (String resource : new String[] {"resA", "resB"}) {
+                MetricEntity entry = new MetricEntity();
+                entry.setApp(DEFAULT_APP);
+                entry.setIp("127.0.0.1");
+                entry.setPort(port);
+                entry.setResource(resource);
+                entry.setTimestamp(new Date(now));
+                entry.setPassQps((long) port);
+                entry.setExceptionQps(0L);
+                entry.setBlockQps(0L);
+                entry.setSuccessQps(1L);
+                inMemoryMetricsRepository.save(entry);
+            }
+        }
+
+        assertEquals(Arrays.asList("127.0.0.1:8719", "127.0.0.1:8720"),
+            inMemoryMetricsRepository.listInstancesOfApp(DEFAULT_APP));
+        List<MetricEntity> list = inMemoryMetricsRepository.queryByAppAndInstanceBetween(
+            DEFAULT_APP, "127.0.0.1:8720", now - 1000, now);
+        assertEquals(2, list.size());
+        for (MetricEntity entity : list) {
+            assertEquals(8720L, entity.getPassQps().longValue());
+        }
+        // Instances reporting in the same second no longer overwrite each other.
+        assertEquals(2, inMemoryMetricsRepository.queryByAppAndResourceBetween(
+            DEFAULT_APP, "resA", now - 1000, now).size());
+        assertTrue(inMemoryMetricsRepository.queryByAppAndInstanceBetween(
+            DEFAULT_APP, "127.0.0.1:9999", now - 1000, now).isEmpty());
+    }
+
+
+    @Test
+    public void testResourceCountCapEvictsLeastRecentlyUsed() {
+        InMemoryMetricsRepository repository = new InMemoryMetricsRepository(Long.MAX_VALUE, Long.MAX_VALUE, 10);
+        long now = System.currentTimeMillis();
+        // Each write or query happens 1 ms after the previous one.
+        AtomicLong clock = new AtomicLong(now);
+        repository.setClock(clock::incrementAndGet);
+        for (int i = 0; i < 10; i++) {
+            repository.save(newEntity("app", "res" + i, "127.0.0.1", now));
+        }
+        // res0 was queried after it was written, so res1 is the least recently used.
+        repository.queryByAppAndResourceBetween("app", "res0", now - 1000, now);
+        repository.save(newEntity("app", "res10", "127.0.0.1", now));
+
+        List<String> resources = repository.listResourcesOfApp("app");
+        assertEquals(10, resources.size());
+        assertTrue(resources.contains("res0"));
+        assertFalse(resources.contains("res1"));
+        assertTrue(resources.contains("res10"));
+        assertEquals(1, repository.getMemoryUsage().get(0).getEvictedSeries());
+    }
+
+    @Test
+    public void testListResourcesOfAppUsesClock() {
+        InMemoryMetricsRepository repository = new InMemoryMetricsRepository(Long.MAX_VALUE, Long.MAX_VALUE, 10);
+        long now = System.currentTimeMillis();
+        AtomicLong clock = new AtomicLong(now);
+        repository.setClock(clock::get);
+        repository.save(newEntity("app", "res", "127.0.0.1", now));
+        assertEquals(Collections.singletonList("res"), repository.listResourcesOfApp("app"));
+
+        // Only resources with metrics in the last minute of the clock are listed.
+        clock.addAndGet(1000 * 61);
+        assertTrue(repository.listResourcesOfApp("app").isEmpty());
+    }
+
+    @Test
+    public void testMemoryQuotaEvictsOffendingApp() {
+        long seriesBytes = MetricSeries.SERIES_OVERHEAD_BYTES + MetricSeries.HOT_POINT_BYTES;
+        InMemoryMetricsRepository repository = new InMemoryMetricsRepository(seriesBytes * 30, seriesBytes * 20,
+            Integer.MAX_VALUE);
+        long now = System.currentTimeMillis();
+        AtomicLong clock = new AtomicLong(now);
+        repository.setClock(clock::incrementAndGet);
+        for (int i = 0; i < 10; i++) {
+            repository.save(newEntity("quiet", "res" + i, "127.0.0.1", now));
+        }
+        for (int i = 0; i < 100; i++) {
+            repository.save(newEntity("noisy", "/api/item/" + i, "127.0.0.1", now));
+        }
+        assertEquals(10, repository.listResourcesOfApp("quiet").size());
+        List<String> noisy = repository.listResourcesOfApp("noisy");
+        assertTrue(noisy.size() <= 20);
+        // The most recently written resources are kept.
+        assertTrue(noisy.contains("/api/item/99"));
+        assertTrue(repository.getUsedBytes() <= seriesBytes * 30);
+        assertEquals("noisy", repository.getMemoryUsage().get(0).getApp());
+        assertTrue(repository.getMemoryUsage().get(0).getEvictedSeries() >= 80);
+    }
+
     @Test
     public void testExpireMetric() {
         long now = System.currentTimeMillis();
@@ -132,6 +255,23 @@ public class InMemoryMetricsRepositoryTest {
     }
 
 
+    @Test
+    public void testConfiguredRetention() {
+        InMemoryMetricsRepository repository = new InMemoryMetricsRepository(Long.MAX_VALUE, Long.MAX_VALUE,
+            Integer.MAX_VALUE, 0, 1000 * 60 * 2L);
+        long now = System.currentTimeMillis();
+        // Sealed windows older than the default 5 minutes of retention before compression.
+        for (long t = now - 1000 * 60 * 10L; t <= now; t += 1000) {
+            repository.save(newEntity("app", "res", "127.0.0.1", t));
+        }
+        List<MetricEntity> list = repository.queryByAppAndResourceBetween("app", "res", now - 1000 * 60 * 10L, now);
+        assertFalse(list.isEmpty());
+        assertTrue(list.get(0).getTimestamp().getTime() >= now - 1000 * 60 * 2L);
+        assertEquals(now, list.get(list.size() - 1).getTimestamp().getTime());
+
+        assertTrue(DashboardConfig.getMetricRetentionMinutes() * 60_000L > 1000 * 60 * 5L);
+    }
+
     @Test
     public void testConcurrentPutAndGet() {
 
@@ -190,5 +330,17 @@ public class InMemoryMetricsRepositoryTest {
         }
     }
 
-
-}
\ No newline at end of file
+    private static MetricEntity newEntity(String app, String resource, String ip, long timestamp) {
+        MetricEntity entry = new MetricEntity();
+        entry.setApp(app);
+        entry.setResource(resource);
+        entry.setIp(ip);
+        entry.setPort(8719);
+        entry.setTimestamp(new Date(timestamp));
+        entry.setPassQps(1L);
+        entry.setExceptionQps(0L);
+        entry.setBlockQps(0L);
+        entry.setSuccessQps(1L);
+        return entry;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link InstanceSkewDetector}.
+ */
+public class InstanceSkewDetectorTest {
+
+    @Test
+    public void testFlagsHotInstance() {
+        InstanceSkewDetector detector = new InstanceSkewDetector();
+        List<MetricEntity> cycle = new ArrayList<>();
+        for (int port = 8719; port < 8724; port++) {
+            // 6 seconds per cycle, like MetricFetcher.
+            for (int second = 0; second < 6; second++) {
+                cycle.add(newEntity("res", port, second, port == 8719 ? 400 : 100, port == 8720 ? 30 : 0));
+            }
+            cycle.add(newEntity("balanced", port, 0, 100, 0));
+        }
+        detector.record(cycle);
+
+        List<InstanceSkew> skews = detector.query("app");
+        assertEquals(2, skews.size());
+        // Ordered by ratio, block qps of 30 against a median of 0 comes first.
+        InstanceSkew block = skews.get(0);
+        assertEquals(InstanceSkew.BLOCK_QPS, block.getMetric());
+        assertEquals("10.0.0.1:8720", block.getInstance());
+        assertEquals(30, block.getRatio(), 1e-9);
+        InstanceSkew pass = skews.get(1);
+        assertEquals("res", pass.getResource());
+        assertEquals("10.0.0.1:8719", pass.getInstance());
+        assertEquals(InstanceSkew.PASS_QPS, pass.getMetric());
+        assertEquals(4, pass.getRatio(), 1e-9);
+        assertEquals(0.5, pass.getShare(), 1e-9);
+
+        Map<String, List<InstanceSkew>> highlights = detector.queryByInstances("app",
+            Arrays.asList("10.0.0.1:8720", "10.0.0.1:8721"));
+        assertEquals(1, highlights.size());
+        assertEquals(1, highlights.get("10.0.0.1:8720").size());
+        assertTrue(detector.query("other").isEmpty());
+    }
+
+    @Test
+    public void testNotEnoughInstances() {
+        InstanceSkewDetector detector = new InstanceSkewDetector();
+        detector.record(Arrays.asList(newEntity("res", 8719, 0, 1000, 0), newEntity("res", 8720, 0, 10, 0)));
+        assertTrue(detector.query("app").isEmpty());
+    }
+
+    @Test
+    public void testMedian() {
+        Random random = new Random(7);
+        for (int n = 1; n < 50; n++) {
+            double[] values = new double[n + 3];
+            for (int i = 0; i < n; i++) {
+                values[i] = random.nextInt(10);
+            }
+            double[] sorted = Arrays.copyOf(values, n);
+            Arrays.sort(sorted);
+            double expected = n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+            assertEquals(expected, InstanceSkewDetector.median(values, n), 0);
+        }
+    }
+
+    private static MetricEntity newEntity(String resource, int port, int second, long passQps, long blockQps) {
+        MetricEntity entity = new MetricEntity();
+        entity.setApp("app");
+        entity.setResource(resource);
+        entity.setIp("10.0.0.1");
+        entity.setPort(port);
+        entity.setTimestamp(new Date(1_600_000_000_000L + second * 1000L));
+        entity.setPassQps(passQps);
+        entity.setBlockQps(blockQps);
+        entity.setExceptionQps(0L);
+        entity.setRtAndSuccessQps(10, passQps);
+        entity.setCount(1);
+        return entity;
+    }
+}
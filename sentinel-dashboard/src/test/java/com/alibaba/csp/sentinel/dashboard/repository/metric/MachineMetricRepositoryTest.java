@@ -0,0 +1,97 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.csp.sentinel.Constants;
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link MachineMetricRepository}.
+ */
+public class MachineMetricRepositoryTest {
+
+    @Test
+    public void testSaveAndSummarize() {
+        MachineMetricRepository repository = new MachineMetricRepository();
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        List<MetricEntity> entities = new ArrayList<>();
+        for (int port : new int[] {8719, 8720}) {
+            entities.add(newEntity(Constants.TOTAL_IN_RESOURCE_NAME, port, now, 100, 10));
+            entities.add(newEntity(Constants.SYSTEM_LOAD_RESOURCE_NAME, port, now, port == 8719 ? 25000 : 5000, 0));
+            entities.add(newEntity(Constants.CPU_USAGE_RESOURCE_NAME, port, now, port == 8719 ? 3000 : 8000, 0));
+            // Regular resources are ignored.
+            entities.add(newEntity("GET:/orders", port, now, 50, 10));
+        }
+        repository.saveAll(entities);
+
+        Map<String, List<MachineMetric>> instances = repository.queryByAppBetween("app", now - 1000, now);
+        assertEquals(2, instances.size());
+        MachineMetric instance = instances.get("10.0.0.1:8719").get(0);
+        assertEquals(100, instance.getPassQps());
+        assertEquals(2.5, instance.getSystemLoad(), 1e-9);
+        assertEquals(0.3, instance.getCpuUsage(), 1e-9);
+        assertEquals(10, instance.getRt(), 1e-9);
+
+        List<MachineMetric> summary = MachineMetricRepository.summarize(instances);
+        assertEquals(1, summary.size());
+        assertEquals(200, summary.get(0).getPassQps());
+        assertEquals(2, summary.get(0).getInstanceCount());
+        assertEquals(2.5, summary.get(0).getSystemLoad(), 1e-9);
+        assertEquals(0.8, summary.get(0).getCpuUsage(), 1e-9);
+        assertEquals(10, summary.get(0).getRt(), 1e-9);
+
+        assertTrue(repository.queryByAppBetween("app", now - 5000, now - 1000).isEmpty());
+    }
+
+    @Test
+    public void testRetentionDropsOlderMetrics() {
+        MachineMetricRepository repository = new MachineMetricRepository(1000 * 60 * 10);
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        List<MetricEntity> entities = new ArrayList<>();
+        // Older than the former fixed window of five minutes, still within the retention.
+        entities.add(newEntity(Constants.TOTAL_IN_RESOURCE_NAME, 8719, now - 1000 * 60 * 8, 100, 10));
+        entities.add(newEntity(Constants.TOTAL_IN_RESOURCE_NAME, 8719, now - 1000 * 60 * 11, 100, 10));
+        repository.saveAll(entities);
+
+        List<MachineMetric> metrics = repository.queryByAppBetween("app", 0, now).get("10.0.0.1:8719");
+        assertEquals(1, metrics.size());
+        assertEquals(now - 1000 * 60 * 8, metrics.get(0).getTimestamp());
+    }
+
+    private static MetricEntity newEntity(String resource, int port, long timestamp, long passQps, double rt) {
+        MetricEntity entity = new MetricEntity();
+        entity.setApp("app");
+        entity.setResource(resource);
+        entity.setIp("10.0.0.1");
+        entity.setPort(port);
+        entity.setTimestamp(new Date(timestamp));
+        entity.setGmtCreate(new Date(timestamp));
+        entity.setPassQps(passQps);
+        entity.setBlockQps(0L);
+        entity.setExceptionQps(0L);
+        entity.setRtAndSuccessQps(rt, passQps);
+        entity.setCount(1);
+        return entity;
+    }
+}
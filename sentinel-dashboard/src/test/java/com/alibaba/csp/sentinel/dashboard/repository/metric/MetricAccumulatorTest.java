@@ -0,0 +1,175 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link MetricAccumulator}.
+ */
+public class MetricAccumulatorTest {
+
+    @Test
+    public void testAddRawSamples() {
+        MetricAccumulator accumulator = new MetricAccumulator("app", "10.0.0.1", 8719, "/hello", 1000);
+        accumulator.add(10, 2, 8, 1, 5);
+        accumulator.add(20, 3, 12, 0, 10);
+
+        assertEquals(30, accumulator.getPassQps());
+        assertEquals(5, accumulator.getBlockQps());
+        assertEquals(20, accumulator.getSuccessQps());
+        assertEquals(1, accumulator.getExceptionQps());
+        // rt is the summary rt of all success qps: 5 * 8 + 10 * 12
+        assertEquals(160, accumulator.getRt(), 1e-9);
+        assertEquals(8, accumulator.getAvgRt(), 1e-9);
+        assertEquals(2, accumulator.getCount());
+    }
+
+    @Test
+    public void testAvgRtWithoutSuccessQps() {
+        MetricAccumulator accumulator = new MetricAccumulator("app", "10.0.0.1", 8719, "/hello", 1000);
+        assertEquals(0, accumulator.getAvgRt(), 0);
+        accumulator.add(0, 10, 0, 0, 30);
+        assertEquals(0, accumulator.getRt(), 0);
+        assertEquals(0, accumulator.getAvgRt(), 0);
+    }
+
+    @Test
+    public void testAddStoredMetric() {
+        MetricAccumulator accumulator = new MetricAccumulator("app", null, 0, "/hello", 1000);
+        accumulator.add(newEntity(1000, 10, 2, 8, 1, 5));
+        accumulator.add(newEntity(1000, 20, 3, 12, 0, 10));
+
+        assertEquals(30, accumulator.getPassQps());
+        assertEquals(5, accumulator.getBlockQps());
+        assertEquals(20, accumulator.getSuccessQps());
+        assertEquals(1, accumulator.getExceptionQps());
+        // The stored rt is already the summary, it must not be multiplied again.
+        assertEquals(160, accumulator.getRt(), 1e-9);
+        assertEquals(8, accumulator.getAvgRt(), 1e-9);
+        assertEquals(2, accumulator.getCount());
+
+        MetricEntity entity = accumulator.toMetricEntity(new Date(2000));
+        assertEquals("app", entity.getApp());
+        assertEquals("/hello", entity.getResource());
+        assertEquals(1000, entity.getTimestamp().getTime());
+        assertEquals(2000, entity.getGmtCreate().getTime());
+        assertEquals(30, entity.getPassQps().longValue());
+        assertEquals(20, entity.getSuccessQps().longValue());
+        assertEquals(160, entity.getRt(), 1e-9);
+        assertEquals(2, entity.getCount());
+    }
+
+    @Test
+    public void testSumByTimestampMatchesEntityAggregation() {
+        Random random = new Random(42);
+        List<MetricEntity> entities = new ArrayList<>();
+        for (int instance = 0; instance < 5; instance++) {
+            for (int second = 0; second < 20; second++) {
+                // Leave gaps so that timestamps have different numbers of instances.
+                if (random.nextInt(4) == 0) {
+                    continue;
+                }
+                long successQps = random.nextInt(3) == 0 ? 0 : random.nextInt(100);
+                entities.add(newEntity(second * 1000L, random.nextInt(200), random.nextInt(50), successQps,
+                    random.nextInt(5), random.nextDouble() * 100));
+            }
+        }
+        Map<Long, MetricEntity> expected = aggregateEntities(entities);
+
+        List<MetricAccumulator> results = MetricAccumulator.sumByTimestamp(entities, "app", "/hello");
+        assertEquals(expected.size(), results.size());
+        long lastTimestamp = -1;
+        for (MetricAccumulator result : results) {
+            assertTrue(result.getTimestamp() > lastTimestamp);
+            lastTimestamp = result.getTimestamp();
+            assertEquals("app", result.getApp());
+            assertEquals("/hello", result.getResource());
+
+            MetricEntity entity = expected.get(result.getTimestamp());
+            assertNotNull(entity);
+            assertEquals(entity.getPassQps().longValue(), result.getPassQps());
+            assertEquals(entity.getBlockQps().longValue(), result.getBlockQps());
+            assertEquals(entity.getSuccessQps().longValue(), result.getSuccessQps());
+            assertEquals(entity.getExceptionQps().longValue(), result.getExceptionQps());
+            assertEquals(entity.getRt(), result.getRt(), 1e-6);
+            assertEquals(entity.getCount(), result.getCount());
+        }
+    }
+
+    @Test
+    public void testSumByTimestampEmpty() {
+        assertTrue(MetricAccumulator.sumByTimestamp(null, "app", "/hello").isEmpty());
+        assertTrue(MetricAccumulator.sumByTimestamp(new ArrayList<>(), "app", "/hello").isEmpty());
+    }
+
+    /**
+     * How the aggregate view used to sum instances, with {@link MetricEntity}.
+     */
+    private static Map<Long, MetricEntity> aggregateEntities(List<MetricEntity> entities) {
+        Map<Long, MetricEntity> aggregated = new HashMap<>();
+        for (MetricEntity entity : entities) {
+            long timestamp = entity.getTimestamp().getTime();
+            MetricEntity existing = aggregated.get(timestamp);
+            if (existing == null) {
+                existing = new MetricEntity();
+                existing.setTimestamp(entity.getTimestamp());
+                existing.setPassQps(0L);
+                existing.setBlockQps(0L);
+                existing.setSuccessQps(0L);
+                existing.setExceptionQps(0L);
+                existing.setRt(0.0);
+                existing.setCount(0);
+                aggregated.put(timestamp, existing);
+            }
+            existing.addPassQps(entity.getPassQps());
+            existing.addBlockQps(entity.getBlockQps());
+            existing.addExceptionQps(entity.getExceptionQps());
+            existing.addRtAndSuccessQps(
+                entity.getSuccessQps() > 0 ? entity.getRt() / entity.getSuccessQps() : 0,
+                entity.getSuccessQps()
+            );
+            existing.addCount(1);
+        }
+        return aggregated;
+    }
+
+    private static MetricEntity newEntity(long timestamp, long passQps, long blockQps, long successQps,
+                                          long exceptionQps, double avgRt) {
+        MetricEntity entity = new MetricEntity();
+        entity.setApp("app");
+        entity.setResource("/hello");
+        entity.setIp("10.0.0.1");
+        entity.setPort(8719);
+        entity.setTimestamp(new Date(timestamp));
+        entity.setPassQps(passQps);
+        entity.setBlockQps(blockQps);
+        entity.setExceptionQps(exceptionQps);
+        entity.setRtAndSuccessQps(avgRt, successQps);
+        entity.setCount(1);
+        return entity;
+    }
+}
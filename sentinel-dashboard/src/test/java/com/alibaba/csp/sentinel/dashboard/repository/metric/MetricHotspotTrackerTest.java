@@ -0,0 +1,134 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricHotspotTracker.HotspotMetric;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link MetricHotspotTracker}.
+ */
+public class MetricHotspotTrackerTest {
+
+    private final long windowMs = DashboardConfig.getHotspotWindowSeconds() * 1000L;
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private MetricHotspotTracker tracker;
+
+    @Before
+    public void setUp() {
+        tracker = new MetricHotspotTracker();
+        tracker.setClock(now::get);
+    }
+
+    @Test
+    public void testRtDerivedFromSummaryRt() {
+        tracker.record(Arrays.asList(
+            newEntity("a", 10, 1, 10, 20),
+            // No success QPS, no rt to derive.
+            newEntity("b", 5, 0, 0, 0),
+            newEntity("c", 0, 0, 4, 100)));
+
+        List<MetricHotspot> rt = tracker.top(HotspotMetric.RT, 10);
+        assertEquals(2, rt.size());
+        assertHotspot(rt.get(0), "c", 100);
+        assertHotspot(rt.get(1), "a", 20);
+
+        List<MetricHotspot> block = tracker.top(HotspotMetric.BLOCK_QPS, 10);
+        assertEquals(2, block.size());
+        assertHotspot(block.get(0), "a", 10);
+        assertHotspot(block.get(1), "b", 5);
+
+        List<MetricHotspot> exception = tracker.top(HotspotMetric.EXCEPTION_QPS, 10);
+        assertEquals(1, exception.size());
+        assertHotspot(exception.get(0), "a", 1);
+
+        assertEquals(1, tracker.top(HotspotMetric.BLOCK_QPS, 1).size());
+    }
+
+    @Test
+    public void testMergesCurrentAndPreviousWindow() {
+        tracker.record(Arrays.asList(newEntity("a", 10, 0, 10, 20), newEntity("b", 5, 0, 0, 0)));
+        now.addAndGet(windowMs / 2);
+        tracker.record(Collections.singletonList(newEntity("a", 4, 0, 10, 10)));
+
+        // Next window: sums add up and maxima are kept across both windows.
+        now.addAndGet(windowMs / 2 + 10);
+        tracker.record(Arrays.asList(newEntity("a", 1, 0, 10, 50), newEntity("d", 3, 0, 0, 0)));
+
+        List<MetricHotspot> block = tracker.top(HotspotMetric.BLOCK_QPS, 10);
+        assertEquals(3, block.size());
+        assertHotspot(block.get(0), "a", 15);
+        assertHotspot(block.get(1), "b", 5);
+        assertHotspot(block.get(2), "d", 3);
+
+        List<MetricHotspot> rt = tracker.top(HotspotMetric.RT, 10);
+        assertEquals(1, rt.size());
+        assertHotspot(rt.get(0), "a", 50);
+    }
+
+    @Test
+    public void testRotationDropsOldWindows() {
+        tracker.record(Collections.singletonList(newEntity("a", 10, 0, 0, 0)));
+        now.addAndGet(windowMs + 10);
+        tracker.record(Collections.singletonList(newEntity("b", 5, 0, 0, 0)));
+
+        // One more window: the first window is dropped, the second becomes the previous one.
+        now.addAndGet(windowMs);
+        List<MetricHotspot> block = tracker.top(HotspotMetric.BLOCK_QPS, 10);
+        assertEquals(1, block.size());
+        assertHotspot(block.get(0), "b", 5);
+
+        tracker.record(Collections.singletonList(newEntity("c", 1, 0, 0, 0)));
+        assertEquals(2, tracker.top(HotspotMetric.BLOCK_QPS, 10).size());
+
+        // Idle for more than two windows: nothing is left.
+        now.addAndGet(windowMs * 3);
+        assertTrue(tracker.top(HotspotMetric.BLOCK_QPS, 10).isEmpty());
+    }
+
+    private static void assertHotspot(MetricHotspot hotspot, String resource, double value) {
+        assertEquals("app", hotspot.getApp());
+        assertEquals(resource, hotspot.getResource());
+        assertEquals(value, hotspot.getValue(), 1e-9);
+    }
+
+    private static MetricEntity newEntity(String resource, long blockQps, long exceptionQps, long successQps,
+                                          double avgRt) {
+        MetricEntity entity = new MetricEntity();
+        entity.setApp("app");
+        entity.setResource(resource);
+        entity.setIp("10.0.0.1");
+        entity.setPort(8719);
+        entity.setTimestamp(new Date(1000));
+        entity.setPassQps(blockQps + successQps);
+        entity.setBlockQps(blockQps);
+        entity.setExceptionQps(exceptionQps);
+        entity.setRtAndSuccessQps(avgRt, successQps);
+        entity.setCount(1);
+        return entity;
+    }
+}
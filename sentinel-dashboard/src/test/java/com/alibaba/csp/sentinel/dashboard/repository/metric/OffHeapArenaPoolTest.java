@@ -0,0 +1,161 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link OffHeapArenaPool}.
+ */
+public class OffHeapArenaPoolTest {
+
+    private static final long START = 1_599_999_960_000L;
+    private static final long WINDOW_MS = 60_000;
+
+    @Test
+    public void testStoreAndRelease() {
+        OffHeapArenaPool pool = new OffHeapArenaPool(1024 * 1024, 4096, WINDOW_MS);
+        CompressedMetricBlock heap = CompressedMetricBlock.encode(newWindow(START));
+        CompressedMetricBlock offHeap = pool.store(heap);
+        assertTrue(offHeap.isOffHeap());
+        assertEquals(0, offHeap.heapBytes());
+        assertEquals(heap.sizeInBytes(), pool.getUsedBytes());
+        assertEquals(decode(heap).size(), decode(offHeap).size());
+        assertEquals(decode(heap).get(59).getPassQps(), decode(offHeap).get(59).getPassQps());
+
+        CompressedMetricBlock next = pool.store(CompressedMetricBlock.encode(newWindow(START + WINDOW_MS)));
+        assertEquals(2, pool.getArenaCount());
+
+        // The first window ends at START + WINDOW_MS.
+        pool.releaseBefore(START + WINDOW_MS);
+        assertEquals(1, pool.getArenaCount());
+        assertTrue(offHeap.isReleased());
+        assertTrue(decode(offHeap).isEmpty());
+        assertFalse(next.isReleased());
+        assertEquals(60, decode(next).size());
+
+        // The released chunk is reused rather than allocating a new one.
+        long allocated = pool.getAllocatedBytes();
+        CompressedMetricBlock reused = pool.store(CompressedMetricBlock.encode(newWindow(START + 2 * WINDOW_MS)));
+        assertEquals(allocated, pool.getAllocatedBytes());
+        assertEquals(60, decode(reused).size());
+        assertTrue(offHeap.isReleased());
+    }
+
+    @Test
+    public void testFallBackToHeapWhenFull() {
+        OffHeapArenaPool pool = new OffHeapArenaPool(4096, 4096, WINDOW_MS);
+        int stored = 0;
+        for (int i = 0; i < 100; i++) {
+            CompressedMetricBlock block = pool.store(CompressedMetricBlock.encode(newWindow(START)));
+            if (block.isOffHeap()) {
+                stored++;
+            } else {
+                assertEquals(block.sizeInBytes(), block.heapBytes());
+            }
+        }
+        assertTrue(stored > 0 && stored < 100);
+        assertEquals(100 - stored, pool.getRejectedBlocks());
+        assertEquals(4096, pool.getAllocatedBytes());
+    }
+
+    @Test
+    public void testRepositoryWithOffHeap() {
+        InMemoryMetricsRepository repository = new InMemoryMetricsRepository(Long.MAX_VALUE, Long.MAX_VALUE,
+            Integer.MAX_VALUE, 1024 * 1024);
+        long now = System.currentTimeMillis();
+        for (int i = 240; i >= 0; i--) {
+            MetricEntity entity = newEntity(now - i * 1000L, 10);
+            repository.save(entity);
+        }
+        assertTrue(repository.getOffHeapUsage().get("storedBlocks") > 0);
+        assertEquals(241, repository.queryByAppAndResourceBetween("app", "res", now - 300_000, now).size());
+    }
+
+    @Test
+    public void testSnapshotBlocksSurviveRelease() throws Exception {
+        OffHeapArenaPool pool = new OffHeapArenaPool(4096, 4096, WINDOW_MS);
+        MetricSeries series = new MetricSeries("app", "res", "10.0.0.1", 8719);
+        for (MetricEntity entity : newWindow(START)) {
+            series.put(entity, START);
+        }
+        series.seal(START + WINDOW_MS + MetricSeries.SEAL_GRACE_MS, pool);
+        assertEquals(1, pool.getStoredBlocks());
+
+        // Taken under the lock, written once it is released.
+        List<CompressedMetricBlock> blocks = series.toBlocks();
+        assertEquals(1, blocks.size());
+
+        // Meanwhile the arena expires and its only chunk is reused by another series.
+        pool.releaseBefore(START + WINDOW_MS);
+        List<MetricEntity> other = newWindow(START + WINDOW_MS);
+        for (MetricEntity entity : other) {
+            entity.setPassQps(9999L);
+        }
+        assertTrue(pool.store(CompressedMetricBlock.encode(other)).isOffHeap());
+        assertEquals(4096, pool.getAllocatedBytes());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        blocks.get(0).writeTo(new DataOutputStream(bytes));
+        CompressedMetricBlock restored = CompressedMetricBlock.readFrom(
+            new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        List<MetricEntity> points = decode(restored);
+        assertEquals(60, points.size());
+        assertEquals(START, points.get(0).getTimestamp().getTime());
+        assertEquals(Long.valueOf(61), points.get(59).getPassQps());
+    }
+
+    private static List<MetricEntity> decode(CompressedMetricBlock block) {
+        List<MetricEntity> results = new ArrayList<>();
+        block.decodeBetween(Long.MIN_VALUE, Long.MAX_VALUE, "app", "res", "10.0.0.1", 8719, results);
+        return results;
+    }
+
+    private static List<MetricEntity> newWindow(long windowStart) {
+        List<MetricEntity> points = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            points.add(newEntity(windowStart + i * 1000L, i));
+        }
+        return points;
+    }
+
+    private static MetricEntity newEntity(long timestamp, long successQps) {
+        MetricEntity entity = new MetricEntity();
+        entity.setApp("app");
+        entity.setResource("res");
+        entity.setIp("10.0.0.1");
+        entity.setPort(8719);
+        entity.setTimestamp(new Date(timestamp));
+        entity.setGmtCreate(new Date(timestamp));
+        entity.setPassQps(successQps + 2);
+        entity.setBlockQps(2L);
+        entity.setExceptionQps(0L);
+        entity.setRtAndSuccessQps(12.5, successQps);
+        entity.setCount(1);
+        return entity;
+    }
+}
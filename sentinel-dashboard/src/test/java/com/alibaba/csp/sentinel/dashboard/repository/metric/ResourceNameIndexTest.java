@@ -0,0 +1,59 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link ResourceNameIndex}.
+ */
+public class ResourceNameIndexTest {
+
+    @Test
+    public void testSearch() {
+        ResourceNameIndex index = new ResourceNameIndex();
+        index.add("GET:/api/users");
+        index.add("POST:/api/Users");
+        index.add("GET:/api/orders");
+        index.add("ab");
+
+        assertEquals(new HashSet<>(Arrays.asList("GET:/api/users")), index.search("users", false));
+        assertEquals(new HashSet<>(Arrays.asList("GET:/api/users", "POST:/api/Users")),
+            index.search("USERS", true));
+        assertEquals(new HashSet<>(Arrays.asList("GET:/api/users", "GET:/api/orders")), index.search("GET", false));
+        assertEquals(new HashSet<>(Arrays.asList("ab")), index.search("b", false));
+        assertTrue(index.search("payments", true).isEmpty());
+        assertEquals(4, index.search("", false).size());
+    }
+
+    @Test
+    public void testRemove() {
+        ResourceNameIndex index = new ResourceNameIndex();
+        assertTrue(index.add("resourceA"));
+        assertFalse(index.add("resourceA"));
+        assertTrue(index.add("resourceB"));
+
+        assertTrue(index.remove("resourceA"));
+        assertFalse(index.remove("resourceA"));
+        assertFalse(index.contains("resourceA"));
+        assertEquals(new HashSet<>(Arrays.asList("resourceB")), index.search("resource", false));
+    }
+}
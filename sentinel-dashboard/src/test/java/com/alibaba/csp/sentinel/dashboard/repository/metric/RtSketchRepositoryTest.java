@@ -0,0 +1,109 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.SortedMap;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link RtSketchRepository}.
+ */
+public class RtSketchRepositoryTest {
+
+    private static final long MINUTE_MS = 1000 * 60;
+
+    @Test
+    public void testSaveWeightsAverageRtBySuccessQps() {
+        RtSketchRepository repository = new RtSketchRepository(MINUTE_MS * 10);
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        repository.saveAll(Arrays.asList(
+            newEntity("app", "10.0.0.1", now, 90, 5),
+            newEntity("app", "10.0.0.2", now, 10, 200),
+            // Nothing to weight the rt with.
+            newEntity("app", "10.0.0.3", now, 0, 1000),
+            newEntity("", "10.0.0.4", now, 10, 1000)));
+
+        SortedMap<Long, RtSketch> sketches = repository.queryByAppAndResourceBetween("app", "/hello", now, now,
+            1000);
+        assertEquals(1, sketches.size());
+        RtSketch sketch = sketches.get(now);
+        assertEquals(100, sketch.getTotalCount());
+        assertEquals(5, sketch.quantile(0.5), 5 * RtSketch.RELATIVE_ACCURACY);
+        assertEquals(200, sketch.quantile(0.95), 200 * RtSketch.RELATIVE_ACCURACY);
+    }
+
+    @Test
+    public void testQueryMergesIntoSteps() {
+        RtSketchRepository repository = new RtSketchRepository(MINUTE_MS * 10);
+        long start = (System.currentTimeMillis() - 10000) / 10000 * 10000;
+        for (int second = 0; second < 10; second++) {
+            repository.saveAll(Arrays.asList(
+                newEntity("app", "10.0.0.1", start + second * 1000, 10, 10),
+                newEntity("app", "10.0.0.2", start + second * 1000, 10, 10)));
+        }
+
+        SortedMap<Long, RtSketch> sketches = repository.queryByAppAndResourceBetween("app", "/hello", start,
+            start + 9000, 5000);
+        assertEquals(Arrays.asList(start, start + 5000), Arrays.asList(sketches.keySet().toArray()));
+        assertEquals(100, sketches.get(start).getTotalCount());
+        assertEquals(100, sketches.get(start + 5000).getTotalCount());
+
+        // Both ends are inclusive.
+        sketches = repository.queryByAppAndResourceBetween("app", "/hello", start + 2000, start + 4000, 1000);
+        assertEquals(3, sketches.size());
+
+        assertTrue(repository.queryByAppAndResourceBetween("app", "/other", start, start + 9000, 1000).isEmpty());
+        assertTrue(repository.queryByAppAndResourceBetween("other", "/hello", start, start + 9000, 1000).isEmpty());
+        assertTrue(repository.queryByAppAndResourceBetween(null, "/hello", start, start + 9000, 1000).isEmpty());
+    }
+
+    @Test
+    public void testRetentionDropsOlderSketches() {
+        RtSketchRepository repository = new RtSketchRepository(MINUTE_MS * 10);
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        long kept = now - MINUTE_MS * 8;
+        long expired = now - MINUTE_MS * 11;
+        repository.saveAll(Arrays.asList(
+            newEntity("app", "10.0.0.1", expired, 10, 10),
+            newEntity("app", "10.0.0.1", kept, 10, 10)));
+
+        SortedMap<Long, RtSketch> sketches = repository.queryByAppAndResourceBetween("app", "/hello", 0, now,
+            1000);
+        assertEquals(1, sketches.size());
+        assertTrue(sketches.containsKey(kept));
+    }
+
+    private static MetricEntity newEntity(String app, String ip, long timestamp, long successQps, double avgRt) {
+        MetricEntity entity = new MetricEntity();
+        entity.setApp(app);
+        entity.setResource("/hello");
+        entity.setIp(ip);
+        entity.setPort(8719);
+        entity.setTimestamp(new Date(timestamp));
+        entity.setPassQps(successQps);
+        entity.setBlockQps(0L);
+        entity.setExceptionQps(0L);
+        entity.setRtAndSuccessQps(avgRt, successQps);
+        entity.setCount(1);
+        return entity;
+    }
+}
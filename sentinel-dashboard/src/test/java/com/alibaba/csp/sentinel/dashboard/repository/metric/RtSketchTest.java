@@ -0,0 +1,67 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link RtSketch}.
+ */
+public class RtSketchTest {
+
+    @Test
+    public void testQuantileWithinRelativeAccuracy() {
+        RtSketch sketch = new RtSketch();
+        for (int rt = 1; rt <= 1000; rt++) {
+            sketch.add(rt, 1);
+        }
+        assertEquals(1000, sketch.getTotalCount());
+        assertEquals(500, sketch.quantile(0.5), 500 * RtSketch.RELATIVE_ACCURACY);
+        assertEquals(900, sketch.quantile(0.9), 900 * RtSketch.RELATIVE_ACCURACY);
+        assertEquals(990, sketch.quantile(0.99), 990 * RtSketch.RELATIVE_ACCURACY);
+    }
+
+    @Test
+    public void testMergeEqualsUnion() {
+        RtSketch fast = new RtSketch();
+        fast.add(5, 90);
+        fast.add(0, 10);
+        RtSketch slow = new RtSketch();
+        slow.add(200, 100);
+
+        RtSketch merged = new RtSketch();
+        merged.merge(fast);
+        merged.merge(slow);
+        assertEquals(200, merged.getTotalCount());
+        assertEquals(5, merged.quantile(0.5), 5 * RtSketch.RELATIVE_ACCURACY);
+        assertEquals(200, merged.quantile(0.99), 200 * RtSketch.RELATIVE_ACCURACY);
+        assertEquals(0, merged.quantile(0.01), 0);
+        assertEquals(0, new RtSketch().quantile(0.5), 0);
+    }
+
+    @Test
+    public void testBucketCountIsBounded() {
+        RtSketch sketch = new RtSketch();
+        for (int i = 0; i < 100000; i++) {
+            sketch.add(1 + i * 10.0, 1);
+        }
+        assertTrue(sketch.bucketCount() <= RtSketch.MAX_BUCKETS);
+        // Only the lowest quantiles lose accuracy.
+        assertEquals(990000, sketch.quantile(0.99), 990000 * RtSketch.RELATIVE_ACCURACY);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link TopKSketch}.
+ */
+public class TopKSketchTest {
+
+    @Test
+    public void testSumKeepsHeavyHitters() {
+        TopKSketch sketch = new TopKSketch(TopKSketch.Mode.SUM, 4);
+        for (int round = 0; round < 100; round++) {
+            sketch.offer("app", "hot", 10);
+            sketch.offer("app", "warm", 5);
+            // Many distinct light keys churn through the remaining counters.
+            sketch.offer("app" + round, "cold", 1);
+        }
+        sketch.offer("app", "zero", 0);
+
+        List<MetricHotspot> top = TopKSketch.top(TopKSketch.Mode.SUM, 2, Collections.singletonList(sketch));
+        assertEquals(2, top.size());
+        assertEquals("hot", top.get(0).getResource());
+        assertEquals(1000, top.get(0).getValue(), 0);
+        assertEquals("warm", top.get(1).getResource());
+    }
+
+    @Test
+    public void testMaxAndMerge() {
+        TopKSketch previous = new TopKSketch(TopKSketch.Mode.MAX, 2);
+        previous.offer("a", "r1", 30);
+        previous.offer("a", "r2", 10);
+        // Smaller than every monitored value of a full sketch, not admitted.
+        previous.offer("a", "r3", 5);
+        TopKSketch current = new TopKSketch(TopKSketch.Mode.MAX, 2);
+        current.offer("a", "r2", 50);
+        current.offer("a", "r1", 20);
+
+        List<MetricHotspot> top = TopKSketch.top(TopKSketch.Mode.MAX, 10, Arrays.asList(previous, current));
+        assertEquals(2, top.size());
+        assertEquals("r2", top.get(0).getResource());
+        assertEquals(50, top.get(0).getValue(), 0);
+        assertEquals("r1", top.get(1).getResource());
+        assertEquals(30, top.get(1).getValue(), 0);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 1999-2019 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.snapshot;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.dashboard.discovery.InstanceInfo;
+import com.alibaba.csp.sentinel.dashboard.discovery.SimpleInstanceDiscovery;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.InMemoryMetricsRepository;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link DashboardSnapshotManager}.
+ */
+public class DashboardSnapshotManagerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRestore() throws Exception {
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        InMemoryMetricsRepository metrics = new InMemoryMetricsRepository();
+        List<MetricEntity> entities = new ArrayList<>();
+        // Old enough for the first minutes to be sealed.
+        for (int second = 0; second < 240; second++) {
+            entities.add(newEntity("app", "res", now - second * 1000L));
+            entities.add(newEntity("other", "res" + (second % 3), now - second * 1000L));
+        }
+        metrics.saveAll(entities);
+        SimpleInstanceDiscovery discovery = new SimpleInstanceDiscovery();
+        InstanceInfo instance = InstanceInfo.of("app", "10.0.0.1", 8719);
+        instance.setHostname("host");
+        instance.setLastHeartbeat(now);
+        instance.setVersion("1.8.9");
+        discovery.addInstance(instance);
+        assertTrue(instance.isHealthy());
+
+        File file = new File(folder.getRoot(), "dashboard.snapshot");
+        new DashboardSnapshotManager(metrics, discovery).writeSnapshot(file);
+
+        InMemoryMetricsRepository restoredMetrics = new InMemoryMetricsRepository();
+        SimpleInstanceDiscovery restoredDiscovery = new SimpleInstanceDiscovery();
+        new DashboardSnapshotManager(restoredMetrics, restoredDiscovery).restore(file);
+
+        assertEquals(240, restoredMetrics.queryByAppAndResourceBetween("app", "res", now - 300_000, now).size());
+        assertEquals(metrics.queryByAppBetween("other", now - 300_000, now).size(),
+            restoredMetrics.queryByAppBetween("other", now - 300_000, now).size());
+        // Hot points are restored compressed.
+        assertTrue(restoredMetrics.getUsedBytes() > 0 && restoredMetrics.getUsedBytes() <= metrics.getUsedBytes());
+
+        InstanceInfo restored = restoredDiscovery.getDetailApp("app").getInstance("10.0.0.1", 8719).get();
+        assertEquals("host", restored.getHostname());
+        assertEquals("1.8.9", restored.getVersion());
+        assertEquals(now, restored.getLastHeartbeat());
+        // Unverified until the next heartbeat.
+        assertFalse(restored.isVerified());
+        assertFalse(restored.isHealthy());
+    }
+
+    private static MetricEntity newEntity(String app, String resource, long timestamp) {
+        MetricEntity entity = new MetricEntity();
+        entity.setApp(app);
+        entity.setResource(resource);
+        entity.setIp("10.0.0.1");
+        entity.setPort(8719);
+        entity.setTimestamp(new Date(timestamp));
+        entity.setGmtCreate(new Date(timestamp + 2000));
+        entity.setPassQps(10L);
+        entity.setBlockQps(1L);
+        entity.setExceptionQps(0L);
+        entity.setRtAndSuccessQps(5, 9L);
+        entity.setCount(1);
+        return entity;
+    }
+}
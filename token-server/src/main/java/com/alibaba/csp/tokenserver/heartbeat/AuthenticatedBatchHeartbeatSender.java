@@ -0,0 +1,384 @@
+package com.alibaba.csp.tokenserver.heartbeat;
+
+import com.alibaba.csp.sentinel.log.RecordLog;
+import com.alibaba.csp.sentinel.spi.Spi;
+import com.alibaba.csp.sentinel.transport.HeartbeatSender;
+import com.alibaba.csp.sentinel.transport.config.TransportConfig;
+import com.alibaba.csp.sentinel.transport.endpoint.Endpoint;
+import com.alibaba.csp.sentinel.transport.heartbeat.HeartbeatMessage;
+import com.alibaba.csp.sentinel.transport.heartbeat.client.SimpleHttpClient;
+import com.alibaba.csp.sentinel.transport.heartbeat.client.SimpleHttpRequest;
+import com.alibaba.csp.sentinel.transport.heartbeat.client.SimpleHttpResponse;
+import com.alibaba.csp.sentinel.util.StringUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 批量心跳发送器 - 使用 Dashboard 的 /registry/instances 批量接口
+ *
+ * 功能：
+ * 1. 本进程与其代理的逻辑实例（Sidecar、网关后的实例等）在一次请求中上报，心跳请求数不再随实例数增长
+ * 2. 与 {@link AuthenticatedHeartbeatSender} 相同，在请求中携带 app_secret 参数进行鉴权
+ * 3. Dashboard 不支持批量接口（HTTP 401/403/404/405）时，退回逐个请求 /registry/instance；
+ *    逐个请求成功后记住该 Dashboard，之后不再尝试批量接口
+ * 4. 按 Dashboard 响应中建议的间隔发送下一次心跳，见 {@link HeartbeatIntervalNegotiator}
+ * 5. 多个 Dashboard 地址时按健康状态切换并退避，或广播到所有地址，见 {@link DashboardEndpointSelector}
+ *
+ * SPI 配置：
+ * - 优先级：Spi.ORDER_LOWEST - 150（低于 AuthenticatedHeartbeatSender 的 -200，默认不启用）
+ * - 配置文件：META-INF/services/com.alibaba.csp.sentinel.transport.HeartbeatSender
+ *
+ * 使用方式：
+ * - 启用：在 META-INF/services 配置中去掉 AuthenticatedHeartbeatSender（所有 Dashboard 均已支持批量接口时）
+ * - 设置 JVM 参数：-Dcsp.sentinel.app.secret=your_secret
+ * - 代理的实例可通过 JVM 参数配置：-Dcsp.sentinel.heartbeat.batch.instances=app1@10.0.0.1:8719,app2@10.0.0.2:8719
+ * - 或在运行时调用 {@link #register(String, String, int, String)} / {@link #unregister(String, String, int)}
+ * - 多个 Dashboard 同时接收心跳：-Dcsp.sentinel.heartbeat.fanout=true
+ *
+ * @author Token Server Team
+ */
+@Spi(order = Spi.ORDER_LOWEST - 150)
+public class AuthenticatedBatchHeartbeatSender implements HeartbeatSender {
+
+    private static final int OK_STATUS = 200;
+    private static final int UNAUTHORIZED_STATUS = 401;
+    private static final int FORBIDDEN_STATUS = 403;
+    private static final int NOT_FOUND_STATUS = 404;
+    private static final int METHOD_NOT_ALLOWED_STATUS = 405;
+    private static final int TIMEOUT_MS = 3000;
+
+    private static final String BATCH_HEARTBEAT_API_PATH = "/registry/instances";
+    private static final String HEARTBEAT_API_PATH = "/registry/instance";
+
+    /**
+     * 代理的实例列表，格式：app@ip:port，逗号分隔
+     */
+    public static final String BATCH_INSTANCES_PROPERTY = "csp.sentinel.heartbeat.batch.instances";
+
+    /**
+     * 代理的逻辑实例，key 为 app@ip:port
+     */
+    private static final ConcurrentMap<String, Map<String, String>> INSTANCES = new ConcurrentHashMap<>();
+
+    private final HeartbeatMessage heartBeat = new HeartbeatMessage();
+    private final SimpleHttpClient httpClient = new SimpleHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HeartbeatIntervalNegotiator intervalNegotiator =
+        new HeartbeatIntervalNegotiator("AuthenticatedBatchHeartbeatSender");
+
+    private final DashboardEndpointSelector endpointSelector;
+
+    /**
+     * 批量接口失败而逐个请求成功的 Dashboard，不再尝试批量接口
+     */
+    private final Set<Endpoint> batchUnsupported = ConcurrentHashMap.newKeySet();
+
+    public AuthenticatedBatchHeartbeatSender() {
+        this(createEndpointSelector());
+        registerConfiguredInstances(System.getProperty(BATCH_INSTANCES_PROPERTY));
+    }
+
+    AuthenticatedBatchHeartbeatSender(DashboardEndpointSelector endpointSelector) {
+        this.endpointSelector = endpointSelector;
+    }
+
+    private static DashboardEndpointSelector createEndpointSelector() {
+        List<Endpoint> newAddrs = TransportConfig.getConsoleServerList();
+        if (newAddrs.isEmpty()) {
+            RecordLog.warn("[AuthenticatedBatchHeartbeatSender] Dashboard server address not configured");
+        } else {
+            RecordLog.info("[AuthenticatedBatchHeartbeatSender] Dashboard address retrieved: {}", newAddrs);
+            RecordLog.info("[AuthenticatedBatchHeartbeatSender] Using batch heartbeat path: {}",
+                BATCH_HEARTBEAT_API_PATH);
+        }
+        return new DashboardEndpointSelector("AuthenticatedBatchHeartbeatSender", newAddrs);
+    }
+
+    /**
+     * 注册一个代理的逻辑实例，之后随本进程的心跳一起上报
+     */
+    public static void register(String app, String ip, int port, String hostname) {
+        if (StringUtil.isBlank(app) || StringUtil.isBlank(ip) || port <= 0) {
+            throw new IllegalArgumentException("Invalid instance: " + app + "@" + ip + ":" + port);
+        }
+        Map<String, String> params = new HashMap<>(8);
+        params.put("app", app);
+        params.put("app_type", "0");
+        params.put("ip", ip);
+        params.put("port", String.valueOf(port));
+        params.put("hostname", StringUtil.isBlank(hostname) ? ip : hostname);
+        INSTANCES.put(key(app, ip, port), params);
+    }
+
+    public static void unregister(String app, String ip, int port) {
+        INSTANCES.remove(key(app, ip, port));
+    }
+
+    private static String key(String app, String ip, int port) {
+        return app + "@" + ip + ":" + port;
+    }
+
+    private static void registerConfiguredInstances(String config) {
+        if (StringUtil.isBlank(config)) {
+            return;
+        }
+        for (String item : config.split(",")) {
+            item = item.trim();
+            int at = item.indexOf('@');
+            int colon = item.lastIndexOf(':');
+            if (at <= 0 || colon <= at + 1) {
+                RecordLog.warn("[AuthenticatedBatchHeartbeatSender] Ignoring invalid instance: {}", item);
+                continue;
+            }
+            try {
+                register(item.substring(0, at), item.substring(at + 1, colon),
+                    Integer.parseInt(item.substring(colon + 1)), null);
+            } catch (IllegalArgumentException e) {
+                RecordLog.warn("[AuthenticatedBatchHeartbeatSender] Ignoring invalid instance: {}", item);
+            }
+        }
+    }
+
+    @Override
+    public boolean sendHeartbeat() throws Exception {
+        if (TransportConfig.getRuntimePort() <= 0) {
+            RecordLog.info("[AuthenticatedBatchHeartbeatSender] Command server port not initialized, won't send heartbeat");
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (!intervalNegotiator.isDue(now)) {
+            return false;
+        }
+        List<Endpoint> endpoints = endpointSelector.select(now);
+        if (endpoints.isEmpty()) {
+            if (!endpointSelector.isEmpty()) {
+                RecordLog.debug("[AuthenticatedBatchHeartbeatSender] All dashboards are backing off, skip heartbeat");
+            }
+            intervalNegotiator.onFailure(now);
+            return false;
+        }
+
+        List<Map<String, String>> heartbeats = currentHeartbeats();
+        String appSecret = System.getProperty("csp.sentinel.app.secret");
+        String response = null;
+        if (endpointSelector.isFanOut()) {
+            response = endpointSelector.sendAll(endpoints, addrInfo -> sendTo(addrInfo, heartbeats, appSecret));
+        } else {
+            // 主备模式：每次只发送到一个地址，多个 Dashboard 不可用时不会让心跳线程阻塞多个请求超时
+            response = sendTo(endpoints.get(0), heartbeats, appSecret);
+            if (response == null && endpoints.size() > 1) {
+                intervalNegotiator.onFailover(now);
+                return false;
+            }
+        }
+        if (response == null) {
+            intervalNegotiator.onFailure(now);
+            return false;
+        }
+        intervalNegotiator.onSuccess(now, response);
+        return true;
+    }
+
+    /**
+     * 发送到一个 Dashboard，并记录其成功、失败与耗时
+     *
+     * @return 本进程心跳的响应，发送失败时为 null
+     */
+    String sendTo(Endpoint addrInfo, List<Map<String, String>> heartbeats, String appSecret) {
+        long start = System.currentTimeMillis();
+        String response = null;
+        String failure = null;
+        boolean batchRejected = false;
+        if (!batchUnsupported.contains(addrInfo)) {
+            try {
+                BatchResponse batchResponse = postBatch(addrInfo, heartbeats, appSecret);
+                if (batchResponse.status == OK_STATUS) {
+                    RecordLog.debug("[AuthenticatedBatchHeartbeatSender] {} heartbeats sent to {}",
+                        heartbeats.size(), addrInfo);
+                    response = batchResponse.body == null ? "" : batchResponse.body;
+                } else if (maybeBatchUnsupported(batchResponse.status)) {
+                    // 旧版 Dashboard 没有批量接口，开启登录时返回 401 而不是 404
+                    RecordLog.warn("[AuthenticatedBatchHeartbeatSender] Batch heartbeat to " + addrInfo
+                        + " returned http status code " + batchResponse.status + ", falling back to "
+                        + HEARTBEAT_API_PATH);
+                    batchRejected = true;
+                } else {
+                    RecordLog.warn("[AuthenticatedBatchHeartbeatSender] Failed to send heartbeats to " + addrInfo
+                        + ", http status code: " + batchResponse.status);
+                    failure = "http status code: " + batchResponse.status;
+                }
+            } catch (Exception e) {
+                RecordLog.warn("[AuthenticatedBatchHeartbeatSender] Failed to send heartbeats to " + addrInfo, e);
+                failure = e.toString();
+            }
+        }
+        if (response == null && failure == null) {
+            response = sendOneByOne(addrInfo, heartbeats, appSecret);
+            if (response == null) {
+                failure = "heartbeat of this process not sent";
+            } else if (batchRejected) {
+                RecordLog.warn("[AuthenticatedBatchHeartbeatSender] Dashboard " + addrInfo
+                    + " does not support batch heartbeat, using " + HEARTBEAT_API_PATH + " from now on");
+                batchUnsupported.add(addrInfo);
+            }
+        }
+        long end = System.currentTimeMillis();
+        if (response != null) {
+            endpointSelector.onSuccess(addrInfo, end - start, end);
+        } else {
+            endpointSelector.onFailure(addrInfo, end - start, failure, end);
+        }
+        return response;
+    }
+
+    private static boolean maybeBatchUnsupported(int status) {
+        return status == UNAUTHORIZED_STATUS || status == FORBIDDEN_STATUS
+            || status == NOT_FOUND_STATUS || status == METHOD_NOT_ALLOWED_STATUS;
+    }
+
+    /**
+     * @return 本进程的心跳在前，其后为代理的实例，版本号与本进程相同
+     */
+    private List<Map<String, String>> currentHeartbeats() {
+        Map<String, String> own = heartBeat.generateCurrentMessage();
+        List<Map<String, String>> heartbeats = new ArrayList<>(INSTANCES.size() + 1);
+        heartbeats.add(own);
+        for (Map<String, String> instance : INSTANCES.values()) {
+            Map<String, String> params = new HashMap<>(instance);
+            params.put("v", own.get("v"));
+            params.put("version", own.get("version"));
+            heartbeats.add(params);
+        }
+        return heartbeats;
+    }
+
+    private BatchResponse postBatch(Endpoint addrInfo, List<Map<String, String>> heartbeats, String appSecret)
+        throws Exception {
+        StringBuilder url = new StringBuilder(addrInfo.getProtocol().getProtocol()).append("://")
+            .append(addrInfo.getHost()).append(':').append(addrInfo.getPort()).append(BATCH_HEARTBEAT_API_PATH);
+        if (StringUtil.isNotBlank(appSecret)) {
+            url.append("?app_secret=").append(URLEncoder.encode(appSecret, "UTF-8"));
+        }
+        byte[] body = objectMapper.writeValueAsBytes(heartbeats);
+        HttpURLConnection connection = (HttpURLConnection)new URL(url.toString()).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            String response = null;
+            if (status == OK_STATUS) {
+                response = readBody(connection.getInputStream());
+                logFailures(response);
+            }
+            return new BatchResponse(status, response);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * 批量接口对整批返回成功，单个实例的失败在 data.failures 中（key 为下标）
+     */
+    @SuppressWarnings("unchecked")
+    private void logFailures(String response) {
+        try {
+            Map<String, Object> result = objectMapper.readValue(response, Map.class);
+            if (!Boolean.TRUE.equals(result.get("success"))) {
+                RecordLog.warn("[AuthenticatedBatchHeartbeatSender] Batch heartbeat rejected: {}", result.get("msg"));
+                return;
+            }
+            Object data = result.get("data");
+            Object failures = data instanceof Map ? ((Map<String, Object>)data).get("failures") : null;
+            if (failures instanceof Map && !((Map<?, ?>)failures).isEmpty()) {
+                RecordLog.warn("[AuthenticatedBatchHeartbeatSender] Some heartbeats rejected: {}", failures);
+            }
+        } catch (Exception e) {
+            RecordLog.debug("[AuthenticatedBatchHeartbeatSender] Unrecognized response: {}", response);
+        }
+    }
+
+    private static String readBody(InputStream in) throws Exception {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @return 本进程心跳的响应，本进程心跳未发送成功时为 null
+     */
+    private String sendOneByOne(Endpoint addrInfo, List<Map<String, String>> heartbeats, String appSecret) {
+        String ownResponse = null;
+        for (int i = 0; i < heartbeats.size(); i++) {
+            // 广播模式下多个地址共用心跳列表，不修改原参数
+            Map<String, String> params = new HashMap<>(heartbeats.get(i));
+            if (StringUtil.isNotBlank(appSecret)) {
+                params.put("app_secret", appSecret);
+            }
+            SimpleHttpRequest request = new SimpleHttpRequest(addrInfo, HEARTBEAT_API_PATH);
+            request.setParams(params);
+            try {
+                SimpleHttpResponse response = httpClient.post(request);
+                if (response.getStatusCode() == OK_STATUS) {
+                    if (i == 0) {
+                        String body = response.getBodyAsString();
+                        ownResponse = body == null ? "" : body;
+                    }
+                } else {
+                    RecordLog.warn("[AuthenticatedBatchHeartbeatSender] Failed to send heartbeat of "
+                        + params.get("app") + "@" + params.get("ip") + ":" + params.get("port") + " to " + addrInfo
+                        + ", http status code: " + response.getStatusCode());
+                }
+            } catch (Exception e) {
+                RecordLog.warn("[AuthenticatedBatchHeartbeatSender] Failed to send heartbeat to " + addrInfo, e);
+                // Dashboard 不可用时不必继续
+                return ownResponse;
+            }
+        }
+        return ownResponse;
+    }
+
+    /**
+     * 心跳任务的调度间隔，实际发送间隔由 Dashboard 建议，见 {@link HeartbeatIntervalNegotiator}
+     */
+    @Override
+    public long intervalMs() {
+        return intervalNegotiator.scheduleIntervalMs();
+    }
+
+    private static final class BatchResponse {
+
+        private final int status;
+        private final String body;
+
+        private BatchResponse(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
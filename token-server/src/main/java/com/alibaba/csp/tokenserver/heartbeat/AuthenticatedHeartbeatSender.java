@@ -22,6 +22,8 @@ import java.util.Map;
  * 1. 使用自定义心跳路径 /registry/instance（而非官方的 /registry/machine）
  * 2. 在心跳请求中携带 app_secret 参数进行鉴权
  * 3. 通过 SPI 机制替换官方的 SimpleHttpHeartbeatSender
+ * 4. 按 Dashboard 响应中建议的间隔发送下一次心跳，见 {@link HeartbeatIntervalNegotiator}
+ * 5. 多个 Dashboard 地址时按健康状态切换并退避，或广播到所有地址，见 {@link DashboardEndpointSelector}
  * 
  * SPI 配置：
  * - 优先级：Spi.ORDER_LOWEST - 200（高于官方实现的 -100）
@@ -30,6 +32,7 @@ import java.util.Map;
  * 使用方式：
  * - 设置 JVM 参数：-Dcsp.sentinel.app.secret=your_secret
  * - 如果未设置 app_secret，心跳请求将不带鉴权参数（Dashboard 需要关闭鉴权）
+ * - 多个 Dashboard 同时接收心跳：-Dcsp.sentinel.heartbeat.fanout=true
  * 
  * @author Token Server Team
  */
@@ -37,7 +40,6 @@ import java.util.Map;
 public class AuthenticatedHeartbeatSender implements HeartbeatSender {
 
     private static final int OK_STATUS = 200;
-    private static final long DEFAULT_INTERVAL = 10000; // 10秒
 
     /**
      * 自定义心跳路径（重构后的 Dashboard 接口）
@@ -46,9 +48,10 @@ public class AuthenticatedHeartbeatSender implements HeartbeatSender {
 
     private final HeartbeatMessage heartBeat = new HeartbeatMessage();
     private final SimpleHttpClient httpClient = new SimpleHttpClient();
+    private final HeartbeatIntervalNegotiator intervalNegotiator =
+        new HeartbeatIntervalNegotiator("AuthenticatedHeartbeatSender");
 
-    private final List<Endpoint> addressList;
-    private int currentAddressIdx = 0;
+    private final DashboardEndpointSelector endpointSelector;
 
     public AuthenticatedHeartbeatSender() {
         // 从配置中获取 Dashboard 地址列表
@@ -59,7 +62,7 @@ public class AuthenticatedHeartbeatSender implements HeartbeatSender {
             RecordLog.info("[AuthenticatedHeartbeatSender] Dashboard address retrieved: {}", newAddrs);
             RecordLog.info("[AuthenticatedHeartbeatSender] Using custom heartbeat path: {}", HEARTBEAT_API_PATH);
         }
-        this.addressList = newAddrs;
+        this.endpointSelector = new DashboardEndpointSelector("AuthenticatedHeartbeatSender", newAddrs);
     }
 
     @Override
@@ -69,15 +72,20 @@ public class AuthenticatedHeartbeatSender implements HeartbeatSender {
             RecordLog.info("[AuthenticatedHeartbeatSender] Command server port not initialized, won't send heartbeat");
             return false;
         }
+        long now = System.currentTimeMillis();
+        if (!intervalNegotiator.isDue(now)) {
+            return false;
+        }
 
-        Endpoint addrInfo = getAvailableAddress();
-        if (addrInfo == null) {
+        List<Endpoint> endpoints = endpointSelector.select(now);
+        if (endpoints.isEmpty()) {
+            if (!endpointSelector.isEmpty()) {
+                RecordLog.debug("[AuthenticatedHeartbeatSender] All dashboards are backing off, skip heartbeat");
+            }
+            intervalNegotiator.onFailure(now);
             return false;
         }
 
-        // 构建心跳请求
-        SimpleHttpRequest request = new SimpleHttpRequest(addrInfo, HEARTBEAT_API_PATH);
-        
         // 生成心跳参数（app, ip, port, version, hostname 等）
         Map<String, String> params = heartBeat.generateCurrentMessage();
         
@@ -89,14 +97,41 @@ public class AuthenticatedHeartbeatSender implements HeartbeatSender {
         } else {
             RecordLog.debug("[AuthenticatedHeartbeatSender] Sending heartbeat without app_secret (authentication disabled)");
         }
-        
-        request.setParams(params);
 
+        String response = null;
+        if (endpointSelector.isFanOut()) {
+            response = endpointSelector.sendAll(endpoints, addrInfo -> sendTo(addrInfo, params));
+        } else {
+            // 主备模式：每次只发送到一个地址，多个 Dashboard 不可用时不会让心跳线程阻塞多个请求超时
+            response = sendTo(endpoints.get(0), params);
+            if (response == null && endpoints.size() > 1) {
+                intervalNegotiator.onFailover(now);
+                return false;
+            }
+        }
+        if (response == null) {
+            intervalNegotiator.onFailure(now);
+            return false;
+        }
+        intervalNegotiator.onSuccess(now, response);
+        return true;
+    }
+
+    /**
+     * @return 响应内容，发送失败时为 null
+     */
+    private String sendTo(Endpoint addrInfo, Map<String, String> params) {
+        SimpleHttpRequest request = new SimpleHttpRequest(addrInfo, HEARTBEAT_API_PATH);
+        request.setParams(params);
+        long start = System.currentTimeMillis();
         try {
             SimpleHttpResponse response = httpClient.post(request);
+            long end = System.currentTimeMillis();
             if (response.getStatusCode() == OK_STATUS) {
                 RecordLog.debug("[AuthenticatedHeartbeatSender] Heartbeat sent successfully to {}", addrInfo);
-                return true;
+                endpointSelector.onSuccess(addrInfo, end - start, end);
+                String body = response.getBodyAsString();
+                return body == null ? "" : body;
             } else if (clientErrorCode(response.getStatusCode())) {
                 RecordLog.warn("[AuthenticatedHeartbeatSender] Failed to send heartbeat to " + addrInfo
                     + ", http status code: " + response.getStatusCode() + ", response: " + response.getBodyAsString());
@@ -104,26 +139,21 @@ public class AuthenticatedHeartbeatSender implements HeartbeatSender {
                 RecordLog.warn("[AuthenticatedHeartbeatSender] Dashboard server error when sending heartbeat to " + addrInfo
                     + ", http status code: " + response.getStatusCode());
             }
+            endpointSelector.onFailure(addrInfo, end - start, "http status code: " + response.getStatusCode(), end);
         } catch (Exception e) {
+            long end = System.currentTimeMillis();
             RecordLog.warn("[AuthenticatedHeartbeatSender] Failed to send heartbeat to " + addrInfo, e);
+            endpointSelector.onFailure(addrInfo, end - start, e.toString(), end);
         }
-        return false;
+        return null;
     }
 
+    /**
+     * 心跳任务的调度间隔，实际发送间隔由 Dashboard 建议，见 {@link HeartbeatIntervalNegotiator}
+     */
     @Override
     public long intervalMs() {
-        return DEFAULT_INTERVAL;
-    }
-
-    private Endpoint getAvailableAddress() {
-        if (addressList == null || addressList.isEmpty()) {
-            return null;
-        }
-        if (currentAddressIdx < 0) {
-            currentAddressIdx = 0;
-        }
-        int index = currentAddressIdx % addressList.size();
-        return addressList.get(index);
+        return intervalNegotiator.scheduleIntervalMs();
     }
 
     private boolean clientErrorCode(int code) {
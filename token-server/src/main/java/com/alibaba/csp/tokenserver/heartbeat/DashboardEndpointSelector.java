@@ -0,0 +1,277 @@
+package com.alibaba.csp.tokenserver.heartbeat;
+
+import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
+import com.alibaba.csp.sentinel.log.RecordLog;
+import com.alibaba.csp.sentinel.transport.endpoint.Endpoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Dashboard 地址选择 - 心跳在多个 Dashboard 地址间按健康状态轮换
+ *
+ * 功能：
+ * 1. 默认主备模式：固定使用最近一次成功的地址，失败后在下一个心跳 tick 切换到下一个可用地址，
+ *    每次心跳只发送一个请求
+ * 2. 发送失败的地址按连续失败次数指数退避（2 秒起，最长 60 秒，带 20% 抖动），退避期间不再选择
+ * 3. 设置 -Dcsp.sentinel.heartbeat.fanout=true 时为广播模式，每次心跳发送到所有可用地址，
+ *    适用于多个 Dashboard 各自维护完整实例列表的高可用部署
+ * 4. 统计每个地址的发送次数、失败次数与耗时，通过 Actuator 端点 /actuator/heartbeat 查看
+ *
+ * @author Token Server Team
+ */
+public class DashboardEndpointSelector {
+
+    public static final String FAN_OUT_PROPERTY = "csp.sentinel.heartbeat.fanout";
+
+    static final long BASE_BACKOFF_MS = 2000;
+    static final long MAX_BACKOFF_MS = 60000;
+
+    /**
+     * 广播模式下心跳线程等待所有地址发送完成的最长时间，与单个心跳请求的超时相同；
+     * 超时的请求继续在后台完成
+     */
+    static final long FAN_OUT_TIMEOUT_MS = 3000;
+
+    /**
+     * 各心跳发送器的地址与统计，key 为发送器名称。
+     * 每个发送器只由 SPI 创建一次；同名的选择器再次创建时会替换之前的统计
+     */
+    private static final Map<String, DashboardEndpointSelector> SELECTORS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final List<EndpointState> states;
+    private final boolean fanOut;
+    private final long fanOutTimeoutMs;
+
+    /**
+     * 主备模式下优先使用的地址下标
+     */
+    private volatile int preferred = 0;
+
+    private volatile ExecutorService fanOutExecutor;
+
+    /**
+     * 创建并注册到 {@link #getAllStats()}
+     */
+    public DashboardEndpointSelector(String name, List<Endpoint> endpoints) {
+        this(name, endpoints, Boolean.parseBoolean(System.getProperty(FAN_OUT_PROPERTY)), FAN_OUT_TIMEOUT_MS);
+        SELECTORS.put(name, this);
+    }
+
+    /**
+     * 不注册到 {@link #getAllStats()}
+     */
+    DashboardEndpointSelector(String name, List<Endpoint> endpoints, boolean fanOut, long fanOutTimeoutMs) {
+        this.name = name;
+        this.fanOut = fanOut;
+        this.fanOutTimeoutMs = fanOutTimeoutMs;
+        List<EndpointState> list = new ArrayList<>();
+        if (endpoints != null) {
+            for (Endpoint endpoint : endpoints) {
+                list.add(new EndpointState(endpoint));
+            }
+        }
+        this.states = Collections.unmodifiableList(list);
+    }
+
+    public boolean isFanOut() {
+        return fanOut;
+    }
+
+    public boolean isEmpty() {
+        return states.isEmpty();
+    }
+
+    /**
+     * @return 本次心跳可用的地址，主备模式下首选地址在前（只发送到第一个），广播模式下按配置顺序；
+     *         全部处于退避中时为空
+     */
+    public List<Endpoint> select(long now) {
+        List<Endpoint> selected = new ArrayList<>(states.size());
+        int size = states.size();
+        int start = fanOut ? 0 : preferred;
+        for (int i = 0; i < size; i++) {
+            EndpointState state = states.get((start + i) % size);
+            if (state.backoffUntil <= now) {
+                selected.add(state.endpoint);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 广播模式：并行发送到所有地址，单个 Dashboard 变慢不会拖慢其它地址的心跳
+     *
+     * @param sender 发送到一个地址，返回响应内容，失败时返回 null
+     * @return 按地址顺序第一个成功的响应，全部失败时为 null
+     */
+    public String sendAll(List<Endpoint> endpoints, Function<Endpoint, String> sender) {
+        if (endpoints.size() == 1) {
+            return sender.apply(endpoints.get(0));
+        }
+        ExecutorService executor = getFanOutExecutor();
+        List<Future<String>> futures = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            futures.add(executor.submit(() -> sender.apply(endpoint)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fanOutTimeoutMs);
+        String first = null;
+        for (Future<String> future : futures) {
+            try {
+                String response = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    first = response;
+                }
+            } catch (TimeoutException e) {
+                RecordLog.warn("[{}] Heartbeat fan-out still running after {} ms", name, fanOutTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                RecordLog.warn("[" + name + "] Heartbeat fan-out failed", e.getCause());
+            }
+        }
+        return first;
+    }
+
+    private ExecutorService getFanOutExecutor() {
+        if (fanOutExecutor == null) {
+            synchronized (this) {
+                if (fanOutExecutor == null) {
+                    fanOutExecutor = Executors.newFixedThreadPool(states.size(),
+                        new NamedThreadFactory("sentinel-heartbeat-fanout", true));
+                }
+            }
+        }
+        return fanOutExecutor;
+    }
+
+    public void onSuccess(Endpoint endpoint, long latencyMs, long now) {
+        EndpointState state = find(endpoint);
+        if (state == null) {
+            return;
+        }
+        state.success.incrementAndGet();
+        state.recordLatency(latencyMs);
+        state.lastSuccessTime = now;
+        if (state.consecutiveFailures > 0) {
+            RecordLog.info("[{}] Dashboard {} recovered after {} failures", name, endpoint,
+                state.consecutiveFailures);
+        }
+        state.consecutiveFailures = 0;
+        state.backoffUntil = 0;
+        if (!fanOut) {
+            preferred = states.indexOf(state);
+        }
+    }
+
+    public void onFailure(Endpoint endpoint, long latencyMs, String reason, long now) {
+        EndpointState state = find(endpoint);
+        if (state == null) {
+            return;
+        }
+        state.failure.incrementAndGet();
+        state.recordLatency(latencyMs);
+        state.lastFailure = reason;
+        int failures = ++state.consecutiveFailures;
+        long backoff = Math.min(BASE_BACKOFF_MS << Math.min(failures - 1, 16), MAX_BACKOFF_MS);
+        backoff += (long)(backoff * 0.2 * ThreadLocalRandom.current().nextDouble());
+        state.backoffUntil = now + backoff;
+        RecordLog.warn("[{}] Dashboard {} failed {} times in a row ({}), backing off {} ms", name, endpoint,
+            failures, reason, backoff);
+        if (!fanOut && states.size() > 1) {
+            // 主备模式下切换到下一个地址
+            preferred = (states.indexOf(state) + 1) % states.size();
+        }
+    }
+
+    private EndpointState find(Endpoint endpoint) {
+        for (EndpointState state : states) {
+            if (state.endpoint == endpoint) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", fanOut ? "fan-out" : "failover");
+        List<Map<String, Object>> endpoints = new ArrayList<>(states.size());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < states.size(); i++) {
+            EndpointState state = states.get(i);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("address", String.valueOf(state.endpoint));
+            item.put("preferred", !fanOut && i == preferred);
+            long success = state.success.get();
+            long failure = state.failure.get();
+            item.put("success", success);
+            item.put("failure", failure);
+            item.put("consecutiveFailures", state.consecutiveFailures);
+            item.put("backoffRemainingMs", Math.max(0, state.backoffUntil - now));
+            item.put("avgLatencyMs", success + failure == 0 ? 0 : state.totalLatencyMs.get() / (success + failure));
+            item.put("maxLatencyMs", state.maxLatencyMs.get());
+            item.put("lastLatencyMs", state.lastLatencyMs);
+            item.put("lastSuccessTime", state.lastSuccessTime);
+            item.put("lastFailure", state.lastFailure);
+            endpoints.add(item);
+        }
+        stats.put("endpoints", endpoints);
+        return stats;
+    }
+
+    /**
+     * @return 所有心跳发送器的统计，key 为发送器名称
+     */
+    public static Map<String, Object> getAllStats() {
+        Map<String, Object> all = new LinkedHashMap<>();
+        for (Map.Entry<String, DashboardEndpointSelector> entry : SELECTORS.entrySet()) {
+            all.put(entry.getKey(), entry.getValue().getStats());
+        }
+        return all;
+    }
+
+    private static final class EndpointState {
+
+        private final Endpoint endpoint;
+
+        private final AtomicLong success = new AtomicLong();
+        private final AtomicLong failure = new AtomicLong();
+        private final AtomicLong totalLatencyMs = new AtomicLong();
+        private final AtomicLong maxLatencyMs = new AtomicLong();
+        private volatile long lastLatencyMs;
+        private volatile long lastSuccessTime;
+        private volatile String lastFailure;
+
+        /**
+         * 只由心跳线程（或广播模式下该地址的发送线程）修改
+         */
+        private volatile int consecutiveFailures;
+        private volatile long backoffUntil;
+
+        private EndpointState(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private void recordLatency(long latencyMs) {
+            lastLatencyMs = latencyMs;
+            totalLatencyMs.addAndGet(latencyMs);
+            maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+        }
+    }
+}
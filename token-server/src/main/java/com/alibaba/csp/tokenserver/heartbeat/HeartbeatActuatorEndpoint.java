@@ -0,0 +1,25 @@
+package com.alibaba.csp.tokenserver.heartbeat;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 心跳发送统计 - /actuator/heartbeat
+ *
+ * 按心跳发送器列出每个 Dashboard 地址的成功/失败次数、连续失败次数、退避剩余时间以及发送耗时，
+ * 见 {@link DashboardEndpointSelector#getStats()}
+ *
+ * @author Token Server Team
+ */
+@Component
+@Endpoint(id = "heartbeat")
+public class HeartbeatActuatorEndpoint {
+
+    @ReadOperation
+    public Map<String, Object> heartbeat() {
+        return DashboardEndpointSelector.getAllStats();
+    }
+}
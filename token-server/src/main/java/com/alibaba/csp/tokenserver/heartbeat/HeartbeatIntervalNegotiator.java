@@ -0,0 +1,129 @@
+package com.alibaba.csp.tokenserver.heartbeat;
+
+import com.alibaba.csp.sentinel.log.RecordLog;
+import com.alibaba.csp.sentinel.transport.config.TransportConfig;
+import com.alibaba.csp.sentinel.util.StringUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+
+/**
+ * 心跳间隔协商 - 按 Dashboard 心跳响应中建议的间隔（data.nextIntervalMs）发送下一次心跳
+ *
+ * 功能：
+ * 1. 心跳任务按 {@link #TICK_MS} 调度，未到下次发送时间时跳过，从而可以动态调整间隔
+ * 2. 建议间隔限制在 [csp.sentinel.heartbeat.interval.min.ms, csp.sentinel.heartbeat.interval.max.ms] 内，
+ *    默认 [2000, 30000]，Dashboard 不返回建议（旧版本）或发送失败时使用默认的 10 秒
+ * 3. 显式配置了 csp.sentinel.heartbeat.interval.ms 时，心跳任务按该间隔调度，不再协商
+ *
+ * @author Token Server Team
+ */
+public class HeartbeatIntervalNegotiator {
+
+    public static final long DEFAULT_INTERVAL_MS = 10000;
+    static final long TICK_MS = 1000;
+
+    public static final String MIN_INTERVAL_PROPERTY = "csp.sentinel.heartbeat.interval.min.ms";
+    public static final String MAX_INTERVAL_PROPERTY = "csp.sentinel.heartbeat.interval.max.ms";
+    private static final long DEFAULT_MIN_INTERVAL_MS = 2000;
+    private static final long DEFAULT_MAX_INTERVAL_MS = 30000;
+
+    private static final String NEXT_INTERVAL_KEY = "nextIntervalMs";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String name;
+    private final boolean enabled;
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+
+    private volatile long intervalMs = DEFAULT_INTERVAL_MS;
+    private volatile long nextSendTime = 0;
+
+    public HeartbeatIntervalNegotiator(String name) {
+        this.name = name;
+        // 显式配置的间隔由心跳任务直接使用
+        this.enabled = TransportConfig.getHeartbeatIntervalMs() == null;
+        this.minIntervalMs = Math.max(TICK_MS, getLong(MIN_INTERVAL_PROPERTY, DEFAULT_MIN_INTERVAL_MS));
+        this.maxIntervalMs = Math.max(minIntervalMs, getLong(MAX_INTERVAL_PROPERTY, DEFAULT_MAX_INTERVAL_MS));
+    }
+
+    /**
+     * @return 心跳任务的调度间隔
+     */
+    public long scheduleIntervalMs() {
+        return enabled ? TICK_MS : DEFAULT_INTERVAL_MS;
+    }
+
+    /**
+     * @return 是否到了发送下一次心跳的时间
+     */
+    public boolean isDue(long now) {
+        return !enabled || now >= nextSendTime;
+    }
+
+    /**
+     * 心跳发送成功，按响应中建议的间隔安排下一次心跳
+     *
+     * @param responseBody Dashboard 的响应，可能为空
+     */
+    public void onSuccess(long now, String responseBody) {
+        long suggested = parseNextInterval(responseBody);
+        long next = suggested > 0 ? Math.min(Math.max(suggested, minIntervalMs), maxIntervalMs) : DEFAULT_INTERVAL_MS;
+        if (next != intervalMs) {
+            RecordLog.info("[{}] Heartbeat interval changed from {} ms to {} ms (suggested: {} ms)", name,
+                intervalMs, next, suggested);
+            intervalMs = next;
+        }
+        nextSendTime = now + next;
+    }
+
+    /**
+     * 心跳发送失败，不晚于默认间隔重试
+     */
+    public void onFailure(long now) {
+        nextSendTime = now + Math.min(intervalMs, DEFAULT_INTERVAL_MS);
+    }
+
+    /**
+     * 主备模式下当前地址发送失败且还有其它可用地址，下一个 tick 发送到下一个地址
+     */
+    public void onFailover(long now) {
+        nextSendTime = now + TICK_MS;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    /**
+     * @return 响应中建议的间隔，没有建议或无法解析时为 -1
+     */
+    @SuppressWarnings("unchecked")
+    long parseNextInterval(String responseBody) {
+        if (StringUtil.isBlank(responseBody)) {
+            return -1;
+        }
+        try {
+            Map<String, Object> result = objectMapper.readValue(responseBody, Map.class);
+            Object data = result.get("data");
+            Object next = data instanceof Map ? ((Map<String, Object>)data).get(NEXT_INTERVAL_KEY) : null;
+            return next instanceof Number ? ((Number)next).longValue() : -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static long getLong(String property, long defaultValue) {
+        String value = System.getProperty(property);
+        if (StringUtil.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            RecordLog.warn("[HeartbeatIntervalNegotiator] Invalid {}: {}", property, value);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.alibaba.csp.tokenserver.heartbeat;
+
+import com.alibaba.csp.sentinel.transport.config.TransportConfig;
+import com.alibaba.csp.sentinel.transport.endpoint.Endpoint;
+import com.alibaba.csp.sentinel.transport.endpoint.Protocol;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link AuthenticatedBatchHeartbeatSender} 单元测试，Dashboard 由本地 HTTP 服务模拟
+ *
+ * @author Token Server Team
+ */
+class AuthenticatedBatchHeartbeatSenderTest {
+
+    private static final String OK_BODY = "{\"success\":true,\"code\":0,\"data\":{}}";
+
+    private HttpServer server;
+    private Endpoint dashboard;
+
+    private final AtomicInteger batchRequests = new AtomicInteger();
+    private final AtomicInteger singleRequests = new AtomicInteger();
+    private volatile int batchStatus = 200;
+    private volatile int singleStatus = 200;
+
+    @BeforeEach
+    void startDashboard() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/registry/instances", exchange -> {
+            batchRequests.incrementAndGet();
+            reply(exchange, batchStatus);
+        });
+        server.createContext("/registry/instance", exchange -> {
+            singleRequests.incrementAndGet();
+            reply(exchange, singleStatus);
+        });
+        server.start();
+        dashboard = new Endpoint(Protocol.HTTP, "127.0.0.1", server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void stopDashboard() {
+        server.stop(0);
+    }
+
+    @Test
+    void batchHeartbeatSentInOneRequest() {
+        AuthenticatedBatchHeartbeatSender sender = newSender();
+
+        assertEquals(OK_BODY, sender.sendTo(dashboard, heartbeats(3), "secret"));
+        assertEquals(1, batchRequests.get());
+        assertEquals(0, singleRequests.get());
+    }
+
+    @Test
+    void notFoundFallsBackToSingleHeartbeats() {
+        batchStatus = 404;
+        AuthenticatedBatchHeartbeatSender sender = newSender();
+
+        assertEquals(OK_BODY, sender.sendTo(dashboard, heartbeats(3), "secret"));
+        assertEquals(1, batchRequests.get());
+        assertEquals(3, singleRequests.get());
+
+        // 记住不支持批量接口的 Dashboard
+        assertEquals(OK_BODY, sender.sendTo(dashboard, heartbeats(3), "secret"));
+        assertEquals(1, batchRequests.get());
+        assertEquals(6, singleRequests.get());
+    }
+
+    @Test
+    void unauthorizedFromOldDashboardFallsBackToSingleHeartbeats() {
+        // 开启登录的旧版 Dashboard 对未知路径返回 401
+        batchStatus = 401;
+        AuthenticatedBatchHeartbeatSender sender = newSender();
+
+        assertEquals(OK_BODY, sender.sendTo(dashboard, heartbeats(2), "secret"));
+        assertEquals(2, singleRequests.get());
+        assertEquals(OK_BODY, sender.sendTo(dashboard, heartbeats(2), "secret"));
+        assertEquals(1, batchRequests.get());
+        assertEquals(4, singleRequests.get());
+    }
+
+    @Test
+    void batchStillTriedWhenSingleHeartbeatAlsoFails() {
+        // 例如 app_secret 错误：逐个请求同样失败，不能断定 Dashboard 不支持批量接口
+        batchStatus = 401;
+        singleStatus = 401;
+        AuthenticatedBatchHeartbeatSender sender = newSender();
+
+        assertNull(sender.sendTo(dashboard, heartbeats(2), "wrong"));
+        assertNull(sender.sendTo(dashboard, heartbeats(2), "wrong"));
+        assertEquals(2, batchRequests.get());
+
+        batchStatus = 200;
+        assertEquals(OK_BODY, sender.sendTo(dashboard, heartbeats(2), "secret"));
+        assertEquals(3, batchRequests.get());
+    }
+
+    @Test
+    void serverErrorDoesNotFallBack() {
+        batchStatus = 502;
+        AuthenticatedBatchHeartbeatSender sender = newSender();
+
+        assertNull(sender.sendTo(dashboard, heartbeats(2), "secret"));
+        assertEquals(1, batchRequests.get());
+        assertEquals(0, singleRequests.get());
+    }
+
+    @Test
+    void failoverSendsToOneDashboardPerTick() throws Exception {
+        TransportConfig.setRuntimePort(8719);
+        Endpoint dead;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            dead = new Endpoint(Protocol.HTTP, "127.0.0.1", socket.getLocalPort());
+        }
+        AuthenticatedBatchHeartbeatSender sender = new AuthenticatedBatchHeartbeatSender(
+            new DashboardEndpointSelector("test", Arrays.asList(dead, dashboard), false,
+                DashboardEndpointSelector.FAN_OUT_TIMEOUT_MS));
+
+        // 首选地址不可用时本次心跳不再尝试其它地址，避免心跳线程阻塞多个请求超时
+        assertFalse(sender.sendHeartbeat());
+        assertEquals(0, batchRequests.get());
+
+        // 下一个 tick 发送到下一个地址
+        Thread.sleep(HeartbeatIntervalNegotiator.TICK_MS);
+        assertTrue(sender.sendHeartbeat());
+        assertEquals(1, batchRequests.get());
+    }
+
+    private AuthenticatedBatchHeartbeatSender newSender() {
+        return new AuthenticatedBatchHeartbeatSender(new DashboardEndpointSelector("test",
+            Collections.singletonList(dashboard), false, DashboardEndpointSelector.FAN_OUT_TIMEOUT_MS));
+    }
+
+    private static List<Map<String, String>> heartbeats(int count) {
+        List<Map<String, String>> heartbeats = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, String> params = new HashMap<>(8);
+            params.put("app", "app" + i);
+            params.put("ip", "10.0.0." + (i + 1));
+            params.put("port", "8719");
+            heartbeats.add(params);
+        }
+        return heartbeats;
+    }
+
+    private static void reply(HttpExchange exchange, int status) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            while (in.read() != -1) {
+                // 读完请求体
+            }
+        }
+        byte[] body = status == 200 ? OK_BODY.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.alibaba.csp.tokenserver.heartbeat;
+
+import com.alibaba.csp.sentinel.transport.endpoint.Endpoint;
+import com.alibaba.csp.sentinel.transport.endpoint.Protocol;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link DashboardEndpointSelector} 单元测试
+ *
+ * @author Token Server Team
+ */
+class DashboardEndpointSelectorTest {
+
+    private final Endpoint a = new Endpoint(Protocol.HTTP, "dashboard-a", 8080);
+    private final Endpoint b = new Endpoint(Protocol.HTTP, "dashboard-b", 8080);
+    private final Endpoint c = new Endpoint(Protocol.HTTP, "dashboard-c", 8080);
+
+    @Test
+    void backoffGrowsExponentiallyUpToCap() {
+        DashboardEndpointSelector selector = failover(Collections.singletonList(a));
+        long now = 0;
+        for (int failures = 1; failures <= 10; failures++) {
+            selector.onFailure(a, 5, "timeout", now);
+            long backoff = Math.min(DashboardEndpointSelector.BASE_BACKOFF_MS << (failures - 1),
+                DashboardEndpointSelector.MAX_BACKOFF_MS);
+            // 抖动最多 20%
+            assertTrue(selector.select(now + backoff - 1).isEmpty(), "failures: " + failures);
+            long maxBackoff = backoff * 6 / 5;
+            assertEquals(Collections.singletonList(a), selector.select(now + maxBackoff), "failures: " + failures);
+            now += maxBackoff;
+        }
+
+        // 成功后重置退避
+        selector.onSuccess(a, 5, now);
+        selector.onFailure(a, 5, "timeout", now);
+        assertEquals(Collections.singletonList(a),
+            selector.select(now + DashboardEndpointSelector.BASE_BACKOFF_MS * 6 / 5));
+    }
+
+    @Test
+    void failoverSwitchesPreferredEndpoint() {
+        DashboardEndpointSelector selector = failover(Arrays.asList(a, b, c));
+        assertEquals(Arrays.asList(a, b, c), selector.select(0));
+
+        // 失败后切换到下一个地址，失败的地址退避期间不再选择
+        selector.onFailure(a, 5, "connection refused", 0);
+        assertEquals(Arrays.asList(b, c), selector.select(0));
+        assertEquals(Arrays.asList(b, c, a), selector.select(DashboardEndpointSelector.MAX_BACKOFF_MS * 2));
+
+        // 成功的地址成为首选
+        selector.onSuccess(c, 5, 1000);
+        assertEquals(Arrays.asList(c, b), selector.select(1000));
+        selector.onSuccess(a, 5, 1000);
+        assertEquals(Arrays.asList(a, b, c), selector.select(1000));
+    }
+
+    @Test
+    void fanOutSkipsBackingOffEndpoints() {
+        DashboardEndpointSelector selector = fanOut(Arrays.asList(a, b, c), 1000);
+        selector.onFailure(b, 5, "http status code: 502", 0);
+        assertEquals(Arrays.asList(a, c), selector.select(0));
+
+        // 广播模式下始终按配置顺序
+        selector.onFailure(a, 5, "http status code: 502", 0);
+        assertEquals(Collections.singletonList(c), selector.select(0));
+        selector.onSuccess(b, 5, 0);
+        assertEquals(Arrays.asList(b, c), selector.select(0));
+
+        selector.onFailure(c, 5, "timeout", 0);
+        assertEquals(Collections.singletonList(b), selector.select(1));
+    }
+
+    @Test
+    void sendAllReturnsFirstSuccessInEndpointOrder() {
+        DashboardEndpointSelector selector = fanOut(Arrays.asList(a, b, c), 5000);
+        CountDownLatch cSent = new CountDownLatch(1);
+        String response = selector.sendAll(Arrays.asList(a, b, c), endpoint -> {
+            if (endpoint == a) {
+                return null;
+            }
+            if (endpoint == b) {
+                // b 在 c 之后完成，但按地址顺序仍返回 b 的响应
+                await(cSent, 5000);
+                return "b";
+            }
+            cSent.countDown();
+            return "c";
+        });
+        assertEquals("b", response);
+    }
+
+    @Test
+    void sendAllStopsWaitingAfterTimeout() {
+        DashboardEndpointSelector selector = fanOut(Arrays.asList(a, b), 200);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            long start = System.nanoTime();
+            String response = selector.sendAll(Arrays.asList(a, b), endpoint -> {
+                if (endpoint == a) {
+                    await(release, 10000);
+                    return "a";
+                }
+                return "b";
+            });
+            // a 超时，返回已完成的 b
+            assertEquals("b", response);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+
+            response = selector.sendAll(Arrays.asList(a, b), endpoint -> {
+                await(release, 10000);
+                return null;
+            });
+            assertNull(response);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void registeredSelectorReplacesPreviousStats() {
+        new DashboardEndpointSelector("DashboardEndpointSelectorTest", Collections.singletonList(a));
+        new DashboardEndpointSelector("DashboardEndpointSelectorTest", Arrays.asList(a, b));
+        Map<?, ?> stats = (Map<?, ?>)DashboardEndpointSelector.getAllStats().get("DashboardEndpointSelectorTest");
+        assertEquals(2, ((List<?>)stats.get("endpoints")).size());
+
+        // 测试用的构造方法不注册
+        failover(Collections.singletonList(c));
+        assertNull(DashboardEndpointSelector.getAllStats().get("unregistered"));
+    }
+
+    private static DashboardEndpointSelector failover(List<Endpoint> endpoints) {
+        return new DashboardEndpointSelector("unregistered", endpoints, false,
+            DashboardEndpointSelector.FAN_OUT_TIMEOUT_MS);
+    }
+
+    private static DashboardEndpointSelector fanOut(List<Endpoint> endpoints, long timeoutMs) {
+        return new DashboardEndpointSelector("unregistered", endpoints, true, timeoutMs);
+    }
+
+    private static void await(CountDownLatch latch, long timeoutMs) {
+        try {
+            latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.alibaba.csp.tokenserver.heartbeat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link HeartbeatIntervalNegotiator} 单元测试
+ *
+ * @author Token Server Team
+ */
+class HeartbeatIntervalNegotiatorTest {
+
+    @AfterEach
+    void clearProperties() {
+        System.clearProperty(HeartbeatIntervalNegotiator.MIN_INTERVAL_PROPERTY);
+        System.clearProperty(HeartbeatIntervalNegotiator.MAX_INTERVAL_PROPERTY);
+    }
+
+    @Test
+    void onSuccessClampsSuggestedInterval() {
+        HeartbeatIntervalNegotiator negotiator = new HeartbeatIntervalNegotiator("test");
+        assertEquals(HeartbeatIntervalNegotiator.TICK_MS, negotiator.scheduleIntervalMs());
+        assertTrue(negotiator.isDue(0));
+
+        negotiator.onSuccess(0, response(5000));
+        assertEquals(5000, negotiator.getIntervalMs());
+        assertFalse(negotiator.isDue(4999));
+        assertTrue(negotiator.isDue(5000));
+
+        negotiator.onSuccess(0, response(500));
+        assertEquals(2000, negotiator.getIntervalMs());
+
+        negotiator.onSuccess(0, response(120000));
+        assertEquals(30000, negotiator.getIntervalMs());
+
+        // 失败后不晚于默认间隔重试
+        negotiator.onFailure(0);
+        assertTrue(negotiator.isDue(HeartbeatIntervalNegotiator.DEFAULT_INTERVAL_MS));
+        assertEquals(30000, negotiator.getIntervalMs());
+
+        // 切换地址时下一个 tick 即重试
+        negotiator.onFailover(0);
+        assertFalse(negotiator.isDue(HeartbeatIntervalNegotiator.TICK_MS - 1));
+        assertTrue(negotiator.isDue(HeartbeatIntervalNegotiator.TICK_MS));
+        assertEquals(30000, negotiator.getIntervalMs());
+    }
+
+    @Test
+    void configuredBoundsApply() {
+        System.setProperty(HeartbeatIntervalNegotiator.MIN_INTERVAL_PROPERTY, "5000");
+        System.setProperty(HeartbeatIntervalNegotiator.MAX_INTERVAL_PROPERTY, "8000");
+        HeartbeatIntervalNegotiator negotiator = new HeartbeatIntervalNegotiator("test");
+        negotiator.onSuccess(0, response(1000));
+        assertEquals(5000, negotiator.getIntervalMs());
+        negotiator.onSuccess(0, response(60000));
+        assertEquals(8000, negotiator.getIntervalMs());
+    }
+
+    @Test
+    void missingSuggestionFallsBackToDefault() {
+        HeartbeatIntervalNegotiator negotiator = new HeartbeatIntervalNegotiator("test");
+        assertEquals(-1, negotiator.parseNextInterval(null));
+        assertEquals(-1, negotiator.parseNextInterval(""));
+        assertEquals(-1, negotiator.parseNextInterval("not json"));
+        assertEquals(-1, negotiator.parseNextInterval("{\"code\":0,\"msg\":\"success\",\"data\":null}"));
+        assertEquals(-1, negotiator.parseNextInterval("{\"code\":0,\"data\":{\"nextIntervalMs\":\"fast\"}}"));
+        assertEquals(3000, negotiator.parseNextInterval(response(3000)));
+
+        negotiator.onSuccess(0, response(3000));
+        // 旧版本 Dashboard 不返回建议
+        negotiator.onSuccess(0, "{\"code\":0,\"msg\":\"success\",\"data\":null}");
+        assertEquals(HeartbeatIntervalNegotiator.DEFAULT_INTERVAL_MS, negotiator.getIntervalMs());
+    }
+
+    private static String response(long nextIntervalMs) {
+        return "{\"code\":0,\"msg\":\"success\",\"data\":{\"nextIntervalMs\":" + nextIntervalMs + "}}";
+    }
+}